@@ -0,0 +1,11 @@
+plugins {
+    id("schat.jmh")
+}
+
+description = "JMH microbenchmarks of the hot paths in sChat."
+
+dependencies {
+    jmh(project(":schat-core"))
+    jmh(project(":schat-ui"))
+    jmh(libs.adventure.minimessage)
+}
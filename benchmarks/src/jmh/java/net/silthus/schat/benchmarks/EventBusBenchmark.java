@@ -0,0 +1,91 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import net.silthus.schat.chatter.Chatter;
+import net.silthus.schat.eventbus.EventBus;
+import net.silthus.schat.events.chatter.ChatterReceivedMessageEvent;
+import net.silthus.schat.events.config.ConfigReloadedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static net.silthus.schat.identity.Identity.identity;
+import static net.silthus.schat.message.Message.message;
+
+/**
+ * Measures posting events to the event bus with a varying number of subscribers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBusBenchmark {
+
+    @Param({"0", "1", "10"})
+    private int subscribers;
+
+    private EventBus eventBus;
+    private ChatterReceivedMessageEvent chatterEvent;
+    private ConfigReloadedEvent unsubscribedEvent;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        eventBus = EventBus.eventBus();
+        for (int i = 0; i < subscribers; i++)
+            eventBus.on(ChatterReceivedMessageEvent.class, blackhole::consume);
+
+        final Chatter chatter = Chatter.chatter(identity("player"));
+        chatterEvent = new ChatterReceivedMessageEvent(chatter, message("Hello World!").create());
+        unsubscribedEvent = new ConfigReloadedEvent();
+    }
+
+    @TearDown
+    public void tearDown() {
+        eventBus.close();
+    }
+
+    @Benchmark
+    public ChatterReceivedMessageEvent postChatterEvent() {
+        return eventBus.post(chatterEvent);
+    }
+
+    @Benchmark
+    public ConfigReloadedEvent postEventWithoutSubscribers() {
+        return eventBus.post(unsubscribedEvent);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import net.kyori.adventure.text.Component;
+import net.silthus.schat.message.Message;
+import net.silthus.schat.message.MessageSource;
+import net.silthus.schat.ui.format.MiniMessageFormat;
+import net.silthus.schat.ui.view.View;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static net.silthus.schat.identity.Identity.identity;
+import static net.silthus.schat.message.Message.message;
+
+/**
+ * Measures formatting messages with a MiniMessage format.
+ *
+ * <p>The cached benchmark formats the same message for many viewers,
+ * while the uncached benchmark formats more distinct messages than the format caches.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MiniMessageFormatBenchmark {
+
+    private static final String FORMAT = "<gray><source_display_name></gray><dark_gray>: </dark_gray><text>";
+    private static final int DISTINCT_MESSAGES = 1024;
+
+    private final View view = View.empty();
+    private MiniMessageFormat format;
+    private Message message;
+    private Message[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        format = new MiniMessageFormat(FORMAT);
+        final MessageSource source = MessageSource.of(identity("player"));
+        message = message("Hello <b>World</b>!").source(source).create();
+        messages = new Message[DISTINCT_MESSAGES];
+        for (int i = 0; i < messages.length; i++)
+            messages[i] = message("Hello World number " + i + "!").source(source).create();
+    }
+
+    @Benchmark
+    public Component formatCached() {
+        return format.format(view, message);
+    }
+
+    @Benchmark
+    public Component formatUncached() {
+        final Message message = messages[next];
+        next = (next + 1) % messages.length;
+        return format.format(view, message);
+    }
+}
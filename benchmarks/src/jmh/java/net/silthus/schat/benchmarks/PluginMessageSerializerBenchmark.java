@@ -0,0 +1,97 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.benchmarks;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import net.kyori.adventure.text.Component;
+import net.silthus.schat.messenger.GsonPluginMessageSerializer;
+import net.silthus.schat.messenger.PluginMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GOLD;
+import static net.silthus.schat.messenger.PluginMessageSerializer.gsonSerializer;
+import static net.silthus.schat.util.gson.GsonProvider.gsonProvider;
+
+/**
+ * Measures encoding and decoding plugin messages with the gson serializer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PluginMessageSerializerBenchmark {
+
+    private GsonPluginMessageSerializer serializer;
+    private BenchmarkMessage message;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        serializer = gsonSerializer(gsonProvider());
+        serializer.registerMessageType(BenchmarkMessage.class);
+
+        message = new BenchmarkMessage();
+        message.text = text("Hello ").append(text("World", GOLD)).append(text("!"));
+        message.target = UUID.randomUUID();
+        message.timestamp = Instant.now();
+        message.tags = List.of("global", "broadcast", "benchmark");
+        encoded = serializer.encodeToBytes(message);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.encodeToBytes(message);
+    }
+
+    @Benchmark
+    public PluginMessage decode() {
+        return serializer.decode(encoded);
+    }
+
+    public static final class BenchmarkMessage extends PluginMessage {
+        private Component text;
+        private UUID target;
+        private Instant timestamp;
+        private List<String> tags;
+
+        @Override
+        public void process() {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import net.silthus.schat.pointer.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static net.silthus.schat.channel.ChannelSettings.GLOBAL;
+import static net.silthus.schat.channel.ChannelSettings.JOIN_PERMISSION;
+import static net.silthus.schat.channel.ChannelSettings.PRIORITY;
+import static net.silthus.schat.channel.ChannelSettings.PRIVATE;
+import static net.silthus.schat.pointer.Settings.settingsBuilder;
+
+/**
+ * Measures looking up settings that are configured, missing or configured in a parent layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettingsBenchmark {
+
+    private Settings settings;
+    private Settings layered;
+
+    @Setup
+    public void setUp() {
+        settings = settingsBuilder()
+            .withStatic(PRIORITY, 10)
+            .withStatic(JOIN_PERMISSION, "schat.channel.benchmark.join")
+            .withStatic(GLOBAL, false)
+            .create();
+        layered = settings.toBuilder()
+            .withStatic(PRIVATE, true)
+            .create()
+            .toBuilder()
+            .withStatic(GLOBAL, true)
+            .create();
+    }
+
+    @Benchmark
+    public Integer getConfigured() {
+        return settings.get(PRIORITY);
+    }
+
+    @Benchmark
+    public Boolean getDefault() {
+        return settings.get(PRIVATE);
+    }
+
+    @Benchmark
+    public Integer getFromParentLayer() {
+        return layered.get(PRIORITY);
+    }
+
+    @Benchmark
+    public Boolean getOverriddenInLayer() {
+        return layered.get(GLOBAL);
+    }
+}
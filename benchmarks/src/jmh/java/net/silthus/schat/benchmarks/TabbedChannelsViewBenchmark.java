@@ -0,0 +1,109 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.kyori.adventure.text.Component;
+import net.silthus.schat.channel.Channel;
+import net.silthus.schat.channel.ChannelPrototype;
+import net.silthus.schat.chatter.Chatter;
+import net.silthus.schat.chatter.ChatterPrototype;
+import net.silthus.schat.eventbus.EventBus;
+import net.silthus.schat.message.MessageSource;
+import net.silthus.schat.ui.view.ViewConfig;
+import net.silthus.schat.ui.views.tabbed.TabbedChannelsView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static net.silthus.schat.identity.Identity.identity;
+import static net.silthus.schat.message.Message.message;
+
+/**
+ * Measures rendering the tabbed channels view of a chatter with a full message history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabbedChannelsViewBenchmark {
+
+    private static final int MESSAGES = 100;
+
+    @Param({"1", "5"})
+    private int channels;
+
+    private EventBus eventBus;
+    private TabbedChannelsView view;
+
+    @Setup
+    public void setUp() {
+        eventBus = EventBus.eventBus();
+        ChannelPrototype.configure(eventBus);
+        ChatterPrototype.configure(eventBus);
+
+        final Chatter chatter = Chatter.chatter(identity("player"));
+        final Chatter other = Chatter.chatter(identity("other"));
+        final List<Channel> joined = new ArrayList<>();
+        for (int i = 0; i < channels; i++) {
+            final Channel channel = Channel.createChannel("channel" + i);
+            chatter.join(channel);
+            other.join(channel);
+            joined.add(channel);
+        }
+
+        view = new TabbedChannelsView(chatter, new ViewConfig());
+        eventBus.register(view);
+
+        for (int i = 0; i < MESSAGES; i++) {
+            message("Message number " + i)
+                .source(MessageSource.of(other.identity()))
+                .to(joined.get(i % joined.size()))
+                .send();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        eventBus.close();
+    }
+
+    @Benchmark
+    public Component render() {
+        return view.render();
+    }
+}
@@ -14,6 +14,7 @@ dependencies {
     implementation(libs.gradle.plugin.lombok)
     implementation(libs.gradle.plugin.shadow)
     implementation(libs.gradle.plugin.cucumber)
+    implementation(libs.gradle.plugin.jmh)
 
     implementation(files(libs.javaClass.protectionDomain.codeSource.location))
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+import net.kyori.indra.repository.sonatypeSnapshots
+import org.gradle.accessors.dm.LibrariesForLibs
+
+plugins {
+    id("me.champeau.jmh")
+    java
+}
+
+val libs = (project as ExtensionAware).extensions.getByName("libs") as LibrariesForLibs
+
+repositories {
+    mavenCentral()
+    sonatypeSnapshots()
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    // records the allocation rate per operation next to the timings
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+    humanOutputFile.set(layout.buildDirectory.file("reports/jmh/results.txt"))
+    failOnError.set(true)
+    if (project.hasProperty("jmhIncludes")) {
+        includes.add(project.property("jmhIncludes").toString())
+    }
+}
+
+tasks {
+    withType<JavaCompile> {
+        options.compilerArgs.add("-parameters")
+    }
+}
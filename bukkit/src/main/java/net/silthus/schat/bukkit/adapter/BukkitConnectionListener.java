@@ -31,6 +31,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.Plugin;
 
 public final class BukkitConnectionListener extends ConnectionListener implements Listener {
@@ -39,7 +40,7 @@ public final class BukkitConnectionListener extends ConnectionListener implement
     private final BukkitSenderFactory senderFactory;
 
     public BukkitConnectionListener(SChatBukkitServer server) {
-        super(server.chatterRepository(), server.chatterFactory(), server.messenger(), server.eventBus());
+        super(server.chatterRepository(), server.chatterFactory(), server.messenger(), server.eventBus(), server.chatterStore());
         this.plugin = server.bootstrap().loader();
         this.senderFactory = server.senderFactory();
         Bukkit.getServer().getPluginManager().registerEvents(this, server.bootstrap().loader());
@@ -50,6 +51,11 @@ public final class BukkitConnectionListener extends ConnectionListener implement
         onJoin(senderFactory.wrap(event.getPlayer()));
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        onLeave(event.getPlayer().getUniqueId());
+    }
+
     @Override
     protected void sendGlobalJoinPing(final Chatter chatter) {
         // wait until connection is established for sending outgoing plugin messages
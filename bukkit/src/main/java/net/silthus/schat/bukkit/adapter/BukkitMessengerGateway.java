@@ -23,13 +23,12 @@
  */
 package net.silthus.schat.bukkit.adapter;
 
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import lombok.extern.java.Log;
 import net.silthus.schat.messenger.IncomingMessageConsumer;
 import net.silthus.schat.messenger.MessengerGateway;
 import net.silthus.schat.platform.config.ConfigKeys;
 import net.silthus.schat.platform.config.SChatConfig;
+import net.silthus.schat.platform.messaging.ChunkedFraming;
 import net.silthus.schat.platform.plugin.scheduler.SchedulerAdapter;
 import org.bukkit.Server;
 import org.bukkit.entity.Player;
@@ -38,6 +37,7 @@ import org.bukkit.plugin.messaging.PluginMessageListener;
 import org.jetbrains.annotations.NotNull;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.chunkedFraming;
 
 public class BukkitMessengerGateway implements MessengerGateway, PluginMessageListener {
 
@@ -48,43 +48,48 @@ public class BukkitMessengerGateway implements MessengerGateway, PluginMessageLi
                                                                       SchedulerAdapter scheduler,
                                                                       IncomingMessageConsumer consumer,
                                                                       SChatConfig config) {
+        final ChunkedFraming framing = chunkedFraming(config.get(ConfigKeys.MESSAGE_FRAMING));
         if (config.get(ConfigKeys.DEBUG))
-            return new Logging(plugin, server, scheduler, consumer);
+            return new Logging(plugin, server, scheduler, consumer, framing);
         else
-            return new BukkitMessengerGateway(plugin, server, scheduler, consumer);
+            return new BukkitMessengerGateway(plugin, server, scheduler, consumer, framing);
     }
 
     private final Plugin plugin;
     private final Server server;
     private final SchedulerAdapter scheduler;
     private final IncomingMessageConsumer consumer;
+    private final ChunkedFraming framing;
+    private final ChunkedFraming.Reassembler reassembler;
 
-    private BukkitMessengerGateway(Plugin plugin, Server server, SchedulerAdapter scheduler, IncomingMessageConsumer consumer) {
+    private BukkitMessengerGateway(Plugin plugin, Server server, SchedulerAdapter scheduler, IncomingMessageConsumer consumer, ChunkedFraming framing) {
         this.plugin = plugin;
         this.server = server;
         this.scheduler = scheduler;
         this.consumer = consumer;
+        this.framing = framing;
+        this.reassembler = framing.reassembler();
         server.getMessenger().registerOutgoingPluginChannel(plugin, CHANNEL);
         server.getMessenger().registerIncomingPluginChannel(plugin, CHANNEL, this);
     }
 
     @Override
-    public void sendOutgoingMessage(String encodedMessage) {
+    public void sendOutgoingMessage(byte[] encodedMessage) {
         scheduler.executeAsync(() -> dispatchMessage(encodedMessage));
     }
 
-    @SuppressWarnings("UnstableApiUsage")
-    protected void dispatchMessage(String encodedMessage) {
-        final ByteArrayDataOutput out = ByteStreams.newDataOutput();
-        out.writeUTF(encodedMessage);
-        server.sendPluginMessage(plugin, CHANNEL, out.toByteArray());
+    protected void dispatchMessage(byte[] encodedMessage) {
+        for (final byte[] frame : framing.frame(encodedMessage))
+            server.sendPluginMessage(plugin, CHANNEL, frame);
     }
 
     @Override
-    @SuppressWarnings("UnstableApiUsage")
     public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, byte[] message) {
-        if (channel.equalsIgnoreCase(CHANNEL))
-            consumer.consumeIncomingMessageAsString(ByteStreams.newDataInput(message).readUTF());
+        if (!channel.equalsIgnoreCase(CHANNEL))
+            return;
+        final byte[] encodedMessage = reassembler.accept(message);
+        if (encodedMessage != null)
+            consumer.consumeIncomingMessageAsBytes(encodedMessage);
     }
 
     @Override
@@ -96,8 +101,8 @@ public class BukkitMessengerGateway implements MessengerGateway, PluginMessageLi
     @Log(topic = "sChat:MessengerGateway")
     private static final class Logging extends BukkitMessengerGateway {
 
-        private Logging(Plugin plugin, Server server, SchedulerAdapter scheduler, IncomingMessageConsumer consumer) {
-            super(plugin, server, scheduler, consumer);
+        private Logging(Plugin plugin, Server server, SchedulerAdapter scheduler, IncomingMessageConsumer consumer, ChunkedFraming framing) {
+            super(plugin, server, scheduler, consumer, framing);
         }
 
         @Override
@@ -107,8 +112,8 @@ public class BukkitMessengerGateway implements MessengerGateway, PluginMessageLi
         }
 
         @Override
-        protected void dispatchMessage(String encodedMessage) {
-            log.info("Sending Outgoing Message over " + CHANNEL + ": " + encodedMessage);
+        protected void dispatchMessage(byte[] encodedMessage) {
+            log.info("Sending Outgoing Message over " + CHANNEL + ": " + new String(encodedMessage, UTF_8));
             super.dispatchMessage(encodedMessage);
         }
     }
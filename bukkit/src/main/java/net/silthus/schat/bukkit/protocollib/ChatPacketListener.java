@@ -28,14 +28,16 @@ import com.comphenix.protocol.ProtocolLibrary;
 import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketEvent;
-import com.google.gson.JsonParseException;
 import java.io.Serial;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.logging.Level;
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import lombok.extern.java.Log;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
@@ -60,20 +62,38 @@ public final class ChatPacketListener extends PacketAdapter {
     private static final Key MESSAGE_MARKER_KEY = Key.key("schat", "message");
     public static final Component MESSAGE_MARKER = Component.storageNBT(MESSAGE_MARKER_KEY.asString(), MESSAGE_MARKER_KEY);
 
-    private static Object PAPER_GSON_SERIALIZER;
-    private static Method PAPER_SERIALIZE;
+    /**
+     * A fragment of the json representation of the {@link #MESSAGE_MARKER}.
+     *
+     * <p>The fragment cannot be created by user input, because quotes inside of text are escaped.
+     * This allows skipping the deserialization of our own messages.</p>
+     */
+    private static final String MESSAGE_MARKER_JSON = "\"storage\":\"" + MESSAGE_MARKER_KEY.asString() + "\"";
+
+    private static final MethodHandle PAPER_SERIALIZE = findPaperSerializer();
+    private static final ClassValue<PacketAccessor> PACKET_ACCESSORS = new ClassValue<>() {
+        @Override
+        protected PacketAccessor computeValue(@NonNull Class<?> packetClass) {
+            return PacketAccessor.of(packetClass);
+        }
+    };
 
-    static {
+    private static MethodHandle findPaperSerializer() {
         try {
-            PAPER_GSON_SERIALIZER = Class.forName("io.papermc.paper.text.PaperComponents").getDeclaredMethod("gsonSerializer").invoke(null);
-            PAPER_SERIALIZE = Arrays.stream(PAPER_GSON_SERIALIZER.getClass().getDeclaredMethods())
+            final Object serializer = Class.forName("io.papermc.paper.text.PaperComponents").getDeclaredMethod("gsonSerializer").invoke(null);
+            final Method serialize = Arrays.stream(serializer.getClass().getDeclaredMethods())
                 .filter(method -> method.getName().equals("serialize"))
                 .findFirst()
                 .orElse(null);
-            if (PAPER_SERIALIZE != null)
-                PAPER_SERIALIZE.setAccessible(true);
+            if (serialize == null)
+                return null;
+            serialize.setAccessible(true);
+            return MethodHandles.lookup().unreflect(serialize)
+                .bindTo(serializer)
+                .asType(MethodType.methodType(String.class, Object.class));
         } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException | ClassNotFoundException e) {
             log.warning("Unable to find PaperMC chat components. You can ignore this if you are not running PaperMC or a fork.");
+            return null;
         }
     }
 
@@ -96,8 +116,7 @@ public final class ChatPacketListener extends PacketAdapter {
             this.protocolManager.addPacketListener(this);
             log.info("Enabled ProtocolLib Integration.");
         } catch (Exception e) {
-            log.severe("Failed to enable ProtocolLib Integration!");
-            e.printStackTrace();
+            log.log(Level.SEVERE, "Failed to enable ProtocolLib Integration!", e);
         }
     }
 
@@ -108,13 +127,10 @@ public final class ChatPacketListener extends PacketAdapter {
         }
 
         final Component rawMessage = messageFromPacket(event);
-        if (rawMessage == null)
+        if (rawMessage == null || isMarkedMessage(rawMessage))
             return;
 
         final Chatter chatter = chatterRepository.get(event.getPlayer().getUniqueId());
-        if (isMarkedMessage(rawMessage))
-            return;
-
         message(rawMessage).to(chatter).type(Message.Type.SYSTEM).send();
         event.setCancelled(true);
     }
@@ -123,54 +139,86 @@ public final class ChatPacketListener extends PacketAdapter {
         return message.contains(MESSAGE_MARKER) || message.children().contains(MESSAGE_MARKER);
     }
 
-    @SneakyThrows
     private Component messageFromPacket(final @NonNull PacketEvent event) {
         final WrapperPlayServerChat wrapper = new WrapperPlayServerChat(event.getPacket());
+        final Object handle = wrapper.handle().getHandle();
+        final PacketAccessor accessor = PACKET_ACCESSORS.get(handle.getClass());
 
-        return switch (MessageType.fromChatPacket(wrapper)) {
+        return switch (MessageType.fromChatPacket(wrapper, accessor)) {
             case LEGACY -> fromLegacyMessage(wrapper);
-            case BUNGEE -> fromBungeeMessagePacket(wrapper);
-            case PAPERMC -> fromAdventureMessagePacket(wrapper);
+            case BUNGEE -> fromBungeeMessagePacket(accessor, handle);
+            case PAPERMC -> fromAdventureMessagePacket(accessor, handle);
             default -> throw new HandleChatPacket("Unable to read message from chat packet.");
         };
     }
 
     private Component fromLegacyMessage(final WrapperPlayServerChat packet) {
-        return GsonComponentSerializer.gson().deserialize(packet.message().getJson());
+        return deserialize(packet.message().getJson());
     }
 
-    private Component fromBungeeMessagePacket(final WrapperPlayServerChat packet) {
+    private Component fromBungeeMessagePacket(final PacketAccessor accessor, final Object handle) {
         try {
-            final Object handle = packet.handle().getHandle();
-            final Field field = handle.getClass().getDeclaredField("components");
-            field.setAccessible(true);
-            final BaseComponent[] baseComponents = (BaseComponent[]) field.get(handle);
+            final BaseComponent[] baseComponents = (BaseComponent[]) accessor.components().invokeExact(handle);
             if (baseComponents == null)
                 return null;
             return BungeeComponentSerializer.get().deserialize(baseComponents);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            log.severe("Unable to extract Bungee BaseComponents from chat packet: " + e.getMessage());
-            e.printStackTrace();
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            log.log(Level.SEVERE, "Unable to extract Bungee BaseComponents from chat packet.", e);
             return null;
         }
     }
 
-    private Component fromAdventureMessagePacket(final WrapperPlayServerChat packet) {
+    private Component fromAdventureMessagePacket(final PacketAccessor accessor, final Object handle) {
         if (PAPER_SERIALIZE == null)
             return null;
         try {
-            final Object handle = packet.handle().getHandle();
-            final Class<?> packetClass = handle.getClass();
-            final Field field = packetClass.getDeclaredField("adventure$message");
-            field.setAccessible(true);
-            final Object data = field.get(handle);
+            final Object data = accessor.adventureMessage().invokeExact(handle);
             if (data == null)
                 return null;
-            final String json = (String) PAPER_SERIALIZE.invoke(PAPER_GSON_SERIALIZER, data);
-            return GsonComponentSerializer.gson().deserialize(json);
-        } catch (NoSuchFieldException | IllegalAccessException | InvocationTargetException | JsonParseException e) {
-            log.severe("Unable to extract PaperMC message from chat packet: " + e.getMessage());
-            e.printStackTrace();
+            return deserialize((String) PAPER_SERIALIZE.invokeExact(data));
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            log.log(Level.SEVERE, "Unable to extract PaperMC message from chat packet.", e);
+            return null;
+        }
+    }
+
+    private Component deserialize(final String json) {
+        if (json.contains(MESSAGE_MARKER_JSON))
+            return MESSAGE_MARKER;
+        return GsonComponentSerializer.gson().deserialize(json);
+    }
+
+    /**
+     * Holds the field accessors of a chat packet class.
+     *
+     * <p>The accessors are resolved once per packet class and are {@code null} if the field does not exist.</p>
+     */
+    private record PacketAccessor(MethodHandle components, MethodHandle adventureMessage) {
+
+        static PacketAccessor of(final Class<?> packetClass) {
+            return new PacketAccessor(
+                getter(packetClass, "components", BaseComponent[].class),
+                getter(packetClass, "adventure$message", Object.class)
+            );
+        }
+
+        private static MethodHandle getter(final Class<?> packetClass, final String fieldName, final Class<?> type) {
+            for (final Field field : packetClass.getDeclaredFields()) {
+                if (!field.getName().equals(fieldName))
+                    continue;
+                try {
+                    field.setAccessible(true);
+                    return MethodHandles.lookup().unreflectGetter(field)
+                        .asType(MethodType.methodType(type, Object.class));
+                } catch (IllegalAccessException | RuntimeException e) {
+                    log.severe("Unable to access field '" + fieldName + "' of " + packetClass.getName() + ": " + e.getMessage());
+                    return null;
+                }
+            }
             return null;
         }
     }
@@ -181,35 +229,15 @@ public final class ChatPacketListener extends PacketAdapter {
         PAPERMC,
         UNKNOWN;
 
-        static MessageType fromChatPacket(final @NonNull WrapperPlayServerChat packet) {
-            if (isLegacyMessage(packet))
+        static MessageType fromChatPacket(final @NonNull WrapperPlayServerChat packet, final @NonNull PacketAccessor accessor) {
+            if (packet.message() != null)
                 return LEGACY;
-            if (isBungeeMessage(packet.handle().getHandle()))
+            if (accessor.components() != null)
                 return BUNGEE;
-            if (isAdventureMessage(packet.handle().getHandle()))
+            if (accessor.adventureMessage() != null)
                 return PAPERMC;
             return UNKNOWN;
         }
-
-        private static boolean isLegacyMessage(final @NonNull WrapperPlayServerChat wrapper) {
-            return wrapper.message() != null;
-        }
-
-        private static boolean isBungeeMessage(final @NonNull Object packet) {
-            return containsField(packet, "components");
-        }
-
-        private static boolean isAdventureMessage(final @NonNull Object packet) {
-            return containsField(packet, "adventure$message");
-        }
-
-        private static boolean containsField(final Object object, final String fieldName) {
-            for (final Field field : object.getClass().getDeclaredFields()) {
-                if (field.getName().equals(fieldName))
-                    return true;
-            }
-            return false;
-        }
     }
 
     /**
@@ -23,12 +23,13 @@
  */
 package net.silthus.schat.bukkit.adapter;
 
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import net.silthus.schat.bukkit.BukkitTests;
 import net.silthus.schat.platform.SchedulerMock;
 import net.silthus.schat.platform.config.ConfigKeys;
 import net.silthus.schat.platform.config.SChatConfig;
+import net.silthus.schat.platform.messaging.ChunkedFraming;
 import net.silthus.schat.platform.messaging.MessagingServiceMock;
 import net.silthus.schat.platform.messaging.MockPluginMessage;
 import org.bukkit.Server;
@@ -37,9 +38,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static net.silthus.schat.messenger.MessengerGateway.CHANNEL;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.chunkedFraming;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -60,6 +63,7 @@ class BukkitMessengerGatewayTest extends BukkitTests {
         consumer = MessagingServiceMock.messengerMock();
         final SChatConfig config = mock(SChatConfig.class);
         when(config.get(ConfigKeys.DEBUG)).thenReturn(false);
+        when(config.get(ConfigKeys.MESSAGE_FRAMING)).thenReturn(ChunkedFraming.Config.DEFAULT);
         gateway = BukkitMessengerGateway.createBukkitMessengerGateway(mockPlugin, server, scheduler, consumer, config);
     }
 
@@ -75,6 +79,12 @@ class BukkitMessengerGatewayTest extends BukkitTests {
         verify(server).sendPluginMessage(eq(mockPlugin), eq(CHANNEL), any());
     }
 
+    @Test
+    void large_messages_are_sent_in_multiple_plugin_messages() {
+        gateway.sendOutgoingMessage(new byte[ChunkedFraming.Config.DEFAULT.maxFrameSize() * 2]);
+        verify(server, times(3)).sendPluginMessage(eq(mockPlugin), eq(CHANNEL), any());
+    }
+
     @Test
     void plugin_messaging_channel_is_registered_with_messenger() {
         verify(messenger).registerOutgoingPluginChannel(mockPlugin, CHANNEL);
@@ -87,16 +97,26 @@ class BukkitMessengerGatewayTest extends BukkitTests {
         consumer.assertProcessedMessageCountIs(1);
     }
 
+    @Test
+    void incoming_frames_are_reassembled_before_they_are_dispatched() {
+        final String message = consumer.serializer().encode(new MockPluginMessage());
+        final String padded = message + " ".repeat(ChunkedFraming.Config.DEFAULT.maxFrameSize());
+        final List<byte[]> frames = chunkedFraming(ChunkedFraming.Config.DEFAULT).frame(padded.getBytes(StandardCharsets.UTF_8));
+
+        gateway.onPluginMessageReceived(CHANNEL, BukkitTests.server.addPlayer(), frames.get(1));
+        consumer.assertProcessedMessageCountIs(0);
+        gateway.onPluginMessageReceived(CHANNEL, BukkitTests.server.addPlayer(), frames.get(0));
+        consumer.assertProcessedMessageCountIs(1);
+    }
+
     @Test
     void given_wrong_channel_incoming_message_is_not_processed() {
         gateway.onPluginMessageReceived("foobar", BukkitTests.server.addPlayer(), encodedDummyMessage());
         consumer.assertProcessedMessageCountIs(0);
     }
 
-    @SuppressWarnings("UnstableApiUsage")
     private byte[] encodedDummyMessage() {
-        final ByteArrayDataOutput out = ByteStreams.newDataOutput();
-        out.writeUTF(consumer.serializer().encode(new MockPluginMessage()));
-        return out.toByteArray();
+        final byte[] message = consumer.serializer().encode(new MockPluginMessage()).getBytes(StandardCharsets.UTF_8);
+        return chunkedFraming(ChunkedFraming.Config.DEFAULT).frame(message).get(0);
     }
 }
@@ -23,25 +23,45 @@
  */
 package net.silthus.schat.bungeecord.adapter;
 
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
 import lombok.extern.java.Log;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.api.connection.Server;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
 import net.md_5.bungee.api.event.PluginMessageEvent;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 import net.silthus.schat.bungeecord.BungeecordBootstrap;
 import net.silthus.schat.messenger.MessengerGateway;
 import net.silthus.schat.platform.config.ConfigKeys;
+import net.silthus.schat.platform.config.SChatConfig;
+import net.silthus.schat.platform.messaging.ChunkedFraming;
+import net.silthus.schat.platform.messaging.MessageRouter;
+import net.silthus.schat.platform.messaging.OfflineMessageQueue;
 import net.silthus.schat.platform.plugin.scheduler.SchedulerAdapter;
+import org.jetbrains.annotations.Nullable;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_COMPRESSION;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_FRAMING;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_ROUTING;
+import static net.silthus.schat.platform.config.ConfigKeys.OFFLINE_QUEUE;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.chunkedFraming;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.isFrame;
+import static net.silthus.schat.platform.messaging.MessageRouter.messageRouter;
+import static net.silthus.schat.platform.messaging.OfflineMessageQueue.offlineMessageQueue;
 
+@Log(topic = "sChat:MessengerGateway")
 public class BungeecordMessengerGateway implements MessengerGateway, Listener {
 
     public static final String GATEWAY_TYPE = "pluginmessage";
+    public static final String OFFLINE_QUEUE_FILE = "offline-queue.dat";
 
     public static BungeecordMessengerGateway createBungeecordMessengerGateway(BungeecordBootstrap bootstrap) {
         if (bootstrap.plugin().config().get(ConfigKeys.DEBUG))
@@ -52,30 +72,73 @@ public class BungeecordMessengerGateway implements MessengerGateway, Listener {
 
     private final ProxyServer proxy;
     private final SchedulerAdapter scheduler;
+    private final ChunkedFraming framing;
+    private final ChunkedFraming.Reassembler reassembler;
+    private final @Nullable MessageRouter router;
+    private final OfflineMessageQueue offlineQueue;
+    private final Path offlineQueueFile;
 
     private BungeecordMessengerGateway(BungeecordBootstrap bootstrap) {
         this.proxy = bootstrap.proxy();
         this.scheduler = bootstrap.scheduler();
+        final SChatConfig config = bootstrap.plugin().config();
+        this.framing = chunkedFraming(config.get(MESSAGE_FRAMING));
+        this.reassembler = framing.reassembler();
+        this.router = config.get(MESSAGE_ROUTING)
+            ? messageRouter(bootstrap.plugin().serializer(), config.get(MESSAGE_COMPRESSION).maxMessageSize())
+            : null;
+        this.offlineQueue = offlineMessageQueue(config.get(OFFLINE_QUEUE));
+        this.offlineQueueFile = bootstrap.configDirectory().resolve(OFFLINE_QUEUE_FILE);
+        loadOfflineQueue();
         this.proxy.registerChannel(CHANNEL);
         this.proxy.getPluginManager().registerListener(bootstrap.loader(), this);
     }
 
+    private void loadOfflineQueue() {
+        try {
+            offlineQueue.load(offlineQueueFile);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to load the offline message queue from " + offlineQueueFile, e);
+        }
+    }
+
     @Override
-    @SuppressWarnings("UnstableApiUsage")
-    public void sendOutgoingMessage(String encodedMessage) {
-        final ByteArrayDataOutput out = ByteStreams.newDataOutput();
-        out.writeUTF(encodedMessage);
-        sendToAllServers(out.toByteArray());
+    public void sendOutgoingMessage(byte[] encodedMessage) {
+        sendToAllServers(framing.frame(encodedMessage));
+    }
+
+    private void sendToAllServers(List<byte[]> frames) {
+        for (ServerInfo server : proxy.getServers().values()) {
+            scheduler.async().execute(() -> sendToServer(server, frames));
+        }
     }
 
-    private void sendToAllServers(byte[] bytes) {
+    private void sendToServers(Set<String> recipients, List<byte[]> frames) {
         for (ServerInfo server : proxy.getServers().values()) {
-            scheduler.async().execute(() -> sendToServer(server, bytes));
+            if (recipients.contains(server.getName()))
+                scheduler.async().execute(() -> sendToServer(server, frames));
+        }
+    }
+
+    protected boolean sendToServer(ServerInfo server, List<byte[]> frames) {
+        if (!deliver(server, frames)) {
+            offlineQueue.enqueue(server.getName(), frames);
+            return false;
+        } else {
+            return true;
         }
     }
 
-    protected void sendToServer(ServerInfo server, byte[] bytes) {
-        server.sendData(CHANNEL, bytes, true);
+    private boolean deliver(ServerInfo server, List<byte[]> frames) {
+        return !server.getPlayers().isEmpty() && sendFrames(server, frames);
+    }
+
+    private boolean sendFrames(ServerInfo server, List<byte[]> frames) {
+        for (final byte[] frame : frames) {
+            if (!server.sendData(CHANNEL, frame, false))
+                return false;
+        }
+        return true;
     }
 
     @EventHandler
@@ -87,13 +150,74 @@ public class BungeecordMessengerGateway implements MessengerGateway, Listener {
         if (event.getReceiver() instanceof Server) // message from proxy -> server
             return;
 
-        sendToAllServers(event.getData());
+        if (router != null && event.getSender() instanceof Server origin && isFrame(event.getData()))
+            route(origin.getInfo().getName(), event.getData());
+        else if (isFrame(event.getData()))
+            relay(event.getData());
+        else
+            sendToAllServers(List.of(event.getData()));
+    }
+
+    // frames are forwarded unchanged and only collected into a whole message if a server is offline
+    private void relay(byte[] frame) {
+        for (ServerInfo server : proxy.getServers().values()) {
+            scheduler.async().execute(() -> relayToServer(server, frame));
+        }
+    }
+
+    protected boolean relayToServer(ServerInfo server, byte[] frame) {
+        return offlineQueue.offerFrame(server.getName(), frame, payload -> deliver(server, List.of(payload)));
+    }
+
+    private void route(String origin, byte[] frame) {
+        final byte[] message = reassemble(frame);
+        if (message == null)
+            return;
+        sendToServers(router.route(origin, message, proxy.getServers().keySet()), framing.frame(message));
+    }
+
+    private byte @Nullable [] reassemble(byte[] frame) {
+        try {
+            return reassembler.accept(frame);
+        } catch (IllegalArgumentException e) {
+            sendToAllServers(List.of(frame));
+            return null;
+        }
+    }
+
+    @EventHandler
+    public void onDisconnect(PlayerDisconnectEvent event) {
+        if (router != null)
+            router.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler
+    public void onConnect(ServerSwitchEvent event) {
+        final ServerInfo server = event.getPlayer().getServer().getInfo();
+        scheduler.executeAsync(() -> flushMessageQueue(server));
+    }
+
+    protected void flushMessageQueue(ServerInfo server) {
+        offlineQueue.flush(server.getName(), frames -> deliver(server, frames));
     }
 
     @Override
     public void close() {
         this.proxy.getPluginManager().unregisterListener(this);
         this.proxy.unregisterChannel(CHANNEL);
+        try {
+            offlineQueue.save(offlineQueueFile);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to save the offline message queue to " + offlineQueueFile, e);
+        }
+    }
+
+    protected @Nullable MessageRouter router() {
+        return router;
+    }
+
+    protected OfflineMessageQueue offlineQueue() {
+        return offlineQueue;
     }
 
     @Log(topic = "sChat:MessengerGateway")
@@ -110,9 +234,35 @@ public class BungeecordMessengerGateway implements MessengerGateway, Listener {
         }
 
         @Override
-        protected void sendToServer(ServerInfo server, byte[] bytes) {
+        protected boolean sendToServer(ServerInfo server, List<byte[]> frames) {
             log.info("Forwarding Message to: " + server.getName());
-            super.sendToServer(server, bytes);
+            final boolean delivered = super.sendToServer(server, frames);
+            if (!delivered)
+                log.info("---- QUEUED MESSAGE ----");
+            return delivered;
+        }
+
+        @Override
+        protected boolean relayToServer(ServerInfo server, byte[] frame) {
+            log.info("Relaying Frame to: " + server.getName());
+            final boolean delivered = super.relayToServer(server, frame);
+            if (!delivered)
+                log.info("---- QUEUED FRAME ----");
+            return delivered;
+        }
+
+        @Override
+        protected void flushMessageQueue(ServerInfo server) {
+            log.info("Player Connected to " + server.getName() + " - FLUSHING MESSAGE QUEUE");
+            super.flushMessageQueue(server);
+        }
+
+        @Override
+        public void close() {
+            if (router() != null)
+                log.info("Message Routing: " + router());
+            log.info("Offline Queue: " + offlineQueue());
+            super.close();
         }
     }
 }
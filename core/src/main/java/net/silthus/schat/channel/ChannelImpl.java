@@ -23,6 +23,7 @@
  */
 package net.silthus.schat.channel;
 
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
@@ -58,6 +59,8 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
 import static net.kyori.adventure.text.Component.text;
+import static net.silthus.schat.channel.ChannelSettings.HISTORY_MAX_AGE;
+import static net.silthus.schat.channel.ChannelSettings.HISTORY_SIZE;
 import static net.silthus.schat.channel.ChannelSettings.PRIORITY;
 import static net.silthus.schat.channel.ChannelSettings.PRIVATE;
 import static net.silthus.schat.commands.SendMessageResult.failure;
@@ -87,7 +90,7 @@ final class ChannelImpl implements Channel {
     private static final String VALID_KEY_PATTERN = "^[a-zA-Z0-9_-]+$";
 
     private final String key;
-    private final transient Messages messages = new Messages();
+    private final transient Messages messages = new Messages(this::messageRetention);
     private final transient EventBus eventBus;
     private final transient Map<Class<? extends Policy>, Policy> policies;
     private @NonNull Targets targets;
@@ -127,6 +130,10 @@ final class ChannelImpl implements Channel {
         return Messages.unmodifiable(messages);
     }
 
+    private Messages.Retention messageRetention() {
+        return Messages.Retention.retention(get(HISTORY_SIZE), Duration.ofSeconds(get(HISTORY_MAX_AGE)));
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <P extends Policy> @NotNull Optional<P> policy(@NonNull Class<P> policy) {
@@ -84,6 +84,22 @@ public final class ChannelSettings {
      * <p>Default: {@code false}</p>
      */
     public static final Setting<Boolean> FORCED = setting(Boolean.class, "forced", false);
+    /**
+     * The maximum number of messages the channel keeps in its history.
+     *
+     * <p>The oldest messages are dropped once the limit is reached. Set to {@code 0} to keep all messages.</p>
+     *
+     * <p>Default: {@code 100}</p>
+     */
+    public static final Setting<Integer> HISTORY_SIZE = setting(Integer.class, "history_size", 100);
+    /**
+     * The maximum age in seconds of messages kept in the history of the channel.
+     *
+     * <p>Set to {@code 0} to keep messages until they are pushed out by the {@link #HISTORY_SIZE}.</p>
+     *
+     * <p>Default: {@code 0}</p>
+     */
+    public static final Setting<Integer> HISTORY_MAX_AGE = setting(Integer.class, "history_max_age", 0);
 
     private ChannelSettings() {
     }
@@ -42,6 +42,10 @@ class InMemoryChannelRepository extends InMemoryRepository<String, Channel> impl
         if (contains(channel.key()))
             throw new DuplicateChannel(channel);
         super.add(channel);
+    }
+
+    @Override
+    protected void onAdded(@NotNull Channel channel) {
         eventBus.post(new ChannelRegisteredEvent(channel));
     }
 
@@ -53,8 +57,8 @@ class InMemoryChannelRepository extends InMemoryRepository<String, Channel> impl
         }
 
         @Override
-        public void add(@NotNull Channel channel) {
-            super.add(channel);
+        protected void onAdded(@NotNull Channel channel) {
+            super.onAdded(channel);
             log.info("Added Channel: " + channel);
         }
 
@@ -187,6 +187,17 @@ public sealed interface Chatter extends Entity<UUID>, MessageTarget, Identified,
      */
     void leave(@NonNull Channel channel);
 
+    /**
+     * Runs the task in order with all other changes of the chatter.
+     *
+     * <p>Changes the task makes to the chatter are applied directly and before any change requested later.
+     * Use it to check the state of the chatter and change it without another change in between.</p>
+     *
+     * @param task the task to run
+     * @since 1.0.0
+     */
+    void execute(@NonNull Runnable task);
+
     /**
      * Gets all messages received by this chatter.
      *
@@ -247,6 +258,17 @@ public sealed interface Chatter extends Entity<UUID>, MessageTarget, Identified,
         @ApiStatus.Internal
         @NotNull Builder permissionHandler(@NonNull PermissionHandler permissionHandler);
 
+        /**
+         * Sets the retention of the message history of the chatter.
+         *
+         * <p>Defaults to the last {@code 100} received messages.</p>
+         *
+         * @param retention the retention of the received messages
+         * @return this builder
+         * @since 1.0.0
+         */
+        @NotNull Builder messageRetention(@NonNull Messages.Retention retention);
+
         /**
          * Creates the chatter.
          *
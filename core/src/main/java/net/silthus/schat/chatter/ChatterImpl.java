@@ -23,11 +23,13 @@
  */
 package net.silthus.schat.chatter;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -46,6 +48,7 @@ import net.silthus.schat.identity.Identity;
 import net.silthus.schat.message.Message;
 import net.silthus.schat.message.Messages;
 import net.silthus.schat.pointer.Pointers;
+import net.silthus.schat.util.Mailbox;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
@@ -61,6 +64,7 @@ import static net.silthus.schat.commands.SendMessageResult.success;
 non-sealed class ChatterImpl implements Chatter {
 
     static final Chatter EMPTY = new EmptyChatter();
+    static final Messages.Retention DEFAULT_MESSAGE_RETENTION = Messages.Retention.capacity(100);
     @Getter
     @Setter
     static Function<ChatterImpl.Builder, ChatterImpl.Builder> prototype = builder -> builder;
@@ -75,16 +79,21 @@ non-sealed class ChatterImpl implements Chatter {
     private final transient @NonNull PermissionHandler permissionHandler;
     private final transient @NonNull Pointers pointers;
 
-    private final Set<Channel> channels = new HashSet<>();
-    private final transient Messages messages = new Messages();
+    @Getter(AccessLevel.NONE)
+    private final transient @Nullable Mailbox mailbox;
 
-    private @Nullable Channel activeChannel;
+    private final Set<Channel> channels = new CopyOnWriteArraySet<>();
+    private final transient Messages messages;
+
+    private volatile @Nullable Channel activeChannel;
 
     protected ChatterImpl(Builder builder) {
         this.identity = builder.identity();
         this.eventBus = builder.eventBus();
         this.messageHandler = builder.messageHandler;
         this.permissionHandler = builder.permissionHandler();
+        this.messages = new Messages(builder.messageRetention());
+        this.mailbox = builder.mailboxExecutor() == null ? null : Mailbox.mailbox(builder.mailboxExecutor());
         this.pointers = Pointers.pointersBuilder()
             .withForward(Identity.ID, identity(), Identity.ID)
             .withForward(Identity.NAME, identity(), Identity.NAME)
@@ -93,17 +102,28 @@ non-sealed class ChatterImpl implements Chatter {
             .create();
     }
 
+    @Override
+    public void execute(@NonNull Runnable task) {
+        if (mailbox == null)
+            task.run();
+        else
+            mailbox.execute(task);
+    }
+
     @Override
     public Chatter activeChannel(@Nullable Channel activeChannel) {
-        if (isActiveChannel(activeChannel)) return this;
+        execute(() -> changeActiveChannel(activeChannel));
+        return this;
+    }
+
+    private void changeActiveChannel(@Nullable Channel activeChannel) {
+        if (isActiveChannel(activeChannel)) return;
         if (activeChannel != null)
-            join(activeChannel);
+            joinChannel(activeChannel);
 
         Channel oldChannel = this.activeChannel;
         this.activeChannel = activeChannel;
         fireChangedActiveChannelEvent(oldChannel, activeChannel);
-
-        return this;
     }
 
     private void fireChangedActiveChannelEvent(@Nullable Channel oldChannel, @Nullable Channel newChannel) {
@@ -127,6 +147,10 @@ non-sealed class ChatterImpl implements Chatter {
 
     @Override
     public void join(@NonNull Channel channel) {
+        execute(() -> joinChannel(channel));
+    }
+
+    private void joinChannel(@NotNull Channel channel) {
         channel.addTarget(this);
         if (this.channels.add(channel))
             fireJoinedChannelEvent(channel);
@@ -144,6 +168,10 @@ non-sealed class ChatterImpl implements Chatter {
 
     @Override
     public void leave(@NonNull Channel channel) {
+        execute(() -> leaveChannel(channel));
+    }
+
+    private void leaveChannel(@NotNull Channel channel) {
         channel.removeTarget(this);
         if (this.channels.remove(channel)) {
             if (channel.equals(activeChannel))
@@ -172,9 +200,16 @@ non-sealed class ChatterImpl implements Chatter {
 
     @Override
     public SendMessageResult sendMessage(@NonNull Message message) {
+        if (mailbox == null)
+            receiveMessage(message);
+        else
+            mailbox.execute(() -> receiveMessage(message));
+        return success(message);
+    }
+
+    private void receiveMessage(@NotNull Message message) {
         if (messages.add(message))
             fireReceivedMessageEvent(message);
-        return success(message);
     }
 
     private void fireReceivedMessageEvent(@NotNull Message message) {
@@ -191,6 +226,8 @@ non-sealed class ChatterImpl implements Chatter {
         };
         private @NonNull PermissionHandler permissionHandler = permission -> false;
         private @NonNull EventBus eventBus = EventBus.empty();
+        private @NonNull Messages.Retention messageRetention = DEFAULT_MESSAGE_RETENTION;
+        private @Nullable Executor mailboxExecutor;
 
         private Builder(Identity identity) {
             this.identity = identity;
@@ -244,6 +281,11 @@ non-sealed class ChatterImpl implements Chatter {
 
         }
 
+        @Override
+        public void execute(@NonNull Runnable task) {
+            task.run();
+        }
+
         @Override
         public @NotNull @Unmodifiable Messages messages() {
             return Messages.of();
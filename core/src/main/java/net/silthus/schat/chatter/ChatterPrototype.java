@@ -23,8 +23,11 @@
  */
 package net.silthus.schat.chatter;
 
+import java.util.concurrent.Executor;
 import net.silthus.schat.eventbus.EventBus;
+import net.silthus.schat.message.Messages;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Internal utility for configuring the prototype of chatters.
@@ -43,7 +46,40 @@ public final class ChatterPrototype {
      */
     @ApiStatus.Internal
     public static void configure(EventBus eventBus) {
-        ChatterImpl.prototype(builder -> builder.eventBus(eventBus));
+        configure(eventBus, ChatterImpl.DEFAULT_MESSAGE_RETENTION);
+    }
+
+    /**
+     * Configures the prototype for creating new chatters.
+     *
+     * <p>This is internal functionality and should not be used.</p>
+     *
+     * @param eventBus         the event bus to use
+     * @param messageRetention the retention of the message history of chatters
+     * @since 1.0.0
+     */
+    @ApiStatus.Internal
+    public static void configure(EventBus eventBus, Messages.Retention messageRetention) {
+        configure(eventBus, messageRetention, null);
+    }
+
+    /**
+     * Configures the prototype for creating new chatters.
+     *
+     * <p>If a mailbox executor is provided, every chatter gets its own mailbox.
+     * All state changes and received messages of the chatter are then queued and processed
+     * one after another on the executor, instead of directly on the calling thread.</p>
+     *
+     * <p>This is internal functionality and should not be used.</p>
+     *
+     * @param eventBus         the event bus to use
+     * @param messageRetention the retention of the message history of chatters
+     * @param mailboxExecutor  the executor that processes the mailboxes of the chatters or null to process changes directly
+     * @since 1.0.0
+     */
+    @ApiStatus.Internal
+    public static void configure(EventBus eventBus, Messages.Retention messageRetention, @Nullable Executor mailboxExecutor) {
+        ChatterImpl.prototype(builder -> builder.eventBus(eventBus).messageRetention(messageRetention).mailboxExecutor(mailboxExecutor));
     }
 
     private ChatterPrototype() {
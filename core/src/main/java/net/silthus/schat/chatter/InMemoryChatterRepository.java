@@ -33,8 +33,7 @@ class InMemoryChatterRepository extends InMemoryRepository<UUID, Chatter> implem
     @Log(topic = "sChat:ChatterRepository")
     static final class Logging extends InMemoryChatterRepository {
         @Override
-        public void add(@NotNull Chatter entity) {
-            super.add(entity);
+        protected void onAdded(@NotNull Chatter entity) {
             log.info("Added Chatter: " + entity);
         }
 
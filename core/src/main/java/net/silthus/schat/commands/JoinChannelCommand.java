@@ -89,9 +89,10 @@ public class JoinChannelCommand implements Command {
     }
 
     private Result joinChannelAndUpdateView(Chatter chatter, Channel channel) {
-        if (chatter.isJoined(channel))
-            return success();
-        chatter.join(channel);
+        chatter.execute(() -> {
+            if (!chatter.isJoined(channel))
+                chatter.join(channel);
+        });
         return success();
     }
 
@@ -42,11 +42,21 @@ final class EmptyEventBus implements EventBus {
         return new EmptySubscription<>(eventClass, handler);
     }
 
+    @Override
+    public @NonNull <E extends SChatEvent> EventSubscription<E> on(@NonNull Class<E> eventClass, @NonNull Object key, @NonNull Consumer<? super E> handler) {
+        return new EmptySubscription<>(eventClass, handler);
+    }
+
     @Override
     public @NonNull @Unmodifiable Set<EventSubscription<?>> register(Object listener) {
         return new HashSet<>();
     }
 
+    @Override
+    public @NonNull @Unmodifiable Set<EventSubscription<?>> register(Object listener, @NonNull Object key) {
+        return new HashSet<>();
+    }
+
     @Override
     public @NonNull @Unmodifiable <E extends SChatEvent> Set<EventSubscription<E>> subscriptions(@NonNull Class<E> eventClass) {
         return Set.of();
@@ -24,9 +24,13 @@
 package net.silthus.schat.eventbus;
 
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import lombok.NonNull;
 import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.channel.ChannelEvent;
+import net.silthus.schat.events.chatter.ChatterEvent;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
 /**
@@ -74,6 +78,40 @@ public interface EventBus extends AutoCloseable {
             return new EventBusImpl();
     }
 
+    /**
+     * Enables or disables the asynchronous dispatch of notification events.
+     *
+     * <p>Notification events are all events of a chatter or channel that cannot be cancelled,
+     * e.g. {@link net.silthus.schat.events.chatter.ChatterReceivedMessageEvent}.
+     * If enabled, these events are dispatched on the given executor and {@link #post(SChatEvent)} returns immediately.
+     * Events of the same chatter, or of the same channel if they do not belong to a chatter, are dispatched in the order they were posted.
+     * Cancellable events are always dispatched synchronously on the posting thread.</p>
+     *
+     * @param executor the executor used to dispatch notification events or null to dispatch all events synchronously
+     * @since 1.0.0
+     */
+    default void dispatchAsync(@Nullable Executor executor) {
+    }
+
+    /**
+     * Attaches metrics to the event bus that record all posted events and invoked handlers.
+     *
+     * @param metrics the metrics to record to or null to stop recording
+     * @since 1.0.0
+     */
+    default void instrument(@Nullable EventBusMetrics metrics) {
+    }
+
+    /**
+     * Gets the metrics currently attached to the event bus.
+     *
+     * @return the metrics or null if the event bus is not instrumented
+     * @since 1.0.0
+     */
+    default @Nullable EventBusMetrics metrics() {
+        return null;
+    }
+
     /**
      * Posts a new event to the event bus informing all subscribers about the event.
      *
@@ -97,6 +135,23 @@ public interface EventBus extends AutoCloseable {
      */
     <E extends SChatEvent> @NonNull EventSubscription<E> on(@NonNull Class<E> eventClass, @NonNull Consumer<? super E> handler);
 
+    /**
+     * Registers a new subscription to the given event that is only called for events routed to the given key.
+     *
+     * <p>{@link ChatterEvent}s are routed by their chatter and {@link ChannelEvent}s by their channel.
+     * Keyed subscriptions are looked up by the key of the posted event and are never called
+     * for events of other chatters or channels.</p>
+     *
+     * @param eventClass the event class, must be a {@link ChatterEvent} or {@link ChannelEvent}
+     * @param key        the chatter or channel to receive events for
+     * @param handler    the event handler
+     * @param <E>        the event class
+     * @return an event handler instance representing this subscription
+     * @throws IllegalArgumentException if events of the given class cannot be routed to the key
+     * @since 1.0.0
+     */
+    <E extends SChatEvent> @NonNull EventSubscription<E> on(@NonNull Class<E> eventClass, @NonNull Object key, @NonNull Consumer<? super E> handler);
+
     /**
      * Registers all methods of the given listener annotated with {@link Subscribe} as event handlers.
      *
@@ -108,6 +163,21 @@ public interface EventBus extends AutoCloseable {
      */
     @NonNull @Unmodifiable Set<EventSubscription<?>> register(Object listener);
 
+    /**
+     * Registers all methods of the given listener annotated with {@link Subscribe} as event handlers
+     * that are routed by the given key.
+     *
+     * <p>Handlers for events that can be routed to the key, e.g. {@link ChatterEvent}s for a chatter key,
+     * are registered as keyed subscriptions. All other handlers are registered like in {@link #register(Object)}.</p>
+     *
+     * @param listener the listener to search for events
+     * @param key      the chatter or channel the listener is interested in
+     * @return a list of registered event subscriptions
+     * @see #on(Class, Object, Consumer)
+     * @since 1.0.0
+     */
+    @NonNull @Unmodifiable Set<EventSubscription<?>> register(Object listener, @NonNull Object key);
+
     /**
      * Gets a set of all registered handlers for a given event.
      *
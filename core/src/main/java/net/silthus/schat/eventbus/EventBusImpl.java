@@ -23,80 +23,260 @@
  */
 package net.silthus.schat.eventbus;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.experimental.Accessors;
 import lombok.extern.java.Log;
 import net.kyori.event.EventSubscriber;
-import net.kyori.event.SimpleEventBus;
+import net.silthus.schat.channel.Channel;
+import net.silthus.schat.chatter.Chatter;
+import net.silthus.schat.events.Cancellable;
 import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.channel.ChannelEvent;
+import net.silthus.schat.events.chatter.ChatterEvent;
+import net.silthus.schat.util.Mailbox;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
 @Accessors(fluent = true)
 class EventBusImpl implements EventBus, AutoCloseable {
 
-    private final Bus bus = new Bus();
+    private static final EventSubscriptionImpl<?>[] NO_SUBSCRIBERS = new EventSubscriptionImpl<?>[0];
+
+    private final List<EventSubscriptionImpl<?>> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Map<Class<?>, EventSubscriptionImpl<?>[]> subscribers = new ConcurrentHashMap<>();
+    private final Map<Object, List<EventSubscriptionImpl<?>>> routes = new ConcurrentHashMap<>();
+    private volatile @Nullable Lanes lanes;
+    private volatile @Nullable EventBusMetrics metrics;
 
     protected EventBusImpl() {
     }
 
+    @Override
+    public void dispatchAsync(final @Nullable Executor executor) {
+        this.lanes = executor == null ? null : new Lanes(executor);
+    }
+
+    @Override
+    public void instrument(final @Nullable EventBusMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public @Nullable EventBusMetrics metrics() {
+        return metrics;
+    }
+
     @Override
     public <E extends SChatEvent> E post(final @NonNull E event) {
-        this.bus.post(event);
+        final Lanes lanes = this.lanes;
+        final Object key = lanes == null ? null : asyncKey(event);
+        if (key != null)
+            lanes.lane(key).execute(() -> deliver(event));
+        else
+            deliver(event);
         return event;
     }
 
+    /**
+     * Gets the key that orders the asynchronous dispatch of the event.
+     *
+     * <p>Only notification events of a chatter or channel are dispatched asynchronously.
+     * Cancellable events return null and are dispatched on the posting thread.</p>
+     */
+    private static @Nullable Object asyncKey(final SChatEvent event) {
+        if (event instanceof Cancellable)
+            return null;
+        if (event instanceof ChatterEvent chatterEvent && chatterEvent.chatter() != null)
+            return chatterEvent.chatter();
+        if (event instanceof ChannelEvent channelEvent && channelEvent.channel() != null)
+            return channelEvent.channel();
+        return null;
+    }
+
+    private void deliver(final SChatEvent event) {
+        final EventBusMetrics metrics = this.metrics;
+        final long start = metrics == null ? 0 : System.nanoTime();
+        dispatch(event);
+        if (!routes.isEmpty())
+            route(event);
+        if (metrics != null)
+            metrics.recordPost(event.getClass(), System.nanoTime() - start);
+    }
+
+    private void dispatch(final SChatEvent event) {
+        for (final EventSubscriptionImpl<?> subscription : subscribers(event.getClass())) {
+            if (subscription.isActive())
+                invoke(subscription, event);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invoke(final EventSubscriptionImpl<?> subscription, final SChatEvent event) {
+        final EventBusMetrics metrics = this.metrics;
+        if (metrics == null) {
+            ((EventSubscriptionImpl<SChatEvent>) subscription).invoke(event);
+            return;
+        }
+        final long start = System.nanoTime();
+        ((EventSubscriptionImpl<SChatEvent>) subscription).invoke(event);
+        metrics.recordHandler(subscription.name(), event.getClass(), System.nanoTime() - start);
+    }
+
+    /**
+     * Gets all subscriptions that receive events of the given class in registration order.
+     *
+     * <p>The subscribers are resolved once per event class and cached until the next subscription is added or removed.</p>
+     */
+    private EventSubscriptionImpl<?>[] subscribers(final Class<?> eventClass) {
+        final Map<Class<?>, EventSubscriptionImpl<?>[]> subscribers = this.subscribers;
+        final EventSubscriptionImpl<?>[] cached = subscribers.get(eventClass);
+        if (cached != null)
+            return cached;
+        return subscribers.computeIfAbsent(eventClass, this::resolveSubscribers);
+    }
+
+    private EventSubscriptionImpl<?>[] resolveSubscribers(final Class<?> eventClass) {
+        final List<EventSubscriptionImpl<?>> resolved = new ArrayList<>();
+        for (final EventSubscriptionImpl<?> subscription : subscriptions) {
+            if (subscription.eventClass().isAssignableFrom(eventClass))
+                resolved.add(subscription);
+        }
+        return resolved.isEmpty() ? NO_SUBSCRIBERS : resolved.toArray(NO_SUBSCRIBERS);
+    }
+
+    private void invalidateSubscribers() {
+        this.subscribers = new ConcurrentHashMap<>();
+    }
+
+    private void route(final SChatEvent event) {
+        if (event instanceof ChatterEvent chatterEvent)
+            route(chatterEvent.chatter(), event);
+        if (event instanceof ChannelEvent channelEvent)
+            route(channelEvent.channel(), event);
+    }
+
+    private void route(final @Nullable Object key, final SChatEvent event) {
+        if (key == null)
+            return;
+        final List<EventSubscriptionImpl<?>> subscriptions = routes.get(key);
+        if (subscriptions == null)
+            return;
+        for (final EventSubscriptionImpl<?> subscription : subscriptions) {
+            if (subscription.eventClass().isInstance(event))
+                invoke(subscription, event);
+        }
+    }
+
     @Override
     public <T extends SChatEvent> @NonNull EventSubscription<T> on(final @NonNull Class<T> eventClass,
                                                                    final @NonNull Consumer<? super T> handler) {
-        return registerSubscription(eventClass, handler);
+        return registerSubscription(eventClass, null, handlerName(handler), handler);
+    }
+
+    @Override
+    public <T extends SChatEvent> @NonNull EventSubscription<T> on(final @NonNull Class<T> eventClass,
+                                                                   final @NonNull Object key,
+                                                                   final @NonNull Consumer<? super T> handler) {
+        if (!isRoutable(eventClass, key))
+            throw new IllegalArgumentException("Events of type " + eventClass.getName() + " cannot be routed to the key: " + key);
+        return registerSubscription(eventClass, key, handlerName(handler), handler);
     }
 
     @Override
     public @NonNull @Unmodifiable Set<EventSubscription<?>> register(Object listener) {
-        return Arrays.stream(listener.getClass().getDeclaredMethods())
-            .filter(method -> method.isAnnotationPresent(Subscribe.class))
-            .filter(method -> method.getParameterCount() == 1)
-            .filter(method -> SChatEvent.class.isAssignableFrom(method.getParameterTypes()[0]))
-            .map(method -> registerSubscription(listener, method))
-            .collect(Collectors.toUnmodifiableSet());
+        return registerListener(listener, null);
+    }
+
+    @Override
+    public @NonNull @Unmodifiable Set<EventSubscription<?>> register(Object listener, @NonNull Object key) {
+        return registerListener(listener, key);
+    }
+
+    private Set<EventSubscription<?>> registerListener(Object listener, @Nullable Object key) {
+        final Set<EventSubscription<?>> registered = new HashSet<>();
+        for (final SubscribeMethods.SubscribeMethod method : SubscribeMethods.subscribeMethods(listener.getClass()))
+            registered.add(registerSubscription(listener, method, key));
+        return Set.copyOf(registered);
     }
 
     @NotNull
-    @SuppressWarnings("unchecked")
-    private EventSubscription<? extends SChatEvent> registerSubscription(Object listener, Method method) {
-        method.setAccessible(true);
-        return registerSubscription((Class<? extends SChatEvent>) method.getParameterTypes()[0], event -> {
-            try {
-                method.invoke(listener, event);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                e.printStackTrace();
-            }
-        });
+    private EventSubscription<? extends SChatEvent> registerSubscription(Object listener, SubscribeMethods.SubscribeMethod method, @Nullable Object key) {
+        final Class<? extends SChatEvent> eventClass = method.eventClass();
+        return registerSubscription(eventClass, isRoutable(eventClass, key) ? key : null, method.name(), method.bind(listener));
     }
 
     private <T extends SChatEvent> EventSubscription<T> registerSubscription(final Class<T> eventClass,
+                                                                             final @Nullable Object key,
+                                                                             final String name,
                                                                              final Consumer<? super T> handler) {
-        final EventSubscriptionImpl<T> eventHandler = createSubscription(eventClass, handler);
-        this.bus.register(eventClass, eventHandler);
+        final EventSubscriptionImpl<T> eventHandler = createSubscription(eventClass, key, name, handler);
+        if (eventHandler.isKeyed()) {
+            addRoute(eventHandler);
+        } else {
+            this.subscriptions.add(eventHandler);
+            invalidateSubscribers();
+        }
 
         return eventHandler;
     }
 
+    private static String handlerName(final Consumer<?> handler) {
+        final String name = handler.getClass().getName();
+        final int hiddenClassSuffix = name.indexOf('/');
+        return hiddenClassSuffix < 0 ? name : name.substring(0, hiddenClassSuffix);
+    }
+
+    private static boolean isRoutable(final Class<? extends SChatEvent> eventClass, final @Nullable Object key) {
+        return key instanceof Chatter && ChatterEvent.class.isAssignableFrom(eventClass)
+            || key instanceof Channel && ChannelEvent.class.isAssignableFrom(eventClass);
+    }
+
+    private void addRoute(final EventSubscriptionImpl<?> subscription) {
+        routes.compute(subscription.key(), (key, subscriptions) -> {
+            if (subscriptions == null)
+                subscriptions = new CopyOnWriteArrayList<>();
+            subscriptions.add(subscription);
+            return subscriptions;
+        });
+    }
+
+    private void removeRoute(final EventSubscriptionImpl<?> subscription) {
+        routes.computeIfPresent(subscription.key(), (key, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
     @NotNull
-    protected <T extends SChatEvent> EventSubscriptionImpl<T> createSubscription(Class<T> eventClass, Consumer<? super T> handler) {
-        return new EventSubscriptionImpl<>(this, eventClass, handler);
+    protected <T extends SChatEvent> EventSubscriptionImpl<T> createSubscription(Class<T> eventClass, @Nullable Object key, String name, Consumer<? super T> handler) {
+        return new EventSubscriptionImpl<>(this, eventClass, key, name, handler);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T extends SChatEvent> @NonNull Set<EventSubscription<T>> subscriptions(final @NonNull Class<T> eventClass) {
-        return this.bus.handlers(eventClass);
+        final Set<EventSubscription<T>> result = new HashSet<>();
+        for (final EventSubscriptionImpl<?> subscription : this.subscriptions) {
+            if (subscription.eventClass().isAssignableFrom(eventClass))
+                result.add((EventSubscription<T>) subscription);
+        }
+        for (final List<EventSubscriptionImpl<?>> routed : routes.values()) {
+            for (final EventSubscriptionImpl<?> subscription : routed) {
+                if (subscription.eventClass().isAssignableFrom(eventClass))
+                    result.add((EventSubscription<T>) subscription);
+            }
+        }
+        return result;
     }
 
     /**
@@ -106,30 +286,40 @@ class EventBusImpl implements EventBus, AutoCloseable {
      * @since 1.0.0
      */
     public void unregisterHandler(final EventSubscriber<?> handler) {
-        this.bus.unregister(handler);
+        if (handler instanceof EventSubscriptionImpl<?> subscription && subscription.isKeyed()) {
+            removeRoute(subscription);
+        } else if (this.subscriptions.remove(handler)) {
+            invalidateSubscribers();
+        }
     }
 
     @Override
     public void close() {
-        this.bus.unregisterAll();
+        this.lanes = null;
+        this.subscriptions.clear();
+        invalidateSubscribers();
+        this.routes.clear();
     }
 
-    private static final class Bus extends SimpleEventBus<SChatEvent> {
-        Bus() {
-            super(SChatEvent.class);
-        }
+    /**
+     * A fixed number of serial lanes that dispatch events on a shared executor.
+     *
+     * <p>Events are assigned to a lane by the hash of their key,
+     * which keeps all events of the same key in order.</p>
+     */
+    private static final class Lanes {
 
-        @Override
-        protected boolean shouldPost(final @NonNull SChatEvent event, final @NonNull EventSubscriber<?> subscriber) {
-            return true;
+        private final Mailbox[] lanes;
+
+        private Lanes(final Executor executor) {
+            this.lanes = new Mailbox[Math.max(4, Runtime.getRuntime().availableProcessors() * 4)];
+            for (int i = 0; i < lanes.length; i++)
+                lanes[i] = Mailbox.mailbox(executor);
         }
 
-        @SuppressWarnings("unchecked")
-        public <E extends SChatEvent> Set<EventSubscription<E>> handlers(final Class<E> eventClass) {
-            return super.subscribers().values().stream()
-                .filter(s -> s instanceof EventSubscription && ((EventSubscription<?>) s).eventClass().isAssignableFrom(eventClass))
-                .map(s -> (EventSubscription<E>) s)
-                .collect(Collectors.toSet());
+        private Mailbox lane(final Object key) {
+            final int hash = key.hashCode();
+            return lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
         }
     }
 
@@ -145,13 +335,20 @@ class EventBusImpl implements EventBus, AutoCloseable {
         @Override
         public @NonNull <T extends SChatEvent> EventSubscription<T> on(@NonNull Class<T> eventClass, @NonNull Consumer<? super T> handler) {
             final EventSubscription<T> subscription = super.on(eventClass, handler);
-            log.info("Subscribed " + handler.getClass().getName() + " to " + eventClass.getSimpleName());
+            log.info("Subscribed " + handlerName(handler) + " to " + eventClass.getSimpleName());
+            return subscription;
+        }
+
+        @Override
+        public @NonNull <T extends SChatEvent> EventSubscription<T> on(@NonNull Class<T> eventClass, @NonNull Object key, @NonNull Consumer<? super T> handler) {
+            final EventSubscription<T> subscription = super.on(eventClass, key, handler);
+            log.info("Subscribed " + handlerName(handler) + " to " + eventClass.getSimpleName() + " of " + key);
             return subscription;
         }
 
         @Override
-        protected @NotNull <T extends SChatEvent> EventSubscriptionImpl<T> createSubscription(Class<T> eventClass, Consumer<? super T> handler) {
-            return new EventSubscriptionImpl.Logging<>(this, eventClass, handler);
+        protected @NotNull <T extends SChatEvent> EventSubscriptionImpl<T> createSubscription(Class<T> eventClass, @Nullable Object key, String name, Consumer<? super T> handler) {
+            return new EventSubscriptionImpl.Logging<>(this, eventClass, key, name, handler);
         }
     }
 }
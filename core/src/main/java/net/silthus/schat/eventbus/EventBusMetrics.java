@@ -0,0 +1,315 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.eventbus;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import lombok.extern.java.Log;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Records the number and latency of events posted to an {@link EventBus} and of the handlers invoked for them.
+ *
+ * <p>Metrics are only recorded while they are attached to an event bus with {@link EventBus#instrument(EventBusMetrics)}.
+ * Handlers taking longer than the slow handler threshold are counted separately and logged
+ * the first time and every power of two times they are slow.</p>
+ *
+ * @since 1.0.0
+ */
+@Log(topic = "sChat:EventBus")
+@Accessors(fluent = true)
+public final class EventBusMetrics {
+
+    /**
+     * Creates new metrics that count handlers taking longer than the given threshold as slow.
+     *
+     * @param slowHandlerThreshold the duration after which a handler invocation is slow
+     * @return the created metrics
+     * @since 1.0.0
+     */
+    public static EventBusMetrics eventBusMetrics(@NonNull Duration slowHandlerThreshold) {
+        return new EventBusMetrics(slowHandlerThreshold);
+    }
+
+    private static final Comparator<Stats> BY_TOTAL_TIME = Comparator.<Stats>comparingLong(stats -> stats.latency().totalNanos()).reversed();
+
+    @Getter
+    private final Duration slowHandlerThreshold;
+    private final long slowHandlerThresholdNanos;
+    private final Map<Class<?>, EventStats> events = new ConcurrentHashMap<>();
+    private final Map<String, Map<Class<?>, HandlerStats>> handlers = new ConcurrentHashMap<>();
+    @Getter
+    private volatile Instant since = Instant.now();
+
+    private EventBusMetrics(final Duration slowHandlerThreshold) {
+        this.slowHandlerThreshold = slowHandlerThreshold;
+        this.slowHandlerThresholdNanos = slowHandlerThreshold.toNanos();
+    }
+
+    void recordPost(final Class<?> eventClass, final long nanos) {
+        final EventStats stats = events.get(eventClass);
+        (stats != null ? stats : events.computeIfAbsent(eventClass, EventStats::new)).latency().record(nanos);
+    }
+
+    void recordHandler(final String handler, final Class<?> eventClass, final long nanos) {
+        Map<Class<?>, HandlerStats> byEvent = handlers.get(handler);
+        if (byEvent == null)
+            byEvent = handlers.computeIfAbsent(handler, name -> new ConcurrentHashMap<>());
+        HandlerStats stats = byEvent.get(eventClass);
+        if (stats == null)
+            stats = byEvent.computeIfAbsent(eventClass, type -> new HandlerStats(handler, type));
+        stats.latency().record(nanos);
+        if (nanos >= slowHandlerThresholdNanos)
+            recordSlowInvocation(stats, eventClass, nanos);
+    }
+
+    private void recordSlowInvocation(final HandlerStats stats, final Class<?> eventClass, final long nanos) {
+        final long slow = stats.slowInvocations.incrementAndGet();
+        if ((slow & (slow - 1)) == 0)
+            log.warning("Handler " + stats.name() + " took " + formatMillis(nanos) + " to handle " + eventClass.getSimpleName()
+                + " and was slow " + slow + " time(s) in total.");
+    }
+
+    /**
+     * Gets the metrics of all posted events ordered by the total time spent dispatching them.
+     *
+     * @return a snapshot of the event metrics
+     * @since 1.0.0
+     */
+    public @NotNull List<EventStats> events() {
+        return sorted(events.values());
+    }
+
+    /**
+     * Gets the metrics of all invoked handlers ordered by the total time spent in them.
+     *
+     * <p>Handlers invoked for several event classes have separate metrics for each event class.</p>
+     *
+     * @return a snapshot of the handler metrics
+     * @since 1.0.0
+     */
+    public @NotNull List<HandlerStats> handlers() {
+        final List<HandlerStats> stats = new ArrayList<>();
+        for (final Map<Class<?>, HandlerStats> byEvent : handlers.values())
+            stats.addAll(byEvent.values());
+        return sorted(stats);
+    }
+
+    /**
+     * Gets the metrics of all handlers that took longer than the slow handler threshold at least once.
+     *
+     * @return the slow handlers ordered by the total time spent in them
+     * @since 1.0.0
+     */
+    public @NotNull List<HandlerStats> slowHandlers() {
+        return handlers().stream().filter(stats -> stats.slowInvocations() > 0).toList();
+    }
+
+    /**
+     * Removes all recorded metrics.
+     *
+     * @since 1.0.0
+     */
+    public void reset() {
+        events.clear();
+        handlers.clear();
+        since = Instant.now();
+    }
+
+    /**
+     * Writes a human-readable report of all metrics to the given file, replacing the file if it exists.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     * @since 1.0.0
+     */
+    public void dump(@NonNull Path file) throws IOException {
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            dump(writer);
+        }
+    }
+
+    /**
+     * Writes a human-readable report of all metrics to the given writer.
+     *
+     * @param writer the writer to write to
+     * @since 1.0.0
+     */
+    public void dump(@NonNull Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        out.println("# sChat event bus metrics");
+        out.println("# recorded since: " + since + " (" + Duration.between(since, Instant.now()).toSeconds() + "s)");
+        out.println("# slow handler threshold: " + formatMillis(slowHandlerThresholdNanos));
+        out.println();
+        out.println("## Events");
+        out.printf("%12s %12s %12s %12s %12s %12s  %s%n", "posts", "mean", "p50", "p99", "max", "total", "event");
+        for (final EventStats stats : events())
+            printStats(out, stats.latency(), "", stats.name());
+        out.println();
+        out.println("## Handlers");
+        out.printf("%12s %12s %12s %12s %12s %12s %12s  %s%n", "invocations", "slow", "mean", "p50", "p99", "max", "total", "handler");
+        for (final HandlerStats stats : handlers())
+            printStats(out, stats.latency(), String.format("%12d ", stats.slowInvocations()), stats.name() + " (" + stats.eventClass().getSimpleName() + ")");
+        out.flush();
+    }
+
+    private static void printStats(final PrintWriter out, final LatencyHistogram latency, final String extra, final String name) {
+        out.printf("%12d %s%12s %12s %12s %12s %12s  %s%n",
+            latency.count(),
+            extra,
+            formatMillis(latency.meanNanos()),
+            formatMillis(latency.percentileNanos(50)),
+            formatMillis(latency.percentileNanos(99)),
+            formatMillis(latency.maxNanos()),
+            formatMillis(latency.totalNanos()),
+            name
+        );
+    }
+
+    /**
+     * Formats the given nanoseconds as milliseconds with microsecond precision.
+     *
+     * @param nanos the nanoseconds to format
+     * @return the formatted duration, e.g. {@code 1.250ms}
+     * @since 1.0.0
+     */
+    public static @NotNull String formatMillis(long nanos) {
+        return String.format("%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static <T extends Stats> List<T> sorted(final Iterable<T> stats) {
+        final List<T> result = new ArrayList<>();
+        stats.forEach(result::add);
+        result.sort(BY_TOTAL_TIME);
+        return result;
+    }
+
+    /**
+     * The recorded metrics of an event or handler.
+     *
+     * @since 1.0.0
+     */
+    public sealed interface Stats permits EventStats, HandlerStats {
+
+        /**
+         * Gets the name of the event or handler.
+         *
+         * @return the name
+         * @since 1.0.0
+         */
+        @NotNull String name();
+
+        /**
+         * Gets the latency of all recorded invocations.
+         *
+         * @return the latency histogram
+         * @since 1.0.0
+         */
+        @NotNull LatencyHistogram latency();
+    }
+
+    /**
+     * The metrics of all posts of an event class.
+     *
+     * <p>The latency includes the invocation of all handlers of a post.</p>
+     *
+     * @since 1.0.0
+     */
+    @Getter
+    @Accessors(fluent = true)
+    public static final class EventStats implements Stats {
+
+        private final Class<?> eventClass;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private EventStats(final Class<?> eventClass) {
+            this.eventClass = eventClass;
+        }
+
+        @Override
+        public @NotNull String name() {
+            return eventClass.getSimpleName();
+        }
+    }
+
+    /**
+     * The metrics of all invocations of an event handler for an event class.
+     *
+     * @since 1.0.0
+     */
+    @Getter
+    @Accessors(fluent = true)
+    public static final class HandlerStats implements Stats {
+
+        private final String name;
+        private final Class<?> eventClass;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        @Getter(AccessLevel.NONE)
+        private final AtomicLong slowInvocations = new AtomicLong();
+
+        private HandlerStats(final String name, final Class<?> eventClass) {
+            this.name = name;
+            this.eventClass = eventClass;
+        }
+
+        /**
+         * Gets the number of invocations that took longer than the slow handler threshold.
+         *
+         * @return the number of slow invocations
+         * @since 1.0.0
+         */
+        public long slowInvocations() {
+            return slowInvocations.get();
+        }
+    }
+
+    /**
+     * The configuration of the event bus metrics.
+     *
+     * @param enabled              true if metrics should be recorded
+     * @param slowHandlerThreshold the duration after which a handler invocation is slow
+     * @since 1.0.0
+     */
+    public record Config(boolean enabled, Duration slowHandlerThreshold) {
+        public static final Config DISABLED = new Config(false, Duration.ofMillis(50));
+    }
+}
@@ -31,6 +31,7 @@ import lombok.experimental.Accessors;
 import lombok.extern.java.Log;
 import net.kyori.event.EventSubscriber;
 import net.silthus.schat.events.SChatEvent;
+import org.jetbrains.annotations.Nullable;
 
 @Getter
 @Log(topic = "sChat:EventBus")
@@ -40,16 +41,26 @@ class EventSubscriptionImpl<E extends SChatEvent> implements EventSubscription<E
     private final EventBusImpl eventBus;
     private final Class<E> eventClass;
     private final Consumer<? super E> handler;
+    private final @Nullable Object key;
+    private final String name;
     private final AtomicBoolean active = new AtomicBoolean(true);
 
     EventSubscriptionImpl(final EventBusImpl eventBus,
                           final Class<E> eventClass,
+                          final @Nullable Object key,
+                          final String name,
                           final Consumer<? super E> consumer) {
         this.eventBus = eventBus;
         this.eventClass = eventClass;
+        this.key = key;
+        this.name = name;
         this.handler = consumer;
     }
 
+    boolean isKeyed() {
+        return key != null;
+    }
+
     @Override
     public boolean isActive() {
         return this.active.get();
@@ -73,7 +84,7 @@ class EventSubscriptionImpl<E extends SChatEvent> implements EventSubscription<E
         try {
             this.handler.accept(event);
         } catch (final Throwable t) {
-            log.warning("Unable to pass event " + event.getClass().getSimpleName() + " to handler " + this.handler.getClass().getName());
+            log.warning("Unable to pass event " + event.getClass().getSimpleName() + " to handler " + this.name);
             t.printStackTrace();
         }
     }
@@ -81,13 +92,13 @@ class EventSubscriptionImpl<E extends SChatEvent> implements EventSubscription<E
     @Log(topic = "sChat:EventBus")
     static final class Logging<E extends SChatEvent> extends EventSubscriptionImpl<E> {
 
-        Logging(EventBusImpl eventBus, Class<E> eventClass, Consumer<? super E> consumer) {
-            super(eventBus, eventClass, consumer);
+        Logging(EventBusImpl eventBus, Class<E> eventClass, @Nullable Object key, String name, Consumer<? super E> consumer) {
+            super(eventBus, eventClass, key, name, consumer);
         }
 
         @Override
         public void invoke(@NonNull E event) {
-            log.info(event + " --> " + this.handler().getClass().getName());
+            log.info(event + " --> " + this.name());
             super.invoke(event);
         }
     }
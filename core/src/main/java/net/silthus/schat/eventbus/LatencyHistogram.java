@@ -0,0 +1,173 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.eventbus;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of latencies in nanoseconds.
+ *
+ * <p>Values are counted in logarithmic buckets with eight sub buckets for each power of two,
+ * which bounds the error of percentiles to 12.5% while using a fixed amount of memory.
+ * Values above {@link #MAX_TRACKABLE_NANOS} are counted in the last bucket.</p>
+ *
+ * @since 1.0.0
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The largest value that is tracked with full precision, about 18 minutes.
+     *
+     * @since 1.0.0
+     */
+    public static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+    private static final int BUCKETS = bucket(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos the latency in nanoseconds
+     * @since 1.0.0
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(bucket(Math.min(nanos, MAX_TRACKABLE_NANOS)));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the number of values
+     * @since 1.0.0
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all recorded values.
+     *
+     * @return the total latency in nanoseconds
+     * @since 1.0.0
+     */
+    public long totalNanos() {
+        return total.sum();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the maximum latency in nanoseconds
+     * @since 1.0.0
+     */
+    public long maxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of all recorded values.
+     *
+     * @return the mean latency in nanoseconds or 0 if nothing was recorded
+     * @since 1.0.0
+     */
+    public long meanNanos() {
+        final long count = count();
+        return count == 0 ? 0 : totalNanos() / count;
+    }
+
+    /**
+     * Gets the value below which the given percentage of recorded values fall.
+     *
+     * <p>The returned value is the upper bound of the bucket containing the percentile
+     * and never larger than the maximum recorded value.</p>
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in nanoseconds or 0 if nothing was recorded
+     * @since 1.0.0
+     */
+    public long percentileNanos(double percentile) {
+        final long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+            return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), maxNanos());
+        }
+        return maxNanos();
+    }
+
+    /**
+     * Removes all recorded values.
+     *
+     * @since 1.0.0
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets.set(i, 0);
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    static int bucket(final long value) {
+        if (value < LINEAR_BUCKETS)
+            return (int) value;
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(final int bucket) {
+        if (bucket < LINEAR_BUCKETS)
+            return bucket;
+        final int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        final int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        final long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.eventbus;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import net.silthus.schat.events.SChatEvent;
+
+/**
+ * Resolves and caches the {@link Subscribe} methods of listener classes.
+ *
+ * <p>The methods of a listener class are only scanned once. Every method gets an invoker factory that is
+ * reused for all instances of the listener. The preferred invoker is a class generated with the
+ * {@link LambdaMetafactory} that calls the method directly. If the listener class cannot be accessed
+ * with full privileges, e.g. because it was loaded by another plugin, a bound {@link MethodHandle} is used.
+ * Reflection is only used as the last resort.</p>
+ */
+@Log(topic = "sChat:EventBus")
+final class SubscribeMethods {
+
+    private static final MethodType CONSUMER_ACCEPT = MethodType.methodType(void.class, Object.class);
+
+    private static final ClassValue<List<SubscribeMethod>> METHODS = new ClassValue<>() {
+        @Override
+        protected List<SubscribeMethod> computeValue(final Class<?> type) {
+            return scan(type);
+        }
+    };
+
+    static List<SubscribeMethod> subscribeMethods(final @NonNull Class<?> listenerClass) {
+        return METHODS.get(listenerClass);
+    }
+
+    private static List<SubscribeMethod> scan(final Class<?> listenerClass) {
+        final List<SubscribeMethod> methods = new ArrayList<>();
+        for (final Method method : listenerClass.getDeclaredMethods()) {
+            if (isSubscribeMethod(method))
+                methods.add(subscribeMethod(method));
+        }
+        return List.copyOf(methods);
+    }
+
+    private static boolean isSubscribeMethod(final Method method) {
+        return method.isAnnotationPresent(Subscribe.class)
+            && method.getParameterCount() == 1
+            && SChatEvent.class.isAssignableFrom(method.getParameterTypes()[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SubscribeMethod subscribeMethod(final Method method) {
+        final Class<? extends SChatEvent> eventClass = (Class<? extends SChatEvent>) method.getParameterTypes()[0];
+        return new SubscribeMethod(eventClass, method.getDeclaringClass().getName() + "#" + method.getName(), invokerFactory(method));
+    }
+
+    private static InvokerFactory invokerFactory(final Method method) {
+        try {
+            return lambdaInvoker(method);
+        } catch (Throwable e) {
+            log.fine("Unable to generate a direct invoker for " + method + ": " + e.getMessage());
+        }
+        try {
+            return methodHandleInvoker(method);
+        } catch (Throwable e) {
+            log.fine("Unable to create a method handle for " + method + ": " + e.getMessage());
+        }
+        return reflectionInvoker(method);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static InvokerFactory lambdaInvoker(final Method method) throws Throwable {
+        final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+        final MethodHandle implementation = lookup.unreflect(method);
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        final MethodType factoryType = isStatic
+            ? MethodType.methodType(Consumer.class)
+            : MethodType.methodType(Consumer.class, method.getDeclaringClass());
+        final CallSite callSite = LambdaMetafactory.metafactory(
+            lookup,
+            "accept",
+            factoryType,
+            CONSUMER_ACCEPT,
+            implementation,
+            MethodType.methodType(void.class, method.getParameterTypes()[0])
+        );
+        final MethodHandle factory = callSite.getTarget();
+        if (isStatic) {
+            final Consumer<SChatEvent> invoker = (Consumer<SChatEvent>) factory.invoke();
+            return listener -> invoker;
+        }
+        return listener -> {
+            try {
+                return (Consumer<SChatEvent>) factory.invoke(listener);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Unable to create invoker for " + method, e);
+            }
+        };
+    }
+
+    private static InvokerFactory methodHandleInvoker(final Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        final MethodHandle handle = MethodHandles.lookup().unreflect(method);
+        if (Modifier.isStatic(method.getModifiers()))
+            return listener -> invoker(handle.asType(MethodType.methodType(void.class, SChatEvent.class)));
+        return listener -> invoker(handle.bindTo(listener).asType(MethodType.methodType(void.class, SChatEvent.class)));
+    }
+
+    private static Consumer<SChatEvent> invoker(final MethodHandle handle) {
+        return event -> {
+            try {
+                handle.invokeExact(event);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static InvokerFactory reflectionInvoker(final Method method) {
+        method.setAccessible(true);
+        return listener -> event -> {
+            try {
+                method.invoke(listener, event);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private SubscribeMethods() {
+    }
+
+    /**
+     * Creates the invoker of a subscribe method for a listener instance.
+     */
+    @FunctionalInterface
+    interface InvokerFactory {
+        Consumer<SChatEvent> create(Object listener);
+    }
+
+    /**
+     * A resolved subscribe method of a listener class.
+     *
+     * @param eventClass the type of the event the method subscribes to
+     * @param name       the name of the method used in logs and metrics
+     * @param factory    the factory creating the invoker for a listener instance
+     */
+    record SubscribeMethod(Class<? extends SChatEvent> eventClass, String name, InvokerFactory factory) {
+
+        Consumer<SChatEvent> bind(final @NonNull Object listener) {
+            return factory.create(listener);
+        }
+    }
+}
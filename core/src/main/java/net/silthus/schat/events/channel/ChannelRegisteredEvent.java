@@ -25,12 +25,11 @@ package net.silthus.schat.events.channel;
 
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.channel.ChannelRepository;
-import net.silthus.schat.events.SChatEvent;
 
 /**
  * The event is fired when a new channel is added to the {@link ChannelRepository}.
  *
  * @since 1.0.0
  */
-public record ChannelRegisteredEvent(Channel channel) implements SChatEvent {
+public record ChannelRegisteredEvent(Channel channel) implements ChannelEvent {
 }
@@ -24,7 +24,6 @@
 package net.silthus.schat.events.channel;
 
 import net.silthus.schat.channel.Channel;
-import net.silthus.schat.events.SChatEvent;
 import net.silthus.schat.pointer.Setting;
 import net.silthus.schat.pointer.Settings;
 
@@ -43,5 +42,5 @@ public record ChannelSettingChangedEvent<V>(
     Setting<V> setting,
     V oldValue,
     V newValue
-) implements SChatEvent {
+) implements ChannelEvent {
 }
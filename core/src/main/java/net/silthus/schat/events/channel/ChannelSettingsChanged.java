@@ -24,7 +24,6 @@
 package net.silthus.schat.events.channel;
 
 import net.silthus.schat.channel.Channel;
-import net.silthus.schat.events.SChatEvent;
 import net.silthus.schat.pointer.Setting;
 import net.silthus.schat.pointer.Settings;
 
@@ -41,5 +40,5 @@ public record ChannelSettingsChanged(
     Channel channel,
     Settings oldSettings,
     Settings newSettings
-) implements SChatEvent {
+) implements ChannelEvent {
 }
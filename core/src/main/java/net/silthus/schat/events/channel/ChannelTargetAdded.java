@@ -24,7 +24,6 @@
 package net.silthus.schat.events.channel;
 
 import net.silthus.schat.channel.Channel;
-import net.silthus.schat.events.SChatEvent;
 import net.silthus.schat.message.MessageTarget;
 
 /**
@@ -32,5 +31,5 @@ import net.silthus.schat.message.MessageTarget;
  *
  * @since 1.0.0
  */
-public record ChannelTargetAdded(Channel channel, MessageTarget target) implements SChatEvent {
+public record ChannelTargetAdded(Channel channel, MessageTarget target) implements ChannelEvent {
 }
@@ -25,7 +25,7 @@ package net.silthus.schat.events.channel;
 
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.Chatter;
-import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.chatter.ChatterEvent;
 
 /**
  * The event is fired after a chatter has joined a channel.
@@ -36,5 +36,5 @@ import net.silthus.schat.events.SChatEvent;
  *
  * @since 1.0.0
  */
-public record ChatterJoinedChannelEvent(Chatter chatter, Channel channel) implements SChatEvent {
+public record ChatterJoinedChannelEvent(Chatter chatter, Channel channel) implements ChatterEvent, ChannelEvent {
 }
@@ -26,7 +26,7 @@ package net.silthus.schat.events.channel;
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.commands.LeaveChannelCommand;
-import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.chatter.ChatterEvent;
 
 /**
  * The event is fired after a chatter has left a channel.
@@ -35,5 +35,5 @@ import net.silthus.schat.events.SChatEvent;
  *
  * @since 1.0.0
  */
-public record ChatterLeftChannelEvent(Chatter chatter, Channel channel) implements SChatEvent {
+public record ChatterLeftChannelEvent(Chatter chatter, Channel channel) implements ChatterEvent, ChannelEvent {
 }
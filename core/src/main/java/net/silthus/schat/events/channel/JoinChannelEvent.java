@@ -32,7 +32,7 @@ import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.commands.JoinChannelCommand;
 import net.silthus.schat.events.Cancellable;
-import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.chatter.ChatterEvent;
 import net.silthus.schat.policies.ChannelPolicy;
 import net.silthus.schat.policies.JoinChannelPolicy;
 
@@ -45,7 +45,7 @@ import net.silthus.schat.policies.JoinChannelPolicy;
 @Setter
 @Accessors(fluent = true)
 @EqualsAndHashCode(of = {"chatter", "channel", "policy"})
-public class JoinChannelEvent implements SChatEvent, Cancellable {
+public class JoinChannelEvent implements ChatterEvent, ChannelEvent, Cancellable {
     private final Chatter chatter;
     private final Channel channel;
     private final AtomicBoolean cancellationState = new AtomicBoolean(false);
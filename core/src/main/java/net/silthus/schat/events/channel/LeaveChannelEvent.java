@@ -32,7 +32,7 @@ import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.commands.LeaveChannelCommand;
 import net.silthus.schat.events.Cancellable;
-import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.chatter.ChatterEvent;
 import net.silthus.schat.policies.ChannelPolicy;
 import net.silthus.schat.policies.LeaveChannelPolicy;
 
@@ -45,7 +45,7 @@ import net.silthus.schat.policies.LeaveChannelPolicy;
 @Setter
 @Accessors(fluent = true)
 @EqualsAndHashCode(of = {"chatter", "channel"})
-public class LeaveChannelEvent implements SChatEvent, Cancellable {
+public class LeaveChannelEvent implements ChatterEvent, ChannelEvent, Cancellable {
     private final Chatter chatter;
     private final Channel channel;
     private final AtomicBoolean cancellationState = new AtomicBoolean(false);
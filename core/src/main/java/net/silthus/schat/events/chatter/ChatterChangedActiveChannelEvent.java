@@ -26,7 +26,6 @@ package net.silthus.schat.events.chatter;
 import lombok.NonNull;
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.Chatter;
-import net.silthus.schat.events.SChatEvent;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -38,5 +37,5 @@ public record ChatterChangedActiveChannelEvent(
     @NonNull Chatter chatter,
     @Nullable Channel oldChannel,
     @Nullable Channel newChannel
-) implements SChatEvent {
+) implements ChatterEvent {
 }
@@ -24,12 +24,11 @@
 package net.silthus.schat.events.chatter;
 
 import net.silthus.schat.chatter.Chatter;
-import net.silthus.schat.events.SChatEvent;
 
 /**
  * The {@code ChatterJoinedServerEvent} is fired when a chatter has joined the server.
  *
  * @since 1.0.0
  */
-public record ChatterJoinedServerEvent(Chatter chatter) implements SChatEvent {
+public record ChatterJoinedServerEvent(Chatter chatter) implements ChatterEvent {
 }
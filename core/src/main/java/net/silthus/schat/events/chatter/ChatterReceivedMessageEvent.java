@@ -24,7 +24,6 @@
 package net.silthus.schat.events.chatter;
 
 import net.silthus.schat.chatter.Chatter;
-import net.silthus.schat.events.SChatEvent;
 import net.silthus.schat.message.Message;
 
 /**
@@ -34,5 +33,5 @@ import net.silthus.schat.message.Message;
  *
  * @since 1.0.0
  */
-public record ChatterReceivedMessageEvent(Chatter chatter, Message message) implements SChatEvent {
+public record ChatterReceivedMessageEvent(Chatter chatter, Message message) implements ChatterEvent {
 }
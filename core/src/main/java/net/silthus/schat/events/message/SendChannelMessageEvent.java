@@ -31,7 +31,7 @@ import lombok.Setter;
 import lombok.experimental.Accessors;
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.events.Cancellable;
-import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.channel.ChannelEvent;
 import net.silthus.schat.message.Message;
 import net.silthus.schat.message.Targets;
 import net.silthus.schat.policies.SendChannelMessagePolicy;
@@ -53,7 +53,7 @@ import net.silthus.schat.policies.SendChannelMessagePolicy;
 @Getter
 @Setter
 @Accessors(fluent = true)
-public final class SendChannelMessageEvent implements SChatEvent, Cancellable {
+public final class SendChannelMessageEvent implements ChannelEvent, Cancellable {
 
     private final Channel channel;
     private Message message;
@@ -32,7 +32,7 @@ import lombok.experimental.Accessors;
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.channel.ChannelSettings;
 import net.silthus.schat.events.Cancellable;
-import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.channel.ChannelEvent;
 import net.silthus.schat.message.Message;
 
 /**
@@ -46,7 +46,7 @@ import net.silthus.schat.message.Message;
 @Accessors(fluent = true)
 @RequiredArgsConstructor
 @EqualsAndHashCode(of = {"channel", "message"})
-public final class SendGlobalMessageEvent implements SChatEvent, Cancellable {
+public final class SendGlobalMessageEvent implements ChannelEvent, Cancellable {
     private final Channel channel;
     private final Message message;
     private final AtomicBoolean cancellationState = new AtomicBoolean(false);
@@ -0,0 +1,246 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.message;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import net.silthus.schat.commands.SendMessageResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static net.silthus.schat.commands.SendMessageResult.failure;
+import static net.silthus.schat.commands.SendMessageResult.success;
+
+/**
+ * Controls how a message is delivered to the individual targets of a {@link Targets} container.
+ *
+ * <p>The {@link #sequential()} fan-out delivers the message to one target after the other on the calling thread.</p>
+ *
+ * <p>The {@link #parallel(Config, Executor)} fan-out splits the targets into partitions and delivers
+ * every partition on its own thread. The calling thread delivers the first partition itself and takes over
+ * every partition that has not been started by the executor when it is done. Delivery returns after all
+ * partitions completed. Every target is part of exactly one partition, which keeps the order of the
+ * messages a single target receives from the same sender.</p>
+ *
+ * <p>A target that throws an exception is logged and counted as a failed delivery.
+ * The message is still delivered to all other targets.</p>
+ *
+ * @since 1.0.0
+ */
+@Log(topic = "sChat:FanOut")
+public abstract sealed class FanOut permits FanOut.Sequential, FanOut.Parallel {
+
+    private static final FanOut SEQUENTIAL = new Sequential();
+
+    /**
+     * Gets the fan-out that delivers the message sequentially on the calling thread.
+     *
+     * @return the sequential fan-out
+     * @since 1.0.0
+     */
+    public static @NotNull FanOut sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * Creates a fan-out from the given config.
+     *
+     * <p>A {@link #sequential()} fan-out is returned if parallel delivery is disabled.</p>
+     *
+     * @param config   the config of the fan-out
+     * @param executor the executor that delivers the partitions
+     * @return the fan-out
+     * @since 1.0.0
+     */
+    public static @NotNull FanOut parallel(final @NonNull Config config, final @NonNull Executor executor) {
+        if (!config.parallel())
+            return sequential();
+        final int parallelism = config.parallelism() > 0 ? config.parallelism() : Runtime.getRuntime().availableProcessors();
+        if (parallelism <= 1)
+            return sequential();
+        return new Parallel(executor, parallelism, Math.max(1, config.minPartitionSize()));
+    }
+
+    private FanOut() {
+    }
+
+    /**
+     * Delivers the message to all targets.
+     *
+     * @param targets the targets
+     * @param message the message
+     * @return a successful result if all targets accepted the message or a failure if any target failed
+     */
+    abstract @NotNull SendMessageResult deliver(final @NotNull MessageTarget @NotNull [] targets, final @NotNull Message message);
+
+    private static boolean deliverTo(final MessageTarget target, final Message message) {
+        try {
+            return target.sendMessage(message).wasSuccessful();
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, "Failed to deliver the message " + message.id() + " to " + target + ".", e);
+            return false;
+        }
+    }
+
+    /**
+     * The configuration of the fan-out.
+     *
+     * @param parallel         true if messages should be delivered in parallel
+     * @param parallelism      the maximum number of partitions or 0 to use the number of processors
+     * @param minPartitionSize the minimum number of targets in a partition
+     * @since 1.0.0
+     */
+    public record Config(boolean parallel, int parallelism, int minPartitionSize) {
+        public static final Config SEQUENTIAL = new Config(false, 0, 64);
+    }
+
+    static final class Sequential extends FanOut {
+
+        @Override
+        @NotNull SendMessageResult deliver(final @NotNull MessageTarget @NotNull [] targets, final @NotNull Message message) {
+            boolean delivered = true;
+            for (final MessageTarget target : targets)
+                delivered &= deliverTo(target, message);
+            return delivered ? success(message) : failure(message);
+        }
+    }
+
+    static final class Parallel extends FanOut {
+
+        private final Executor executor;
+        private final int parallelism;
+        private final int minPartitionSize;
+
+        private Parallel(final Executor executor, final int parallelism, final int minPartitionSize) {
+            this.executor = executor;
+            this.parallelism = parallelism;
+            this.minPartitionSize = minPartitionSize;
+        }
+
+        @Override
+        @NotNull SendMessageResult deliver(final @NotNull MessageTarget @NotNull [] targets, final @NotNull Message message) {
+            final int partitionCount = Math.min(parallelism, targets.length / minPartitionSize);
+            if (partitionCount <= 1)
+                return SEQUENTIAL.deliver(targets, message);
+
+            final CountDownLatch completed = new CountDownLatch(partitionCount);
+            final Partition[] partitions = new Partition[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                final int from = (int) ((long) targets.length * i / partitionCount);
+                final int to = (int) ((long) targets.length * (i + 1) / partitionCount);
+                partitions[i] = new Partition(targets, from, to, message, completed);
+            }
+            for (int i = 1; i < partitionCount; i++)
+                submit(partitions[i]);
+            for (final Partition partition : partitions)
+                partition.run();
+
+            awaitUninterruptibly(completed);
+            return aggregate(partitions, message);
+        }
+
+        private void submit(final Partition partition) {
+            try {
+                executor.execute(partition);
+            } catch (RejectedExecutionException ignored) {
+                // the partition is delivered by the calling thread
+            }
+        }
+
+        private static void awaitUninterruptibly(final CountDownLatch latch) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        private static SendMessageResult aggregate(final Partition[] partitions, final Message message) {
+            boolean delivered = true;
+            Throwable thrown = null;
+            for (final Partition partition : partitions) {
+                delivered &= partition.delivered;
+                if (partition.failure == null)
+                    continue;
+                if (thrown == null)
+                    thrown = partition.failure;
+                else
+                    thrown.addSuppressed(partition.failure);
+            }
+            if (thrown instanceof RuntimeException exception)
+                throw exception;
+            if (thrown instanceof Error error)
+                throw error;
+            return delivered ? success(message) : failure(message);
+        }
+    }
+
+    private static final class Partition implements Runnable {
+
+        private final MessageTarget[] targets;
+        private final int from;
+        private final int to;
+        private final Message message;
+        private final CountDownLatch completed;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile boolean delivered = true;
+        private volatile @Nullable Throwable failure;
+
+        private Partition(final MessageTarget[] targets, final int from, final int to, final Message message, final CountDownLatch completed) {
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+            this.message = message;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true))
+                return;
+            boolean delivered = true;
+            try {
+                for (int i = from; i < to; i++)
+                    delivered &= deliverTo(targets[i], message);
+            } catch (Throwable e) {
+                delivered = false;
+                failure = e;
+            } finally {
+                this.delivered = delivered;
+                completed.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.message;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import lombok.NonNull;
+
+/**
+ * A ring buffer of messages that drops the oldest messages according to its {@link Messages.Retention}.
+ *
+ * <p>Messages are indexed by their id, making appends and duplicate checks constant time.
+ * Expired messages are evicted from the head of the buffer whenever a new message is added.</p>
+ */
+final class MessageHistory extends AbstractList<Message> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Supplier<Messages.Retention> retention;
+    private final Set<UUID> ids = new HashSet<>();
+    private Message[] buffer = new Message[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    MessageHistory(final @NonNull Supplier<Messages.Retention> retention) {
+        this.retention = retention;
+    }
+
+    @Override
+    public synchronized boolean add(final @NonNull Message message) {
+        if (!ids.add(message.id()))
+            return false;
+
+        final Messages.Retention retention = Objects.requireNonNull(this.retention.get(), "retention");
+        evictExpired(retention, Instant.now());
+        if (retention.isCapped())
+            while (size >= retention.capacity())
+                removeOldest();
+        ensureCapacity(retention);
+
+        buffer[index(size)] = message;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized Message get(int index) {
+        Objects.checkIndex(index, size);
+        return buffer[index(index)];
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        return o instanceof Message message && ids.contains(message.id());
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(buffer, null);
+        ids.clear();
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    private void evictExpired(Messages.Retention retention, Instant now) {
+        while (size > 0 && retention.isExpired(buffer[head], now))
+            removeOldest();
+    }
+
+    private void removeOldest() {
+        final Message oldest = buffer[head];
+        buffer[head] = null;
+        ids.remove(oldest.id());
+        head = index(1);
+        size--;
+        modCount++;
+    }
+
+    private void ensureCapacity(Messages.Retention retention) {
+        if (size < buffer.length)
+            return;
+        int length = buffer.length * 2;
+        if (retention.isCapped())
+            length = Math.min(length, retention.capacity());
+        if (length <= size)
+            length = size + 1;
+        resize(length);
+    }
+
+    private void resize(int length) {
+        final Message[] resized = new Message[length];
+        for (int i = 0; i < size; i++)
+            resized[i] = buffer[index(i)];
+        buffer = resized;
+        head = 0;
+    }
+
+    private int index(int offset) {
+        final int index = head + offset;
+        return index >= buffer.length ? index - buffer.length : index;
+    }
+}
@@ -44,7 +44,6 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
 import static net.silthus.schat.message.Targets.copyOf;
-import static net.silthus.schat.message.Targets.unmodifiable;
 import static net.silthus.schat.message.TargetsFilter.firstChannel;
 
 @Getter
@@ -68,7 +67,7 @@ final class MessageImpl implements Message {
         this.id = draft.id;
         this.timestamp = draft.timestamp;
         this.source = draft.source;
-        this.targets = unmodifiable(copyOf(draft.targets));
+        this.targets = draft.targets.snapshot();
         this.text = draft.text;
         this.type = draft.type;
         this.settings = draft.settings
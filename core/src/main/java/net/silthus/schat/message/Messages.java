@@ -23,12 +23,14 @@
  */
 package net.silthus.schat.message;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.AbstractList;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 import lombok.NonNull;
 import net.silthus.schat.util.FilterableCollection;
 import org.jetbrains.annotations.NotNull;
@@ -38,6 +40,10 @@ import org.jetbrains.annotations.Unmodifiable;
 /**
  * A container for messages that can be used to store and persist messages in memory.
  *
+ * <p>Modifiable containers are backed by a ring buffer that drops the oldest messages
+ * according to the {@link Retention} of the container. Appending a message and checking
+ * for duplicates (by {@link Message#id()}) are constant time operations.</p>
+ *
  * @since 1.0.0
  */
 public final class Messages extends AbstractList<Message> implements FilterableCollection<Message> {
@@ -77,13 +83,15 @@ public final class Messages extends AbstractList<Message> implements FilterableC
      * @since 1.0.0
      */
     public static Messages of(final @NonNull Message @NonNull ... messages) {
-        return new Messages(new ArrayList<>(List.of(messages)));
+        final Messages container = new Messages();
+        Collections.addAll(container, messages);
+        return container;
     }
 
     private final List<Message> messages;
 
     private Messages(final @NonNull List<Message> messages) {
-        this.messages = Collections.synchronizedList(messages);
+        this.messages = messages;
     }
 
     /**
@@ -93,24 +101,52 @@ public final class Messages extends AbstractList<Message> implements FilterableC
      * @since 1.0.0
      */
     public Messages(final @NonNull Collection<Message> messages) {
-        this.messages = new ArrayList<>(messages);
+        this(Retention.UNBOUNDED);
+        this.messages.addAll(messages);
     }
 
     /**
-     * Creates a new empty but modifiable message container.
+     * Creates a new empty but modifiable message container that keeps all messages.
      *
      * @since 1.0.0
      */
     public Messages() {
-        this(new ArrayList<>());
+        this(Retention.UNBOUNDED);
+    }
+
+    /**
+     * Creates a new empty message container that drops messages according to the given retention.
+     *
+     * @param retention the retention of the container
+     * @since 1.0.0
+     */
+    public Messages(final @NonNull Retention retention) {
+        this(() -> retention);
+    }
+
+    /**
+     * Creates a new empty message container that drops messages according to the supplied retention.
+     *
+     * <p>The retention is queried every time a message is added,
+     * allowing the limits to change at runtime, e.g. when the settings of a channel change.</p>
+     *
+     * @param retention the supplier of the retention
+     * @since 1.0.0
+     */
+    public Messages(final @NonNull Supplier<@NonNull Retention> retention) {
+        this(new MessageHistory(retention));
     }
 
     @Override
     public boolean add(final @NonNull Message message) {
-        if (messages.contains(message)) return false;
         return messages.add(message);
     }
 
+    @Override
+    public boolean contains(final Object o) {
+        return messages.contains(o);
+    }
+
     @Override
     public Message get(int index) {
         return messages.get(index);
@@ -137,4 +173,68 @@ public final class Messages extends AbstractList<Message> implements FilterableC
             return get(size() - 1);
         return null;
     }
+
+    /**
+     * Controls how many and how old messages are kept inside a message container.
+     *
+     * @param capacity the maximum number of messages to keep. {@code 0} or less keeps all messages.
+     * @param maxAge   the maximum age of a message. {@link Duration#ZERO} or less keeps messages forever.
+     * @since 1.0.0
+     */
+    public record Retention(int capacity, @NonNull Duration maxAge) {
+
+        /**
+         * A retention that keeps all messages forever.
+         *
+         * @since 1.0.0
+         */
+        public static final Retention UNBOUNDED = new Retention(0, Duration.ZERO);
+
+        /**
+         * Creates a new retention with the given limits.
+         *
+         * @param capacity the maximum number of messages to keep. {@code 0} or less keeps all messages.
+         * @param maxAge   the maximum age of a message. {@link Duration#ZERO} or less keeps messages forever.
+         * @return the retention
+         * @since 1.0.0
+         */
+        public static @NotNull Retention retention(int capacity, @NonNull Duration maxAge) {
+            return new Retention(capacity, maxAge);
+        }
+
+        /**
+         * Creates a new retention that keeps the given number of messages forever.
+         *
+         * @param capacity the maximum number of messages to keep. {@code 0} or less keeps all messages.
+         * @return the retention
+         * @since 1.0.0
+         */
+        public static @NotNull Retention capacity(int capacity) {
+            return retention(capacity, Duration.ZERO);
+        }
+
+        /**
+         * Checks if the retention limits the number of stored messages.
+         *
+         * @return true if the capacity is limited
+         * @since 1.0.0
+         */
+        public boolean isCapped() {
+            return capacity > 0;
+        }
+
+        /**
+         * Checks if the retention drops messages after their {@link #maxAge()}.
+         *
+         * @return true if messages expire
+         * @since 1.0.0
+         */
+        public boolean isExpiring() {
+            return !maxAge.isZero() && !maxAge.isNegative();
+        }
+
+        boolean isExpired(final @NonNull Message message, final @NonNull Instant now) {
+            return isExpiring() && message.timestamp().plus(maxAge).isBefore(now);
+        }
+    }
 }
@@ -24,13 +24,14 @@
 package net.silthus.schat.message;
 
 import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.NonNull;
 import net.silthus.schat.commands.SendMessageResult;
 import net.silthus.schat.util.FilterableCollection;
@@ -38,17 +39,28 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
-import static net.silthus.schat.commands.SendMessageResult.success;
-
 /**
  * A container for targets that can be used to combine and filter multiple targets into one target.
  *
  * <p>The target container can be made unmodifiable with {@link Targets#unmodifiable(Targets)} to make it unmodifiable.</p>
  *
+ * <p>The container is copy-on-write and safe to use from multiple threads.
+ * Every modification publishes a new immutable snapshot of the targets. Iterating the targets or
+ * sending a message to them always works on a stable snapshot and never blocks a concurrent modification.
+ * This makes {@link #copyOf(Targets)} and {@link #snapshot()} constant time operations that share the
+ * snapshot until one of the containers is modified.</p>
+ *
  * @since 1.0.0
  */
 public final class Targets extends AbstractSet<MessageTarget> implements MessageTarget, FilterableCollection<MessageTarget> {
 
+    private static final Targets EMPTY = new Targets(Snapshot.EMPTY, false);
+    private static volatile FanOut fanOut = FanOut.sequential();
+
+    static void fanOut(final @NonNull FanOut fanOut) {
+        Targets.fanOut = fanOut;
+    }
+
     /**
      * <p>Returns an <a href="Collection.html#unmodview">unmodifiable view</a> of the
      * target container. Query operations on the returned targets "read through" to the specified
@@ -60,7 +72,7 @@ public final class Targets extends AbstractSet<MessageTarget> implements Message
      * @since 1.0.0
      */
     public static @NotNull @Unmodifiable Targets unmodifiable(final @NonNull Targets targets) {
-        return new Targets(Collections.unmodifiableSet(targets));
+        return new Targets(targets.snapshot, false);
     }
 
     /**
@@ -71,7 +83,7 @@ public final class Targets extends AbstractSet<MessageTarget> implements Message
      * @since 1.0.0
      */
     public static @NotNull @Unmodifiable Targets of() {
-        return unmodifiable(new Targets());
+        return EMPTY;
     }
 
     /**
@@ -88,17 +100,25 @@ public final class Targets extends AbstractSet<MessageTarget> implements Message
     /**
      * Creates a modifiable copy of the given target container.
      *
+     * <p>The copy shares the current snapshot of the given targets and does not copy any targets.</p>
+     *
      * @param targets the target container to copy
      * @return the new targets containing all targets of the given container
      */
     public static @NotNull Targets copyOf(final @NonNull Targets targets) {
-        return new Targets(new HashSet<>(Set.copyOf(targets)));
+        return new Targets(targets.snapshot.get(), true);
     }
 
-    private final Set<MessageTarget> targets;
+    private final AtomicReference<Snapshot> snapshot;
+    private final boolean modifiable;
+
+    private Targets(final @NonNull Snapshot snapshot, final boolean modifiable) {
+        this(new AtomicReference<>(snapshot), modifiable);
+    }
 
-    private Targets(final @NonNull Set<MessageTarget> targets) {
-        this.targets = targets;
+    private Targets(final @NonNull AtomicReference<Snapshot> snapshot, final boolean modifiable) {
+        this.snapshot = snapshot;
+        this.modifiable = modifiable;
     }
 
     /**
@@ -108,7 +128,7 @@ public final class Targets extends AbstractSet<MessageTarget> implements Message
      * @since 1.0.0
      */
     public Targets(final @NonNull Collection<MessageTarget> targets) {
-        this(new LinkedHashSet<>(targets));
+        this(Snapshot.of(withoutNull(targets)), true);
     }
 
     /**
@@ -117,7 +137,19 @@ public final class Targets extends AbstractSet<MessageTarget> implements Message
      * @since 1.0.0
      */
     public Targets() {
-        this.targets = new LinkedHashSet<>();
+        this(Snapshot.EMPTY, true);
+    }
+
+    /**
+     * Creates an unmodifiable snapshot of the current targets.
+     *
+     * <p>The snapshot is not affected by later modifications of this container.</p>
+     *
+     * @return the unmodifiable snapshot
+     * @since 1.0.0
+     */
+    public @NotNull @Unmodifiable Targets snapshot() {
+        return new Targets(snapshot.get(), false);
     }
 
     /**
@@ -131,22 +163,180 @@ public final class Targets extends AbstractSet<MessageTarget> implements Message
     public boolean add(final @Nullable MessageTarget target) {
         if (target == null)
             return false;
-        return this.targets.add(target);
+        checkModifiable();
+        Snapshot current;
+        do {
+            current = snapshot.get();
+            if (current.contains(target))
+                return false;
+        } while (!snapshot.compareAndSet(current, current.with(target)));
+        return true;
+    }
+
+    @Override
+    public boolean addAll(final @NonNull Collection<? extends MessageTarget> targets) {
+        checkModifiable();
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            final LinkedHashSet<MessageTarget> elements = new LinkedHashSet<>(Arrays.asList(current.elements()));
+            for (final MessageTarget target : targets) {
+                if (target != null)
+                    elements.add(target);
+            }
+            if (elements.size() == current.size())
+                return false;
+            next = Snapshot.of(elements);
+        } while (!snapshot.compareAndSet(current, next));
+        return true;
+    }
+
+    @Override
+    public boolean remove(final @Nullable Object target) {
+        checkModifiable();
+        Snapshot current;
+        int index;
+        do {
+            current = snapshot.get();
+            index = current.indexOf(target);
+            if (index < 0)
+                return false;
+        } while (!snapshot.compareAndSet(current, current.without(index)));
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        checkModifiable();
+        snapshot.set(Snapshot.EMPTY);
+    }
+
+    @Override
+    public boolean contains(final @Nullable Object target) {
+        return snapshot.get().contains(target);
     }
 
     @Override
     public @NotNull Iterator<MessageTarget> iterator() {
-        return targets.iterator();
+        return new SnapshotIterator(snapshot.get().elements());
     }
 
     @Override
     public int size() {
-        return targets.size();
+        return snapshot.get().size();
     }
 
+    /**
+     * Sends the message to all targets of the current snapshot.
+     *
+     * <p>The targets are either processed sequentially or in parallel partitions,
+     * depending on the configured {@link FanOut}. The method returns after all targets received the message.</p>
+     *
+     * @param message the message
+     * @return the result of the delivery
+     * @since 1.0.0
+     */
     @Override
     public SendMessageResult sendMessage(@NotNull final Message message) {
-        forEach(target -> target.sendMessage(message));
-        return success(message);
+        return fanOut.deliver(snapshot.get().elements(), message);
+    }
+
+    private static Collection<MessageTarget> withoutNull(final @NonNull Collection<MessageTarget> targets) {
+        final LinkedHashSet<MessageTarget> elements = new LinkedHashSet<>(targets);
+        elements.remove(null);
+        return elements;
+    }
+
+    private void checkModifiable() {
+        if (!modifiable)
+            throw new UnsupportedOperationException();
+    }
+
+    private final class SnapshotIterator implements Iterator<MessageTarget> {
+
+        private final MessageTarget[] elements;
+        private int cursor;
+        private @Nullable MessageTarget last;
+
+        private SnapshotIterator(final MessageTarget[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < elements.length;
+        }
+
+        @Override
+        public MessageTarget next() {
+            if (cursor >= elements.length)
+                throw new NoSuchElementException();
+            return last = elements[cursor++];
+        }
+
+        @Override
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+            Targets.this.remove(last);
+            last = null;
+        }
+    }
+
+    /**
+     * An immutable and insertion ordered state of the targets.
+     *
+     * <p>Small snapshots are searched linearly. Larger snapshots carry a hash index for lookups.</p>
+     */
+    private record Snapshot(MessageTarget[] elements, @Nullable Set<MessageTarget> index) {
+
+        private static final int INDEX_THRESHOLD = 8;
+        private static final Snapshot EMPTY = new Snapshot(new MessageTarget[0], null);
+
+        static Snapshot of(final @NonNull Collection<MessageTarget> targets) {
+            return of(targets.toArray(new MessageTarget[0]));
+        }
+
+        static Snapshot of(final MessageTarget[] elements) {
+            if (elements.length == 0)
+                return EMPTY;
+            return new Snapshot(elements, elements.length > INDEX_THRESHOLD ? Set.of(elements) : null);
+        }
+
+        int size() {
+            return elements.length;
+        }
+
+        boolean contains(final @Nullable Object target) {
+            if (target == null)
+                return false;
+            if (index != null)
+                return index.contains(target);
+            return indexOf(target) >= 0;
+        }
+
+        int indexOf(final @Nullable Object target) {
+            if (target == null || index != null && !index.contains(target))
+                return -1;
+            for (int i = 0; i < elements.length; i++) {
+                if (elements[i].equals(target))
+                    return i;
+            }
+            return -1;
+        }
+
+        Snapshot with(final @NonNull MessageTarget target) {
+            final MessageTarget[] elements = Arrays.copyOf(this.elements, this.elements.length + 1);
+            elements[this.elements.length] = target;
+            return of(elements);
+        }
+
+        Snapshot without(final int index) {
+            final MessageTarget[] elements = new MessageTarget[this.elements.length - 1];
+            System.arraycopy(this.elements, 0, elements, 0, index);
+            System.arraycopy(this.elements, index + 1, elements, index, elements.length - index);
+            return of(elements);
+        }
     }
 }
@@ -0,0 +1,51 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.message;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Internal utility for configuring how {@link Targets} deliver messages.
+ *
+ * @since 1.0.0
+ */
+@ApiStatus.Internal
+public final class TargetsPrototype {
+    /**
+     * Configures the fan-out used by all target containers to deliver messages.
+     *
+     * <p>This is internal functionality and should not be used.</p>
+     *
+     * @param fanOut the fan-out to use
+     * @since 1.0.0
+     */
+    @ApiStatus.Internal
+    public static void configure(@NonNull FanOut fanOut) {
+        Targets.fanOut(fanOut);
+    }
+
+    private TargetsPrototype() {
+    }
+}
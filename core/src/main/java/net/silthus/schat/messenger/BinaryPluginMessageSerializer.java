@@ -0,0 +1,577 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.messenger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import net.silthus.schat.util.gson.GsonProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A compact binary serializer for plugin messages.
+ *
+ * <p>Messages are serialized by the {@link GsonProvider} into a json writer that directly
+ * writes a tagged binary form instead of json text. Object keys are only written once per message,
+ * numbers are written as variable length integers and uuid and timestamp strings are packed
+ * into their binary representation.</p>
+ *
+ * <p>Instead of the class name the 64 bit {@link MessageEnvelope#typeHash(String) hash} of the type name
+ * is written for every message. It is the same on all servers, regardless of the order or the set
+ * of message types they registered.</p>
+ *
+ * @since 1.0.0
+ */
+@Getter
+@Accessors(fluent = true)
+public final class BinaryPluginMessageSerializer implements PluginMessageSerializer {
+
+    static final byte VERSION = 2;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte UUID_STRING = 6;
+    private static final byte INSTANT_STRING = 7;
+    private static final byte ARRAY = 8;
+    private static final byte OBJECT = 9;
+    private static final byte DECIMAL = 10;
+
+    private final GsonProvider gsonProvider;
+    private final Map<Long, Type> types = new ConcurrentHashMap<>();
+    private final Map<String, Long> typeIds = new ConcurrentHashMap<>();
+
+    BinaryPluginMessageSerializer(GsonProvider gsonProvider) {
+        this.gsonProvider = gsonProvider;
+    }
+
+    @Override
+    public synchronized void registerMessageType(Type type) {
+        if (typeIds.containsKey(type.getTypeName()))
+            return;
+        final long typeId = MessageEnvelope.typeHash(type.getTypeName());
+        final Type registered = types.putIfAbsent(typeId, type);
+        if (registered != null)
+            throw new IllegalArgumentException("The type id of " + type.getTypeName() + " collides with " + registered.getTypeName() + ".");
+        typeIds.put(type.getTypeName(), typeId);
+    }
+
+    @Override
+    public void registerTypeAdapter(Type type, Object adapter) {
+        gsonProvider.registerTypeAdapter(type, adapter);
+    }
+
+    @Override
+    public boolean supports(PluginMessage message) {
+        return typeIds.containsKey(message.getClass().getTypeName());
+    }
+
+    @Override
+    public @NotNull String encode(PluginMessage pluginMessage) {
+        return Base64.getEncoder().encodeToString(encodeToBytes(pluginMessage));
+    }
+
+    @Override
+    public @NotNull PluginMessage decode(@NonNull String encodedString) {
+        return decode(Base64.getDecoder().decode(encodedString));
+    }
+
+    @Override
+    public byte @NotNull [] encodeToBytes(PluginMessage pluginMessage) {
+        final Long typeId = typeIds.get(pluginMessage.getClass().getTypeName());
+        if (typeId == null)
+            throw new IllegalArgumentException(pluginMessage.getClass().getCanonicalName() + " is not a supported PluginMessage type!");
+        final Writer writer = new Writer(new HashMap<>());
+        writer.write(VERSION);
+        writer.writeLong(typeId);
+        final StreamingWriter json = new StreamingWriter(writer);
+        gsonProvider.gson().toJson(pluginMessage, pluginMessage.getClass(), json);
+        json.complete();
+        return writer.toByteArray();
+    }
+
+    @Override
+    public @NotNull PluginMessage decode(byte @NonNull [] encodedBytes) {
+        final Reader reader = new Reader(encodedBytes);
+        final int version = reader.read();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported binary plugin message version: " + version);
+        final long typeId = reader.readLong();
+        final Type type = types.get(typeId);
+        if (type == null)
+            throw new IllegalArgumentException("Unknown plugin message type id " + Long.toHexString(typeId)
+                + ". Make sure all servers use the same sChat version and plugin_message_format.");
+        return gsonProvider.gson().fromJson(reader.readElement(), type);
+    }
+
+    @Override
+    public @NotNull MessageEnvelope inspect(byte @NonNull [] encodedBytes) {
+        final Reader reader = new Reader(encodedBytes);
+        final int version = reader.read();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported binary plugin message version: " + version);
+        final long typeId = reader.readLong();
+        final Type type = types.get(typeId);
+        final JsonElement content = reader.readElement();
+        if (!content.isJsonObject())
+            throw new IllegalArgumentException("Malformed binary plugin message: the content is not an object.");
+        return new MessageEnvelope(type != null ? type.getTypeName() : null, typeId, content.getAsJsonObject());
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        private final Map<String, Integer> keys;
+
+        private Writer(Map<String, Integer> keys) {
+            super(128);
+            this.keys = keys;
+        }
+
+        private void append(Writer other) {
+            write(other.buf, 0, other.count);
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8)
+                write((int) (value >>> shift));
+        }
+
+        private void writeString(String value) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        private void writeKey(String key) {
+            final Integer index = keys.get(key);
+            if (index != null) {
+                writeVarInt(index << 1 | 1);
+            } else {
+                keys.put(key, keys.size());
+                final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length << 1);
+                write(bytes, 0, bytes.length);
+            }
+        }
+
+        private void writeNumber(Number number) {
+            if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+                write(INTEGER);
+                writeSignedVarLong(number.longValue());
+            } else if (number instanceof Double || number instanceof Float) {
+                write(DOUBLE);
+                writeLong(Double.doubleToLongBits(number.doubleValue()));
+            } else {
+                write(DECIMAL);
+                writeString(number.toString());
+            }
+        }
+
+        private void writeText(String value) {
+            final UUID uuid = asUuid(value);
+            if (uuid != null) {
+                write(UUID_STRING);
+                writeLong(uuid.getMostSignificantBits());
+                writeLong(uuid.getLeastSignificantBits());
+                return;
+            }
+            final Instant instant = asInstant(value);
+            if (instant != null) {
+                write(INSTANT_STRING);
+                writeSignedVarLong(instant.getEpochSecond());
+                writeVarInt(instant.getNano());
+                return;
+            }
+            write(STRING);
+            writeString(value);
+        }
+
+        private static UUID asUuid(String value) {
+            if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(13) != '-' || value.charAt(18) != '-' || value.charAt(23) != '-')
+                return null;
+            try {
+                final UUID uuid = UUID.fromString(value);
+                return uuid.toString().equals(value) ? uuid : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private static Instant asInstant(String value) {
+            if (value.length() < 20 || value.charAt(value.length() - 1) != 'Z' || value.charAt(4) != '-' || value.charAt(10) != 'T')
+                return null;
+            try {
+                final Instant instant = Instant.parse(value);
+                return DateTimeFormatter.ISO_INSTANT.format(instant).equals(value) ? instant : null;
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Writes the json of a message in the binary form without building its json tree.
+     *
+     * <p>Arrays and objects are buffered until they end, because their size is written in front of them.
+     * The buffers are reused for all containers of the same depth.</p>
+     */
+    private static final class StreamingWriter extends JsonWriter {
+
+        private static final java.io.Writer UNWRITABLE = new java.io.Writer() {
+            @Override
+            public void write(char @NotNull [] buffer, int offset, int length) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void flush() {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError();
+            }
+        };
+
+        private final Writer root;
+        private final List<Writer> buffers = new ArrayList<>();
+        private final Deque<Container> containers = new ArrayDeque<>();
+        private String pendingName;
+        private boolean written;
+
+        private StreamingWriter(Writer root) {
+            super(UNWRITABLE);
+            this.root = root;
+        }
+
+        private void complete() {
+            if (!written || !containers.isEmpty())
+                throw new IllegalStateException("The plugin message was not serialized into a single json value.");
+        }
+
+        private Writer beforeValue() {
+            final Container container = containers.peek();
+            if (container == null) {
+                if (written)
+                    throw new IllegalStateException("JSON must have only one top-level value.");
+                written = true;
+                return root;
+            }
+            if (container.object) {
+                if (pendingName == null)
+                    throw new IllegalStateException("The value of an object is missing its name.");
+                container.out.writeKey(pendingName);
+                pendingName = null;
+            }
+            container.size++;
+            return container.out;
+        }
+
+        private JsonWriter begin(boolean object) {
+            beforeValue();
+            final int depth = containers.size();
+            if (buffers.size() == depth)
+                buffers.add(new Writer(root.keys));
+            final Writer buffer = buffers.get(depth);
+            buffer.reset();
+            containers.push(new Container(buffer, object));
+            return this;
+        }
+
+        private JsonWriter end(boolean object) {
+            final Container container = containers.peek();
+            if (container == null || container.object != object || pendingName != null)
+                throw new IllegalStateException("Nesting problem.");
+            containers.pop();
+            final Writer parent = containers.isEmpty() ? root : containers.peek().out;
+            parent.write(object ? OBJECT : ARRAY);
+            parent.writeVarInt(container.size);
+            parent.append(container.out);
+            return this;
+        }
+
+        @Override
+        public JsonWriter beginArray() {
+            return begin(false);
+        }
+
+        @Override
+        public JsonWriter endArray() {
+            return end(false);
+        }
+
+        @Override
+        public JsonWriter beginObject() {
+            return begin(true);
+        }
+
+        @Override
+        public JsonWriter endObject() {
+            return end(true);
+        }
+
+        @Override
+        public JsonWriter name(@NonNull String name) {
+            final Container container = containers.peek();
+            if (container == null || !container.object || pendingName != null)
+                throw new IllegalStateException("Unexpected name " + name);
+            pendingName = name;
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) {
+            if (value == null)
+                return nullValue();
+            beforeValue().writeText(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) {
+            throw new UnsupportedOperationException("Raw json values are not supported by binary plugin messages.");
+        }
+
+        @Override
+        public JsonWriter nullValue() {
+            if (pendingName != null && !getSerializeNulls()) {
+                pendingName = null;
+                return this;
+            }
+            beforeValue().write(NULL);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(boolean value) {
+            beforeValue().write(value ? TRUE : FALSE);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) {
+            if (value == null)
+                return nullValue();
+            return value(value.booleanValue());
+        }
+
+        @Override
+        public JsonWriter value(float value) {
+            return value((Number) value);
+        }
+
+        @Override
+        public JsonWriter value(double value) {
+            return value((Number) value);
+        }
+
+        @Override
+        public JsonWriter value(long value) {
+            beforeValue().writeNumber(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Number value) {
+            if (value == null)
+                return nullValue();
+            if (!isLenient()) {
+                final double number = value.doubleValue();
+                if (Double.isNaN(number) || Double.isInfinite(number))
+                    throw new IllegalArgumentException("JSON forbids NaN and infinities: " + value);
+            }
+            beforeValue().writeNumber(value);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static final class Container {
+            private final Writer out;
+            private final boolean object;
+            private int size;
+
+            private Container(Writer out, boolean object) {
+                this.out = out;
+                this.object = object;
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private final List<String> keys = new ArrayList<>();
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int read() {
+            if (position >= bytes.length)
+                throw new IllegalArgumentException("Unexpected end of binary plugin message.");
+            return bytes[position++] & 0xFF;
+        }
+
+        private int readVarInt() {
+            final long value = readVarLong();
+            if (value > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Malformed binary plugin message: varint out of range.");
+            return (int) value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IllegalArgumentException("Malformed binary plugin message: varint too long.");
+        }
+
+        private long readSignedVarLong() {
+            final long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++)
+                value = value << 8 | read();
+            return value;
+        }
+
+        private String readString(int length) {
+            if (length > bytes.length - position)
+                throw new IllegalArgumentException("Unexpected end of binary plugin message.");
+            final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private String readKey() {
+            final int header = readVarInt();
+            if ((header & 1) == 1) {
+                final int index = header >>> 1;
+                if (index >= keys.size())
+                    throw new IllegalArgumentException("Malformed binary plugin message: unknown key reference " + index);
+                return keys.get(index);
+            }
+            final String key = readString(header >>> 1);
+            keys.add(key);
+            return key;
+        }
+
+        private JsonElement readElement() {
+            final int tag = read();
+            switch (tag) {
+                case NULL:
+                    return JsonNull.INSTANCE;
+                case TRUE:
+                    return new JsonPrimitive(true);
+                case FALSE:
+                    return new JsonPrimitive(false);
+                case INTEGER:
+                    return new JsonPrimitive(readSignedVarLong());
+                case DOUBLE:
+                    return new JsonPrimitive(Double.longBitsToDouble(readLong()));
+                case DECIMAL:
+                    return new JsonPrimitive(new BigDecimal(readString(readVarInt())));
+                case STRING:
+                    return new JsonPrimitive(readString(readVarInt()));
+                case UUID_STRING:
+                    return new JsonPrimitive(new UUID(readLong(), readLong()).toString());
+                case INSTANT_STRING:
+                    return new JsonPrimitive(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(readSignedVarLong(), readVarInt())));
+                case ARRAY:
+                    final int length = readVarInt();
+                    final JsonArray array = new JsonArray(Math.min(length, bytes.length));
+                    for (int i = 0; i < length; i++)
+                        array.add(readElement());
+                    return array;
+                case OBJECT:
+                    final int size = readVarInt();
+                    final JsonObject object = new JsonObject();
+                    for (int i = 0; i < size; i++) {
+                        final String key = readKey();
+                        object.add(key, readElement());
+                    }
+                    return object;
+                default:
+                    throw new IllegalArgumentException("Malformed binary plugin message: unknown tag " + tag);
+            }
+        }
+    }
+}
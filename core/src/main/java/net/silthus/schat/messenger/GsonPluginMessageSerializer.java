@@ -24,8 +24,12 @@
 package net.silthus.schat.messenger;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import lombok.Getter;
@@ -34,6 +38,8 @@ import lombok.experimental.Accessors;
 import net.silthus.schat.util.gson.GsonProvider;
 import org.jetbrains.annotations.NotNull;
 
+import static net.silthus.schat.messenger.MessageEnvelope.envelope;
+
 @Getter
 @Accessors(fluent = true)
 public final class GsonPluginMessageSerializer implements PluginMessageSerializer {
@@ -52,7 +58,7 @@ public final class GsonPluginMessageSerializer implements PluginMessageSerialize
 
     @Override
     public void registerTypeAdapter(Type type, Object adapter) {
-        gsonProvider.builder().registerTypeAdapter(type, adapter);
+        gsonProvider.registerTypeAdapter(type, adapter);
     }
 
     @Override
@@ -64,7 +70,7 @@ public final class GsonPluginMessageSerializer implements PluginMessageSerialize
     public @NotNull String encode(PluginMessage pluginMessage) {
         if (!supports(pluginMessage))
             throw new IllegalArgumentException(pluginMessage.getClass().getCanonicalName() + " is not a supported PluginMessage type!");
-        final Gson gson = this.gsonProvider.prettyGson();
+        final Gson gson = this.gsonProvider.gson();
         final JsonObject json = gson.toJsonTree(pluginMessage, pluginMessage.getClass()).getAsJsonObject();
         json.addProperty("type", pluginMessage.getClass().getTypeName());
         return gson.toJson(json);
@@ -72,9 +78,25 @@ public final class GsonPluginMessageSerializer implements PluginMessageSerialize
 
     @Override
     public @NotNull PluginMessage decode(@NonNull String encodedString) {
-        final Gson gson = this.gsonProvider.prettyGson();
+        final Gson gson = this.gsonProvider.gson();
         final JsonObject json = gson.fromJson(encodedString, JsonObject.class);
         final String type = json.get("type").getAsString();
         return gson.fromJson(json, typeMap.get(type));
     }
+
+    @Override
+    public @NotNull MessageEnvelope inspect(byte @NonNull [] encodedBytes) {
+        final JsonElement json;
+        try {
+            json = JsonParser.parseString(new String(encodedBytes, StandardCharsets.UTF_8));
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("The json plugin message is malformed.", e);
+        }
+        if (!json.isJsonObject())
+            throw new IllegalArgumentException("The json plugin message is not an object.");
+        final JsonElement type = json.getAsJsonObject().get("type");
+        if (type == null || !type.isJsonPrimitive())
+            throw new IllegalArgumentException("The json plugin message has no type.");
+        return envelope(type.getAsString(), json.getAsJsonObject());
+    }
 }
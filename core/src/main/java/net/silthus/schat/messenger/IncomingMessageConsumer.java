@@ -68,4 +68,16 @@ public interface IncomingMessageConsumer {
      * @return true if the message was accepted by the plugin
      */
     boolean consumeIncomingMessageAsString(@NonNull String encodedString);
+
+    /**
+     * Consumes a message in its raw encoded format.
+     *
+     * <p>This method will decode bytes obtained by {@link PluginMessageSerializer#encodeToBytes(PluginMessage)}
+     * and should be preferred by gateways that transport binary data.</p>
+     *
+     * @param encodedBytes the encoded message
+     * @return true if the message was accepted by the plugin
+     * @since 1.0.0
+     */
+    boolean consumeIncomingMessageAsBytes(byte @NonNull [] encodedBytes);
 }
@@ -0,0 +1,84 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.messenger;
+
+import com.google.gson.JsonObject;
+import java.nio.charset.StandardCharsets;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The type and json content of an encoded plugin message, read without creating the message itself.
+ *
+ * <p>Proxies use the envelope to route messages of types they never registered.
+ * The binary format only transfers a 64 bit hash of the type name, so the {@link #typeName()}
+ * is only known if the type is registered locally.</p>
+ *
+ * @param typeName the type name of the message or null if it is not known
+ * @param typeHash the 64 bit hash of the type name
+ * @param content the json content of the message
+ * @since 1.0.0
+ */
+public record MessageEnvelope(@Nullable String typeName, long typeHash, @NonNull JsonObject content) {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Creates the hash of the given type name as it is transferred by the binary format.
+     *
+     * <p>The hash is the 64 bit FNV-1a hash of the utf-8 encoded name and does not depend on the
+     * order in which the message types are registered.</p>
+     *
+     * @param typeName the type name
+     * @return the hash of the type name
+     * @since 1.0.0
+     */
+    public static long typeHash(@NonNull String typeName) {
+        long hash = FNV_OFFSET_BASIS;
+        for (final byte b : typeName.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    static @NotNull MessageEnvelope envelope(@NonNull String typeName, @NonNull JsonObject content) {
+        return new MessageEnvelope(typeName, typeHash(typeName), content);
+    }
+
+    /**
+     * Checks if the enclosed message is of the given type.
+     *
+     * @param typeName the name of the type
+     * @return true if the type name or its hash match
+     * @since 1.0.0
+     */
+    public boolean is(@NonNull String typeName) {
+        if (this.typeName != null)
+            return this.typeName.equals(typeName);
+        return typeHash == typeHash(typeName);
+    }
+}
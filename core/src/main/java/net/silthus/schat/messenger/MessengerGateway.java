@@ -23,6 +23,8 @@
  */
 package net.silthus.schat.messenger;
 
+import java.nio.charset.StandardCharsets;
+
 public interface MessengerGateway extends AutoCloseable {
 
     String CHANNEL = "schat:update";
@@ -33,8 +35,20 @@ public interface MessengerGateway extends AutoCloseable {
      * <p>The method should always prefer dispatching the message asynchronously.</p>
      *
      * @param encodedMessage the encoded message
+     * @since 1.0.0
      */
-    void sendOutgoingMessage(String encodedMessage);
+    void sendOutgoingMessage(byte[] encodedMessage);
+
+    /**
+     * Processes the encoded message by using the means of this gateway.
+     *
+     * <p>The string is transported as its UTF-8 encoded bytes.</p>
+     *
+     * @param encodedMessage the encoded message
+     */
+    default void sendOutgoingMessage(String encodedMessage) {
+        sendOutgoingMessage(encodedMessage.getBytes(StandardCharsets.UTF_8));
+    }
 
     /**
      * Performs the necessary action to gracefully shut down the messenger.
@@ -24,6 +24,7 @@
 package net.silthus.schat.messenger;
 
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import lombok.NonNull;
 import net.silthus.schat.util.gson.GsonProvider;
 import org.jetbrains.annotations.NotNull;
@@ -34,6 +35,10 @@ public interface PluginMessageSerializer {
         return new GsonPluginMessageSerializer(gsonProvider);
     }
 
+    static BinaryPluginMessageSerializer binarySerializer(GsonProvider gsonProvider) {
+        return new BinaryPluginMessageSerializer(gsonProvider);
+    }
+
     /**
      * Registers the given message type for serialization and deserialization.
      *
@@ -50,4 +55,40 @@ public interface PluginMessageSerializer {
     @NotNull String encode(PluginMessage pluginMessage);
 
     @NotNull PluginMessage decode(@NonNull String encodedString);
+
+    /**
+     * Encodes the given message into its raw wire representation.
+     *
+     * <p>Gateways that are able to transport binary data should prefer this method
+     * over {@link #encode(PluginMessage)}.</p>
+     *
+     * @param pluginMessage the message to encode
+     * @return the encoded message
+     * @since 1.0.0
+     */
+    default byte @NotNull [] encodeToBytes(PluginMessage pluginMessage) {
+        return encode(pluginMessage).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a message obtained by {@link #encodeToBytes(PluginMessage)}.
+     *
+     * @param encodedBytes the encoded message
+     * @return the decoded message
+     * @since 1.0.0
+     */
+    default @NotNull PluginMessage decode(byte @NonNull [] encodedBytes) {
+        return decode(new String(encodedBytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the type and content of a message obtained by {@link #encodeToBytes(PluginMessage)}
+     * without creating the message, so that the message type does not need to be registered.
+     *
+     * @param encodedBytes the encoded message
+     * @return the envelope of the message
+     * @throws IllegalArgumentException if the message is malformed
+     * @since 1.0.0
+     */
+    @NotNull MessageEnvelope inspect(byte @NonNull [] encodedBytes);
 }
@@ -23,5 +23,9 @@
  */
 package net.silthus.schat.pointer;
 
-record PointerImpl<T>(Class<T> type, String key) implements Pointer<T> {
+record PointerImpl<T>(Class<T> type, String key, int ordinal) implements Pointer<T> {
+
+    PointerImpl(Class<T> type, String key) {
+        this(type, key, PointerSlots.ordinal(Pointer.class, type, key));
+    }
 }
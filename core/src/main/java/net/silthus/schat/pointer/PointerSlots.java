@@ -0,0 +1,141 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.pointer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+/**
+ * Array backed storage of pointer values.
+ *
+ * <p>Every distinct pointer gets a global ordinal when it is created. Equal pointers share the same ordinal,
+ * which allows storing their values in an array that is indexed by the ordinal instead of a hash map.</p>
+ */
+final class PointerSlots {
+
+    private static final Map<OrdinalKey, Integer> ORDINALS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ORDINAL = new AtomicInteger();
+    private static final Pointer<?>[] NO_POINTERS = new Pointer<?>[0];
+    private static final Supplier<?>[] NO_VALUES = new Supplier<?>[0];
+
+    static int ordinal(final @NotNull Class<? extends Pointer> kind, final @NotNull Class<?> type, final @NotNull String key) {
+        return ORDINALS.computeIfAbsent(new OrdinalKey(kind, type, key), k -> NEXT_ORDINAL.getAndIncrement());
+    }
+
+    static int ordinal(final @NotNull Pointer<?> pointer) {
+        if (pointer instanceof SettingImpl<?> setting)
+            return setting.ordinal();
+        if (pointer instanceof PointerImpl<?> impl)
+            return impl.ordinal();
+        return ordinal(pointer instanceof Setting ? Setting.class : Pointer.class, pointer.type(), pointer.key());
+    }
+
+    private Pointer<?>[] pointers;
+    private Supplier<?>[] values;
+    private int size;
+    // the set of pointers is cached until the next change of the slots
+    private volatile @Nullable Set<Pointer<?>> view;
+
+    PointerSlots() {
+        this.pointers = NO_POINTERS;
+        this.values = NO_VALUES;
+    }
+
+    PointerSlots(final @NotNull PointerSlots slots) {
+        this.pointers = slots.pointers.clone();
+        this.values = slots.values.clone();
+        this.size = slots.size;
+    }
+
+    @Nullable Supplier<?> get(final int ordinal) {
+        final Supplier<?>[] values = this.values;
+        return ordinal < values.length ? values[ordinal] : null;
+    }
+
+    @Nullable Supplier<?> get(final @NotNull Pointer<?> pointer) {
+        return get(ordinal(pointer));
+    }
+
+    boolean contains(final @NotNull Pointer<?> pointer) {
+        return get(pointer) != null;
+    }
+
+    @Nullable Supplier<?> put(final @NotNull Pointer<?> pointer, final @NotNull Supplier<?> value) {
+        final int ordinal = ordinal(pointer);
+        if (ordinal >= values.length) {
+            final int length = Math.max(ordinal + 1, values.length + (values.length >> 1));
+            values = Arrays.copyOf(values, length);
+            pointers = Arrays.copyOf(pointers, length);
+        }
+        final Supplier<?> previous = values[ordinal];
+        if (previous == null)
+            size++;
+        values[ordinal] = value;
+        pointers[ordinal] = pointer;
+        view = null;
+        return previous;
+    }
+
+    void putAll(final @NotNull PointerSlots slots) {
+        for (int i = 0; i < slots.values.length; i++) {
+            if (slots.values[i] != null)
+                put(slots.pointers[i], slots.values[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    @NotNull @Unmodifiable Set<Pointer<?>> pointers() {
+        Set<Pointer<?>> view = this.view;
+        if (view == null)
+            this.view = view = createView();
+        return view;
+    }
+
+    private Set<Pointer<?>> createView() {
+        if (size == 0)
+            return Collections.emptySet();
+        final Set<Pointer<?>> pointers = new LinkedHashSet<>(size * 2);
+        for (final Pointer<?> pointer : this.pointers) {
+            if (pointer != null)
+                pointers.add(pointer);
+        }
+        return Collections.unmodifiableSet(pointers);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private record OrdinalKey(Class<? extends Pointer> kind, Class<?> type, String key) {
+    }
+}
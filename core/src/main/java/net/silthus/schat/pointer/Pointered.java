@@ -48,6 +48,18 @@ public interface Pointered {
         return this.pointers().get(pointer);
     }
 
+    /**
+     * Gets the value of the given pointer without wrapping it in an {@link Optional}.
+     *
+     * @param pointer the pointer
+     * @param <T>     the type
+     * @return the value or null if the pointer is not set or has no value
+     * @since 1.0.0
+     */
+    default <T> @Nullable T getOrNull(final @NotNull Pointer<T> pointer) {
+        return this.pointers().getOrNull(pointer);
+    }
+
     /**
      * Resolves the value of a boolean pointer. Defaults to false if the pointer is not supported.
      *
@@ -125,6 +125,20 @@ public sealed interface Pointers permits PointersImpl, PointersImpl.EmptyPointer
      */
     <T> @NotNull Optional<T> get(final @NotNull Pointer<T> pointer);
 
+    /**
+     * Gets the value of the given pointer without wrapping it in an {@link Optional}.
+     *
+     * <p>Use this method in hot paths that are called multiple times per message.</p>
+     *
+     * @param pointer the pointer
+     * @param <T>     the type
+     * @return the value or null if the pointer is not set or has no value
+     * @since 1.0.0
+     */
+    default <T> @Nullable T getOrNull(final @NotNull Pointer<T> pointer) {
+        return this.get(pointer).orElse(null);
+    }
+
     /**
      * Gets the value of {@code pointer}.
      *
@@ -24,8 +24,6 @@
 package net.silthus.schat.pointer;
 
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -36,31 +34,44 @@ import org.jetbrains.annotations.Nullable;
 non-sealed class PointersImpl implements Pointers {
     static final Pointers EMPTY = new EmptyPointers();
 
-    protected final Map<Pointer<?>, Supplier<?>> pointers;
+    protected PointerSlots pointers;
 
-    protected PointersImpl(final @NonNull Map<Pointer<?>, Supplier<?>> pointers) {
+    protected PointersImpl(final @NonNull PointerSlots pointers) {
         this.pointers = pointers;
     }
 
     @Override
     public @NotNull Set<Pointer<?>> pointers() {
-        return Collections.unmodifiableSet(this.pointers.keySet());
+        return this.pointers.pointers();
     }
 
     @Override
-    @SuppressWarnings("unchecked") // all values are checked on entry
     public @NotNull <T> Optional<T> get(final @NonNull Pointer<T> pointer) {
+        return Optional.ofNullable(getOrNull(pointer));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // all values are checked on entry
+    public <T> @Nullable T getOrNull(final @NonNull Pointer<T> pointer) {
         final Supplier<?> supplier = this.pointers.get(pointer);
-        if (supplier == null) {
-            return Optional.empty();
-        } else {
-            return Optional.ofNullable((T) supplier.get());
-        }
+        return supplier == null ? null : (T) supplier.get();
+    }
+
+    @Override
+    public <T> @Nullable T getOrDefault(final @NonNull Pointer<T> pointer, final @Nullable T defaultValue) {
+        final T value = getOrNull(pointer);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public <T> T getOrDefaultFrom(final @NonNull Pointer<T> pointer, final @NonNull Supplier<? extends T> defaultValue) {
+        final T value = getOrNull(pointer);
+        return value == null ? defaultValue.get() : value;
     }
 
     @Override
     public <T> boolean contains(final @NonNull Pointer<T> pointer) {
-        return this.pointers.containsKey(pointer);
+        return this.pointers.contains(pointer);
     }
 
     @Override
@@ -69,14 +80,14 @@ non-sealed class PointersImpl implements Pointers {
     }
 
     static final class BuilderImpl implements Builder {
-        private final Map<Pointer<?>, Supplier<?>> pointers;
+        private final PointerSlots pointers;
 
         BuilderImpl() {
-            this.pointers = new HashMap<>();
+            this.pointers = new PointerSlots();
         }
 
         BuilderImpl(final @NotNull PointersImpl pointers) {
-            this.pointers = new HashMap<>(pointers.pointers);
+            this.pointers = new PointerSlots(pointers.pointers);
         }
 
         @Override
@@ -102,6 +113,11 @@ non-sealed class PointersImpl implements Pointers {
             return Optional.empty();
         }
 
+        @Override
+        public <T> @Nullable T getOrNull(final @NonNull Pointer<T> pointer) {
+            return null;
+        }
+
         @Override
         public <T> boolean contains(final @NonNull Pointer<T> pointer) {
             return false;
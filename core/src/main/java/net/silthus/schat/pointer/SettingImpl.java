@@ -36,6 +36,7 @@ import lombok.experimental.Accessors;
     private final Class<V> type;
     private final String key;
     private final Supplier<V> defaultValue;
+    private final int ordinal;
 
     SettingImpl(
         final @NonNull Class<V> type,
@@ -44,6 +45,7 @@ import lombok.experimental.Accessors;
         this.type = type;
         this.key = key;
         this.defaultValue = defaultValue;
+        this.ordinal = PointerSlots.ordinal(Setting.class, type, key);
     }
 
     @Override
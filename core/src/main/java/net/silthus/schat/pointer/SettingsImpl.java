@@ -23,9 +23,12 @@
  */
 package net.silthus.schat.pointer;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -36,19 +39,56 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnknownNullability;
 
+/**
+ * Settings that are stored as a stack of layers.
+ *
+ * <p>Only the top layer is owned and modified by the settings instance.
+ * All parent layers are immutable and shared with the settings they were derived from.
+ * Deriving new settings with {@link #toBuilder()} therefore only allocates the changed keys.</p>
+ *
+ * <p>Configured values of any layer take precedence over unknown values.
+ * Inside each group the top most layer wins.</p>
+ */
 final class SettingsImpl extends PointersImpl implements Settings {
 
-    private final Map<String, Function<Setting<?>, ?>> unknowns;
+    private static final Object MISSING = new Object();
+    private static final int MAX_LAYER_DEPTH = 8;
+
+    private final @Nullable Layer parent;
+    private Map<String, Function<Setting<?>, ?>> unknowns;
+    private @Nullable Layer snapshot;
+    // the pointers of all layers, cached until the owned values change
+    private volatile @Nullable Set<Pointer<?>> allPointers;
+
+    private SettingsImpl(final @NotNull PointerSlots pointers,
+                         final @NotNull Map<String, Function<Setting<?>, ?>> unknowns,
+                         final @Nullable Layer parent) {
+        super(pointers);
+        this.unknowns = unknowns;
+        this.parent = parent;
+    }
 
-    SettingsImpl(final @NotNull SettingsImpl.BuilderImpl builder) {
-        super(builder.pointers);
-        this.unknowns = new HashMap<>(builder.unknowns);
+    @Override
+    public @NotNull Set<Pointer<?>> pointers() {
+        if (parent == null)
+            return super.pointers();
+        Set<Pointer<?>> pointers = allPointers;
+        if (pointers == null)
+            allPointers = pointers = mergePointers(parent);
+        return pointers;
+    }
+
+    private Set<Pointer<?>> mergePointers(final @NotNull Layer parent) {
+        final Set<Pointer<?>> pointers = new LinkedHashSet<>(this.pointers.pointers());
+        for (Layer layer = parent; layer != null; layer = layer.parent())
+            pointers.addAll(layer.pointers().pointers());
+        return Collections.unmodifiableSet(pointers);
     }
 
     @Override
     public @NotNull Set<Setting<?>> settings() {
         final HashSet<Setting<?>> settings = new HashSet<>();
-        for (Pointer<?> pointer : pointers.keySet()) {
+        for (Pointer<?> pointer : pointers()) {
             if (pointer instanceof Setting<?> setting)
                 settings.add(setting);
         }
@@ -56,70 +96,114 @@ final class SettingsImpl extends PointersImpl implements Settings {
     }
 
     @Override
-    public @UnknownNullability <V> V get(final @NonNull Setting<V> setting) {
-        return this.valueFromSupplier(setting, valueSupplier(setting));
+    @SuppressWarnings("unchecked") // all values are checked on entry
+    public <T> @Nullable T getOrNull(final @NonNull Pointer<T> pointer) {
+        final Supplier<?> supplier = supplier(pointer);
+        return supplier == null ? null : (T) supplier.get();
     }
 
     @Override
-    public <V> @UnknownNullability V getOrDefaultFrom(@NotNull Setting<V> setting, @NotNull Supplier<? extends V> defaultValue) {
-        final Supplier<?> supplier = valueSupplier(setting);
-        return supplier == null ? defaultValue.get() : this.valueFromSupplier(setting, supplier);
+    public @UnknownNullability <V> V get(final @NonNull Setting<V> setting) {
+        final Object value = lookup(setting);
+        return value == MISSING ? setting.defaultValue() : valueOrDefault(setting, value);
     }
 
     @Override
-    public @NotNull <V> Optional<V> set(final @NonNull Setting<V> setting, final @Nullable V value) {
-        return Optional.ofNullable(this.valueFromSupplier(setting, this.pointers.put(setting, () -> value)));
+    public <V> @Nullable V getOrDefault(@NotNull Setting<V> setting, @Nullable V defaultValue) {
+        final Object value = lookup(setting);
+        return value == MISSING ? defaultValue : valueOrDefault(setting, value);
     }
 
-    @SuppressWarnings("unchecked") // all values are checked on entry
-    private <V> V valueFromSupplier(final @NonNull Setting<V> setting, final @Nullable Supplier<?> supplier) {
-        if (supplier == null) {
-            return setting.defaultValue();
-        } else {
-            return Optional.ofNullable((V) supplier.get())
-                .orElse(setting.defaultValue());
-        }
+    @Override
+    public <V> @UnknownNullability V getOrDefaultFrom(@NotNull Setting<V> setting, @NotNull Supplier<? extends V> defaultValue) {
+        final Object value = lookup(setting);
+        return value == MISSING ? defaultValue.get() : valueOrDefault(setting, value);
     }
 
-    private <V> Supplier<?> valueSupplier(@NotNull Setting<V> setting) {
-        return matchesUnknownValue(setting) ? unknownValue(setting) : configuredValue(setting);
+    @Override
+    public @NotNull <V> Optional<V> set(final @NonNull Setting<V> setting, final @Nullable V value) {
+        final Supplier<?> previous = supplier(setting);
+        beforeWrite();
+        this.pointers.put(setting, () -> value);
+        this.allPointers = null;
+        return Optional.ofNullable(previous == null ? setting.defaultValue() : valueOrDefault(setting, previous.get()));
     }
 
-    private <V> Supplier<?> configuredValue(@NotNull Setting<V> setting) {
-        return this.pointers.get(setting);
+    private Object lookup(final @NonNull Setting<?> setting) {
+        final Supplier<?> supplier = supplier(setting);
+        if (supplier != null)
+            return supplier.get();
+        final Function<Setting<?>, ?> unknown = unknown(setting.key());
+        if (unknown != null)
+            return unknown.apply(setting);
+        return MISSING;
     }
 
-    @NotNull
-    private <V> Supplier<Object> unknownValue(@NotNull Setting<V> setting) {
-        return () -> unknowns.get(setting.key()).apply(setting);
+    private @Nullable Supplier<?> supplier(final @NonNull Pointer<?> pointer) {
+        final Supplier<?> supplier = this.pointers.get(pointer);
+        if (supplier != null || parent == null)
+            return supplier;
+        return parent.supplier(pointer);
     }
 
-    private <V> boolean matchesUnknownValue(@NotNull Setting<V> setting) {
-        return !super.contains(setting) && isUnknownKey(setting.key());
+    private @Nullable Function<Setting<?>, ?> unknown(final @NonNull String key) {
+        final Function<Setting<?>, ?> unknown = unknowns.isEmpty() ? null : unknowns.get(key);
+        if (unknown != null || parent == null)
+            return unknown;
+        return parent.unknown(key);
     }
 
-    private boolean isUnknownKey(String key) {
-        return unknowns.containsKey(key);
+    @SuppressWarnings("unchecked") // all values are checked on entry
+    private static <V> V valueOrDefault(final @NonNull Setting<V> setting, final @Nullable Object value) {
+        return value == null ? setting.defaultValue() : (V) value;
     }
 
     @Override
     public <T> boolean contains(@NonNull Pointer<T> pointer) {
-        return super.contains(pointer) || isUnknownKey(pointer.key());
+        return supplier(pointer) != null || unknown(pointer.key()) != null;
     }
 
     @Override
     public @NotNull Settings.Builder toBuilder() {
-        return new BuilderImpl(this);
+        return new BuilderImpl(snapshot());
     }
 
     @Override
     public @NotNull SettingsImpl copyFrom(Settings settings) {
-        SettingsImpl s = (SettingsImpl) settings;
+        final SettingsImpl s = (SettingsImpl) settings;
+        beforeWrite();
+        final Deque<Layer> layers = new ArrayDeque<>();
+        for (Layer layer = s.parent; layer != null; layer = layer.parent())
+            layers.push(layer);
+        for (final Layer layer : layers) {
+            unknowns.putAll(layer.unknowns());
+            pointers.putAll(layer.pointers());
+        }
         unknowns.putAll(s.unknowns);
         pointers.putAll(s.pointers);
+        allPointers = null;
         return this;
     }
 
+    /**
+     * Freezes the owned values of these settings into a layer that can be shared with derived settings.
+     *
+     * <p>The owned values are copied before the next modification of these settings.</p>
+     */
+    private @Nullable Layer snapshot() {
+        if (snapshot == null)
+            snapshot = Layer.layer(pointers, unknowns, parent);
+        return snapshot;
+    }
+
+    private void beforeWrite() {
+        if (snapshot == null)
+            return;
+        this.pointers = new PointerSlots(pointers);
+        this.unknowns = new HashMap<>(unknowns);
+        this.snapshot = null;
+    }
+
     @Override
     public String toString() {
         final HashMap<String, Object> keyValueMap = new HashMap<>();
@@ -129,35 +213,96 @@ final class SettingsImpl extends PointersImpl implements Settings {
         return "Settings{" + keyValueMap + '}';
     }
 
+    private record Layer(PointerSlots pointers, Map<String, Function<Setting<?>, ?>> unknowns, @Nullable Layer parent, int depth) {
+
+        static @Nullable Layer layer(final @NotNull PointerSlots pointers,
+                                     final @NotNull Map<String, Function<Setting<?>, ?>> unknowns,
+                                     final @Nullable Layer parent) {
+            if (pointers.size() == 0 && unknowns.isEmpty())
+                return parent;
+            final Layer layer = new Layer(pointers, unknowns, parent, parent == null ? 1 : parent.depth() + 1);
+            return layer.depth() > MAX_LAYER_DEPTH ? layer.flatten() : layer;
+        }
+
+        @Nullable Supplier<?> supplier(final @NonNull Pointer<?> pointer) {
+            for (Layer layer = this; layer != null; layer = layer.parent()) {
+                final Supplier<?> supplier = layer.pointers().get(pointer);
+                if (supplier != null)
+                    return supplier;
+            }
+            return null;
+        }
+
+        @Nullable Function<Setting<?>, ?> unknown(final @NonNull String key) {
+            for (Layer layer = this; layer != null; layer = layer.parent()) {
+                if (layer.unknowns().isEmpty())
+                    continue;
+                final Function<Setting<?>, ?> unknown = layer.unknowns().get(key);
+                if (unknown != null)
+                    return unknown;
+            }
+            return null;
+        }
+
+        private Layer flatten() {
+            final Deque<Layer> layers = new ArrayDeque<>();
+            for (Layer layer = this; layer != null; layer = layer.parent())
+                layers.push(layer);
+            final PointerSlots pointers = new PointerSlots();
+            final Map<String, Function<Setting<?>, ?>> unknowns = new HashMap<>();
+            for (final Layer layer : layers) {
+                pointers.putAll(layer.pointers());
+                unknowns.putAll(layer.unknowns());
+            }
+            return new Layer(pointers, unknowns, null, 1);
+        }
+    }
+
     static final class BuilderImpl implements Settings.Builder {
-        private final Map<Pointer<?>, Supplier<?>> pointers;
-        private final Map<String, Function<Setting<?>, ?>> unknowns;
+        private final @Nullable Layer parent;
+        private PointerSlots pointers;
+        private Map<String, Function<Setting<?>, ?>> unknowns;
+        private boolean created;
 
         BuilderImpl() {
-            this.pointers = new HashMap<>();
-            this.unknowns = new HashMap<>();
+            this(null);
         }
 
-        BuilderImpl(final @NotNull SettingsImpl settings) {
-            this.pointers = new HashMap<>(settings.pointers);
-            this.unknowns = new HashMap<>(settings.unknowns);
+        BuilderImpl(final @Nullable Layer parent) {
+            this.parent = parent;
+            this.pointers = new PointerSlots();
+            this.unknowns = new HashMap<>();
         }
 
         @Override
         public @NotNull <V> Settings.Builder withUnknown(@NonNull String key, @NonNull Function<Setting<?>, V> value) {
-            this.unknowns.putIfAbsent(key, value);
+            if (unknowns.containsKey(key) || parent != null && parent.unknown(key) != null)
+                return this;
+            beforeWrite();
+            this.unknowns.put(key, value);
             return this;
         }
 
         @Override
         public @NotNull <V> Settings.Builder withDynamic(@NonNull Pointer<V> pointer, @NonNull Supplier<@Nullable V> value) {
+            beforeWrite();
             this.pointers.put(pointer, value);
             return this;
         }
 
         @Override
         public @NotNull Settings create() {
-            return new SettingsImpl(this);
+            beforeWrite();
+            this.created = true;
+            return new SettingsImpl(pointers, unknowns, parent);
+        }
+
+        private void beforeWrite() {
+            if (!created)
+                return;
+            this.pointers = new PointerSlots(pointers);
+            this.unknowns = new HashMap<>(unknowns);
+            this.created = false;
         }
     }
 }
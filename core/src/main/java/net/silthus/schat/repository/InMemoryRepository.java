@@ -27,7 +27,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.NonNull;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Unmodifiable;
 
@@ -37,6 +40,10 @@ import org.jetbrains.annotations.Unmodifiable;
  * <p>The entity store uses a {@link ConcurrentHashMap} by default.
  * This can be changed using the {@link #InMemoryRepository(Map)} constructor.</p>
  *
+ * <p>Lookups by key and {@link #findOrCreate(Object, Function)} are served directly by the store
+ * and do not scan all entities. Subclasses that need to react to new entities should
+ * override {@link #onAdded(Entity)} instead of the individual add methods.</p>
+ *
  * @since 1.0.0
  */
 public abstract class InMemoryRepository<K, E extends Entity<K>> implements Repository<K, E> {
@@ -84,13 +91,58 @@ public abstract class InMemoryRepository<K, E extends Entity<K>> implements Repo
         return entities.get(id);
     }
 
+    @Override
+    public Optional<E> find(final K key) {
+        return Optional.ofNullable(entities.get(key));
+    }
+
+    @Override
+    public E findOrCreate(final K key, final @NonNull Function<K, E> creator) {
+        final E existing = entities.get(key);
+        if (existing != null)
+            return existing;
+        final Creator<K, E> tracking = new Creator<>(creator);
+        final E entity = entities.computeIfAbsent(key, tracking);
+        if (entity != null && entity == tracking.created)
+            onAdded(entity);
+        return entity;
+    }
+
     @Override
     public void add(@NotNull final E entity) {
-        entities.putIfAbsent(entity.key(), entity);
+        if (entities.putIfAbsent(entity.key(), entity) == null)
+            onAdded(entity);
     }
 
     @Override
     public E remove(@NotNull final K key) {
         return entities.remove(key);
     }
+
+    /**
+     * Called after a new entity was stored in the repository.
+     *
+     * <p>The callback is invoked once per stored entity, regardless if it was added
+     * with {@link #add(Entity)} or created by {@link #findOrCreate(Object, Function)}.</p>
+     *
+     * @param entity the added entity
+     * @since 1.0.0
+     */
+    protected void onAdded(@NotNull final E entity) {
+    }
+
+    private static final class Creator<K, E> implements Function<K, E> {
+
+        private final Function<K, E> creator;
+        private E created;
+
+        private Creator(final Function<K, E> creator) {
+            this.creator = creator;
+        }
+
+        @Override
+        public E apply(final K key) {
+            return created = creator.apply(key);
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A serial executor that runs its tasks one after another on a shared worker pool.
+ *
+ * <p>Any thread may submit tasks without blocking. The tasks are executed in submission order
+ * and never concurrently, which confines all state that is only changed by the tasks to the mailbox.
+ * Only one drain of the mailbox is scheduled on the pool at a time. A drain runs a bounded number of tasks
+ * before it yields the worker to other mailboxes.</p>
+ *
+ * <p>Tasks submitted by a running task of the mailbox run directly. A task and all tasks it submits
+ * are therefore executed without any other task of the mailbox in between.</p>
+ *
+ * @since 1.0.0
+ */
+@Log(topic = "sChat:Mailbox")
+public final class Mailbox implements Executor {
+
+    static final int DRAIN_BATCH_SIZE = 64;
+
+    /**
+     * Creates a new mailbox that is drained on the given pool.
+     *
+     * @param pool the pool that drains the mailbox
+     * @return the new mailbox
+     * @since 1.0.0
+     */
+    public static @NotNull Mailbox mailbox(final @NonNull Executor pool) {
+        return new Mailbox(pool);
+    }
+
+    private final Executor pool;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drain = this::drain;
+    private volatile @Nullable Thread worker;
+
+    private Mailbox(final Executor pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(final @NonNull Runnable task) {
+        if (worker == Thread.currentThread()) {
+            task.run();
+            return;
+        }
+        tasks.offer(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true))
+            return;
+        try {
+            pool.execute(drain);
+        } catch (RejectedExecutionException e) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        worker = Thread.currentThread();
+        try {
+            Runnable task;
+            for (int i = 0; i < DRAIN_BATCH_SIZE && (task = tasks.poll()) != null; i++)
+                run(task);
+        } finally {
+            worker = null;
+            scheduled.set(false);
+        }
+        if (!tasks.isEmpty())
+            schedule();
+    }
+
+    private static void run(final Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "A task in a mailbox failed.", e);
+        }
+    }
+}
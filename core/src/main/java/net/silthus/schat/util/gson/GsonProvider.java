@@ -27,6 +27,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.lang.reflect.Type;
 import java.time.Instant;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.Accessors;
@@ -52,6 +53,7 @@ import net.silthus.schat.util.gson.serializers.MessageSourceSerializer;
 import net.silthus.schat.util.gson.serializers.MessageTargetSerializer;
 import net.silthus.schat.util.gson.serializers.SettingsSerializer;
 import net.silthus.schat.util.gson.serializers.TargetsSerializer;
+import org.jetbrains.annotations.Nullable;
 
 @Getter
 @Accessors(fluent = true)
@@ -74,32 +76,54 @@ public final class GsonProvider {
         .registerTypeAdapter(MessageSource.class, new MessageSourceSerializer())
     );
 
+    // created gson instances are cached until the builder changes, because creating them is expensive
+    @Getter(AccessLevel.NONE)
+    private volatile @Nullable Gson cached;
+    @Getter(AccessLevel.NONE)
+    private volatile @Nullable Gson cachedPretty;
+
     private GsonProvider() {
     }
 
     public GsonProvider registerChatterSerializer(ChatterRepository chatters) {
         gson.registerTypeHierarchyAdapter(Chatter.class, new ChatterSerializer(chatters));
+        changed();
         return this;
     }
 
     public GsonProvider registerChannelSerializer(ChannelRepository channelRepository) {
         gson.registerTypeHierarchyAdapter(Channel.class, new ChannelSerializer(channelRepository));
+        changed();
         return this;
     }
 
     public Gson gson() {
-        return gson.create();
+        Gson gson = cached;
+        if (gson == null)
+            cached = gson = this.gson.create();
+        return gson;
     }
 
     public Gson prettyGson() {
-        return gson.setPrettyPrinting().create();
+        Gson gson = cachedPretty;
+        if (gson == null)
+            cachedPretty = gson = gson().newBuilder().setPrettyPrinting().create();
+        return gson;
     }
 
+    // the caller changes the builder, so the next gson() must create a new instance
     public GsonBuilder builder() {
+        changed();
         return gson;
     }
 
     public void registerTypeAdapter(Type type, @NonNull Object adapter) {
         gson.registerTypeAdapter(type, adapter);
+        changed();
+    }
+
+    private void changed() {
+        cached = null;
+        cachedPretty = null;
     }
 }
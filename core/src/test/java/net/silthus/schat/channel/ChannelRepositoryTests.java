@@ -23,6 +23,12 @@
  */
 package net.silthus.schat.channel;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import net.silthus.schat.eventbus.EventBusMock;
 import net.silthus.schat.events.channel.ChannelRegisteredEvent;
 import net.silthus.schat.repository.Repository;
@@ -60,6 +66,42 @@ class ChannelRepositoryTests {
         assertThatExceptionOfType(Repository.NotFound.class).isThrownBy(() -> repository.get("foobar"));
     }
 
+    @Test
+    void find_returns_empty_optional_for_unknown_key() {
+        assertThat(repository.find("foobar")).isEmpty();
+    }
+
+    @Test
+    void findOrCreate_adds_channel_and_fires_event() {
+        final Channel channel = repository.findOrCreate("test", Channel::createChannel);
+        assertThat(repository.contains("test")).isTrue();
+        assertThat(repository.get("test")).isSameAs(channel);
+        eventBus.assertEventFired(ChannelRegisteredEvent.class);
+    }
+
+    @Test
+    void concurrent_findOrCreate_creates_single_channel() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final Set<Channel> results = ConcurrentHashMap.newKeySet();
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 32; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    results.add(repository.findOrCreate("test", Channel::createChannel));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(results).hasSize(1);
+        assertThat(repository.all()).hasSize(1);
+    }
+
     @Nested
     class given_one_channel_is_added {
         private Channel channel;
@@ -81,6 +123,17 @@ class ChannelRepositoryTests {
             assertThat(repository.get(channel.key())).isNotNull();
         }
 
+        @Test
+        void then_find_returns_the_channel_by_key() {
+            assertThat(repository.find(channel.key())).contains(channel);
+        }
+
+        @Test
+        void then_findOrCreate_returns_the_existing_channel() {
+            assertThat(repository.findOrCreate(channel.key(), Channel::createChannel)).isSameAs(channel);
+            assertThat(repository.all()).hasSize(1);
+        }
+
         @Test
         void RegisteredChannelEvent_is_fired() {
             eventBus.assertEventFired(ChannelRegisteredEvent.class);
@@ -55,6 +55,7 @@ import static net.silthus.schat.channel.Channel.createChannel;
 import static net.silthus.schat.channel.ChannelHelper.channelWith;
 import static net.silthus.schat.channel.ChannelHelper.randomChannel;
 import static net.silthus.schat.channel.ChannelSettings.GLOBAL;
+import static net.silthus.schat.channel.ChannelSettings.HISTORY_SIZE;
 import static net.silthus.schat.channel.ChannelSettings.PRIORITY;
 import static net.silthus.schat.channel.ChannelSettings.PRIVATE;
 import static net.silthus.schat.chatter.ChatterMock.randomChatter;
@@ -130,6 +131,16 @@ class ChannelTests {
         verify(target).sendMessage(message);
     }
 
+    @Test
+    void message_history_is_limited_by_history_size() {
+        channel.set(HISTORY_SIZE, 1);
+        channel.sendMessage(randomMessage());
+        final Message message = randomMessage();
+        channel.sendMessage(message);
+
+        assertThat(channel.messages()).containsExactly(message);
+    }
+
     @Nested
     class given_no_display_name {
         @Test
@@ -23,6 +23,8 @@
  */
 package net.silthus.schat.chatter;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.eventbus.EventBusMock;
 import net.silthus.schat.events.channel.ChatterJoinedChannelEvent;
@@ -319,4 +321,64 @@ class ChatterTest {
             }
         }
     }
+
+    @Nested class given_mailbox {
+        private Queue<Runnable> scheduled;
+        private ChatterImpl chatter;
+
+        @BeforeEach
+        void setUp() {
+            scheduled = new ArrayDeque<>();
+            chatter = (ChatterImpl) ChatterImpl.builder(randomIdentity()).mailboxExecutor(scheduled::add).create();
+        }
+
+        private void runScheduled() {
+            Runnable task;
+            while ((task = scheduled.poll()) != null)
+                task.run();
+        }
+
+        @Test
+        void changes_are_applied_when_the_mailbox_is_drained() {
+            final Channel channel = randomChannel();
+            final Message message = randomMessage();
+            chatter.activeChannel(channel);
+            chatter.sendMessage(message);
+
+            assertThat(chatter.isJoined(channel)).isFalse();
+            assertThat(chatter.messages()).isEmpty();
+
+            runScheduled();
+            assertThat(chatter.isJoined(channel)).isTrue();
+            assertThat(chatter.isActiveChannel(channel)).isTrue();
+            assertThat(chatter.messages()).containsExactly(message);
+        }
+
+        @Test
+        void executed_task_sees_the_changes_requested_before() {
+            final Channel channel = randomChannel();
+            final Channel other = randomChannel();
+            chatter.activeChannel(channel);
+            chatter.execute(() -> {
+                if (chatter.activeChannel().isEmpty())
+                    chatter.activeChannel(other);
+                else
+                    chatter.join(other);
+            });
+            runScheduled();
+
+            assertThat(chatter.isActiveChannel(channel)).isTrue();
+            assertThat(chatter.isJoined(other)).isTrue();
+        }
+
+        @Test
+        void changes_are_applied_in_order() {
+            final Channel channel = randomChannel();
+            chatter.join(channel);
+            chatter.leave(channel);
+            runScheduled();
+            assertThat(chatter.isJoined(channel)).isFalse();
+            assertThat(channel.targets()).doesNotContain(chatter);
+        }
+    }
 }
@@ -0,0 +1,208 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.eventbus;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.channel.ChannelRegisteredEvent;
+import net.silthus.schat.events.config.ConfigReloadedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.silthus.schat.channel.Channel.createChannel;
+import static net.silthus.schat.eventbus.EventBusMetrics.eventBusMetrics;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventBusMetricsTest {
+
+    private EventBusImpl eventBus;
+    private EventBusMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        eventBus = new EventBusImpl();
+        metrics = eventBusMetrics(Duration.ofMillis(5));
+        eventBus.instrument(metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventBus.close();
+    }
+
+    @Test
+    void records_posts_per_event_class() {
+        eventBus.post(new ConfigReloadedEvent());
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(metrics.events())
+            .singleElement()
+            .satisfies(stats -> {
+                assertThat(stats.eventClass()).isEqualTo(ConfigReloadedEvent.class);
+                assertThat(stats.latency().count()).isEqualTo(2);
+            });
+    }
+
+    @Test
+    void records_invocations_per_handler() {
+        eventBus.register(new Listener());
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(metrics.handlers())
+            .singleElement()
+            .satisfies(stats -> {
+                assertThat(stats.name()).isEqualTo(Listener.class.getName() + "#onConfigReloaded");
+                assertThat(stats.latency().count()).isEqualTo(1);
+                assertThat(stats.slowInvocations()).isZero();
+            });
+    }
+
+    @Test
+    void records_handlers_of_several_event_classes_per_event_class() {
+        eventBus.register(new AnyEventListener());
+        eventBus.post(new ConfigReloadedEvent());
+        eventBus.post(new ChannelRegisteredEvent(createChannel("test")));
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(metrics.handlers())
+            .hasSize(2)
+            .allSatisfy(stats -> assertThat(stats.name()).isEqualTo(AnyEventListener.class.getName() + "#onEvent"))
+            .anySatisfy(stats -> {
+                assertThat(stats.eventClass()).isEqualTo(ConfigReloadedEvent.class);
+                assertThat(stats.latency().count()).isEqualTo(2);
+            })
+            .anySatisfy(stats -> {
+                assertThat(stats.eventClass()).isEqualTo(ChannelRegisteredEvent.class);
+                assertThat(stats.latency().count()).isEqualTo(1);
+            });
+    }
+
+    @Test
+    void detects_slow_handlers() {
+        eventBus.on(ConfigReloadedEvent.class, event -> sleep(10));
+        eventBus.on(ConfigReloadedEvent.class, event -> {
+        });
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(metrics.slowHandlers())
+            .singleElement()
+            .satisfies(stats -> assertThat(stats.slowInvocations()).isEqualTo(1));
+    }
+
+    @Test
+    void does_not_record_after_instrumentation_is_removed() {
+        eventBus.instrument(null);
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(eventBus.metrics()).isNull();
+        assertThat(metrics.events()).isEmpty();
+    }
+
+    @Test
+    void dump_contains_events_and_handlers() {
+        eventBus.register(new Listener());
+        eventBus.post(new ConfigReloadedEvent());
+
+        final StringWriter writer = new StringWriter();
+        metrics.dump(writer);
+
+        assertThat(writer.toString())
+            .contains("ConfigReloadedEvent")
+            .contains(Listener.class.getName() + "#onConfigReloaded");
+    }
+
+    @Test
+    void reset_removes_all_metrics() {
+        eventBus.post(new ConfigReloadedEvent());
+        metrics.reset();
+        assertThat(metrics.events()).isEmpty();
+    }
+
+    @Nested class latency_histogram {
+        private LatencyHistogram histogram;
+
+        @BeforeEach
+        void setUp() {
+            histogram = new LatencyHistogram();
+        }
+
+        @Test
+        void given_empty_then_percentiles_are_zero() {
+            assertThat(histogram.count()).isZero();
+            assertThat(histogram.percentileNanos(99)).isZero();
+        }
+
+        @Test
+        void records_count_total_and_max() {
+            histogram.record(10);
+            histogram.record(1000);
+            assertThat(histogram.count()).isEqualTo(2);
+            assertThat(histogram.totalNanos()).isEqualTo(1010);
+            assertThat(histogram.maxNanos()).isEqualTo(1000);
+            assertThat(histogram.meanNanos()).isEqualTo(505);
+        }
+
+        @Test
+        void percentiles_are_within_bucket_precision() {
+            for (int i = 1; i <= 1000; i++)
+                histogram.record(i * 1000L);
+            assertThat(histogram.percentileNanos(50)).isBetween(500_000L, 562_500L);
+            assertThat(histogram.percentileNanos(99)).isBetween(990_000L, 1_000_000L);
+            assertThat(histogram.percentileNanos(100)).isEqualTo(1_000_000L);
+        }
+
+        @Test
+        void buckets_cover_their_upper_bound() {
+            for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1023, 1024, LatencyHistogram.MAX_TRACKABLE_NANOS}) {
+                final int bucket = LatencyHistogram.bucket(value);
+                assertThat(LatencyHistogram.upperBound(bucket)).isGreaterThanOrEqualTo(value);
+                if (bucket > 0)
+                    assertThat(LatencyHistogram.upperBound(bucket - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class Listener {
+        @Subscribe
+        void onConfigReloaded(ConfigReloadedEvent event) {
+        }
+    }
+
+    static final class AnyEventListener {
+        @Subscribe
+        void onEvent(SChatEvent event) {
+        }
+    }
+}
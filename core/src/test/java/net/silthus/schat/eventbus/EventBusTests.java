@@ -23,14 +23,36 @@
  */
 package net.silthus.schat.eventbus;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import net.silthus.schat.channel.Channel;
+import net.silthus.schat.chatter.Chatter;
+import net.silthus.schat.events.SChatEvent;
+import net.silthus.schat.events.channel.ChannelRegisteredEvent;
 import net.silthus.schat.events.channel.ChatterJoinedChannelEvent;
+import net.silthus.schat.events.chatter.ChatterEvent;
+import net.silthus.schat.events.chatter.ChatterReceivedMessageEvent;
 import net.silthus.schat.events.config.ConfigReloadedEvent;
+import net.silthus.schat.events.message.SendMessageEvent;
+import net.silthus.schat.message.Message;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import static net.silthus.schat.channel.ChannelHelper.randomChannel;
+import static net.silthus.schat.chatter.ChatterMock.randomChatter;
+import static net.silthus.schat.message.MessageHelper.randomMessage;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 class EventBusTests {
 
@@ -65,6 +87,209 @@ class EventBusTests {
         assertThat(eventBus.register(this)).hasSize(1);
     }
 
+    @Test
+    void keyed_subscription_only_receives_events_of_its_chatter() {
+        final Chatter chatter = randomChatter();
+        final List<Chatter> received = new ArrayList<>();
+        eventBus.on(ChatterReceivedMessageEvent.class, chatter, event -> received.add(event.chatter()));
+
+        eventBus.post(new ChatterReceivedMessageEvent(randomChatter(), randomMessage()));
+        eventBus.post(new ChatterReceivedMessageEvent(chatter, randomMessage()));
+
+        assertThat(received).containsExactly(chatter);
+    }
+
+    @Test
+    void keyed_subscription_receives_events_routed_by_channel() {
+        final Channel channel = randomChannel();
+        final List<Channel> received = new ArrayList<>();
+        eventBus.on(ChatterJoinedChannelEvent.class, channel, event -> received.add(event.channel()));
+
+        eventBus.post(new ChatterJoinedChannelEvent(randomChatter(), randomChannel()));
+        eventBus.post(new ChatterJoinedChannelEvent(randomChatter(), channel));
+
+        assertThat(received).containsExactly(channel);
+    }
+
+    @Test
+    void closed_keyed_subscription_is_not_called() {
+        final Chatter chatter = randomChatter();
+        final List<Chatter> received = new ArrayList<>();
+        eventBus.on(ChatterReceivedMessageEvent.class, chatter, event -> received.add(event.chatter())).close();
+
+        eventBus.post(new ChatterReceivedMessageEvent(chatter, randomMessage()));
+
+        assertThat(received).isEmpty();
+        assertThat(eventBus.subscriptions(ChatterReceivedMessageEvent.class)).isEmpty();
+    }
+
+    @Test
+    void keyed_subscription_is_listed_in_subscriptions() {
+        eventBus.on(ChatterReceivedMessageEvent.class, randomChatter(), event -> {});
+        assertThat(eventBus.subscriptions(ChatterReceivedMessageEvent.class)).hasSize(1);
+    }
+
+    @Test
+    void keyed_subscription_to_not_routable_event_throws() {
+        assertThatIllegalArgumentException().isThrownBy(() ->
+            eventBus.on(ConfigReloadedEvent.class, randomChatter(), event -> {}));
+    }
+
+    @Test
+    void register_with_key_routes_only_routable_handlers() {
+        final Chatter chatter = randomChatter();
+        final KeyedListener listener = new KeyedListener();
+        eventBus.register(listener, chatter);
+
+        eventBus.post(new ChatterReceivedMessageEvent(randomChatter(), randomMessage()));
+        eventBus.post(new ChatterReceivedMessageEvent(chatter, randomMessage()));
+        eventBus.post(new ChannelRegisteredEvent(randomChannel()));
+
+        assertThat(listener.messages).containsExactly(chatter);
+        assertThat(listener.channelsRegistered).isEqualTo(1);
+    }
+
+    @Test
+    void subscribers_of_super_types_receive_events() {
+        final List<SChatEvent> received = new ArrayList<>();
+        eventBus.on(SChatEvent.class, received::add);
+        eventBus.on(ChatterEvent.class, received::add);
+
+        final ChatterReceivedMessageEvent event = new ChatterReceivedMessageEvent(randomChatter(), randomMessage());
+        eventBus.post(event);
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(received).hasSize(3).startsWith(event, event);
+    }
+
+    @Test
+    void subscribers_are_called_in_registration_order() {
+        final List<Integer> calls = new ArrayList<>();
+        eventBus.on(SChatEvent.class, event -> calls.add(1));
+        eventBus.on(ConfigReloadedEvent.class, event -> calls.add(2));
+        eventBus.on(SChatEvent.class, event -> calls.add(3));
+
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(calls).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void subscriptions_added_after_a_post_receive_events() {
+        eventBus.post(new ConfigReloadedEvent());
+        eventBus.register(this);
+        eventBus.post(new ConfigReloadedEvent());
+        assertThat(eventCalled).isTrue();
+    }
+
+    @Test
+    void closed_subscription_is_not_called() {
+        final List<SChatEvent> received = new ArrayList<>();
+        eventBus.post(new ConfigReloadedEvent());
+        eventBus.on(ConfigReloadedEvent.class, received::add).close();
+        eventBus.post(new ConfigReloadedEvent());
+
+        assertThat(received).isEmpty();
+        assertThat(eventBus.subscriptions(ConfigReloadedEvent.class)).isEmpty();
+    }
+
+    @Test
+    void listeners_of_the_same_class_get_their_own_invokers() {
+        final KeyedListener first = new KeyedListener();
+        final KeyedListener second = new KeyedListener();
+        eventBus.register(first);
+        eventBus.register(second);
+
+        eventBus.post(new ChannelRegisteredEvent(randomChannel()));
+
+        assertThat(first.channelsRegistered).isEqualTo(1);
+        assertThat(second.channelsRegistered).isEqualTo(1);
+    }
+
+    @Test
+    void failing_handler_does_not_stop_other_handlers() {
+        eventBus.register(new FailingListener());
+        eventBus.register(this);
+        eventBus.post(new ConfigReloadedEvent());
+        assertThat(eventCalled).isTrue();
+    }
+
+    @Nested class given_async_dispatch {
+        private Queue<Runnable> scheduled;
+
+        @BeforeEach
+        void setUp() {
+            scheduled = new ArrayDeque<>();
+            eventBus.dispatchAsync(scheduled::add);
+        }
+
+        private void runScheduled() {
+            Runnable task;
+            while ((task = scheduled.poll()) != null)
+                task.run();
+        }
+
+        @Test
+        void notification_events_are_dispatched_on_the_executor() {
+            final List<ChatterReceivedMessageEvent> received = new ArrayList<>();
+            eventBus.on(ChatterReceivedMessageEvent.class, received::add);
+
+            final ChatterReceivedMessageEvent event = new ChatterReceivedMessageEvent(randomChatter(), randomMessage());
+            eventBus.post(event);
+            assertThat(received).isEmpty();
+
+            runScheduled();
+            assertThat(received).containsExactly(event);
+        }
+
+        @Test
+        void cancellable_events_are_dispatched_synchronously() {
+            final List<SendMessageEvent> received = new ArrayList<>();
+            eventBus.on(SendMessageEvent.class, received::add);
+
+            eventBus.post(new SendMessageEvent(randomMessage()));
+
+            assertThat(received).hasSize(1);
+            assertThat(scheduled).isEmpty();
+        }
+
+        @Test
+        void events_without_key_are_dispatched_synchronously() {
+            eventBus.register(EventBusTests.this);
+            eventBus.post(new ConfigReloadedEvent());
+            assertThat(eventCalled).isTrue();
+        }
+
+        @Test
+        void events_of_the_same_chatter_stay_ordered() throws InterruptedException {
+            final ExecutorService pool = Executors.newFixedThreadPool(4);
+            try {
+                eventBus.dispatchAsync(pool);
+                final Chatter chatter = randomChatter();
+                final List<Message> received = Collections.synchronizedList(new ArrayList<>());
+                final CountDownLatch done = new CountDownLatch(200);
+                eventBus.on(ChatterReceivedMessageEvent.class, event -> {
+                    if (event.chatter() == chatter)
+                        received.add(event.message());
+                    done.countDown();
+                });
+
+                final List<Message> sent = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    final Message message = randomMessage();
+                    sent.add(message);
+                    eventBus.post(new ChatterReceivedMessageEvent(chatter, message));
+                    eventBus.post(new ChatterReceivedMessageEvent(randomChatter(), randomMessage()));
+                }
+
+                assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+                assertThat(received).containsExactlyElementsOf(sent);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
     @Subscribe
     private void onJoinedChannel(ConfigReloadedEvent event) {
         eventCalled = true;
@@ -74,4 +299,27 @@ class EventBusTests {
     private void twoEvents(ConfigReloadedEvent event, ChatterJoinedChannelEvent event2) {
 
     }
+
+    static final class KeyedListener {
+        private final List<Chatter> messages = new ArrayList<>();
+        private int channelsRegistered = 0;
+
+        @Subscribe
+        private void onMessage(ChatterReceivedMessageEvent event) {
+            messages.add(event.chatter());
+        }
+
+        @Subscribe
+        private void onChannelRegistered(ChannelRegisteredEvent event) {
+            channelsRegistered++;
+        }
+    }
+
+    static final class FailingListener {
+
+        @Subscribe
+        void onConfigReloaded(ConfigReloadedEvent event) {
+            throw new IllegalStateException("failed");
+        }
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.message;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.silthus.schat.commands.SendMessageResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.silthus.schat.commands.SendMessageResult.success;
+import static net.silthus.schat.message.MessageHelper.randomMessage;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class FanOutTest {
+
+    private static final FanOut.Config PARALLEL = new FanOut.Config(true, 4, 2);
+
+    private Map<MessageTarget, AtomicInteger> received;
+    private Message message;
+
+    @BeforeEach
+    void setUp() {
+        received = new ConcurrentHashMap<>();
+        message = randomMessage();
+    }
+
+    private MessageTarget[] targets(int count) {
+        final MessageTarget[] targets = new MessageTarget[count];
+        for (int i = 0; i < count; i++) {
+            final AtomicInteger counter = new AtomicInteger();
+            targets[i] = msg -> {
+                counter.incrementAndGet();
+                return success(msg);
+            };
+            received.put(targets[i], counter);
+        }
+        return targets;
+    }
+
+    private static MessageTarget failingTarget() {
+        return msg -> {
+            throw new IllegalStateException("failed");
+        };
+    }
+
+    private void assertAllReceivedOnce() {
+        assertThat(received.values()).allMatch(counter -> counter.get() == 1);
+    }
+
+    @Test
+    void sequential_delivers_to_all_targets() {
+        assertThat(FanOut.sequential().deliver(targets(10), message).wasSuccessful()).isTrue();
+        assertAllReceivedOnce();
+    }
+
+    @Test
+    void sequential_delivers_to_all_targets_after_a_failure() {
+        final MessageTarget[] targets = targets(10);
+        targets[0] = failingTarget();
+        received.put(targets[0], new AtomicInteger(1));
+
+        assertThat(FanOut.sequential().deliver(targets, message).wasFailure()).isTrue();
+        assertAllReceivedOnce();
+    }
+
+    @Test
+    void disabled_config_creates_sequential_fan_out() {
+        assertThat(FanOut.parallel(FanOut.Config.SEQUENTIAL, Runnable::run)).isSameAs(FanOut.sequential());
+    }
+
+    @Nested class given_parallel_fan_out {
+        private ExecutorService executor;
+
+        @BeforeEach
+        void setUp() {
+            executor = Executors.newFixedThreadPool(3);
+        }
+
+        @AfterEach
+        void tearDown() {
+            executor.shutdownNow();
+        }
+
+        @Test
+        void delivers_to_all_targets_once() {
+            final SendMessageResult result = FanOut.parallel(PARALLEL, executor).deliver(targets(1000), message);
+            assertThat(result.wasSuccessful()).isTrue();
+            assertAllReceivedOnce();
+        }
+
+        @Test
+        void uses_multiple_threads() {
+            final Map<Thread, Boolean> threads = new ConcurrentHashMap<>();
+            final MessageTarget[] targets = new MessageTarget[100];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = msg -> {
+                    threads.put(Thread.currentThread(), true);
+                    sleep();
+                    return success(msg);
+                };
+            }
+            FanOut.parallel(PARALLEL, executor).deliver(targets, message);
+            assertThat(threads).hasSizeGreaterThan(1);
+        }
+
+        @Test
+        void small_target_lists_are_delivered_on_calling_thread() {
+            final Thread caller = Thread.currentThread();
+            final AtomicInteger otherThreads = new AtomicInteger();
+            final MessageTarget target = msg -> {
+                if (Thread.currentThread() != caller)
+                    otherThreads.incrementAndGet();
+                return success(msg);
+            };
+            FanOut.parallel(PARALLEL, executor).deliver(new MessageTarget[] {target}, message);
+            assertThat(otherThreads).hasValue(0);
+        }
+
+        @Test
+        void failing_targets_do_not_stop_delivery_to_other_targets() {
+            final MessageTarget[] targets = targets(100);
+            targets[0] = failingTarget();
+            targets[60] = failingTarget();
+
+            final SendMessageResult result = FanOut.parallel(PARALLEL, executor).deliver(targets, message);
+            assertThat(result.wasFailure()).isTrue();
+            assertThat(received.values()).filteredOn(counter -> counter.get() == 1).hasSize(98);
+        }
+
+        @Test
+        void rejected_message_fails_delivery() {
+            final MessageTarget[] targets = targets(100);
+            targets[99] = SendMessageResult::failure;
+
+            assertThat(FanOut.parallel(PARALLEL, executor).deliver(targets, message).wasFailure()).isTrue();
+        }
+
+        @Test
+        void errors_are_rethrown_after_all_partitions_completed() {
+            final MessageTarget[] targets = targets(100);
+            targets[99] = msg -> {
+                throw new AssertionError("failed");
+            };
+            received.put(targets[99], new AtomicInteger(1));
+
+            assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> FanOut.parallel(PARALLEL, executor).deliver(targets, message));
+            assertAllReceivedOnce();
+        }
+    }
+
+    @Test
+    void calling_thread_delivers_partitions_that_are_never_started() {
+        FanOut.parallel(PARALLEL, task -> {}).deliver(targets(100), message);
+        assertAllReceivedOnce();
+    }
+
+    @Test
+    void calling_thread_delivers_rejected_partitions() {
+        FanOut.parallel(PARALLEL, task -> {
+            throw new RejectedExecutionException();
+        }).deliver(targets(100), message);
+        assertAllReceivedOnce();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -23,11 +23,14 @@
  */
 package net.silthus.schat.message;
 
+import java.time.Duration;
+import java.time.Instant;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import static net.silthus.schat.message.Message.message;
 import static net.silthus.schat.message.MessageHelper.randomMessage;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -156,4 +159,71 @@ class MessagesTest {
             assertThat(unmodifiable).contains(message);
         }
     }
+
+    @Nested
+    @DisplayName("given capped retention")
+    class GivenCappedRetention {
+
+        private Message message1;
+        private Message message2;
+        private Message message3;
+
+        @BeforeEach
+        void setUp() {
+            messages = new Messages(Messages.Retention.capacity(2));
+            message1 = randomMessage();
+            message2 = randomMessage();
+            message3 = randomMessage();
+            messages.add(message1);
+            messages.add(message2);
+            messages.add(message3);
+        }
+
+        @Test
+        @DisplayName("drops oldest message")
+        void drops_oldest_message() {
+            assertThat(messages).hasSize(2)
+                .containsExactly(message2, message3);
+        }
+
+        @Test
+        @DisplayName("last() returns last added message")
+        void last_returns_last_added_message() {
+            assertThat(messages.last()).isEqualTo(message3);
+        }
+
+        @Test
+        @DisplayName("contains only retained messages")
+        void contains_only_retained_messages() {
+            assertThat(messages.contains(message1)).isFalse();
+            assertThat(messages.contains(message3)).isTrue();
+        }
+
+        @Test
+        @DisplayName("does not add duplicates")
+        void does_not_add_duplicates() {
+            assertThat(messages.add(message3)).isFalse();
+            assertThat(messages).containsExactly(message2, message3);
+        }
+    }
+
+    @Nested
+    @DisplayName("given expiring retention")
+    class GivenExpiringRetention {
+
+        @BeforeEach
+        void setUp() {
+            messages = new Messages(Messages.Retention.retention(0, Duration.ofMinutes(1)));
+        }
+
+        @Test
+        @DisplayName("drops expired messages")
+        void drops_expired_messages() {
+            final Message expired = message("old").timestamp(Instant.now().minus(Duration.ofMinutes(5))).create();
+            final Message message = randomMessage();
+            messages.add(expired);
+            messages.add(message);
+            assertThat(messages).containsExactly(message);
+        }
+    }
 }
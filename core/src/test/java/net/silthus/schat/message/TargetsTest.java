@@ -23,6 +23,9 @@
  */
 package net.silthus.schat.message;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import net.silthus.schat.chatter.Chatter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -120,4 +123,93 @@ class TargetsTest {
                 .isThrownBy(() -> unmodifiable.add(target2));
         }
     }
+
+    @Nested
+    @DisplayName("snapshot()")
+    class Snapshot {
+
+        @Test
+        void is_not_affected_by_later_changes() {
+            targets.add(target1);
+            final Targets snapshot = targets.snapshot();
+            targets.add(target2);
+            targets.remove(target1);
+
+            assertThat(snapshot).containsExactly(target1);
+            assertThat(targets).containsExactly(target2);
+        }
+
+        @Test
+        void is_unmodifiable() {
+            assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> targets.snapshot().add(target1));
+        }
+
+        @Test
+        void copyOf_is_independent_of_source() {
+            targets.add(target1);
+            final Targets copy = Targets.copyOf(targets);
+            copy.add(target2);
+
+            assertThat(targets).containsExactly(target1);
+            assertThat(copy).containsExactly(target1, target2);
+        }
+
+        @Test
+        void unmodifiable_reads_through_changes() {
+            final Targets unmodifiable = Targets.unmodifiable(targets);
+            targets.add(target1);
+            assertThat(unmodifiable).containsExactly(target1);
+        }
+    }
+
+    @Nested
+    @DisplayName("concurrent access")
+    class ConcurrentAccess {
+
+        @Test
+        void modifying_while_iterating_does_not_throw() {
+            targets.add(target1);
+            targets.add(target2);
+            for (final MessageTarget target : targets)
+                targets.remove(target);
+            assertThat(targets).isEmpty();
+        }
+
+        @Test
+        void iterator_remove_removes_target() {
+            targets.add(target1);
+            targets.add(target2);
+            targets.removeIf(target -> target == target1);
+            assertThat(targets).containsExactly(target2);
+        }
+
+        @Test
+        void concurrent_adds_are_not_lost() throws InterruptedException {
+            final List<MessageTarget> added = new ArrayList<>();
+            for (int i = 0; i < 400; i++)
+                added.add(targetSpy());
+
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final List<MessageTarget> partition = added.subList(t * 100, (t + 1) * 100);
+                final Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    partition.forEach(targets::add);
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (final Thread thread : threads)
+                thread.join();
+
+            assertThat(targets).hasSize(400).containsAll(added);
+        }
+    }
 }
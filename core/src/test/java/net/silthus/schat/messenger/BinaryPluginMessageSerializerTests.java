@@ -0,0 +1,262 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.messenger;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import lombok.EqualsAndHashCode;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.silthus.schat.util.gson.GsonProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.silthus.schat.messenger.PluginMessageSerializer.binarySerializer;
+import static net.silthus.schat.messenger.PluginMessageSerializer.gsonSerializer;
+import static net.silthus.schat.util.gson.GsonProviderStub.gsonProviderStub;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class BinaryPluginMessageSerializerTests {
+
+    private GsonProvider gsonProvider;
+    private BinaryPluginMessageSerializer serializer;
+
+    @BeforeEach
+    void setUp() {
+        gsonProvider = gsonProviderStub();
+        serializer = binarySerializer(gsonProvider);
+        serializer.registerMessageType(TestMessage.class);
+    }
+
+    private TestMessage roundTrip(TestMessage message) {
+        return (TestMessage) serializer.decode(serializer.encodeToBytes(message));
+    }
+
+    @Test
+    void message_is_decoded_to_equal_message() {
+        final TestMessage message = new TestMessage();
+        final TestMessage decoded = roundTrip(message);
+        assertThat(decoded).isEqualTo(message);
+        assertThat(decoded.id()).isEqualTo(message.id());
+    }
+
+    @Test
+    void message_fields_survive_round_trip() {
+        final TestMessage message = new TestMessage();
+        message.text = text("Hello", NamedTextColor.RED);
+        message.count = -42;
+        message.big = Long.MAX_VALUE;
+        message.ratio = 0.1;
+        message.flag = true;
+        message.target = UUID.randomUUID();
+        message.timestamp = Instant.now();
+        message.tags = List.of("a", "b", "", "ünïcödé");
+        message.parts = List.of(new Part("one", 1), new Part("two", 2), new Part("three", 3));
+
+        final TestMessage decoded = roundTrip(message);
+
+        assertThat(decoded.text).isEqualTo(message.text);
+        assertThat(decoded.count).isEqualTo(message.count);
+        assertThat(decoded.big).isEqualTo(message.big);
+        assertThat(decoded.ratio).isEqualTo(message.ratio);
+        assertThat(decoded.flag).isTrue();
+        assertThat(decoded.target).isEqualTo(message.target);
+        assertThat(decoded.timestamp).isEqualTo(message.timestamp);
+        assertThat(decoded.tags).isEqualTo(message.tags);
+        assertThat(decoded.parts).isEqualTo(message.parts);
+    }
+
+    @Test
+    void strings_that_look_like_uuids_or_timestamps_are_preserved() {
+        final TestMessage message = new TestMessage();
+        message.tags = List.of(
+            "3F2504E0-4F89-11D3-9A0C-0305E82C3301",
+            "2022-01-01T00:00:00.000Z",
+            "2022-01-01T00:00:00Z",
+            "aaaa-bbbb-cccc-dddd-eeee-ffff-gggg-hh"
+        );
+        assertThat(roundTrip(message).tags).isEqualTo(message.tags);
+    }
+
+    @Test
+    void encoded_message_is_smaller_than_json() {
+        final TestMessage message = new TestMessage();
+        message.target = UUID.randomUUID();
+        message.timestamp = Instant.now();
+        message.parts = List.of(new Part("one", 1), new Part("two", 2), new Part("three", 3));
+
+        final PluginMessageSerializer json = gsonSerializer(gsonProvider);
+        json.registerMessageType(TestMessage.class);
+
+        assertThat(serializer.encodeToBytes(message).length)
+            .isLessThan(json.encodeToBytes(message).length / 2);
+    }
+
+    @Test
+    void null_fields_are_skipped() {
+        final MessageEnvelope envelope = serializer.inspect(serializer.encodeToBytes(new TestMessage()));
+        assertThat(envelope.content().has("target")).isFalse();
+        assertThat(envelope.content().has("count")).isTrue();
+    }
+
+    @Test
+    void type_adapters_registered_after_encoding_are_used() {
+        final TestMessage message = new TestMessage();
+        message.parts = List.of(new Part("one", 1));
+        serializer.encodeToBytes(message);
+
+        serializer.registerTypeAdapter(Part.class, (JsonSerializer<Part>) (part, type, context) -> new JsonPrimitive(part.name));
+
+        final MessageEnvelope envelope = serializer.inspect(serializer.encodeToBytes(message));
+        assertThat(envelope.content().getAsJsonArray("parts").get(0).getAsString()).isEqualTo("one");
+    }
+
+    @Test
+    void servers_with_different_registrations_decode_each_others_messages() {
+        final BinaryPluginMessageSerializer other = binarySerializer(gsonProvider);
+        other.registerMessageType(OtherMessage.class);
+        other.registerMessageType(TestMessage.class);
+
+        final TestMessage message = new TestMessage();
+        assertThat(serializer.decode(other.encodeToBytes(message))).isEqualTo(message);
+        assertThat(other.decode(serializer.encodeToBytes(message))).isEqualTo(message);
+    }
+
+    @Test
+    void string_encoding_round_trips() {
+        final TestMessage message = new TestMessage();
+        assertThat(serializer.decode(serializer.encode(message))).isEqualTo(message);
+    }
+
+    @Nested class inspect {
+
+        @Test
+        void registered_type_has_type_name() {
+            final TestMessage message = new TestMessage();
+            message.tags = List.of("a", "b");
+
+            final MessageEnvelope envelope = serializer.inspect(serializer.encodeToBytes(message));
+
+            assertThat(envelope.typeName()).isEqualTo(TestMessage.class.getTypeName());
+            assertThat(envelope.content().getAsJsonArray("tags")).hasSize(2);
+        }
+
+        @Test
+        void unregistered_type_is_matched_by_hash() {
+            final BinaryPluginMessageSerializer proxy = binarySerializer(gsonProvider);
+
+            final MessageEnvelope envelope = proxy.inspect(serializer.encodeToBytes(new TestMessage()));
+
+            assertThat(envelope.typeName()).isNull();
+            assertThat(envelope.is(TestMessage.class.getTypeName())).isTrue();
+            assertThat(envelope.is(OtherMessage.class.getTypeName())).isFalse();
+        }
+
+        @Test
+        void json_message_is_inspected() {
+            final PluginMessageSerializer json = gsonSerializer(gsonProvider);
+            json.registerMessageType(TestMessage.class);
+
+            final MessageEnvelope envelope = gsonSerializer(gsonProvider).inspect(json.encodeToBytes(new TestMessage()));
+
+            assertThat(envelope.is(TestMessage.class.getTypeName())).isTrue();
+            assertThat(envelope.content().has("id")).isTrue();
+        }
+    }
+
+    @Nested class unsupported_messages {
+
+        @Test
+        void unregistered_message_type_throws() {
+            assertThatIllegalArgumentException()
+                .isThrownBy(() -> serializer.encodeToBytes(new OtherMessage()));
+        }
+
+        @Test
+        void unknown_type_id_throws() {
+            final BinaryPluginMessageSerializer other = binarySerializer(gsonProvider);
+            other.registerMessageType(OtherMessage.class);
+
+            final byte[] bytes = other.encodeToBytes(new OtherMessage());
+            assertThatIllegalArgumentException()
+                .isThrownBy(() -> serializer.decode(bytes));
+        }
+
+        @Test
+        void json_payload_throws() {
+            final byte[] bytes = "{\"id\":\"foo\"}".getBytes(StandardCharsets.UTF_8);
+            assertThatIllegalArgumentException()
+                .isThrownBy(() -> serializer.decode(bytes));
+        }
+
+        @Test
+        void truncated_payload_throws() {
+            final byte[] bytes = serializer.encodeToBytes(new TestMessage());
+            final byte[] truncated = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+            assertThatIllegalArgumentException()
+                .isThrownBy(() -> serializer.decode(truncated));
+        }
+    }
+
+    private static class TestMessage extends PluginMessage {
+        private Component text = Component.empty();
+        private int count;
+        private long big;
+        private double ratio;
+        private boolean flag;
+        private UUID target;
+        private Instant timestamp;
+        private List<String> tags = List.of();
+        private List<Part> parts = List.of();
+
+        @Override
+        public void process() {
+        }
+    }
+
+    private static class OtherMessage extends PluginMessage {
+        @Override
+        public void process() {
+        }
+    }
+
+    @EqualsAndHashCode
+    private static class Part {
+        private final String name;
+        private final int value;
+
+        private Part(String name, int value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.messenger;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static net.silthus.schat.messenger.PluginMessageSerializer.gsonSerializer;
+import static net.silthus.schat.util.gson.GsonProviderStub.gsonProviderStub;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GsonPluginMessageSerializerTests {
+
+    private GsonPluginMessageSerializer serializer;
+
+    @BeforeEach
+    void setUp() {
+        serializer = gsonSerializer(gsonProviderStub());
+        serializer.registerMessageType(TestMessage.class);
+    }
+
+    @Test
+    void message_is_decoded_to_equal_message() {
+        final TestMessage message = new TestMessage();
+        assertThat(serializer.decode(serializer.encode(message))).isEqualTo(message);
+    }
+
+    @Test
+    void message_is_encoded_without_whitespace() {
+        assertThat(serializer.encode(new TestMessage()))
+            .doesNotContain("\n")
+            .doesNotContain(": ")
+            .contains("\"type\":\"" + TestMessage.class.getTypeName() + "\"");
+    }
+
+    private static class TestMessage extends PluginMessage {
+        private List<String> tags = List.of("a", "b");
+
+        @Override
+        public void process() {
+        }
+    }
+}
@@ -70,6 +70,63 @@ final class PointersTest {
         assertEquals("tset", p2.getOrDefault(pointer, null)); // make sure the value does change
     }
 
+    @Test
+    void getOrNull_returns_value_or_null() {
+        final Pointer<String> pointer = Pointer.pointer(String.class, "test");
+        final Pointers pointers = Pointers.pointersBuilder()
+            .withStatic(pointer, "value")
+            .create();
+        assertThat(pointers.getOrNull(pointer)).isEqualTo("value");
+        assertThat(pointers.getOrNull(Pointer.pointer(String.class, "unknown"))).isNull();
+        assertThat(Pointers.empty().getOrNull(pointer)).isNull();
+    }
+
+    @Test
+    void equal_pointers_resolve_the_same_value() {
+        final Pointers pointers = Pointers.pointersBuilder()
+            .withStatic(Pointer.pointer(String.class, "equal"), "value")
+            .create();
+        assertThat(pointers.get(Pointer.pointer(String.class, "equal"))).contains("value");
+        assertThat(pointers.contains(Pointer.pointer(Integer.class, "equal"))).isFalse();
+    }
+
+    @Test
+    void stores_many_pointers() {
+        final Pointers.Builder builder = Pointers.pointersBuilder();
+        for (int i = 0; i < 100; i++)
+            builder.withStatic(Pointer.pointer(Integer.class, "many_" + i), i);
+        final Pointers pointers = builder.create();
+
+        assertThat(pointers.pointers()).hasSize(100);
+        for (int i = 0; i < 100; i++)
+            assertThat(pointers.getOrNull(Pointer.pointer(Integer.class, "many_" + i))).isEqualTo(i);
+    }
+
+    @Test
+    void pointers_are_reused_until_changed() {
+        final Pointer<String> first = Pointer.pointer(String.class, "first");
+        final Pointer<String> second = Pointer.pointer(String.class, "second");
+        final Pointers pointers = Pointers.pointersBuilder().withStatic(first, "first").create();
+        assertThat(pointers.pointers()).isSameAs(pointers.pointers()).containsExactly(first);
+
+        final Pointers copy = pointers.toBuilder().withStatic(second, "second").create();
+        assertThat(copy.pointers()).containsExactlyInAnyOrder(first, second);
+        assertThat(pointers.pointers()).containsExactly(first);
+    }
+
+    @Test
+    void toBuilder_does_not_modify_source() {
+        final Pointer<String> pointer = Pointer.pointer(String.class, "source");
+        final Pointers source = Pointers.pointersBuilder()
+            .withStatic(pointer, "source")
+            .create();
+        final Pointers copy = source.toBuilder()
+            .withStatic(pointer, "copy")
+            .create();
+        assertThat(source.getOrNull(pointer)).isEqualTo("source");
+        assertThat(copy.getOrNull(pointer)).isEqualTo("copy");
+    }
+
     @Nested
     class given_empty_pointers {
         private @NotNull Pointers pointers;
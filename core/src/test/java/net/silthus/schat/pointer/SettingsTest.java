@@ -122,6 +122,35 @@ class SettingsTest {
         assertThat(settings.contains(DEFAULT_VAL_TEST)).isTrue();
     }
 
+    @Test
+    void pointer_and_setting_with_same_key_do_not_collide() {
+        final Setting<String> setting = Setting.setting(String.class, "test", "default");
+        final Settings settings = Settings.settingsBuilder()
+            .withStatic(TEST_POINTER, "pointer")
+            .withStatic(setting, "setting")
+            .create();
+        assertThat(settings.get(TEST_POINTER)).contains("pointer");
+        assertThat(settings.get(setting)).isEqualTo("setting");
+        assertThat(settings.settings()).containsExactly(setting);
+    }
+
+    @Test
+    void equal_settings_share_the_same_value() {
+        final Settings settings = Settings.settingsBuilder()
+            .withStatic(Setting.setting(String.class, "shared", "default"), "value")
+            .create();
+        assertThat(settings.get(Setting.setting(String.class, "shared", "other"))).isEqualTo("value");
+    }
+
+    @Test
+    void getOrDefault_prefers_unknown_over_provided_default() {
+        final Settings settings = Settings.settingsBuilder()
+            .withUnknown("default", setting -> "unknown")
+            .create();
+        assertThat(settings.getOrDefault(DEFAULT_VAL_TEST, "provided")).isEqualTo("unknown");
+        assertThat(settings.getOrDefault(DYNAMIC_TEST, "provided")).isEqualTo("provided");
+    }
+
     @Nested class copyFrom {
         private Settings source;
         private Setting<Boolean> booleanSetting;
@@ -160,4 +189,98 @@ class SettingsTest {
             assertThat(settings.get(DYNAMIC_TEST)).isEqualTo("my_val");
         }
     }
+
+    @Nested class given_derived_settings {
+        private Settings parent;
+        private Settings child;
+
+        @BeforeEach
+        void setUp() {
+            parent = Settings.settingsBuilder()
+                .withStatic(DEFAULT_VAL_TEST, "parent")
+                .withUnknown("dynamic", setting -> "unknown")
+                .create();
+            child = parent.toBuilder()
+                .withStatic(TEST_POINTER, "child")
+                .create();
+        }
+
+        @Test
+        void child_falls_back_to_parent_values() {
+            assertThat(child.get(DEFAULT_VAL_TEST)).isEqualTo("parent");
+            assertThat(child.get(DYNAMIC_TEST)).isEqualTo("unknown");
+            assertThat(child.get(TEST_POINTER)).contains("child");
+            assertThat(child.pointers()).containsExactlyInAnyOrder(DEFAULT_VAL_TEST, TEST_POINTER);
+        }
+
+        @Test
+        void pointers_of_all_layers_are_reused_until_changed() {
+            assertThat(child.pointers()).isSameAs(child.pointers());
+
+            child.set(DYNAMIC_TEST, "child");
+            assertThat(child.pointers()).containsExactlyInAnyOrder(DEFAULT_VAL_TEST, TEST_POINTER, DYNAMIC_TEST);
+        }
+
+        @Test
+        void set_on_child_does_not_modify_parent() {
+            child.set(DEFAULT_VAL_TEST, "child");
+            assertThat(child.get(DEFAULT_VAL_TEST)).isEqualTo("child");
+            assertThat(parent.get(DEFAULT_VAL_TEST)).isEqualTo("parent");
+        }
+
+        @Test
+        void set_on_parent_does_not_modify_child() {
+            parent.set(DEFAULT_VAL_TEST, "changed");
+            assertThat(parent.get(DEFAULT_VAL_TEST)).isEqualTo("changed");
+            assertThat(child.get(DEFAULT_VAL_TEST)).isEqualTo("parent");
+        }
+
+        @Test
+        void set_returns_value_of_parent() {
+            assertThat(child.set(DEFAULT_VAL_TEST, "child")).contains("parent");
+        }
+
+        @Test
+        void unknown_of_parent_is_not_replaced_by_child() {
+            final Settings settings = parent.toBuilder()
+                .withUnknown("dynamic", setting -> "child")
+                .create();
+            assertThat(settings.get(DYNAMIC_TEST)).isEqualTo("unknown");
+        }
+
+        @Test
+        void deeply_derived_settings_keep_all_values() {
+            Settings settings = child;
+            for (int i = 0; i < 20; i++) {
+                settings = settings.toBuilder()
+                    .withStatic(Setting.setting(Integer.class, "level_" + i, -1), i)
+                    .create();
+            }
+            assertThat(settings.get(DEFAULT_VAL_TEST)).isEqualTo("parent");
+            assertThat(settings.get(TEST_POINTER)).contains("child");
+            for (int i = 0; i < 20; i++)
+                assertThat(settings.get(Setting.setting(Integer.class, "level_" + i, -1))).isEqualTo(i);
+        }
+
+        @Test
+        void copyFrom_copies_parent_values() {
+            final Settings settings = Settings.createSettings().copyFrom(child);
+            assertThat(settings.get(DEFAULT_VAL_TEST)).isEqualTo("parent");
+            assertThat(settings.get(DYNAMIC_TEST)).isEqualTo("unknown");
+            assertThat(settings.get(TEST_POINTER)).contains("child");
+        }
+    }
+
+    @Test
+    void builder_creates_independent_settings() {
+        final Settings.Builder builder = Settings.settingsBuilder().withStatic(DEFAULT_VAL_TEST, "value");
+        final Settings first = builder.create();
+        final Settings second = builder.create();
+
+        first.set(DEFAULT_VAL_TEST, "first");
+        builder.withStatic(DEFAULT_VAL_TEST, "builder");
+
+        assertThat(first.get(DEFAULT_VAL_TEST)).isEqualTo("first");
+        assertThat(second.get(DEFAULT_VAL_TEST)).isEqualTo("value");
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MailboxTest {
+
+    private Queue<Runnable> scheduled;
+    private Mailbox mailbox;
+
+    @BeforeEach
+    void setUp() {
+        scheduled = new ArrayDeque<>();
+        mailbox = Mailbox.mailbox(scheduled::add);
+    }
+
+    private void runScheduled() {
+        Runnable task;
+        while ((task = scheduled.poll()) != null)
+            task.run();
+    }
+
+    @Test
+    void tasks_run_on_the_pool_in_submission_order() {
+        final List<Integer> executed = new ArrayList<>();
+        mailbox.execute(() -> executed.add(1));
+        mailbox.execute(() -> executed.add(2));
+        assertThat(executed).isEmpty();
+        assertThat(scheduled).hasSize(1);
+
+        runScheduled();
+        assertThat(executed).containsExactly(1, 2);
+    }
+
+    @Test
+    void tasks_submitted_by_a_running_task_run_directly() {
+        final List<Integer> executed = new ArrayList<>();
+        mailbox.execute(() -> executed.add(1));
+        mailbox.execute(() -> {
+            mailbox.execute(() -> executed.add(2));
+            executed.add(3);
+        });
+        mailbox.execute(() -> executed.add(4));
+
+        runScheduled();
+        assertThat(executed).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void drain_yields_after_a_batch() {
+        final AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < Mailbox.DRAIN_BATCH_SIZE + 1; i++)
+            mailbox.execute(executed::incrementAndGet);
+
+        scheduled.poll().run();
+        assertThat(executed).hasValue(Mailbox.DRAIN_BATCH_SIZE);
+        assertThat(scheduled).hasSize(1);
+
+        runScheduled();
+        assertThat(executed).hasValue(Mailbox.DRAIN_BATCH_SIZE + 1);
+    }
+
+    @Test
+    void failing_task_does_not_stop_the_mailbox() {
+        final AtomicInteger executed = new AtomicInteger();
+        mailbox.execute(() -> {
+            throw new IllegalStateException();
+        });
+        mailbox.execute(executed::incrementAndGet);
+        runScheduled();
+        assertThat(executed).hasValue(1);
+    }
+
+    @Test
+    void rejected_drain_runs_on_the_calling_thread() {
+        final AtomicInteger executed = new AtomicInteger();
+        Mailbox.mailbox(task -> {
+            throw new RejectedExecutionException();
+        }).execute(executed::incrementAndGet);
+        assertThat(executed).hasValue(1);
+    }
+
+    @Test
+    void tasks_never_run_concurrently() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final Mailbox mailbox = Mailbox.mailbox(pool);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+            final CountDownLatch done = new CountDownLatch(1000);
+            for (int i = 0; i < 1000; i++) {
+                final int value = i;
+                mailbox.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    executed.add(value);
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(maxRunning).hasValue(1);
+            assertThat(executed).isSorted().hasSize(1000);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -84,10 +84,13 @@ public class AutoJoinChannelsFeature implements EventListener {
             .filter(channel -> channel.is(AUTO_JOIN));
     }
 
+    // checks the active channel in order with the pending changes of the chatter
     private void autoJoinChannel(Chatter chatter, Channel channel) {
-        if (chatter.activeChannel().isEmpty())
-            setActiveChannel(chatter, channel);
-        else
-            joinChannel(chatter, channel);
+        chatter.execute(() -> {
+            if (chatter.activeChannel().isEmpty())
+                setActiveChannel(chatter, channel);
+            else
+                joinChannel(chatter, channel);
+        });
     }
 }
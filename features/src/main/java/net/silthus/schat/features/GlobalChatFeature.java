@@ -34,6 +34,7 @@ import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.eventbus.EventBus;
 import net.silthus.schat.eventbus.Subscribe;
 import net.silthus.schat.events.channel.ChatterJoinedChannelEvent;
+import net.silthus.schat.events.channel.ChatterLeftChannelEvent;
 import net.silthus.schat.events.message.SendChannelMessageEvent;
 import net.silthus.schat.events.message.SendGlobalMessageEvent;
 import net.silthus.schat.message.Message;
@@ -53,6 +54,7 @@ public class GlobalChatFeature {
 
         messenger.registerMessageType(SendGlobalMessage.class);
         messenger.registerMessageType(ChatterJoinedChannel.class);
+        messenger.registerMessageType(ChatterLeftChannel.class);
         eventBus.register(this);
     }
 
@@ -67,6 +69,11 @@ public class GlobalChatFeature {
         messenger.sendPluginMessage(new ChatterJoinedChannel(event.chatter(), event.channel()));
     }
 
+    @Subscribe
+    protected void onChatterLeft(ChatterLeftChannelEvent event) {
+        messenger.sendPluginMessage(new ChatterLeftChannel(event.chatter(), event.channel()));
+    }
+
     private void sendGlobalMessage(Channel channel, Message message) {
         final SendGlobalMessageEvent event = eventBus.post(new SendGlobalMessageEvent(channel, message));
         if (event.isNotCancelled())
@@ -105,4 +112,21 @@ public class GlobalChatFeature {
             chatter.join(channel);
         }
     }
+
+    @Getter
+    @Setter
+    @Accessors(fluent = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode(callSuper = true, onlyExplicitlyIncluded = true)
+    public static final class ChatterLeftChannel extends PluginMessage {
+
+        private Chatter chatter;
+        private Channel channel;
+
+        @Override
+        public void process() {
+            chatter.leave(channel);
+        }
+    }
 }
@@ -163,5 +163,13 @@ class GlobalChatFeatureTests implements Messenger {
             chatter.join(channel);
             assertMessageDispatched();
         }
+
+        @Test
+        void when_chatter_leaves_channel_then_update_is_sent() {
+            final ChatterMock chatter = randomChatter();
+            chatter.join(channel);
+            chatter.leave(channel);
+            assertThat(lastMessage).isInstanceOf(GlobalChatFeature.ChatterLeftChannel.class);
+        }
     }
 }
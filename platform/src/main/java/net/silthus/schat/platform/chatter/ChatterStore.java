@@ -0,0 +1,99 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.chatter;
+
+import java.nio.file.Path;
+import lombok.NonNull;
+import net.silthus.schat.channel.ChannelRepository;
+import net.silthus.schat.chatter.Chatter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores the durable state of chatters that left the server.
+ *
+ * <p>The durable state consists of the joined channels and the active channel of the chatter.
+ * It is stored when the chatter leaves the server and restored when the chatter joins again.</p>
+ *
+ * @since 1.0.0
+ */
+public interface ChatterStore {
+
+    /**
+     * Gets a store that does not store anything.
+     *
+     * @return the empty store
+     * @since 1.0.0
+     */
+    static @NotNull ChatterStore empty() {
+        return EmptyChatterStore.INSTANCE;
+    }
+
+    /**
+     * Creates a store that writes one small binary file per chatter into the given directory.
+     *
+     * @param directory the directory of the files
+     * @param channelRepository the repository used to look up the stored channels
+     * @return the file store
+     * @since 1.0.0
+     */
+    static @NotNull ChatterStore fileChatterStore(@NonNull Path directory, @NonNull ChannelRepository channelRepository) {
+        return new FileChatterStore(directory, channelRepository);
+    }
+
+    /**
+     * Stores the durable state of the chatter.
+     *
+     * @param chatter the chatter
+     * @since 1.0.0
+     */
+    void save(@NonNull Chatter chatter);
+
+    /**
+     * Restores the stored state into the given chatter.
+     *
+     * <p>Channels that no longer exist are skipped.</p>
+     *
+     * @param chatter the chatter
+     * @return the same chatter
+     * @since 1.0.0
+     */
+    @NotNull Chatter restore(@NonNull Chatter chatter);
+
+    final class EmptyChatterStore implements ChatterStore {
+
+        private static final EmptyChatterStore INSTANCE = new EmptyChatterStore();
+
+        private EmptyChatterStore() {
+        }
+
+        @Override
+        public void save(@NonNull Chatter chatter) {
+        }
+
+        @Override
+        public @NotNull Chatter restore(@NonNull Chatter chatter) {
+            return chatter;
+        }
+    }
+}
@@ -25,50 +25,141 @@ package net.silthus.schat.platform.chatter;
 
 import com.google.gson.InstanceCreator;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.chatter.ChatterFactory;
 import net.silthus.schat.chatter.ChatterRepository;
 import net.silthus.schat.eventbus.EventBus;
 import net.silthus.schat.events.chatter.ChatterJoinedServerEvent;
+import net.silthus.schat.events.chatter.ChatterLeftServerEvent;
 import net.silthus.schat.messenger.Messenger;
 import net.silthus.schat.messenger.PluginMessage;
 import net.silthus.schat.platform.sender.Sender;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class ConnectionListener {
     private final ChatterRepository chatterRepository;
     private final ChatterFactory chatterFactory;
     private final Messenger messenger;
     private final EventBus eventBus;
+    private final ChatterStore chatterStore;
+    // the id of the current session of every player on this and on the other servers
+    private final Map<UUID, UUID> localSessions = new ConcurrentHashMap<>();
+    private final Map<UUID, UUID> remoteSessions = new ConcurrentHashMap<>();
 
     public ConnectionListener(ChatterRepository chatterRepository, ChatterFactory chatterFactory, Messenger messenger, EventBus eventBus) {
+        this(chatterRepository, chatterFactory, messenger, eventBus, ChatterStore.empty());
+    }
+
+    public ConnectionListener(ChatterRepository chatterRepository, ChatterFactory chatterFactory, Messenger messenger, EventBus eventBus, ChatterStore chatterStore) {
         this.chatterRepository = chatterRepository;
         this.chatterFactory = chatterFactory;
         this.messenger = messenger;
         this.eventBus = eventBus;
+        this.chatterStore = chatterStore;
         registerMessageType();
     }
 
     private void registerMessageType() {
         messenger.registerMessageType(ChatterJoined.class);
         messenger.registerTypeAdapter(ChatterJoined.class, new MessageCreator());
+        messenger.registerMessageType(ChatterLeft.class);
+        messenger.registerTypeAdapter(ChatterLeft.class, new LeftMessageCreator());
     }
 
     protected final void onJoin(Sender sender) {
+        localSessions.put(sender.uniqueId(), UUID.randomUUID());
+        remoteSessions.remove(sender.uniqueId());
         final Chatter chatter = getOrCreateChatter(sender);
         fireJoinServerEvent(chatter);
         sendGlobalJoinPing(chatter);
     }
 
+    /**
+     * Removes the chatter from memory after the player left the server.
+     *
+     * <p>The chatter is detached from the targets of its channels, but stays a member of them.
+     * The memberships are kept in the {@link ChatterStore} and restored when the player joins again.
+     * Both happen after the changes already queued for the chatter, so pending joins are saved and detached too.
+     * The other servers are notified to remove the chatter as well.</p>
+     *
+     * @param playerId the id of the player that left
+     */
+    protected final void onLeave(UUID playerId) {
+        final UUID session = localSessions.remove(playerId);
+        final Chatter chatter = chatterRepository.remove(playerId);
+        if (chatter == null)
+            return;
+        chatter.execute(() -> {
+            chatterStore.save(chatter);
+            detachFromChannels(chatter);
+        });
+        fireLeftServerEvent(chatter);
+        sendGlobalLeavePing(chatter, session);
+    }
+
+    private void onRemoteJoin(Chatter chatter, @Nullable UUID session) {
+        if (session != null && !localSessions.containsKey(chatter.uniqueId()))
+            remoteSessions.put(chatter.uniqueId(), session);
+        if (!chatterRepository.contains(chatter.uniqueId())) {
+            chatterRepository.add(chatter);
+            fireJoinServerEvent(chatter);
+        }
+    }
+
+    /**
+     * Removes the chatter of a player that left another server.
+     *
+     * <p>Players switching servers join the new server before they leave the old one.
+     * The chatter is kept if the player is connected to this server or
+     * if another server announced a newer session of the player.</p>
+     *
+     * @param playerId the id of the player
+     * @param session the session that ended
+     */
+    private void onRemoteLeave(UUID playerId, @Nullable UUID session) {
+        if (localSessions.containsKey(playerId))
+            return;
+        if (remoteSessions.containsKey(playerId) && !remoteSessions.remove(playerId, session))
+            return;
+        final Chatter chatter = chatterRepository.remove(playerId);
+        if (chatter == null)
+            return;
+        chatter.execute(() -> detachFromChannels(chatter));
+        fireLeftServerEvent(chatter);
+    }
+
     @NotNull
     @SuppressWarnings("checkstyle:MethodName")
     private Chatter getOrCreateChatter(Sender sender) {
-        return chatterRepository.findOrCreate(sender.uniqueId(), chatterFactory::createChatter);
+        final AtomicBoolean created = new AtomicBoolean();
+        final Chatter chatter = chatterRepository.findOrCreate(sender.uniqueId(), id -> {
+            created.set(true);
+            return chatterFactory.createChatter(id);
+        });
+        // restored outside the repository, because restoring reads files and joins channels which fires events
+        if (created.get())
+            chatterStore.restore(chatter);
+        return chatter;
+    }
+
+    private void detachFromChannels(Chatter chatter) {
+        for (final Channel channel : chatter.channels())
+            channel.removeTarget(chatter);
+    }
+
+    private void fireLeftServerEvent(Chatter chatter) {
+        eventBus.post(new ChatterLeftServerEvent(chatter));
     }
 
     private void fireJoinServerEvent(Chatter chatter) {
@@ -76,7 +167,11 @@ public abstract class ConnectionListener {
     }
 
     protected void sendGlobalJoinPing(Chatter chatter) {
-        messenger.sendPluginMessage(new ChatterJoined(chatter));
+        messenger.sendPluginMessage(new ChatterJoined(chatter, localSessions.get(chatter.uniqueId())));
+    }
+
+    protected void sendGlobalLeavePing(Chatter chatter, @Nullable UUID session) {
+        messenger.sendPluginMessage(new ChatterLeft(chatter.uniqueId(), session));
     }
 
     @Getter
@@ -86,30 +181,52 @@ public abstract class ConnectionListener {
     @EqualsAndHashCode(of = {"chatter"}, callSuper = true)
     final static class ChatterJoined extends PluginMessage {
         private Chatter chatter;
-        private transient ChatterRepository repository;
-        private transient ChatterFactory factory;
-        private transient EventBus eventBus;
+        private @Nullable UUID session;
+        private transient ConnectionListener listener;
 
-        ChatterJoined(Chatter chatter) {
+        ChatterJoined(Chatter chatter, @Nullable UUID session) {
             this.chatter = chatter;
+            this.session = session;
         }
 
         @Override
         public void process() {
-            if (!repository.contains(chatter.uniqueId())) {
-                repository.add(chatter);
-                eventBus.post(new ChatterJoinedServerEvent(chatter));
-            }
+            listener.onRemoteJoin(chatter, session);
+        }
+    }
+
+    @Getter
+    @Setter
+    @Accessors(fluent = true)
+    @NoArgsConstructor
+    @EqualsAndHashCode(of = {"chatterId", "session"}, callSuper = true)
+    final static class ChatterLeft extends PluginMessage {
+        private UUID chatterId;
+        private @Nullable UUID session;
+        private transient ConnectionListener listener;
+
+        ChatterLeft(UUID chatterId, @Nullable UUID session) {
+            this.chatterId = chatterId;
+            this.session = session;
+        }
+
+        @Override
+        public void process() {
+            listener.onRemoteLeave(chatterId, session);
         }
     }
 
     private final class MessageCreator implements InstanceCreator<ChatterJoined> {
         @Override
         public ChatterJoined createInstance(Type type) {
-            return new ChatterJoined()
-                .repository(chatterRepository)
-                .factory(chatterFactory)
-                .eventBus(eventBus);
+            return new ChatterJoined().listener(ConnectionListener.this);
+        }
+    }
+
+    private final class LeftMessageCreator implements InstanceCreator<ChatterLeft> {
+        @Override
+        public ChatterLeft createInstance(Type type) {
+            return new ChatterLeft().listener(ConnectionListener.this);
         }
     }
 }
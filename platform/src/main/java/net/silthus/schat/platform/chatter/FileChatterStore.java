@@ -0,0 +1,113 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.chatter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import net.silthus.schat.channel.Channel;
+import net.silthus.schat.channel.ChannelRepository;
+import net.silthus.schat.chatter.Chatter;
+import org.jetbrains.annotations.NotNull;
+
+@Log(topic = "sChat:ChatterStore")
+final class FileChatterStore implements ChatterStore {
+
+    private static final byte VERSION = 1;
+    private static final String FILE_EXTENSION = ".dat";
+
+    private final Path directory;
+    private final ChannelRepository channelRepository;
+
+    FileChatterStore(Path directory, ChannelRepository channelRepository) {
+        this.directory = directory;
+        this.channelRepository = channelRepository;
+    }
+
+    @Override
+    public void save(@NonNull Chatter chatter) {
+        final Path file = file(chatter);
+        try {
+            Files.createDirectories(directory);
+            final Path temp = Files.createTempFile(directory, chatter.uniqueId().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                write(out, chatter);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Failed to store the state of " + chatter.name() + " in " + file, e);
+        }
+    }
+
+    @Override
+    public @NotNull Chatter restore(@NonNull Chatter chatter) {
+        final Path file = file(chatter);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            read(in, chatter);
+        } catch (NoSuchFileException ignored) {
+            // the chatter never left the server before
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Failed to restore the state of " + chatter.name() + " from " + file, e);
+        }
+        return chatter;
+    }
+
+    private Path file(Chatter chatter) {
+        return directory.resolve(chatter.uniqueId() + FILE_EXTENSION);
+    }
+
+    private static void write(DataOutputStream out, Chatter chatter) throws IOException {
+        final List<Channel> channels = chatter.channels();
+        out.writeByte(VERSION);
+        out.writeUTF(chatter.activeChannel().map(Channel::key).orElse(""));
+        out.writeShort(channels.size());
+        for (final Channel channel : channels)
+            out.writeUTF(channel.key());
+    }
+
+    private void read(DataInputStream in, Chatter chatter) throws IOException {
+        final int version = in.readByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported chatter state version: " + version);
+        final String activeChannel = in.readUTF();
+        final int count = in.readUnsignedShort();
+        final List<String> channels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            channels.add(in.readUTF());
+
+        for (final String key : channels)
+            channelRepository.find(key).ifPresent(chatter::join);
+        if (!activeChannel.isEmpty())
+            channelRepository.find(activeChannel).ifPresent(chatter::activeChannel);
+    }
+}
@@ -27,15 +27,29 @@ import cloud.commandframework.CommandManager;
 import cloud.commandframework.annotations.AnnotationParser;
 import cloud.commandframework.annotations.CommandMethod;
 import cloud.commandframework.annotations.CommandPermission;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import lombok.extern.java.Log;
+import net.silthus.schat.eventbus.EventBus;
+import net.silthus.schat.eventbus.EventBusMetrics;
 import net.silthus.schat.platform.locale.Messages;
 import net.silthus.schat.platform.sender.Sender;
 
+@Log(topic = "sChat")
 public final class AdminCommands implements Command {
 
+    private static final DateTimeFormatter DUMP_FILE_FORMAT = DateTimeFormatter.ofPattern("'event-metrics-'yyyyMMdd-HHmmss'.txt'");
+
     private final Runnable reloadHandle;
+    private final EventBus eventBus;
+    private final Path dumpDirectory;
 
-    public AdminCommands(Runnable reloadHandle) {
+    public AdminCommands(Runnable reloadHandle, EventBus eventBus, Path dumpDirectory) {
         this.reloadHandle = reloadHandle;
+        this.eventBus = eventBus;
+        this.dumpDirectory = dumpDirectory;
     }
 
     @Override
@@ -49,4 +63,44 @@ public final class AdminCommands implements Command {
         reloadHandle.run();
         Messages.RELOAD_SUCCESS.send(sender);
     }
+
+    @CommandMethod("schat metrics")
+    @CommandPermission("schat.admin.metrics")
+    public void metrics(Sender sender) {
+        final EventBusMetrics metrics = eventBus.metrics();
+        if (metrics == null)
+            Messages.METRICS_DISABLED.send(sender);
+        else
+            Messages.EVENT_METRICS.send(sender, metrics);
+    }
+
+    @CommandMethod("schat metrics dump")
+    @CommandPermission("schat.admin.metrics")
+    public void dumpMetrics(Sender sender) {
+        final EventBusMetrics metrics = eventBus.metrics();
+        if (metrics == null) {
+            Messages.METRICS_DISABLED.send(sender);
+            return;
+        }
+        final Path file = dumpDirectory.resolve(DUMP_FILE_FORMAT.format(LocalDateTime.now()));
+        try {
+            metrics.dump(file);
+            Messages.METRICS_DUMPED.send(sender, file);
+        } catch (IOException e) {
+            log.warning("Unable to dump the event metrics to " + file + ": " + e.getMessage());
+            Messages.METRICS_DUMP_ERROR.send(sender, file);
+        }
+    }
+
+    @CommandMethod("schat metrics reset")
+    @CommandPermission("schat.admin.metrics")
+    public void resetMetrics(Sender sender) {
+        final EventBusMetrics metrics = eventBus.metrics();
+        if (metrics == null) {
+            Messages.METRICS_DISABLED.send(sender);
+            return;
+        }
+        metrics.reset();
+        Messages.METRICS_RESET.send(sender);
+    }
 }
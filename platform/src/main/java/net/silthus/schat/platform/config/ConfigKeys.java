@@ -23,12 +23,22 @@
  */
 package net.silthus.schat.platform.config;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import net.silthus.schat.eventbus.EventBusMetrics;
+import net.silthus.schat.message.FanOut;
+import net.silthus.schat.message.Messages;
 import net.silthus.schat.platform.config.key.ConfigKey;
 import net.silthus.schat.platform.config.key.KeyedConfiguration;
+import net.silthus.schat.platform.messaging.BatchingMessengerGateway;
+import net.silthus.schat.platform.messaging.ChunkedFraming;
+import net.silthus.schat.platform.messaging.CompressingMessengerGateway;
+import net.silthus.schat.platform.messaging.OfflineMessageQueue;
+import net.silthus.schat.platform.messaging.ProcessedMessages;
+import net.silthus.schat.platform.messaging.SocketMessengerGateway;
 import net.silthus.schat.ui.view.ViewConfig;
 
 import static java.util.Objects.requireNonNullElse;
@@ -41,6 +51,57 @@ import static net.silthus.schat.platform.config.key.ConfigKeyFactory.notReloadab
 public final class ConfigKeys {
 
     public static final ConfigKey<String> MESSENGER = notReloadable(lowercaseStringKey("messenger", "pluginmessage"));
+    public static final ConfigKey<String> PLUGIN_MESSAGE_FORMAT = notReloadable(lowercaseStringKey("plugin_message_format", "json"));
+    public static final ConfigKey<ProcessedMessages.Limits> MESSAGE_DEDUPLICATION = notReloadable(key(config -> ProcessedMessages.limits(
+        config.integer("message_deduplication.capacity", ProcessedMessages.DEFAULT_LIMITS.capacity()),
+        Duration.ofSeconds(config.integer("message_deduplication.window", (int) ProcessedMessages.DEFAULT_LIMITS.window().toSeconds()))
+    )));
+    public static final ConfigKey<BatchingMessengerGateway.Config> MESSAGE_BATCHING = notReloadable(key(config -> new BatchingMessengerGateway.Config(
+        config.bool("message_batching.enabled", BatchingMessengerGateway.Config.DISABLED.enabled()),
+        config.integer("message_batching.max_messages", BatchingMessengerGateway.Config.DISABLED.maxMessages()),
+        config.integer("message_batching.max_bytes", BatchingMessengerGateway.Config.DISABLED.maxBytes()),
+        Duration.ofMillis(config.integer("message_batching.max_delay", (int) BatchingMessengerGateway.Config.DISABLED.maxDelay().toMillis()))
+    )));
+    public static final ConfigKey<CompressingMessengerGateway.Config> MESSAGE_COMPRESSION = notReloadable(key(config -> new CompressingMessengerGateway.Config(
+        config.bool("message_compression.enabled", CompressingMessengerGateway.Config.DISABLED.enabled()),
+        config.integer("message_compression.threshold", CompressingMessengerGateway.Config.DISABLED.threshold()),
+        config.integer("message_compression.level", CompressingMessengerGateway.Config.DISABLED.level()),
+        config.integer("message_compression.max_message_size", CompressingMessengerGateway.Config.DISABLED.maxMessageSize())
+    )));
+    public static final ConfigKey<ChunkedFraming.Config> MESSAGE_FRAMING = notReloadable(key(config -> new ChunkedFraming.Config(
+        config.integer("message_framing.max_frame_size", ChunkedFraming.Config.DEFAULT.maxFrameSize()),
+        config.integer("message_framing.max_message_size", ChunkedFraming.Config.DEFAULT.maxMessageSize()),
+        config.integer("message_framing.max_pending_bytes", ChunkedFraming.Config.DEFAULT.maxPendingBytes()),
+        Duration.ofSeconds(config.integer("message_framing.reassembly_timeout", (int) ChunkedFraming.Config.DEFAULT.reassemblyTimeout().toSeconds()))
+    )));
+    public static final ConfigKey<Boolean> MESSAGE_ROUTING = notReloadable(booleanKey("message_routing", false));
+    public static final ConfigKey<OfflineMessageQueue.Config> OFFLINE_QUEUE = notReloadable(key(config -> new OfflineMessageQueue.Config(
+        config.integer("offline_queue.max_messages", OfflineMessageQueue.Config.DEFAULT.maxMessages()),
+        config.integer("offline_queue.max_bytes", OfflineMessageQueue.Config.DEFAULT.maxBytes()),
+        Duration.ofSeconds(config.integer("offline_queue.ttl", (int) OfflineMessageQueue.Config.DEFAULT.ttl().toSeconds())),
+        OfflineMessageQueue.Overflow.overflow(config.string("offline_queue.overflow", OfflineMessageQueue.Config.DEFAULT.overflow().name())),
+        config.bool("offline_queue.persist", OfflineMessageQueue.Config.DEFAULT.persist())
+    )));
+    public static final ConfigKey<SocketMessengerGateway.Config> SOCKET_MESSENGER = notReloadable(key(config -> new SocketMessengerGateway.Config(
+        SocketMessengerGateway.Mode.mode(config.string("socket.mode", SocketMessengerGateway.Config.DEFAULT.mode().name())),
+        config.string("socket.address", SocketMessengerGateway.Config.DEFAULT.address()),
+        config.string("socket.secret", SocketMessengerGateway.Config.DEFAULT.secret()),
+        config.integer("socket.max_message_size", SocketMessengerGateway.Config.DEFAULT.maxMessageSize()),
+        config.integer("socket.max_pending_bytes", SocketMessengerGateway.Config.DEFAULT.maxPendingBytes()),
+        Duration.ofMillis(config.integer("socket.reconnect_min_delay", (int) SocketMessengerGateway.Config.DEFAULT.reconnectMinDelay().toMillis())),
+        Duration.ofMillis(config.integer("socket.reconnect_max_delay", (int) SocketMessengerGateway.Config.DEFAULT.reconnectMaxDelay().toMillis())),
+        Duration.ofMillis(config.integer("socket.handshake_timeout", (int) SocketMessengerGateway.Config.DEFAULT.handshakeTimeout().toMillis()))
+    )));
+    public static final ConfigKey<FanOut.Config> MESSAGE_DELIVERY = notReloadable(key(config -> new FanOut.Config(
+        config.bool("message_delivery.parallel", FanOut.Config.SEQUENTIAL.parallel()),
+        config.integer("message_delivery.parallelism", FanOut.Config.SEQUENTIAL.parallelism()),
+        config.integer("message_delivery.min_partition_size", FanOut.Config.SEQUENTIAL.minPartitionSize())
+    )));
+    public static final ConfigKey<Boolean> ASYNC_EVENTS = notReloadable(booleanKey("async_events", false));
+    public static final ConfigKey<EventBusMetrics.Config> EVENT_METRICS = notReloadable(key(config -> new EventBusMetrics.Config(
+        config.bool("event_metrics.enabled", EventBusMetrics.Config.DISABLED.enabled()),
+        Duration.ofMillis(config.integer("event_metrics.slow_handler_threshold", (int) EventBusMetrics.Config.DISABLED.slowHandlerThreshold().toMillis()))
+    )));
     public static final ConfigKey<Boolean> DEBUG = notReloadable(booleanKey("debug", false));
     public static final ConfigKey<Map<String, ChannelConfig>> CHANNELS = modifiable(key(config -> {
         final HashMap<String, ChannelConfig> channels = new HashMap<>();
@@ -53,6 +114,12 @@ public final class ConfigKeys {
             c.set("channels." + channel.key(), channel);
         }
     });
+    public static final ConfigKey<Messages.Retention> CHATTER_MESSAGE_HISTORY = notReloadable(key(config -> Messages.Retention.retention(
+        config.integer("chatter.history_size", 100),
+        Duration.ofSeconds(config.integer("chatter.history_max_age", 0))
+    )));
+    public static final ConfigKey<Boolean> CHATTER_STORE_OFFLINE_STATE = notReloadable(booleanKey("chatter.store_offline_state", false));
+    public static final ConfigKey<Boolean> CHATTER_MAILBOX = notReloadable(booleanKey("chatter.mailbox", false));
     public static final ConfigKey<ViewConfig> VIEW_CONFIG = key(config -> config.get("view", ViewConfig.class));
     /**
      * A list of the keys defined in this class.
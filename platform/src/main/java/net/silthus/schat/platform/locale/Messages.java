@@ -23,13 +23,16 @@
  */
 package net.silthus.schat.platform.locale;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
 import net.kyori.adventure.text.TextComponent;
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.Chatter;
+import net.silthus.schat.eventbus.EventBusMetrics;
 import net.silthus.schat.platform.plugin.bootstrap.Bootstrap;
 import net.silthus.schat.platform.sender.Sender;
 
@@ -51,6 +54,7 @@ import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
 import static net.kyori.adventure.text.format.NamedTextColor.RED;
 import static net.kyori.adventure.text.format.TextDecoration.BOLD;
 import static net.kyori.adventure.text.format.TextDecoration.ITALIC;
+import static net.silthus.schat.eventbus.EventBusMetrics.formatMillis;
 import static net.silthus.schat.message.Message.message;
 
 public interface Messages {
@@ -184,6 +188,69 @@ public interface Messages {
         .append(FULL_STOP)
     );
 
+    /**
+     * Event metrics are disabled. Enable them with event_metrics.enabled in the config.
+     */
+    Args0 METRICS_DISABLED = () -> prefixed(translatable()
+        .key("schat.command.metrics.disabled")
+        .color(RED)
+        .args(text("event_metrics.enabled", GOLD))
+        .append(FULL_STOP)
+    );
+
+    /**
+     * Slowest event handlers since {0}: followed by the latency of up to ten handlers.
+     */
+    Args1<EventBusMetrics> EVENT_METRICS = metrics -> {
+        final List<EventBusMetrics.HandlerStats> handlers = metrics.handlers();
+        final TextComponent.Builder builder = text().append(prefixed(translatable()
+            .key("schat.command.metrics.header")
+            .color(GREEN)
+            .args(text(metrics.since().toString(), AQUA))
+        ));
+        if (handlers.isEmpty())
+            return builder.append(space()).append(translatable("schat.command.misc.none", AQUA)).build();
+        for (final EventBusMetrics.HandlerStats stats : handlers.subList(0, Math.min(10, handlers.size()))) {
+            builder.append(newline())
+                .append(text(stats.name(), GOLD))
+                .append(text(" (" + stats.eventClass().getSimpleName() + ") ", DARK_GRAY))
+                .append(text(stats.latency().count() + " calls, p99 " + formatMillis(stats.latency().percentileNanos(99))
+                    + ", max " + formatMillis(stats.latency().maxNanos()), GRAY));
+            if (stats.slowInvocations() > 0)
+                builder.append(text(", " + stats.slowInvocations() + " slow", RED));
+        }
+        return builder.build();
+    };
+
+    /**
+     * Dumped the event metrics to: {0}.
+     */
+    Args1<Path> METRICS_DUMPED = file -> prefixed(translatable()
+        .key("schat.command.metrics.dump.success")
+        .color(GREEN)
+        .args(text(file.toString(), AQUA))
+        .append(FULL_STOP)
+    );
+
+    /**
+     * Unable to dump the event metrics to: {0}.
+     */
+    Args1<Path> METRICS_DUMP_ERROR = file -> prefixed(translatable()
+        .key("schat.command.metrics.dump.error")
+        .color(RED)
+        .args(text(file.toString(), AQUA))
+        .append(FULL_STOP)
+    );
+
+    /**
+     * Reset the event metrics.
+     */
+    Args0 METRICS_RESET = () -> prefixed(translatable()
+        .key("schat.command.metrics.reset")
+        .color(GREEN)
+        .append(FULL_STOP)
+    );
+
     static TextComponent prefixed(ComponentLike component) {
         return text()
             .append(PREFIX_COMPONENT)
@@ -0,0 +1,257 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import net.silthus.schat.messenger.MessengerGateway;
+import net.silthus.schat.platform.plugin.scheduler.SchedulerAdapter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A gateway that coalesces outgoing messages into batches before handing them to the actual gateway.
+ *
+ * <p>A batch is sent once it reaches {@link Config#maxMessages()} messages, once the next message
+ * would exceed {@link Config#maxBytes()} or after {@link Config#maxDelay()} has passed since the
+ * first message was queued. A batch containing a single message is sent as is.</p>
+ *
+ * <p>Receivers detect batches with {@link #isBatch(byte[])} and split them with {@link #unpack(byte[])}.</p>
+ *
+ * @since 1.0.0
+ */
+public final class BatchingMessengerGateway implements MessengerGateway {
+
+    static final byte BATCH_MARKER = (byte) 0xFB;
+    private static final int MAX_HEADER_SIZE = 6;
+
+    /**
+     * Wraps the given gateway with a batching gateway if batching is enabled in the config.
+     *
+     * @param gateway the gateway that sends the batches
+     * @param scheduler the scheduler used to send batches after the max delay
+     * @param config the batching config
+     * @return the batching gateway or the given gateway if batching is disabled
+     * @since 1.0.0
+     */
+    public static @NotNull MessengerGateway batching(@NonNull MessengerGateway gateway, @NonNull SchedulerAdapter scheduler, @NonNull Config config) {
+        if (!config.enabled())
+            return gateway;
+        return new BatchingMessengerGateway(gateway, scheduler, config);
+    }
+
+    /**
+     * Checks if the given payload is a batch of messages.
+     *
+     * @param encodedMessage the received payload
+     * @return true if the payload must be unpacked
+     * @since 1.0.0
+     */
+    public static boolean isBatch(byte @NonNull [] encodedMessage) {
+        return encodedMessage.length > 0 && encodedMessage[0] == BATCH_MARKER;
+    }
+
+    /**
+     * Splits the batch into the individual encoded messages.
+     *
+     * @param batch the batch
+     * @return the encoded messages in the order they were sent
+     * @throws IllegalArgumentException if the payload is not a valid batch
+     * @since 1.0.0
+     */
+    public static @NotNull List<byte[]> unpack(byte @NonNull [] batch) {
+        if (!isBatch(batch))
+            throw new IllegalArgumentException("The payload is not a batch of plugin messages.");
+        final int[] position = {1};
+        final int count = readVarInt(batch, position);
+        final List<byte[]> messages = new ArrayList<>(Math.min(count, batch.length));
+        for (int i = 0; i < count; i++) {
+            final int length = readVarInt(batch, position);
+            if (length < 0 || length > batch.length - position[0])
+                throw new IllegalArgumentException("The batch of plugin messages is truncated.");
+            final byte[] message = new byte[length];
+            System.arraycopy(batch, position[0], message, 0, length);
+            position[0] += length;
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    static byte[] pack(List<byte[]> messages) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(framedSize(messages));
+        out.write(BATCH_MARKER);
+        writeVarInt(out, messages.size());
+        for (final byte[] message : messages) {
+            writeVarInt(out, message.length);
+            out.write(message, 0, message.length);
+        }
+        return out.toByteArray();
+    }
+
+    private final MessengerGateway gateway;
+    private final SchedulerAdapter scheduler;
+    private final Config config;
+
+    private final List<byte[]> pending = new ArrayList<>();
+    private int pendingBytes = MAX_HEADER_SIZE;
+    private boolean flushScheduled = false;
+
+    private BatchingMessengerGateway(MessengerGateway gateway, SchedulerAdapter scheduler, Config config) {
+        this.gateway = gateway;
+        this.scheduler = scheduler;
+        this.config = config;
+    }
+
+    @Override
+    public synchronized void sendOutgoingMessage(byte[] encodedMessage) {
+        final int size = varIntSize(encodedMessage.length) + encodedMessage.length;
+        if (pendingBytes + size > config.maxBytes())
+            flush();
+        if (MAX_HEADER_SIZE + size > config.maxBytes()) {
+            gateway.sendOutgoingMessage(encodedMessage);
+            return;
+        }
+
+        pending.add(encodedMessage);
+        pendingBytes += size;
+
+        if (pending.size() >= config.maxMessages())
+            flush();
+        else if (!flushScheduled)
+            scheduleFlush();
+    }
+
+    /**
+     * Sends all pending messages immediately.
+     *
+     * @since 1.0.0
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty())
+            return;
+        if (pending.size() == 1)
+            gateway.sendOutgoingMessage(pending.get(0));
+        else
+            gateway.sendOutgoingMessage(pack(pending));
+        pending.clear();
+        pendingBytes = MAX_HEADER_SIZE;
+    }
+
+    private void scheduleFlush() {
+        flushScheduled = true;
+        scheduler.asyncLater(this::scheduledFlush, config.maxDelay().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void scheduledFlush() {
+        flushScheduled = false;
+        flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        gateway.close();
+    }
+
+    private static int framedSize(List<byte[]> messages) {
+        int size = MAX_HEADER_SIZE;
+        for (final byte[] message : messages)
+            size += varIntSize(message.length) + message.length;
+        return size;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position[0] >= bytes.length)
+                throw new IllegalArgumentException("The batch of plugin messages is truncated.");
+            final int b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("The batch of plugin messages is malformed.");
+    }
+
+    /**
+     * The batching config.
+     *
+     * @param enabled true if outgoing messages should be batched
+     * @param maxMessages the maximum number of messages in a batch
+     * @param maxBytes the maximum size of a batch in bytes
+     * @param maxDelay the maximum time a message waits for other messages
+     * @since 1.0.0
+     */
+    public record Config(boolean enabled, int maxMessages, int maxBytes, @NonNull Duration maxDelay) {
+
+        /**
+         * Batching is disabled and every message is sent on its own.
+         *
+         * @since 1.0.0
+         */
+        public static final Config DISABLED = new Config(false, 32, 16384, Duration.ofMillis(50));
+
+        public Config {
+            if (maxMessages < 1)
+                throw new IllegalArgumentException("A batch must contain at least one message.");
+            if (maxBytes < MAX_HEADER_SIZE + 1)
+                throw new IllegalArgumentException("The maximum batch size must be at least " + (MAX_HEADER_SIZE + 1) + " bytes.");
+            if (maxDelay.isNegative())
+                throw new IllegalArgumentException("The maximum batch delay must not be negative.");
+        }
+
+        /**
+         * Checks that every batch fits into a single message of the given maximum size.
+         *
+         * @param maxMessageSize the maximum size of a message in bytes, e.g. of the framing
+         * @throws IllegalArgumentException if the maximum batch size exceeds the maximum message size
+         * @since 1.0.0
+         */
+        public void requireFits(int maxMessageSize) {
+            if (enabled && maxBytes > maxMessageSize)
+                throw new IllegalArgumentException("The maximum batch size of " + maxBytes
+                    + " bytes exceeds the maximum message size of " + maxMessageSize + " bytes.");
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Splits encoded messages into length-prefixed frames that fit into a single plugin message
+ * and reassembles them on the receiving side.
+ *
+ * <p>Every frame starts with a header containing the id of the message, the index of the frame,
+ * the number of frames and the total length of the message. Frames of a message may arrive in any order
+ * and interleaved with frames of other messages. Proxies forward frames unchanged and only collect the frames
+ * of a message if they have to queue it, so a message is always queued as a whole.</p>
+ *
+ * <p>Each server must use its own {@link ChunkedFraming} instance to keep the message ids unique.</p>
+ *
+ * @since 1.0.0
+ */
+public final class ChunkedFraming {
+
+    static final byte FRAME_MARKER = (byte) 0xFC;
+    static final int HEADER_SIZE = 1 + Long.BYTES + Short.BYTES + Short.BYTES + Integer.BYTES;
+    private static final int MAX_FRAMES = 0xFFFF;
+    private static final int COMPLETED_MESSAGE_IDS = 1024;
+
+    /**
+     * Creates a new framing that splits messages according to the given config.
+     *
+     * @param config the framing config
+     * @return the framing
+     * @since 1.0.0
+     */
+    public static @NotNull ChunkedFraming chunkedFraming(@NonNull Config config) {
+        return new ChunkedFraming(config);
+    }
+
+    /**
+     * Checks if the given payload is a frame created by a {@link ChunkedFraming}.
+     *
+     * @param payload the received payload
+     * @return true if the payload is a frame
+     * @since 1.0.0
+     */
+    public static boolean isFrame(byte @NonNull [] payload) {
+        return payload.length >= HEADER_SIZE && payload[0] == FRAME_MARKER;
+    }
+
+    static long messageId(byte[] frame) {
+        return ByteBuffer.wrap(frame, 1, Long.BYTES).getLong();
+    }
+
+    static int frameIndex(byte[] frame) {
+        return Short.toUnsignedInt(ByteBuffer.wrap(frame, 1 + Long.BYTES, Short.BYTES).getShort());
+    }
+
+    static int frameCount(byte[] frame) {
+        return Short.toUnsignedInt(ByteBuffer.wrap(frame, 1 + Long.BYTES + Short.BYTES, Short.BYTES).getShort());
+    }
+
+    private final Config config;
+    private final AtomicLong nextMessageId = new AtomicLong(ThreadLocalRandom.current().nextLong());
+
+    private ChunkedFraming(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * Splits the encoded message into frames of at most {@link Config#maxFrameSize()} bytes.
+     *
+     * @param encodedMessage the encoded message
+     * @return the frames in order
+     * @throws IllegalArgumentException if the message is larger than {@link Config#maxMessageSize()}
+     * @since 1.0.0
+     */
+    public @NotNull List<byte[]> frame(byte @NonNull [] encodedMessage) {
+        if (encodedMessage.length > config.maxMessageSize())
+            throw new IllegalArgumentException("The message has " + encodedMessage.length
+                + " bytes and exceeds the maximum message size of " + config.maxMessageSize() + " bytes.");
+
+        final int chunkSize = config.maxFrameSize() - HEADER_SIZE;
+        final int count = Math.max(1, (encodedMessage.length + chunkSize - 1) / chunkSize);
+        final long messageId = nextMessageId.getAndIncrement();
+        final List<byte[]> frames = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            final int offset = index * chunkSize;
+            final int length = Math.min(chunkSize, encodedMessage.length - offset);
+            final byte[] frame = new byte[HEADER_SIZE + length];
+            ByteBuffer.wrap(frame)
+                .put(FRAME_MARKER)
+                .putLong(messageId)
+                .putShort((short) index)
+                .putShort((short) count)
+                .putInt(encodedMessage.length)
+                .put(encodedMessage, offset, length);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    /**
+     * Creates a new reassembler that collects the frames of messages sent with the same config.
+     *
+     * @return the reassembler
+     * @since 1.0.0
+     */
+    public @NotNull Reassembler reassembler() {
+        return new Reassembler(config, System::nanoTime);
+    }
+
+    /**
+     * Collects received frames until all frames of a message arrived.
+     *
+     * <p>Incomplete messages are dropped once they are older than {@link Config#reassemblyTimeout()}
+     * or if the buffered frames of all incomplete messages exceed {@link Config#maxPendingBytes()},
+     * starting with the oldest message.</p>
+     *
+     * <p>The ids of the last completed messages are remembered to drop frames that are delivered again
+     * after their message was reassembled.</p>
+     *
+     * @since 1.0.0
+     */
+    @Log(topic = "sChat:MessengerGateway")
+    public static final class Reassembler {
+
+        private final Config config;
+        private final LongSupplier clock;
+        private final Map<Long, Pending> pending = new LinkedHashMap<>();
+        private final Set<Long> completed = Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > COMPLETED_MESSAGE_IDS;
+            }
+        });
+        private long pendingBytes = 0;
+
+        Reassembler(Config config, LongSupplier clock) {
+            this.config = config;
+            this.clock = clock;
+        }
+
+        /**
+         * Accepts a received frame.
+         *
+         * @param frame the received frame
+         * @return the complete encoded message or null if frames are still missing
+         * @throws IllegalArgumentException if the frame is malformed or the message exceeds the maximum message size
+         * @since 1.0.0
+         */
+        public synchronized byte @Nullable [] accept(byte @NonNull [] frame) {
+            if (!isFrame(frame))
+                throw new IllegalArgumentException("The payload is not a frame of a plugin message.");
+            final ByteBuffer header = ByteBuffer.wrap(frame, 1, HEADER_SIZE - 1);
+            final long messageId = header.getLong();
+            final int index = Short.toUnsignedInt(header.getShort());
+            final int count = Short.toUnsignedInt(header.getShort());
+            final int totalLength = header.getInt();
+            final int length = frame.length - HEADER_SIZE;
+            if (count == 0 || index >= count || totalLength < 0 || length > totalLength)
+                throw new IllegalArgumentException("The frame of the plugin message is malformed.");
+            if (totalLength > config.maxMessageSize())
+                throw new IllegalArgumentException("The message has " + totalLength
+                    + " bytes and exceeds the maximum message size of " + config.maxMessageSize() + " bytes.");
+
+            if (count == 1)
+                return single(frame, totalLength);
+
+            if (completed.contains(messageId))
+                return null;
+            final long now = clock.getAsLong();
+            expire(now);
+            Pending message = pending.get(messageId);
+            if (message == null) {
+                message = new Pending(count, totalLength, now);
+                pending.put(messageId, message);
+            } else if (message.frames.length != count || message.totalLength != totalLength) {
+                throw new IllegalArgumentException("The frame does not match the previous frames of the message.");
+            }
+            if (message.frames[index] != null)
+                return null;
+
+            message.frames[index] = frame;
+            message.received++;
+            message.receivedBytes += length;
+            pendingBytes += length;
+
+            if (message.received == count) {
+                pending.remove(messageId);
+                pendingBytes -= message.receivedBytes;
+                completed.add(messageId);
+                return message.assemble();
+            }
+            evictOverflow(messageId);
+            return null;
+        }
+
+        /**
+         * Gets the number of messages that are still missing frames.
+         *
+         * @return the number of incomplete messages
+         * @since 1.0.0
+         */
+        public synchronized int pendingMessages() {
+            return pending.size();
+        }
+
+        /**
+         * Gets the number of bytes buffered for incomplete messages.
+         *
+         * @return the buffered bytes
+         * @since 1.0.0
+         */
+        public synchronized long pendingBytes() {
+            return pendingBytes;
+        }
+
+        private static byte[] single(final byte[] frame, final int totalLength) {
+            if (frame.length - HEADER_SIZE != totalLength)
+                throw new IllegalArgumentException("The frame of the plugin message is truncated.");
+            final byte[] message = new byte[totalLength];
+            System.arraycopy(frame, HEADER_SIZE, message, 0, totalLength);
+            return message;
+        }
+
+        private void expire(final long now) {
+            final long timeout = config.reassemblyTimeout().toNanos();
+            final Iterator<Map.Entry<Long, Pending>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Pending message = iterator.next().getValue();
+                if (now - message.createdAt < timeout)
+                    return;
+                iterator.remove();
+                pendingBytes -= message.receivedBytes;
+                log.warning("Dropped an incomplete plugin message after " + config.reassemblyTimeout().toSeconds()
+                    + "s with " + message.received + " of " + message.frames.length + " frames.");
+            }
+        }
+
+        private void evictOverflow(final long current) {
+            final Iterator<Map.Entry<Long, Pending>> iterator = pending.entrySet().iterator();
+            while (pendingBytes > config.maxPendingBytes() && iterator.hasNext()) {
+                final Map.Entry<Long, Pending> entry = iterator.next();
+                if (entry.getKey() == current && pending.size() > 1)
+                    continue;
+                iterator.remove();
+                pendingBytes -= entry.getValue().receivedBytes;
+                log.warning("Dropped an incomplete plugin message, because the reassembly buffer exceeded "
+                    + config.maxPendingBytes() + " bytes.");
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        private final byte[][] frames;
+        private final int totalLength;
+        private final long createdAt;
+        private int received = 0;
+        private int receivedBytes = 0;
+
+        private Pending(int count, int totalLength, long createdAt) {
+            this.frames = new byte[count][];
+            this.totalLength = totalLength;
+            this.createdAt = createdAt;
+        }
+
+        private byte[] assemble() {
+            if (receivedBytes != totalLength)
+                throw new IllegalArgumentException("The frames of the plugin message do not add up to its length.");
+            final byte[] message = new byte[totalLength];
+            int offset = 0;
+            for (final byte[] frame : frames) {
+                final int length = frame.length - HEADER_SIZE;
+                System.arraycopy(frame, HEADER_SIZE, message, offset, length);
+                offset += length;
+            }
+            return message;
+        }
+    }
+
+    /**
+     * The framing config.
+     *
+     * @param maxFrameSize      the maximum size of a single frame in bytes, including the header
+     * @param maxMessageSize    the maximum size of a message in bytes
+     * @param maxPendingBytes   the maximum number of bytes buffered for incomplete messages
+     * @param reassemblyTimeout the time after which incomplete messages are dropped
+     * @since 1.0.0
+     */
+    public record Config(int maxFrameSize, int maxMessageSize, int maxPendingBytes, @NonNull Duration reassemblyTimeout) {
+
+        /**
+         * Frames fit into the 32766 bytes Bukkit allows for a single plugin message.
+         *
+         * @since 1.0.0
+         */
+        public static final Config DEFAULT = new Config(32000, 8 * 1024 * 1024, 16 * 1024 * 1024, Duration.ofSeconds(30));
+
+        public Config {
+            if (maxFrameSize <= HEADER_SIZE || maxFrameSize > 32766)
+                throw new IllegalArgumentException("The maximum frame size must be between " + (HEADER_SIZE + 1) + " and 32766 bytes.");
+            if (maxMessageSize < 0 || (long) maxMessageSize > (long) MAX_FRAMES * (maxFrameSize - HEADER_SIZE))
+                throw new IllegalArgumentException("The maximum message size must fit into " + MAX_FRAMES + " frames.");
+            if (maxPendingBytes < maxMessageSize)
+                throw new IllegalArgumentException("The reassembly buffer must be able to hold at least one message.");
+            if (reassemblyTimeout.isNegative() || reassemblyTimeout.isZero())
+                throw new IllegalArgumentException("The reassembly timeout must be positive.");
+        }
+    }
+}
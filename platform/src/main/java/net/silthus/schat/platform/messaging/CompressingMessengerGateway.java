@@ -0,0 +1,344 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import lombok.NonNull;
+import net.silthus.schat.messenger.MessengerGateway;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A gateway that deflates outgoing messages before handing them to the actual gateway.
+ *
+ * <p>Messages smaller than {@link Config#threshold()} and messages that do not get smaller
+ * are sent as is. Json messages are compressed with a preset {@link Dictionary} of sample sChat
+ * messages, which makes even short messages worth compressing.</p>
+ *
+ * <p>A compressed payload starts with a marker byte, the id of the dictionary and the uncompressed
+ * length as a varint, followed by the zlib stream. Receivers detect compressed payloads with
+ * {@link #isCompressed(byte[])} and restore them with {@link #decompress(byte[], int)}.</p>
+ *
+ * @since 1.0.0
+ */
+public final class CompressingMessengerGateway implements MessengerGateway {
+
+    static final byte COMPRESSED_MARKER = (byte) 0xFD;
+
+    /**
+     * Wraps the given gateway with a compressing gateway if compression is enabled in the config.
+     *
+     * @param gateway the gateway that sends the compressed messages
+     * @param config the compression config
+     * @param dictionary the dictionary matching the plugin message format
+     * @param metrics the metrics updated for every outgoing message
+     * @return the compressing gateway or the given gateway if compression is disabled
+     * @since 1.0.0
+     */
+    public static @NotNull MessengerGateway compressing(@NonNull MessengerGateway gateway,
+                                                        @NonNull Config config,
+                                                        @NonNull Dictionary dictionary,
+                                                        @NonNull CompressionMetrics metrics) {
+        if (!config.enabled())
+            return gateway;
+        return new CompressingMessengerGateway(gateway, config, dictionary, metrics);
+    }
+
+    /**
+     * Checks if the given payload is a compressed message.
+     *
+     * @param encodedMessage the received payload
+     * @return true if the payload must be decompressed
+     * @since 1.0.0
+     */
+    public static boolean isCompressed(byte @NonNull [] encodedMessage) {
+        return encodedMessage.length > 0 && encodedMessage[0] == COMPRESSED_MARKER;
+    }
+
+    /**
+     * Restores the original message from the compressed payload.
+     *
+     * @param payload the compressed payload
+     * @param maxSize the maximum size of the decompressed message in bytes
+     * @return the original message
+     * @throws IllegalArgumentException if the payload is not a valid compressed message or exceeds the max size
+     * @since 1.0.0
+     */
+    public static byte @NotNull [] decompress(byte @NonNull [] payload, int maxSize) {
+        if (!isCompressed(payload))
+            throw new IllegalArgumentException("The payload is not a compressed plugin message.");
+        if (payload.length < 3)
+            throw new IllegalArgumentException("The compressed plugin message is truncated.");
+        final Dictionary dictionary = Dictionary.byId(payload[1]);
+        final int[] position = {2};
+        final int length = readVarInt(payload, position);
+        if (length < 1 || length > maxSize)
+            throw new IllegalArgumentException("The compressed plugin message has an invalid size of " + length + " bytes (max " + maxSize + ").");
+
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload, position[0], payload.length - position[0]);
+            final byte[] message = new byte[length];
+            int offset = 0;
+            while (!inflater.finished()) {
+                final int inflated = inflater.inflate(message, offset, length - offset);
+                offset += inflated;
+                if (inflated > 0)
+                    continue;
+                if (inflater.needsDictionary()) {
+                    if (dictionary == Dictionary.NONE)
+                        throw new IllegalArgumentException("The compressed plugin message requires a dictionary.");
+                    inflater.setDictionary(dictionary.bytes);
+                } else if (inflater.needsInput())
+                    throw new IllegalArgumentException("The compressed plugin message is truncated.");
+                else
+                    throw new IllegalArgumentException("The compressed plugin message is larger than announced.");
+            }
+            if (offset != length)
+                throw new IllegalArgumentException("The compressed plugin message is smaller than announced.");
+            return message;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("The compressed plugin message is malformed.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private final MessengerGateway gateway;
+    private final Config config;
+    private final Dictionary dictionary;
+    private final CompressionMetrics metrics;
+    private final Deflater deflater;
+
+    private CompressingMessengerGateway(MessengerGateway gateway, Config config, Dictionary dictionary, CompressionMetrics metrics) {
+        this.gateway = gateway;
+        this.config = config;
+        this.dictionary = dictionary;
+        this.metrics = metrics;
+        this.deflater = new Deflater(config.level());
+    }
+
+    @Override
+    public void sendOutgoingMessage(byte[] encodedMessage) {
+        if (encodedMessage.length < config.threshold() || encodedMessage.length == 0) {
+            metrics.recordUncompressed(encodedMessage.length, 0);
+            gateway.sendOutgoingMessage(encodedMessage);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final byte[] compressed = compress(encodedMessage);
+        final long nanos = System.nanoTime() - start;
+        if (compressed == null) {
+            metrics.recordUncompressed(encodedMessage.length, nanos);
+            gateway.sendOutgoingMessage(encodedMessage);
+        } else {
+            metrics.recordCompressed(encodedMessage.length, compressed.length, nanos);
+            gateway.sendOutgoingMessage(compressed);
+        }
+    }
+
+    /**
+     * Deflates the message into a buffer no larger than the message itself.
+     *
+     * @return the compressed payload or null if compression would not save any bytes
+     */
+    private synchronized byte[] compress(byte[] message) {
+        final byte[] buffer = new byte[message.length];
+        if (buffer.length <= 2 + varIntSize(message.length))
+            return null;
+        int position = 0;
+        buffer[position++] = COMPRESSED_MARKER;
+        buffer[position++] = dictionary.id;
+        position = writeVarInt(buffer, position, message.length);
+
+        deflater.reset();
+        if (dictionary != Dictionary.NONE)
+            deflater.setDictionary(dictionary.bytes);
+        deflater.setInput(message);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (position == buffer.length)
+                return null;
+            position += deflater.deflate(buffer, position, buffer.length - position);
+        }
+
+        final byte[] compressed = new byte[position];
+        System.arraycopy(buffer, 0, compressed, 0, position);
+        return compressed;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            deflater.end();
+        }
+        gateway.close();
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarInt(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position[0] >= bytes.length)
+                throw new IllegalArgumentException("The compressed plugin message is truncated.");
+            final int b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("The compressed plugin message is malformed.");
+    }
+
+    /**
+     * The preset dictionaries used to compress plugin messages.
+     *
+     * <p>A dictionary is a sample of the messages that are compressed with it. The deflate window is 32 KiB,
+     * so only the last 32 KiB of the samples are used. Deflate encodes shorter distances with fewer bits,
+     * which is why the most frequent messages come last.</p>
+     *
+     * <p>A dictionary must never change once it was released, because servers running different versions
+     * must be able to decompress each other's messages. Record a new dictionary with a new id instead.</p>
+     *
+     * @since 1.0.0
+     */
+    public enum Dictionary {
+        /**
+         * No dictionary is used.
+         *
+         * <p>Used for the binary plugin message format, which already writes every object key only once
+         * and packs ids and timestamps, leaving little repeated content a dictionary could reference.</p>
+         *
+         * @since 1.0.0
+         */
+        NONE((byte) 0, new byte[0]),
+        /**
+         * A dictionary for the compact json plugin message format.
+         *
+         * <p>It is the resource {@code json-v2.dict} next to this class. Each line is a compact plugin message as written by the
+         * json serializer on a network running the default config: a chatter leaving, a chatter leaving and joining
+         * the global channel, a system message and two chat messages in the global channel. The messages are ordered
+         * from the least to the most frequent type.</p>
+         *
+         * <p>Id 1 was an earlier dictionary of pretty printed json and must not be reused.</p>
+         *
+         * @since 1.0.0
+         */
+        JSON((byte) 2, loadSamples("json-v2.dict"));
+
+        private static final int WINDOW_SIZE = 32 * 1024;
+
+        private final byte id;
+        private final byte[] bytes;
+
+        Dictionary(byte id, byte[] bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Gets the dictionary for messages encoded with the given plugin message format.
+         *
+         * @param format the plugin message format, json or binary
+         * @return the dictionary for the format
+         * @since 1.0.0
+         */
+        public static @NotNull Dictionary forFormat(@NonNull String format) {
+            return format.equalsIgnoreCase("json") ? JSON : NONE;
+        }
+
+        private static Dictionary byId(byte id) {
+            for (final Dictionary dictionary : values()) {
+                if (dictionary.id == id)
+                    return dictionary;
+            }
+            throw new IllegalArgumentException("The compressed plugin message uses the unknown dictionary " + id + ".");
+        }
+
+        private static byte[] loadSamples(String resource) {
+            try (InputStream samples = CompressingMessengerGateway.class.getResourceAsStream(resource)) {
+                if (samples == null)
+                    throw new IllegalStateException("The compression dictionary " + resource + " is missing.");
+                final byte[] bytes = samples.readAllBytes();
+                if (bytes.length <= WINDOW_SIZE)
+                    return bytes;
+                return Arrays.copyOfRange(bytes, bytes.length - WINDOW_SIZE, bytes.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load the compression dictionary " + resource + ".", e);
+            }
+        }
+    }
+
+    /**
+     * The compression config.
+     *
+     * @param enabled true if outgoing messages should be compressed
+     * @param threshold the minimum size of a message in bytes before it is compressed
+     * @param level the deflate level from 1 (fastest) to 9 (smallest)
+     * @param maxMessageSize the maximum size of a decompressed message in bytes
+     * @since 1.0.0
+     */
+    public record Config(boolean enabled, int threshold, int level, int maxMessageSize) {
+
+        /**
+         * Compression is disabled and every message is sent as is.
+         *
+         * <p>Compressed messages from other servers are still decompressed.</p>
+         *
+         * @since 1.0.0
+         */
+        public static final Config DISABLED = new Config(false, 256, 6, 8 * 1024 * 1024);
+
+        public Config {
+            if (threshold < 0)
+                throw new IllegalArgumentException("The compression threshold must not be negative.");
+            if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+                throw new IllegalArgumentException("The compression level must be between " + Deflater.BEST_SPEED + " and " + Deflater.BEST_COMPRESSION + ".");
+            if (maxMessageSize < 1)
+                throw new IllegalArgumentException("The maximum decompressed message size must be positive.");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Counts the work done by the {@link CompressingMessengerGateway} and the receiving {@link MessagingService}.
+ *
+ * <p>The {@link #ratio()} compares the bytes handed to the transport with the bytes produced by the serializer,
+ * including messages that were sent uncompressed. All counters can be updated from any thread.</p>
+ *
+ * @since 1.0.0
+ */
+public final class CompressionMetrics {
+
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder uncompressedMessages = new LongAdder();
+    private final LongAdder decompressedMessages = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder decompressionNanos = new LongAdder();
+
+    void recordCompressed(int originalSize, int compressedSize, long nanos) {
+        compressedMessages.increment();
+        bytesIn.add(originalSize);
+        bytesOut.add(compressedSize);
+        compressionNanos.add(nanos);
+    }
+
+    void recordUncompressed(int size, long nanos) {
+        uncompressedMessages.increment();
+        bytesIn.add(size);
+        bytesOut.add(size);
+        compressionNanos.add(nanos);
+    }
+
+    void recordDecompressed(long nanos) {
+        decompressedMessages.increment();
+        decompressionNanos.add(nanos);
+    }
+
+    /**
+     * Gets the number of outgoing messages that were sent compressed.
+     *
+     * @return the number of compressed messages
+     * @since 1.0.0
+     */
+    public long compressedMessages() {
+        return compressedMessages.sum();
+    }
+
+    /**
+     * Gets the number of outgoing messages that were sent as is,
+     * because they were below the threshold or did not get smaller.
+     *
+     * @return the number of uncompressed messages
+     * @since 1.0.0
+     */
+    public long uncompressedMessages() {
+        return uncompressedMessages.sum();
+    }
+
+    /**
+     * Gets the number of incoming messages that were decompressed.
+     *
+     * @return the number of decompressed messages
+     * @since 1.0.0
+     */
+    public long decompressedMessages() {
+        return decompressedMessages.sum();
+    }
+
+    /**
+     * Gets the number of bytes produced by the serializer for all outgoing messages.
+     *
+     * @return the bytes before compression
+     * @since 1.0.0
+     */
+    public long bytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * Gets the number of bytes handed to the transport for all outgoing messages.
+     *
+     * @return the bytes after compression
+     * @since 1.0.0
+     */
+    public long bytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Gets the ratio between the bytes sent and the bytes produced by the serializer.
+     *
+     * @return the compression ratio, {@code 1.0} if nothing was sent yet
+     * @since 1.0.0
+     */
+    public double ratio() {
+        final long in = bytesIn();
+        return in == 0 ? 1.0 : (double) bytesOut() / in;
+    }
+
+    /**
+     * Gets the CPU time spent compressing outgoing messages.
+     *
+     * @return the time spent compressing
+     * @since 1.0.0
+     */
+    public @NotNull Duration compressionTime() {
+        return Duration.ofNanos(compressionNanos.sum());
+    }
+
+    /**
+     * Gets the CPU time spent decompressing incoming messages.
+     *
+     * @return the time spent decompressing
+     * @since 1.0.0
+     */
+    public @NotNull Duration decompressionTime() {
+        return Duration.ofNanos(decompressionNanos.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionMetrics{"
+            + "compressed=" + compressedMessages()
+            + ", uncompressed=" + uncompressedMessages()
+            + ", decompressed=" + decompressedMessages()
+            + ", bytesIn=" + bytesIn()
+            + ", bytesOut=" + bytesOut()
+            + ", ratio=" + String.format(Locale.ROOT, "%.3f", ratio())
+            + ", compressionTime=" + compressionTime().toMillis() + "ms"
+            + ", decompressionTime=" + decompressionTime().toMillis() + "ms"
+            + '}';
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import net.silthus.schat.messenger.MessageEnvelope;
+import net.silthus.schat.messenger.PluginMessageSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.isBatch;
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.unpack;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.decompress;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.isCompressed;
+
+/**
+ * Decides which servers a message relayed by the proxy is forwarded to.
+ *
+ * <p>The router keeps track of the server every chatter is connected to and the channels the chatter
+ * is a member of. Both are read from the {@code ChatterJoined}, {@code ChatterLeft}, {@code ChatterJoinedChannel}
+ * and {@code ChatterLeftChannel} messages that pass the proxy anyway. Global chat messages are then only forwarded
+ * to servers with a member of the target channel or a target chatter. All other messages, including the membership
+ * updates themselves, are forwarded to every server.</p>
+ *
+ * <p>Messages to channels or chatters the router knows no server of are forwarded to every server,
+ * because their members may have joined before the proxy saw them, e.g. after a proxy restart.</p>
+ *
+ * <p>The origin of a message already processed it and never gets it back.
+ * Messages that cannot be read are forwarded to every server.</p>
+ *
+ * @since 1.0.0
+ */
+@Log(topic = "sChat:MessageRouter")
+public final class MessageRouter {
+
+    static final String CHATTER_JOINED = "net.silthus.schat.platform.chatter.ConnectionListener$ChatterJoined";
+    static final String CHATTER_LEFT = "net.silthus.schat.platform.chatter.ConnectionListener$ChatterLeft";
+    static final String CHATTER_JOINED_CHANNEL = "net.silthus.schat.features.GlobalChatFeature$ChatterJoinedChannel";
+    static final String CHATTER_LEFT_CHANNEL = "net.silthus.schat.features.GlobalChatFeature$ChatterLeftChannel";
+    static final String SEND_GLOBAL_MESSAGE = "net.silthus.schat.features.GlobalChatFeature$SendGlobalMessage";
+
+    private static final String CHATTER_PREFIX = "chatter:";
+    private static final String CHANNEL_PREFIX = "channel:";
+
+    /**
+     * Creates a new router that reads messages with the given serializer.
+     *
+     * @param serializer the serializer matching the plugin message format of the servers
+     * @param maxMessageSize the maximum size of a decompressed message in bytes
+     * @return the router
+     * @since 1.0.0
+     */
+    public static @NotNull MessageRouter messageRouter(@NonNull PluginMessageSerializer serializer, int maxMessageSize) {
+        return new MessageRouter(serializer, maxMessageSize);
+    }
+
+    private final PluginMessageSerializer serializer;
+    private final int maxMessageSize;
+    private final Map<UUID, Member> members = new HashMap<>();
+    private final Map<String, Map<String, Integer>> channelServers = new HashMap<>();
+
+    private final LongAdder routedMessages = new LongAdder();
+    private final LongAdder broadcastMessages = new LongAdder();
+    private final LongAdder skippedDeliveries = new LongAdder();
+
+    private MessageRouter(PluginMessageSerializer serializer, int maxMessageSize) {
+        this.serializer = serializer;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Selects the servers the given message is forwarded to and updates the routing table.
+     *
+     * @param origin the name of the server that sent the message
+     * @param encodedMessage the complete, reassembled message
+     * @param servers the names of all servers known to the proxy
+     * @return the names of the servers that should receive the message
+     * @since 1.0.0
+     */
+    public @NotNull Set<String> route(@NonNull String origin, byte @NonNull [] encodedMessage, @NonNull Collection<String> servers) {
+        final Set<String> interested = new HashSet<>();
+        boolean broadcast;
+        try {
+            broadcast = !collectInterestedServers(origin, encodedMessage, interested);
+        } catch (Exception e) {
+            log.log(Level.FINE, "Failed to read plugin message (" + encodedMessage.length + " bytes) - forwarding it to all servers", e);
+            broadcast = true;
+        }
+
+        final Set<String> recipients = new HashSet<>();
+        for (final String server : servers) {
+            if (!server.equals(origin) && (broadcast || interested.contains(server)))
+                recipients.add(server);
+        }
+        if (broadcast) {
+            broadcastMessages.increment();
+        } else {
+            routedMessages.increment();
+            skippedDeliveries.add(servers.size() - recipients.size() - (servers.contains(origin) ? 1 : 0));
+        }
+        return recipients;
+    }
+
+    /**
+     * Removes the chatter from the routing table, e.g. after the player left the network.
+     *
+     * @param chatter the id of the chatter
+     * @since 1.0.0
+     */
+    public synchronized void remove(@NonNull UUID chatter) {
+        final Member member = members.remove(chatter);
+        if (member != null && member.server != null)
+            member.channels.forEach(channel -> decrement(channel, member.server));
+    }
+
+    /**
+     * Gets the servers with at least one member of the given channel.
+     *
+     * @param channel the key of the channel
+     * @return the names of the servers
+     * @since 1.0.0
+     */
+    public synchronized @NotNull Set<String> servers(@NonNull String channel) {
+        return Set.copyOf(channelServers.getOrDefault(channel, Map.of()).keySet());
+    }
+
+    /**
+     * Gets the number of messages that were only forwarded to interested servers.
+     *
+     * @return the number of routed messages
+     * @since 1.0.0
+     */
+    public long routedMessages() {
+        return routedMessages.sum();
+    }
+
+    /**
+     * Gets the number of messages that were forwarded to all servers.
+     *
+     * @return the number of broadcast messages
+     * @since 1.0.0
+     */
+    public long broadcastMessages() {
+        return broadcastMessages.sum();
+    }
+
+    /**
+     * Gets the number of deliveries to servers that were saved by routing.
+     *
+     * @return the number of skipped deliveries
+     * @since 1.0.0
+     */
+    public long skippedDeliveries() {
+        return skippedDeliveries.sum();
+    }
+
+    private boolean collectInterestedServers(String origin, byte[] encodedMessage, Set<String> interested) {
+        if (isCompressed(encodedMessage))
+            return collectInterestedServers(origin, decompress(encodedMessage, maxMessageSize), interested);
+        if (isBatch(encodedMessage)) {
+            boolean routed = true;
+            for (final byte[] message : unpack(encodedMessage))
+                routed &= collectInterestedServers(origin, message, interested);
+            return routed;
+        }
+        return collectInterestedServers(origin, serializer.inspect(encodedMessage), interested);
+    }
+
+    private synchronized boolean collectInterestedServers(String origin, MessageEnvelope envelope, Set<String> interested) {
+        final JsonObject content = envelope.content();
+        if (envelope.is(CHATTER_JOINED)) {
+            final JsonObject chatter = content.getAsJsonObject("chatter");
+            joined(chatterId(chatter), origin);
+            for (final JsonElement channel : chatter.getAsJsonArray("channels"))
+                joinedChannel(chatterId(chatter), channelKey(channel));
+            return false;
+        }
+        if (envelope.is(CHATTER_LEFT)) {
+            left(chatterId(content.get("chatterId")), origin);
+            return false;
+        }
+        if (envelope.is(CHATTER_JOINED_CHANNEL)) {
+            joinedChannel(chatterId(content.get("chatter")), channelKey(content.get("channel")));
+            return false;
+        }
+        if (envelope.is(CHATTER_LEFT_CHANNEL)) {
+            leftChannel(chatterId(content.get("chatter")), channelKey(content.get("channel")));
+            return false;
+        }
+        if (envelope.is(SEND_GLOBAL_MESSAGE)) {
+            for (final JsonElement target : content.getAsJsonObject("message").getAsJsonArray("targets")) {
+                if (!collectTargetServers(target.getAsString(), interested))
+                    return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean collectTargetServers(String target, Set<String> interested) {
+        if (target.startsWith(CHANNEL_PREFIX)) {
+            final Map<String, Integer> servers = channelServers.get(target.substring(CHANNEL_PREFIX.length()));
+            if (servers == null || servers.isEmpty())
+                return false;
+            interested.addAll(servers.keySet());
+            return true;
+        }
+        if (target.startsWith(CHATTER_PREFIX)) {
+            final Member member = members.get(UUID.fromString(target.substring(CHATTER_PREFIX.length())));
+            if (member == null || member.server == null)
+                return false;
+            interested.add(member.server);
+            return true;
+        }
+        return false;
+    }
+
+    private void joined(UUID chatter, String server) {
+        final Member member = members.computeIfAbsent(chatter, id -> new Member());
+        if (server.equals(member.server))
+            return;
+        if (member.server != null)
+            member.channels.forEach(channel -> decrement(channel, member.server));
+        member.server = server;
+        member.channels.forEach(channel -> increment(channel, server));
+    }
+
+    // players switching servers join the new server before they leave the old one
+    private void left(UUID chatter, String server) {
+        final Member member = members.get(chatter);
+        if (member != null && server.equals(member.server))
+            remove(chatter);
+    }
+
+    private void joinedChannel(UUID chatter, String channel) {
+        final Member member = members.computeIfAbsent(chatter, id -> new Member());
+        if (member.channels.add(channel) && member.server != null)
+            increment(channel, member.server);
+    }
+
+    private void leftChannel(UUID chatter, String channel) {
+        final Member member = members.get(chatter);
+        if (member != null && member.channels.remove(channel) && member.server != null)
+            decrement(channel, member.server);
+    }
+
+    private void increment(String channel, String server) {
+        channelServers.computeIfAbsent(channel, key -> new HashMap<>()).merge(server, 1, Integer::sum);
+    }
+
+    private void decrement(String channel, String server) {
+        final Map<String, Integer> servers = channelServers.get(channel);
+        if (servers == null)
+            return;
+        servers.computeIfPresent(server, (key, count) -> count > 1 ? count - 1 : null);
+        if (servers.isEmpty())
+            channelServers.remove(channel);
+    }
+
+    private static UUID chatterId(JsonElement chatter) {
+        if (chatter.isJsonPrimitive())
+            return UUID.fromString(stripPrefix(chatter.getAsString(), CHATTER_PREFIX));
+        return UUID.fromString(chatter.getAsJsonObject().getAsJsonObject("identity").get("id").getAsString());
+    }
+
+    private static String channelKey(JsonElement channel) {
+        if (channel.isJsonPrimitive())
+            return stripPrefix(channel.getAsString(), CHANNEL_PREFIX);
+        return channel.getAsJsonObject().get("key").getAsString();
+    }
+
+    private static String stripPrefix(String value, String prefix) {
+        return value.startsWith(prefix) ? value.substring(prefix.length()) : value;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageRouter{"
+            + "routed=" + routedMessages()
+            + ", broadcast=" + broadcastMessages()
+            + ", skippedDeliveries=" + skippedDeliveries()
+            + '}';
+    }
+
+    private static final class Member {
+        private final Set<String> channels = new HashSet<>();
+        private @Nullable String server;
+    }
+}
@@ -24,9 +24,7 @@
 package net.silthus.schat.platform.messaging;
 
 import java.lang.reflect.Type;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
+import java.util.List;
 import java.util.logging.Level;
 import lombok.Getter;
 import lombok.NonNull;
@@ -40,31 +38,72 @@ import net.silthus.schat.messenger.PluginMessage;
 import net.silthus.schat.messenger.PluginMessageSerializer;
 import net.silthus.schat.platform.config.ConfigKeys;
 import net.silthus.schat.platform.config.SChatConfig;
+import net.silthus.schat.platform.plugin.scheduler.SchedulerAdapter;
 import org.jetbrains.annotations.NotNull;
 
 import static net.silthus.schat.platform.config.ConfigKeys.DEBUG;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_BATCHING;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_COMPRESSION;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_DEDUPLICATION;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_FRAMING;
+import static net.silthus.schat.platform.config.ConfigKeys.PLUGIN_MESSAGE_FORMAT;
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.batching;
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.isBatch;
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.unpack;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.compressing;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.decompress;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.isCompressed;
+import static net.silthus.schat.platform.messaging.ProcessedMessages.processedMessages;
 
 @Getter
 @Log(topic = "sChat")
 @Accessors(fluent = true)
 public class MessagingService implements Messenger, IncomingMessageConsumer {
 
-    public static MessagingService createMessagingService(GatewayProviderRegistry registry, PluginMessageSerializer serializer, SChatConfig config) {
+    public static MessagingService createMessagingService(GatewayProviderRegistry registry, PluginMessageSerializer serializer, SChatConfig config, SchedulerAdapter scheduler) {
         final String messenger = config.get(ConfigKeys.MESSENGER);
         log.info("Loading Messenger... \t[" + messenger.toUpperCase() + "]");
-        final MessengerGatewayProvider gatewayProvider = registry.get(messenger);
+        final MessengerGatewayProvider registeredProvider = registry.get(messenger);
+        final BatchingMessengerGateway.Config batching = config.get(MESSAGE_BATCHING);
+        final CompressingMessengerGateway.Config compression = config.get(MESSAGE_COMPRESSION);
+        batching.requireFits(Math.min(config.get(MESSAGE_FRAMING).maxMessageSize(), compression.maxMessageSize()));
+        final CompressingMessengerGateway.Dictionary dictionary = CompressingMessengerGateway.Dictionary.forFormat(config.get(PLUGIN_MESSAGE_FORMAT));
+        final CompressionMetrics compressionMetrics = new CompressionMetrics();
+        final MessengerGatewayProvider gatewayProvider = consumer -> batching(
+            compressing(registeredProvider.obtain(consumer), compression, dictionary, compressionMetrics),
+            scheduler,
+            batching
+        );
+        final ProcessedMessages processedMessages = processedMessages(config.get(MESSAGE_DEDUPLICATION));
         if (config.get(DEBUG))
-            return new Logging(gatewayProvider, serializer);
+            return new Logging(gatewayProvider, serializer, processedMessages, compression, compressionMetrics);
         else
-            return new MessagingService(gatewayProvider, serializer);
+            return new MessagingService(gatewayProvider, serializer, processedMessages, compression, compressionMetrics);
     }
 
     private final MessengerGateway gateway;
     private final PluginMessageSerializer serializer;
-    private final Set<UUID> processedMessages = new HashSet<>();
+    private final ProcessedMessages processedMessages;
+    private final CompressingMessengerGateway.Config compression;
+    private final CompressionMetrics compressionMetrics;
 
     MessagingService(MessengerGatewayProvider gatewayProvider, PluginMessageSerializer serializer) {
+        this(gatewayProvider, serializer, processedMessages(ProcessedMessages.DEFAULT_LIMITS));
+    }
+
+    MessagingService(MessengerGatewayProvider gatewayProvider, PluginMessageSerializer serializer, ProcessedMessages processedMessages) {
+        this(gatewayProvider, serializer, processedMessages, CompressingMessengerGateway.Config.DISABLED, new CompressionMetrics());
+    }
+
+    MessagingService(MessengerGatewayProvider gatewayProvider,
+                     PluginMessageSerializer serializer,
+                     ProcessedMessages processedMessages,
+                     CompressingMessengerGateway.Config compression,
+                     CompressionMetrics compressionMetrics) {
         this.serializer = serializer;
+        this.processedMessages = processedMessages;
+        this.compression = compression;
+        this.compressionMetrics = compressionMetrics;
         this.gateway = gatewayProvider.obtain(this);
     }
 
@@ -92,7 +131,7 @@ public class MessagingService implements Messenger, IncomingMessageConsumer {
 
     protected void sendOutgoingMessage(@NotNull PluginMessage message) {
         if (addMessage(message))
-            gateway.sendOutgoingMessage(serializer.encode(message));
+            gateway.sendOutgoingMessage(serializer.encodeToBytes(message));
     }
 
     protected boolean addMessage(@NotNull PluginMessage message) {
@@ -123,6 +162,47 @@ public class MessagingService implements Messenger, IncomingMessageConsumer {
         }
     }
 
+    @Override
+    public boolean consumeIncomingMessageAsBytes(byte @NonNull [] encodedBytes) {
+        if (isCompressed(encodedBytes))
+            return consumeIncomingCompressedMessage(encodedBytes);
+        if (isBatch(encodedBytes))
+            return consumeIncomingBatch(encodedBytes);
+        try {
+            return consumeIncomingMessage(serializer.decode(encodedBytes));
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Failed to process plugin message (" + encodedBytes.length + " bytes)", e);
+            return false;
+        }
+    }
+
+    private boolean consumeIncomingCompressedMessage(byte @NonNull [] payload) {
+        final byte[] message;
+        try {
+            final long start = System.nanoTime();
+            message = decompress(payload, compression.maxMessageSize());
+            compressionMetrics.recordDecompressed(System.nanoTime() - start);
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Failed to decompress plugin message (" + payload.length + " bytes)", e);
+            return false;
+        }
+        return consumeIncomingMessageAsBytes(message);
+    }
+
+    private boolean consumeIncomingBatch(byte @NonNull [] batch) {
+        final List<byte[]> messages;
+        try {
+            messages = unpack(batch);
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Failed to unpack plugin message batch (" + batch.length + " bytes)", e);
+            return false;
+        }
+        boolean accepted = false;
+        for (final byte[] message : messages)
+            accepted |= consumeIncomingMessageAsBytes(message);
+        return accepted;
+    }
+
     @Override
     public void close() {
         gateway.close();
@@ -130,8 +210,12 @@ public class MessagingService implements Messenger, IncomingMessageConsumer {
 
     @Log(topic = "sChat:MessagingService")
     public static final class Logging extends MessagingService {
-        private Logging(MessengerGatewayProvider messengerGatewayProvider, PluginMessageSerializer serializer) {
-            super(messengerGatewayProvider, serializer);
+        private Logging(MessengerGatewayProvider messengerGatewayProvider,
+                        PluginMessageSerializer serializer,
+                        ProcessedMessages processedMessages,
+                        CompressingMessengerGateway.Config compression,
+                        CompressionMetrics compressionMetrics) {
+            super(messengerGatewayProvider, serializer, processedMessages, compression, compressionMetrics);
         }
 
         @Override
@@ -166,5 +250,12 @@ public class MessagingService implements Messenger, IncomingMessageConsumer {
                 log.info("PluginMessage(" + message + ") - NOT processed");
             return processed;
         }
+
+        @Override
+        public void close() {
+            log.info("Processed Messages: " + processedMessages().stats());
+            log.info("Message Compression: " + compressionMetrics());
+            super.close();
+        }
     }
 }
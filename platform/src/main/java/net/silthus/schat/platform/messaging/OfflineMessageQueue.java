@@ -0,0 +1,543 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+import static net.silthus.schat.platform.messaging.ChunkedFraming.frameCount;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.frameIndex;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.isFrame;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.messageId;
+
+/**
+ * Holds the messages a proxy could not deliver to a server, because no player was connected to it.
+ *
+ * <p>Every server has its own queue that is limited by {@link Config#maxMessages()} and {@link Config#maxBytes()}.
+ * If a queue is full the {@link Config#overflow()} policy decides if the oldest queued or the new message is dropped.
+ * Messages older than {@link Config#ttl()} are dropped instead of being delivered. A message is queued with all of
+ * its frames and always dropped or delivered as a whole.</p>
+ *
+ * <p>With {@link Config#persist()} enabled the queued messages survive a restart of the proxy,
+ * see {@link #save(Path)} and {@link #load(Path)}.</p>
+ *
+ * @since 1.0.0
+ */
+public final class OfflineMessageQueue {
+
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Creates a new queue with the given config.
+     *
+     * @param config the queue config
+     * @return the queue
+     * @since 1.0.0
+     */
+    public static @NotNull OfflineMessageQueue offlineMessageQueue(@NonNull Config config) {
+        return new OfflineMessageQueue(config, System::currentTimeMillis);
+    }
+
+    private final Config config;
+    private final LongSupplier clock;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    OfflineMessageQueue(Config config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * Queues the frames of a message for the given server.
+     *
+     * @param server the name of the server
+     * @param frames the frames of the message
+     * @return true if the message was queued, false if it was dropped
+     * @since 1.0.0
+     */
+    public boolean enqueue(@NonNull String server, @NonNull List<byte[]> frames) {
+        return enqueue(server, new Entry(List.copyOf(frames), clock.getAsLong()));
+    }
+
+    /**
+     * Delivers a single frame of a message or queues it if it could not be delivered.
+     *
+     * <p>Once a frame of a message was queued for a server, the following frames of the message are collected
+     * instead of being delivered and queued as one message after the last frame arrived. Frames delivered before
+     * are not part of the queued message. Payloads that are not frames of a {@link ChunkedFraming} message
+     * with several frames are queued on their own.</p>
+     *
+     * @param server the name of the server
+     * @param frame the frame of the message
+     * @param delivery delivers the frame and returns false if it could not be delivered
+     * @return true if the frame was delivered
+     * @since 1.0.0
+     */
+    public boolean offerFrame(@NonNull String server, byte @NonNull [] frame, @NonNull Predicate<byte[]> delivery) {
+        if (!isFrame(frame) || frameCount(frame) <= 1 || frameIndex(frame) >= frameCount(frame)) {
+            if (delivery.test(frame))
+                return true;
+            enqueue(server, List.of(frame));
+            return false;
+        }
+        final Lane lane = lanes.computeIfAbsent(server, name -> new Lane());
+        final long messageId = messageId(frame);
+        synchronized (lane) {
+            if (lane.partials.containsKey(messageId)) {
+                collect(server, lane, messageId, frame);
+                return false;
+            }
+        }
+        if (delivery.test(frame))
+            return true;
+        synchronized (lane) {
+            collect(server, lane, messageId, frame);
+        }
+        return false;
+    }
+
+    private void collect(String server, Lane lane, long messageId, byte[] frame) {
+        final long now = clock.getAsLong();
+        expire(lane, now);
+        final Partial partial = lane.partials.computeIfAbsent(messageId, id -> new Partial(frameCount(frame), now));
+        partial.add(frame);
+        if (partial.bytes > config.maxBytes()) {
+            lane.partials.remove(messageId);
+            dropped.increment();
+        } else if (partial.isComplete()) {
+            lane.partials.remove(messageId);
+            enqueue(server, new Entry(partial.frames(), partial.queuedAt));
+        }
+    }
+
+    private boolean enqueue(String server, Entry entry) {
+        if (config.maxMessages() == 0 || entry.size > config.maxBytes()) {
+            dropped.increment();
+            return false;
+        }
+        final Lane lane = lanes.computeIfAbsent(server, name -> new Lane());
+        synchronized (lane) {
+            expire(lane, clock.getAsLong());
+            while (lane.isFull(entry)) {
+                if (config.overflow() == Overflow.DROP_NEWEST) {
+                    dropped.increment();
+                    return false;
+                }
+                lane.removeFirst();
+                dropped.increment();
+            }
+            lane.addLast(entry);
+            enqueued.increment();
+            return true;
+        }
+    }
+
+    /**
+     * Delivers the messages queued for the given server in order, dropping expired messages.
+     *
+     * <p>Delivery stops at the first message that could not be delivered. That message and all following messages
+     * are queued again in front of the messages queued in the meantime and keep the time they were queued at.</p>
+     *
+     * @param server the name of the server
+     * @param delivery delivers the frames of a message and returns false if the message could not be delivered
+     * @return the number of delivered messages
+     * @since 1.0.0
+     */
+    public int flush(@NonNull String server, @NonNull Predicate<List<byte[]>> delivery) {
+        final Lane lane = lanes.get(server);
+        if (lane == null)
+            return 0;
+        final List<Entry> entries;
+        synchronized (lane) {
+            expire(lane, clock.getAsLong());
+            entries = new ArrayList<>(lane.entries);
+            lane.clear();
+        }
+        int count = 0;
+        for (final Entry entry : entries) {
+            if (!delivery.test(entry.frames)) {
+                requeue(lane, entries.subList(count, entries.size()));
+                break;
+            }
+            count++;
+        }
+        delivered.add(count);
+        return count;
+    }
+
+    private void requeue(Lane lane, List<Entry> entries) {
+        synchronized (lane) {
+            for (int i = entries.size() - 1; i >= 0; i--)
+                lane.addFirst(entries.get(i));
+            while (lane.entries.size() > config.maxMessages() || lane.bytes > config.maxBytes()) {
+                if (config.overflow() == Overflow.DROP_NEWEST)
+                    lane.removeLast();
+                else
+                    lane.removeFirst();
+                dropped.increment();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of messages queued for the given server.
+     *
+     * @param server the name of the server
+     * @return the number of queued messages
+     * @since 1.0.0
+     */
+    public int size(@NonNull String server) {
+        final Lane lane = lanes.get(server);
+        if (lane == null)
+            return 0;
+        synchronized (lane) {
+            return lane.entries.size();
+        }
+    }
+
+    /**
+     * Gets the number of bytes queued for all servers.
+     *
+     * @return the queued bytes
+     * @since 1.0.0
+     */
+    public long queuedBytes() {
+        long bytes = 0;
+        for (final Lane lane : lanes.values()) {
+            synchronized (lane) {
+                bytes += lane.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of messages that were queued.
+     *
+     * @return the number of queued messages
+     * @since 1.0.0
+     */
+    public long enqueuedMessages() {
+        return enqueued.sum();
+    }
+
+    /**
+     * Gets the number of queued messages that were handed out for delivery.
+     *
+     * @return the number of delivered messages
+     * @since 1.0.0
+     */
+    public long deliveredMessages() {
+        return delivered.sum();
+    }
+
+    /**
+     * Gets the number of messages that were dropped, because a queue was full.
+     *
+     * @return the number of dropped messages
+     * @since 1.0.0
+     */
+    public long droppedMessages() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gets the number of messages that were dropped, because they exceeded the ttl.
+     *
+     * @return the number of expired messages
+     * @since 1.0.0
+     */
+    public long expiredMessages() {
+        return expired.sum();
+    }
+
+    /**
+     * Writes all queued messages that did not expire to the given file, if persistence is enabled.
+     *
+     * @param file the file the messages are written to
+     * @throws IOException if the file cannot be written
+     * @since 1.0.0
+     */
+    public void save(@NonNull Path file) throws IOException {
+        if (!config.persist())
+            return;
+        final long now = clock.getAsLong();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(FILE_VERSION);
+            for (final Map.Entry<String, Lane> lane : lanes.entrySet()) {
+                synchronized (lane.getValue()) {
+                    expire(lane.getValue(), now);
+                    for (final Entry entry : lane.getValue().entries)
+                        write(out, lane.getKey(), entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the messages of a file written by {@link #save(Path)} and deletes the file, if persistence is enabled.
+     *
+     * <p>Expired messages are dropped while loading.</p>
+     *
+     * @param file the file the messages were written to
+     * @throws IOException if the file cannot be read or is malformed
+     * @since 1.0.0
+     */
+    public void load(@NonNull Path file) throws IOException {
+        if (!config.persist() || !Files.exists(file))
+            return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final int version = in.readInt();
+            if (version != FILE_VERSION)
+                throw new IOException("Unsupported offline message queue version: " + version);
+            while (in.available() > 0)
+                read(in);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void write(DataOutputStream out, String server, Entry entry) throws IOException {
+        out.writeUTF(server);
+        out.writeLong(entry.queuedAt);
+        out.writeShort(entry.frames.size());
+        for (final byte[] frame : entry.frames) {
+            out.writeInt(frame.length);
+            out.write(frame);
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        final String server = in.readUTF();
+        final long queuedAt = in.readLong();
+        final int count = in.readUnsignedShort();
+        final List<byte[]> frames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int length = in.readInt();
+            if (length < 0 || length > config.maxBytes())
+                throw new IOException("Malformed offline message queue: invalid frame size " + length);
+            final byte[] frame = new byte[length];
+            in.readFully(frame);
+            frames.add(frame);
+        }
+        final Entry entry = new Entry(frames, queuedAt);
+        if (clock.getAsLong() - queuedAt >= config.ttl().toMillis())
+            expired.increment();
+        else
+            enqueue(server, entry);
+    }
+
+    private void expire(Lane lane, long now) {
+        final long ttl = config.ttl().toMillis();
+        final Iterator<Partial> partials = lane.partials.values().iterator();
+        while (partials.hasNext()) {
+            if (now - partials.next().queuedAt < ttl)
+                break;
+            partials.remove();
+            expired.increment();
+        }
+        final Iterator<Entry> iterator = lane.entries.iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (now - entry.queuedAt < ttl)
+                return;
+            iterator.remove();
+            lane.bytes -= entry.size;
+            expired.increment();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OfflineMessageQueue{"
+            + "enqueued=" + enqueuedMessages()
+            + ", delivered=" + deliveredMessages()
+            + ", dropped=" + droppedMessages()
+            + ", expired=" + expiredMessages()
+            + ", queuedBytes=" + queuedBytes()
+            + '}';
+    }
+
+    private final class Lane {
+        private final Deque<Entry> entries = new ArrayDeque<>();
+        private final Map<Long, Partial> partials = new LinkedHashMap<>();
+        private long bytes;
+
+        private boolean isFull(Entry entry) {
+            return entries.size() >= config.maxMessages() || bytes + entry.size > config.maxBytes();
+        }
+
+        private void addFirst(Entry entry) {
+            entries.addFirst(entry);
+            bytes += entry.size;
+        }
+
+        private void addLast(Entry entry) {
+            entries.addLast(entry);
+            bytes += entry.size;
+        }
+
+        private void removeFirst() {
+            bytes -= entries.removeFirst().size;
+        }
+
+        private void removeLast() {
+            bytes -= entries.removeLast().size;
+        }
+
+        private void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    private static final class Entry {
+        private final List<byte[]> frames;
+        private final long queuedAt;
+        private final int size;
+
+        private Entry(List<byte[]> frames, long queuedAt) {
+            this.frames = frames;
+            this.queuedAt = queuedAt;
+            int size = 0;
+            for (final byte[] frame : frames)
+                size += frame.length;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The frames of a message that are collected until its last frame arrived.
+     */
+    private static final class Partial {
+        private final NavigableMap<Integer, byte[]> frames = new TreeMap<>();
+        private final int count;
+        private final long queuedAt;
+        private int bytes;
+
+        private Partial(int count, long queuedAt) {
+            this.count = count;
+            this.queuedAt = queuedAt;
+        }
+
+        private void add(byte[] frame) {
+            if (frames.putIfAbsent(frameIndex(frame), frame) == null)
+                bytes += frame.length;
+        }
+
+        // frames delivered before the first frame was queued are not collected
+        private boolean isComplete() {
+            return frames.lastKey() == count - 1 && frames.size() == count - frames.firstKey();
+        }
+
+        private List<byte[]> frames() {
+            return List.copyOf(frames.values());
+        }
+    }
+
+    /**
+     * Decides which message is dropped if the queue of a server is full.
+     *
+     * @since 1.0.0
+     */
+    public enum Overflow {
+        /**
+         * The oldest queued messages are dropped to make room for the new message.
+         */
+        DROP_OLDEST,
+        /**
+         * The new message is dropped.
+         */
+        DROP_NEWEST;
+
+        /**
+         * Parses the policy from its config name, e.g. {@code drop_oldest}.
+         *
+         * @param name the name of the policy
+         * @return the policy
+         * @throws IllegalArgumentException if there is no policy with the name
+         * @since 1.0.0
+         */
+        public static @NotNull Overflow overflow(@NonNull String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * The offline queue config.
+     *
+     * @param maxMessages the maximum number of messages queued per server
+     * @param maxBytes the maximum number of bytes queued per server
+     * @param ttl the time after which a queued message is dropped
+     * @param overflow the policy that decides which message is dropped if the queue is full
+     * @param persist true if the queued messages are saved when the proxy stops
+     * @since 1.0.0
+     */
+    public record Config(int maxMessages, int maxBytes, @NonNull Duration ttl, @NonNull Overflow overflow, boolean persist) {
+
+        /**
+         * Queues up to 1000 messages or 4 MiB per server for five minutes.
+         *
+         * @since 1.0.0
+         */
+        public static final Config DEFAULT = new Config(1000, 4 * 1024 * 1024, Duration.ofMinutes(5), Overflow.DROP_OLDEST, false);
+
+        public Config {
+            if (maxMessages < 0)
+                throw new IllegalArgumentException("The maximum number of queued messages must not be negative.");
+            if (maxBytes < 0)
+                throw new IllegalArgumentException("The maximum queue size must not be negative.");
+            if (ttl.isNegative())
+                throw new IllegalArgumentException("The ttl of queued messages must not be negative.");
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Remembers the ids of processed plugin messages to prevent processing the same message twice.
+ *
+ * <p>Ids are forgotten after the configured {@link Limits#window()} or once more than
+ * {@link Limits#capacity()} ids are remembered, whichever comes first. This keeps the memory
+ * constant no matter how many messages are relayed through the network.</p>
+ *
+ * <p>Lookups are lock-free and can be performed from any thread. Evicting old ids is done
+ * by a single thread at a time, other threads skip the eviction instead of waiting.</p>
+ *
+ * @since 1.0.0
+ */
+public final class ProcessedMessages {
+
+    /**
+     * The default limits used if nothing is configured.
+     *
+     * @since 1.0.0
+     */
+    public static final Limits DEFAULT_LIMITS = limits(10_000, Duration.ofMinutes(5));
+
+    /**
+     * Creates new limits for the processed messages.
+     *
+     * @param capacity the maximum number of remembered ids
+     * @param window the duration an id is remembered, zero or negative to only limit by capacity
+     * @return the limits
+     * @since 1.0.0
+     */
+    public static @NotNull Limits limits(int capacity, @NonNull Duration window) {
+        return new Limits(capacity, window);
+    }
+
+    /**
+     * Creates a new processed message cache with the given limits.
+     *
+     * @param limits the limits
+     * @return the cache
+     * @since 1.0.0
+     */
+    public static @NotNull ProcessedMessages processedMessages(@NonNull Limits limits) {
+        return new ProcessedMessages(limits, System::nanoTime);
+    }
+
+    static @NotNull ProcessedMessages processedMessages(@NonNull Limits limits, @NonNull LongSupplier nanoClock) {
+        return new ProcessedMessages(limits, nanoClock);
+    }
+
+    private final int capacity;
+    private final long windowNanos;
+    private final LongSupplier clock;
+
+    private final Map<UUID, Long> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private ProcessedMessages(Limits limits, LongSupplier clock) {
+        this.capacity = limits.capacity();
+        this.windowNanos = limits.window().toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Marks the given message id as processed.
+     *
+     * @param id the id of the message
+     * @return true if the id was not processed within the window and should be processed now
+     * @since 1.0.0
+     */
+    public boolean add(@NonNull UUID id) {
+        final long now = clock.getAsLong();
+        final Long previous = entries.putIfAbsent(id, now);
+        if (previous != null && (!isExpired(previous, now) || !entries.replace(id, previous, now))) {
+            hits.increment();
+            return false;
+        }
+        misses.increment();
+        insertionOrder.add(new Entry(id, now));
+        size.incrementAndGet();
+        evict(now);
+        return true;
+    }
+
+    /**
+     * Checks if the message id was processed within the window.
+     *
+     * @param id the id of the message
+     * @return true if the message was processed
+     * @since 1.0.0
+     */
+    public boolean contains(@NonNull UUID id) {
+        final Long timestamp = entries.get(id);
+        return timestamp != null && !isExpired(timestamp, clock.getAsLong());
+    }
+
+    /**
+     * Gets the number of remembered message ids.
+     *
+     * @return the number of remembered ids
+     * @since 1.0.0
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets a snapshot of the hit, miss and eviction counters.
+     *
+     * @return the current stats
+     * @since 1.0.0
+     */
+    public @NotNull Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    private boolean isExpired(long timestamp, long now) {
+        return windowNanos > 0 && now - timestamp >= windowNanos;
+    }
+
+    private void evict(long now) {
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            Entry oldest;
+            while ((oldest = insertionOrder.peek()) != null && (size.get() > capacity || isExpired(oldest.timestamp(), now))) {
+                insertionOrder.poll();
+                size.decrementAndGet();
+                if (entries.remove(oldest.id(), oldest.timestamp()))
+                    evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * The limits of the processed messages cache.
+     *
+     * @param capacity the maximum number of remembered ids
+     * @param window the duration an id is remembered, zero or negative to only limit by capacity
+     * @since 1.0.0
+     */
+    public record Limits(int capacity, @NonNull Duration window) {
+        public Limits {
+            if (capacity < 1)
+                throw new IllegalArgumentException("The capacity of the processed messages must be at least 1.");
+        }
+    }
+
+    /**
+     * A snapshot of the counters of the processed messages cache.
+     *
+     * @param hits the number of duplicate messages that were rejected
+     * @param misses the number of new messages that were accepted
+     * @param evictions the number of ids that were forgotten
+     * @param size the number of currently remembered ids
+     * @since 1.0.0
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    private record Entry(UUID id, long timestamp) {
+    }
+}
@@ -0,0 +1,774 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import net.silthus.schat.messenger.IncomingMessageConsumer;
+import net.silthus.schat.messenger.MessengerGateway;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A gateway that exchanges messages over direct TCP or unix domain socket connections.
+ *
+ * <p>The servers connect as {@link Mode#CLIENT} to a single {@link Mode#HUB}, usually the proxy.
+ * The hub relays every message it receives to all other connected clients. Unlike plugin messages
+ * this does not require a player on the receiving server.</p>
+ *
+ * <p>Every message is sent as a frame with a four byte length prefix. A client starts every
+ * connection with a hello frame that carries the protocol version and the shared secret.
+ * The hub answers with an acknowledgement or closes connections with a wrong secret.
+ * Connections that do not complete the handshake within {@link Config#handshakeTimeout()} are closed.
+ * Clients only send messages after the acknowledgement, reconnect with an exponential backoff
+ * and keep outgoing messages up to {@link Config#maxPendingBytes()} while they are disconnected.</p>
+ *
+ * <p>All sockets are handled by a single non-blocking selector thread.
+ * Received messages are handed to the consumer on the given executor.
+ * Queued messages are sent for up to {@link #SHUTDOWN_TIMEOUT} when the gateway is closed.</p>
+ *
+ * @since 1.0.0
+ */
+@Log(topic = "sChat:SocketGateway")
+public final class SocketMessengerGateway implements MessengerGateway {
+
+    public static final String GATEWAY_TYPE = "socket";
+
+    static final int HEADER_SIZE = Integer.BYTES;
+    static final byte PROTOCOL_VERSION = 1;
+    static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(2);
+    private static final byte[] HELLO_MAGIC = "sChat".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ACK = helloFrame("");
+    private static final String UNIX_PREFIX = "unix:";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Creates and starts a new socket gateway.
+     *
+     * @param consumer the consumer of received messages or null if the gateway only relays messages
+     * @param executor the executor the consumer is called on, should execute tasks in order
+     * @param config the socket config
+     * @return the started gateway
+     * @throws IllegalStateException if the hub cannot bind to the configured address
+     *                               or has no secret and is reachable from other machines
+     * @since 1.0.0
+     */
+    public static @NotNull SocketMessengerGateway socketMessengerGateway(@Nullable IncomingMessageConsumer consumer,
+                                                                         @NonNull Executor executor,
+                                                                         @NonNull Config config) {
+        final SocketMessengerGateway gateway = new SocketMessengerGateway(consumer, executor, config);
+        gateway.start();
+        return gateway;
+    }
+
+    /**
+     * Parses a socket address.
+     *
+     * <p>Addresses starting with {@code unix:} are paths of unix domain sockets,
+     * all other addresses are expected as {@code host:port}.</p>
+     *
+     * @param address the address
+     * @return the socket address
+     * @throws IllegalArgumentException if the address is invalid
+     * @since 1.0.0
+     */
+    public static @NotNull SocketAddress address(@NonNull String address) {
+        if (address.startsWith(UNIX_PREFIX))
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+        final int separator = address.lastIndexOf(':');
+        if (separator < 1)
+            throw new IllegalArgumentException("The socket address '" + address + "' must be in the format host:port or unix:path.");
+        try {
+            return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The socket address '" + address + "' has an invalid port.", e);
+        }
+    }
+
+    private final @Nullable IncomingMessageConsumer consumer;
+    private final Executor executor;
+    private final Config config;
+    private final SocketAddress address;
+    private final byte[] hello;
+    private final Selector selector;
+    private final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // only accessed by the selector thread
+    private final List<Connection> connections = new ArrayList<>();
+    private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+    private long pendingBytes = 0;
+    private @Nullable ServerSocketChannel server;
+    private @Nullable Connection hub;
+    private long reconnectAt = 0;
+    private int attempts = 0;
+    private long connectedAt = 0;
+    private boolean connectedBefore = false;
+
+    private volatile int connectedPeers = 0;
+    private volatile @Nullable SocketAddress localAddress;
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder receivedMessages = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+
+    private SocketMessengerGateway(@Nullable IncomingMessageConsumer consumer, Executor executor, Config config) {
+        this.consumer = consumer;
+        this.executor = executor;
+        this.config = config;
+        this.address = address(config.address());
+        this.hello = helloFrame(config.secret());
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open the socket selector.", e);
+        }
+        this.thread = new Thread(this::run, "sChat-socket-" + config.mode().name().toLowerCase(Locale.ROOT));
+        this.thread.setDaemon(true);
+    }
+
+    private void start() {
+        if (config.mode() == Mode.HUB) {
+            requireSecret();
+            bind();
+        }
+        thread.start();
+    }
+
+    /**
+     * Refuses to start a hub without a secret unless only the local machine can connect to it.
+     */
+    private void requireSecret() {
+        if (!config.secret().isEmpty() || isLocal(address))
+            return;
+        closeQuietly(selector);
+        final String error = "Refusing to start the socket hub on " + config.address() + " without a secret. "
+            + "Set the same socket.secret on the hub and all servers, or bind the hub to a loopback or unix:path address.";
+        log.severe(error);
+        throw new IllegalStateException(error);
+    }
+
+    private static boolean isLocal(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet)
+            return inet.getAddress() != null && inet.getAddress().isLoopbackAddress();
+        return address instanceof UnixDomainSocketAddress;
+    }
+
+    private void bind() {
+        try {
+            final ServerSocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+            if (address instanceof UnixDomainSocketAddress unix)
+                Files.deleteIfExists(unix.getPath());
+            else
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(address);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+            server = channel;
+            localAddress = channel.getLocalAddress();
+            log.info("Listening for sChat servers on " + localAddress);
+        } catch (IOException e) {
+            closeQuietly(selector);
+            throw new IllegalStateException("Failed to bind the socket hub to " + config.address(), e);
+        }
+    }
+
+    @Override
+    public void sendOutgoingMessage(byte @NonNull [] encodedMessage) {
+        if (encodedMessage.length > config.maxMessageSize())
+            throw new IllegalArgumentException("The message has " + encodedMessage.length
+                + " bytes and exceeds the maximum message size of " + config.maxMessageSize() + " bytes.");
+        outbox.add(frame(encodedMessage));
+        selector.wakeup();
+    }
+
+    /**
+     * Gets the number of established and authenticated connections.
+     *
+     * @return the number of connected clients for a hub or 1 if a client is connected to the hub
+     * @since 1.0.0
+     */
+    public int connectedPeers() {
+        return connectedPeers;
+    }
+
+    /**
+     * Gets the address the hub is listening on.
+     *
+     * @return the local address or null if the gateway is a client
+     * @since 1.0.0
+     */
+    public @Nullable SocketAddress localAddress() {
+        return localAddress;
+    }
+
+    /**
+     * Gets the number of messages handed to a connection for sending, including relayed messages.
+     *
+     * @return the number of sent messages
+     * @since 1.0.0
+     */
+    public long sentMessages() {
+        return sentMessages.sum();
+    }
+
+    /**
+     * Gets the number of messages received from other servers.
+     *
+     * @return the number of received messages
+     * @since 1.0.0
+     */
+    public long receivedMessages() {
+        return receivedMessages.sum();
+    }
+
+    /**
+     * Gets the number of messages that were dropped, because a connection or the pending buffer was full.
+     *
+     * @return the number of dropped messages
+     * @since 1.0.0
+     */
+    public long droppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /**
+     * Gets the number of times the client connected to the hub again after losing the connection.
+     *
+     * @return the number of reconnects
+     * @since 1.0.0
+     */
+    public long reconnects() {
+        return reconnects.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                if (config.mode() == Mode.CLIENT && hub == null && System.nanoTime() - reconnectAt >= 0)
+                    connect();
+                closeExpiredHandshakes();
+                selector.select(selectTimeout());
+                drainOutbox();
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.SEVERE, "The socket gateway stopped unexpectedly.", e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private long selectTimeout() {
+        final long now = System.nanoTime();
+        long timeout = Long.MAX_VALUE;
+        if (config.mode() == Mode.CLIENT && hub == null)
+            timeout = reconnectAt - now;
+        for (final Connection connection : connections) {
+            if (!connection.authenticated)
+                timeout = Math.min(timeout, connection.handshakeDeadline - now);
+        }
+        if (timeout == Long.MAX_VALUE)
+            return 0;
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout));
+    }
+
+    private void closeExpiredHandshakes() {
+        final long now = System.nanoTime();
+        for (final Connection connection : List.copyOf(connections)) {
+            if (!connection.authenticated && now - connection.handshakeDeadline >= 0) {
+                log.warning("Closed the socket connection to " + connection.name() + ": the handshake timed out.");
+                disconnect(connection);
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid())
+            return;
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        final Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isConnectable())
+                finishConnect(connection);
+            if (key.isValid() && key.isReadable())
+                connection.read();
+            if (key.isValid() && key.isWritable())
+                connection.flush();
+        } catch (IOException | IllegalArgumentException e) {
+            log.log(Level.FINE, "Lost the socket connection to " + connection.name(), e);
+            disconnect(connection);
+        }
+    }
+
+    private void accept() {
+        try {
+            final SocketChannel channel = server.accept();
+            if (channel == null)
+                return;
+            channel.configureBlocking(false);
+            final Connection connection = new Connection(channel, channel.getRemoteAddress());
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to accept a socket connection.", e);
+        }
+    }
+
+    private void connect() {
+        SocketChannel channel = null;
+        try {
+            channel = address instanceof UnixDomainSocketAddress ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+            channel.configureBlocking(false);
+            final Connection connection = new Connection(channel, address);
+            hub = connection;
+            connections.add(connection);
+            if (channel.connect(address)) {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connected(connection);
+            } else {
+                connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+            }
+        } catch (IOException e) {
+            log.log(Level.FINE, "Failed to connect to the socket hub at " + address, e);
+            if (hub != null) {
+                disconnect(hub);
+            } else {
+                closeQuietly(channel);
+                scheduleReconnect();
+            }
+        }
+    }
+
+    private void finishConnect(Connection connection) throws IOException {
+        if (connection.channel.finishConnect()) {
+            connection.key.interestOps(SelectionKey.OP_READ);
+            connected(connection);
+        }
+    }
+
+    private void connected(Connection connection) {
+        connection.enqueue(frame(hello));
+    }
+
+    private void acknowledged(Connection connection, byte[] payload) {
+        if (!MessageDigest.isEqual(ACK, payload))
+            throw new IllegalArgumentException("The socket hub sent an invalid handshake acknowledgement.");
+        connection.authenticated = true;
+        while (!pending.isEmpty())
+            connection.send(pending.poll());
+        pendingBytes = 0;
+        if (connectedBefore)
+            reconnects.increment();
+        connectedBefore = true;
+        connectedAt = System.nanoTime();
+        connectedPeers = 1;
+        log.info("Connected to the socket hub at " + address);
+    }
+
+    private void scheduleReconnect() {
+        final long min = config.reconnectMinDelay().toNanos();
+        final long max = config.reconnectMaxDelay().toNanos();
+        final long delay = Math.min(max, min << Math.min(attempts, 20));
+        final long jitter = (long) (delay * 0.2 * ThreadLocalRandom.current().nextDouble());
+        reconnectAt = System.nanoTime() + delay - jitter;
+        attempts++;
+    }
+
+    private void disconnect(Connection connection) {
+        connections.remove(connection);
+        if (connection.key != null)
+            connection.key.cancel();
+        closeQuietly(connection.channel);
+        if (connection == hub) {
+            hub = null;
+            // only reset the backoff if the hub did not close the connection right away, e.g. because of a wrong secret
+            if (connectedPeers > 0 && System.nanoTime() - connectedAt > config.reconnectMaxDelay().toNanos())
+                attempts = 0;
+            connectedPeers = 0;
+            // before the acknowledgement only the hello is queued and the messages are still pending
+            if (connection.authenticated) {
+                for (final ByteBuffer frame : connection.writes)
+                    keepPending(frame.rewind());
+            }
+            scheduleReconnect();
+        } else {
+            updateConnectedPeers();
+        }
+    }
+
+    private void drainOutbox() {
+        ByteBuffer frame;
+        while ((frame = outbox.poll()) != null) {
+            if (config.mode() == Mode.HUB) {
+                relay(null, frame);
+            } else if (hub != null && hub.authenticated) {
+                hub.send(frame);
+            } else {
+                keepPending(frame);
+            }
+        }
+    }
+
+    private void keepPending(ByteBuffer frame) {
+        while (!pending.isEmpty() && pendingBytes + frame.remaining() > config.maxPendingBytes()) {
+            pendingBytes -= pending.poll().remaining();
+            droppedMessages.increment();
+        }
+        if (frame.remaining() > config.maxPendingBytes()) {
+            droppedMessages.increment();
+            return;
+        }
+        pending.add(frame);
+        pendingBytes += frame.remaining();
+    }
+
+    private void relay(@Nullable Connection origin, ByteBuffer frame) {
+        for (final Connection connection : connections) {
+            if (connection != origin && connection.authenticated)
+                connection.send(frame.duplicate());
+        }
+    }
+
+    private void received(Connection connection, byte[] payload) {
+        if (!connection.authenticated) {
+            if (config.mode() == Mode.CLIENT)
+                acknowledged(connection, payload);
+            else
+                authenticate(connection, payload);
+            return;
+        }
+        receivedMessages.increment();
+        if (config.mode() == Mode.HUB)
+            relay(connection, frame(payload));
+        if (consumer != null)
+            executor.execute(() -> consumer.consumeIncomingMessageAsBytes(payload));
+    }
+
+    private void authenticate(Connection connection, byte[] payload) {
+        if (!MessageDigest.isEqual(hello, payload)) {
+            log.warning("Rejected the socket connection from " + connection.name() + ": wrong protocol version or secret.");
+            disconnect(connection);
+            return;
+        }
+        connection.authenticated = true;
+        connection.enqueue(frame(ACK));
+        updateConnectedPeers();
+        log.info("Accepted the socket connection from " + connection.name());
+    }
+
+    private void updateConnectedPeers() {
+        int peers = 0;
+        for (final Connection connection : connections) {
+            if (connection.authenticated)
+                peers++;
+        }
+        connectedPeers = peers;
+    }
+
+    private void shutdown() {
+        try {
+            drainOutbox();
+            flushBeforeShutdown();
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "Failed to send the remaining socket messages.", e);
+        }
+        for (final Connection connection : connections)
+            closeQuietly(connection.channel);
+        connections.clear();
+        connectedPeers = 0;
+        if (server != null) {
+            closeQuietly(server);
+            if (address instanceof UnixDomainSocketAddress unix) {
+                try {
+                    Files.deleteIfExists(unix.getPath());
+                } catch (IOException ignored) {
+                    // the file is replaced on the next bind
+                }
+            }
+        }
+        closeQuietly(selector);
+    }
+
+    private void flushBeforeShutdown() throws IOException {
+        final long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT.toNanos();
+        while (true) {
+            boolean queued = false;
+            for (final Connection connection : connections) {
+                if (connection.writes.isEmpty() || connection.key == null || !connection.key.isValid() || !connection.channel.isConnected())
+                    continue;
+                try {
+                    connection.flush();
+                } catch (IOException e) {
+                    log.log(Level.FINE, "Lost the socket connection to " + connection.name(), e);
+                    connection.writes.clear();
+                    continue;
+                }
+                connection.key.interestOps(connection.writes.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+                queued |= !connection.writes.isEmpty();
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (!queued || remaining <= 0)
+                return;
+            selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            selector.selectedKeys().clear();
+        }
+    }
+
+    static ByteBuffer frame(byte[] payload) {
+        return ByteBuffer.allocate(HEADER_SIZE + payload.length)
+            .putInt(payload.length)
+            .put(payload)
+            .flip();
+    }
+
+    private static byte[] helloFrame(String secret) {
+        final byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        final byte[] payload = new byte[HELLO_MAGIC.length + 1 + secretBytes.length];
+        System.arraycopy(HELLO_MAGIC, 0, payload, 0, HELLO_MAGIC.length);
+        payload[HELLO_MAGIC.length] = PROTOCOL_VERSION;
+        System.arraycopy(secretBytes, 0, payload, HELLO_MAGIC.length + 1, secretBytes.length);
+        return payload;
+    }
+
+    private static void closeQuietly(@Nullable AutoCloseable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // nothing left to do
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SocketMessengerGateway{"
+            + "mode=" + config.mode()
+            + ", address=" + config.address()
+            + ", peers=" + connectedPeers()
+            + ", sent=" + sentMessages()
+            + ", received=" + receivedMessages()
+            + ", dropped=" + droppedMessages()
+            + ", reconnects=" + reconnects()
+            + '}';
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SocketAddress remote;
+        private final Deque<ByteBuffer> writes = new ArrayDeque<>();
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private long queuedBytes = 0;
+        private final long handshakeDeadline;
+        private boolean authenticated = false;
+        private SelectionKey key;
+
+        private Connection(SocketChannel channel, SocketAddress remote) {
+            this.channel = channel;
+            this.remote = remote;
+            this.handshakeDeadline = System.nanoTime() + config.handshakeTimeout().toNanos();
+        }
+
+        private String name() {
+            final String name = remote == null ? "" : remote.toString();
+            return name.isEmpty() ? "a unix domain socket" : name;
+        }
+
+        private void send(ByteBuffer frame) {
+            if (queuedBytes + frame.remaining() > config.maxPendingBytes()) {
+                droppedMessages.increment();
+                return;
+            }
+            enqueue(frame);
+            sentMessages.increment();
+        }
+
+        private void enqueue(ByteBuffer frame) {
+            writes.add(frame);
+            queuedBytes += frame.remaining();
+            if (key != null && key.isValid() && (key.interestOps() & SelectionKey.OP_CONNECT) == 0)
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        private void flush() throws IOException {
+            while (!writes.isEmpty()) {
+                final ByteBuffer frame = writes.peek();
+                final int written = channel.write(frame);
+                queuedBytes -= written;
+                if (frame.hasRemaining())
+                    return;
+                writes.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                disconnect(this);
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= HEADER_SIZE) {
+                final int length = readBuffer.getInt(readBuffer.position());
+                if (length < 0 || length > (authenticated ? config.maxMessageSize() : hello.length))
+                    throw new IllegalArgumentException("Received a socket frame with an invalid size of " + length + " bytes.");
+                if (readBuffer.remaining() < HEADER_SIZE + length) {
+                    if (readBuffer.capacity() < HEADER_SIZE + length)
+                        readBuffer = ByteBuffer.allocate(HEADER_SIZE + length).put(readBuffer).flip();
+                    break;
+                }
+                readBuffer.position(readBuffer.position() + HEADER_SIZE);
+                final byte[] payload = new byte[length];
+                readBuffer.get(payload);
+                received(this, payload);
+                if (!channel.isOpen())
+                    return;
+            }
+            readBuffer.compact();
+        }
+    }
+
+    /**
+     * The role of the gateway in the socket network.
+     *
+     * @since 1.0.0
+     */
+    public enum Mode {
+        /**
+         * Connects to the hub and exchanges messages with it.
+         */
+        CLIENT,
+        /**
+         * Accepts connections and relays the messages of every client to all other clients.
+         */
+        HUB;
+
+        /**
+         * Parses the mode from its config name, e.g. {@code hub}.
+         *
+         * @param name the name of the mode
+         * @return the mode
+         * @throws IllegalArgumentException if there is no mode with the name
+         * @since 1.0.0
+         */
+        public static @NotNull Mode mode(@NonNull String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * The socket gateway config.
+     *
+     * @param mode if the gateway connects to a hub or is the hub
+     * @param address the address of the hub, either {@code host:port} or {@code unix:path}
+     * @param secret the secret shared by the hub and all clients
+     * @param maxMessageSize the maximum size of a message in bytes
+     * @param maxPendingBytes the maximum number of bytes buffered per connection or while disconnected
+     * @param reconnectMinDelay the delay before the first reconnect attempt
+     * @param reconnectMaxDelay the maximum delay between reconnect attempts
+     * @param handshakeTimeout the time a connection has to complete the handshake before it is closed
+     * @since 1.0.0
+     */
+    public record Config(@NonNull Mode mode,
+                         @NonNull String address,
+                         @NonNull String secret,
+                         int maxMessageSize,
+                         int maxPendingBytes,
+                         @NonNull Duration reconnectMinDelay,
+                         @NonNull Duration reconnectMaxDelay,
+                         @NonNull Duration handshakeTimeout) {
+
+        /**
+         * Connects to a hub on the local machine.
+         *
+         * @since 1.0.0
+         */
+        public static final Config DEFAULT = new Config(Mode.CLIENT, "127.0.0.1:24454", "", 8 * 1024 * 1024, 16 * 1024 * 1024,
+            Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofSeconds(10));
+
+        public Config {
+            if (maxMessageSize < 1)
+                throw new IllegalArgumentException("The maximum message size must be positive.");
+            if (maxPendingBytes < 0)
+                throw new IllegalArgumentException("The maximum pending bytes must not be negative.");
+            if (reconnectMinDelay.isNegative() || reconnectMinDelay.isZero())
+                throw new IllegalArgumentException("The reconnect delay must be positive.");
+            if (reconnectMaxDelay.compareTo(reconnectMinDelay) < 0)
+                throw new IllegalArgumentException("The maximum reconnect delay must not be smaller than the minimum delay.");
+            if (handshakeTimeout.isNegative() || handshakeTimeout.isZero())
+                throw new IllegalArgumentException("The handshake timeout must be positive.");
+        }
+    }
+}
@@ -32,19 +32,28 @@ import java.nio.file.StandardCopyOption;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import net.silthus.schat.eventbus.EventBus;
-import net.silthus.schat.messenger.GsonPluginMessageSerializer;
+import net.silthus.schat.eventbus.EventBusMetrics;
+import net.silthus.schat.messenger.PluginMessageSerializer;
 import net.silthus.schat.platform.config.SChatConfig;
 import net.silthus.schat.platform.config.adapter.ConfigurationAdapter;
 import net.silthus.schat.platform.locale.TranslationManager;
 import net.silthus.schat.platform.messaging.GatewayProviderRegistry;
 import net.silthus.schat.platform.messaging.MessagingService;
+import net.silthus.schat.platform.messaging.SocketMessengerGateway;
 import net.silthus.schat.platform.sender.Sender;
 import net.silthus.schat.util.gson.GsonProvider;
 import org.jetbrains.annotations.NotNull;
 
+import static net.silthus.schat.messenger.PluginMessageSerializer.binarySerializer;
 import static net.silthus.schat.messenger.PluginMessageSerializer.gsonSerializer;
+import static net.silthus.schat.platform.config.ConfigKeys.ASYNC_EVENTS;
+import static net.silthus.schat.platform.config.ConfigKeys.EVENT_METRICS;
+import static net.silthus.schat.platform.config.ConfigKeys.PLUGIN_MESSAGE_FORMAT;
+import static net.silthus.schat.platform.config.ConfigKeys.SOCKET_MESSENGER;
 import static net.silthus.schat.platform.locale.Messages.STARTUP_BANNER;
 import static net.silthus.schat.platform.messaging.MessagingService.createMessagingService;
+import static net.silthus.schat.platform.messaging.SocketMessengerGateway.socketMessengerGateway;
+import static net.silthus.schat.util.Mailbox.mailbox;
 
 @Getter
 @Accessors(fluent = true)
@@ -54,7 +63,7 @@ public abstract class AbstractSChatPlugin implements SChatPlugin {
     private EventBus eventBus;
     private GatewayProviderRegistry gatewayProviderRegistry;
     private GsonProvider gsonProvider;
-    private GsonPluginMessageSerializer serializer;
+    private PluginMessageSerializer serializer;
 
     private SChatConfig config;
     private MessagingService messenger;
@@ -67,7 +76,6 @@ public abstract class AbstractSChatPlugin implements SChatPlugin {
         eventBus = EventBus.eventBus();
 
         gsonProvider = GsonProvider.gsonProvider();
-        serializer = gsonSerializer(gsonProvider);
         gatewayProviderRegistry = new GatewayProviderRegistry();
 
         onLoad();
@@ -82,9 +90,16 @@ public abstract class AbstractSChatPlugin implements SChatPlugin {
         STARTUP_BANNER.send(console(), bootstrap());
 
         config = loadConfiguration();
-
+        if (config().get(ASYNC_EVENTS))
+            eventBus().dispatchAsync(bootstrap().scheduler().async());
+        final EventBusMetrics.Config metrics = config().get(EVENT_METRICS);
+        if (metrics.enabled())
+            eventBus().instrument(EventBusMetrics.eventBusMetrics(metrics.slowHandlerThreshold()));
+
+        serializer = createPluginMessageSerializer();
+        registerSocketGateway(gatewayProviderRegistry());
         registerMessengerGateway(gatewayProviderRegistry());
-        messenger = createMessagingService(gatewayProviderRegistry(), serializer(), config());
+        messenger = createMessagingService(gatewayProviderRegistry(), serializer(), config(), bootstrap().scheduler());
 
         onEnable();
     }
@@ -119,10 +134,36 @@ public abstract class AbstractSChatPlugin implements SChatPlugin {
         return config;
     }
 
+    private @NotNull PluginMessageSerializer createPluginMessageSerializer() {
+        final String format = config().get(PLUGIN_MESSAGE_FORMAT);
+        logger().info("Using plugin message format... \t[" + format.toUpperCase() + "]");
+        if (format.equals("binary"))
+            return binarySerializer(gsonProvider());
+        return gsonSerializer(gsonProvider());
+    }
+
     protected abstract ConfigurationAdapter createConfigurationAdapter();
 
     protected abstract void registerMessengerGateway(GatewayProviderRegistry registry);
 
+    /**
+     * Returns true if messages received from other servers are processed by this plugin.
+     *
+     * <p>Proxies only relay the messages between servers.</p>
+     *
+     * @return true if received messages are consumed
+     */
+    protected boolean consumesIncomingMessages() {
+        return true;
+    }
+
+    private void registerSocketGateway(GatewayProviderRegistry registry) {
+        registry.register(SocketMessengerGateway.GATEWAY_TYPE, consumer -> socketMessengerGateway(
+            consumesIncomingMessages() ? consumer : null,
+            mailbox(bootstrap().scheduler().async()),
+            config().get(SOCKET_MESSENGER)));
+    }
+
     protected final Path resolveConfigAndCreateDefaultConfig(String fileName) {
         final Path config = resolveConfig(fileName);
 
@@ -49,5 +49,10 @@ public abstract class AbstractSChatProxyPlugin extends AbstractSChatPlugin {
     protected void onDisable() {
     }
 
+    @Override
+    protected boolean consumesIncomingMessages() {
+        return false;
+    }
+
     protected abstract void registerListeners();
 }
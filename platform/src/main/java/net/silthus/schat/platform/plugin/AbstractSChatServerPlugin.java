@@ -26,6 +26,7 @@ package net.silthus.schat.platform.plugin;
 import cloud.commandframework.CommandManager;
 import java.util.ArrayList;
 import java.util.List;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import net.silthus.schat.channel.ChannelPrototype;
@@ -41,23 +42,33 @@ import net.silthus.schat.eventbus.EventBus;
 import net.silthus.schat.eventbus.EventListener;
 import net.silthus.schat.features.AutoJoinChannelsFeature;
 import net.silthus.schat.features.GlobalChatFeature;
+import net.silthus.schat.message.FanOut;
+import net.silthus.schat.message.TargetsPrototype;
 import net.silthus.schat.messenger.Messenger;
 import net.silthus.schat.platform.chatter.AbstractChatterFactory;
+import net.silthus.schat.platform.chatter.ChatterStore;
 import net.silthus.schat.platform.chatter.ConnectionListener;
 import net.silthus.schat.platform.commands.AdminCommands;
 import net.silthus.schat.platform.commands.ChannelCommands;
 import net.silthus.schat.platform.commands.Commands;
 import net.silthus.schat.platform.commands.PrivateMessageCommands;
+import net.silthus.schat.platform.plugin.scheduler.SchedulerTask;
 import net.silthus.schat.platform.sender.Sender;
 import net.silthus.schat.ui.ViewModule;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static net.silthus.schat.channel.ChannelRepository.createInMemoryChannelRepository;
 import static net.silthus.schat.chatter.ChatterRepository.createInMemoryChatterRepository;
 import static net.silthus.schat.platform.commands.parser.ChannelArgument.registerChannelArgument;
 import static net.silthus.schat.platform.commands.parser.ChatterArgument.registerChatterArgument;
+import static net.silthus.schat.platform.chatter.ChatterStore.fileChatterStore;
+import static net.silthus.schat.platform.config.ConfigKeys.CHATTER_MAILBOX;
+import static net.silthus.schat.platform.config.ConfigKeys.CHATTER_MESSAGE_HISTORY;
+import static net.silthus.schat.platform.config.ConfigKeys.CHATTER_STORE_OFFLINE_STATE;
 import static net.silthus.schat.platform.config.ConfigKeys.DEBUG;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_DELIVERY;
 import static net.silthus.schat.platform.config.ConfigKeys.VIEW_CONFIG;
 
 @Getter
@@ -65,9 +76,12 @@ import static net.silthus.schat.platform.config.ConfigKeys.VIEW_CONFIG;
 public abstract class AbstractSChatServerPlugin extends AbstractSChatPlugin {
 
     private ViewModule viewModule;
+    @Getter(AccessLevel.NONE)
+    private SchedulerTask viewUpdateTask;
 
     private ChatterFactory chatterFactory;
     private ChatterRepository chatterRepository;
+    private ChatterStore chatterStore;
     private ConnectionListener connectionListener;
 
     private ChannelRepository channelRepository;
@@ -84,13 +98,15 @@ public abstract class AbstractSChatServerPlugin extends AbstractSChatPlugin {
     protected void onEnable() {
         viewModule = new ViewModule(config().get(VIEW_CONFIG), eventBus(), gsonProvider());
         viewModule.init();
+        scheduleViewUpdates();
+
+        channelRepository = createChannelRepository();
 
         chatterRepository = createInMemoryChatterRepository(config().get(DEBUG));
+        chatterStore = createChatterStore();
         chatterFactory = createChatterFactory();
         connectionListener = registerConnectionListener(chatterRepository, chatterFactory, messenger(), eventBus());
 
-        channelRepository = createChannelRepository();
-
         registerSerializers();
         setupPrototypes();
         loadFeatures();
@@ -110,6 +126,21 @@ public abstract class AbstractSChatServerPlugin extends AbstractSChatPlugin {
 
     @Override
     protected void onDisable() {
+        if (viewUpdateTask != null)
+            viewUpdateTask.cancel();
+    }
+
+    private void scheduleViewUpdates() {
+        final long interval = viewModule.config().updateInterval();
+        if (interval > 0)
+            viewUpdateTask = bootstrap().scheduler().asyncRepeating(viewModule.viewUpdater()::flush, interval, MILLISECONDS);
+    }
+
+    private ChatterStore createChatterStore() {
+        if (config().get(CHATTER_STORE_OFFLINE_STATE))
+            return fileChatterStore(bootstrap().dataDirectory().resolve("chatters"), channelRepository());
+        else
+            return ChatterStore.empty();
     }
 
     protected abstract AbstractChatterFactory createChatterFactory();
@@ -144,7 +175,8 @@ public abstract class AbstractSChatServerPlugin extends AbstractSChatPlugin {
         );
 
         ChannelPrototype.configure(eventBus());
-        ChatterPrototype.configure(eventBus());
+        ChatterPrototype.configure(eventBus(), config().get(CHATTER_MESSAGE_HISTORY), config().get(CHATTER_MAILBOX) ? bootstrap().scheduler().async() : null);
+        TargetsPrototype.configure(FanOut.parallel(config().get(MESSAGE_DELIVERY), bootstrap().scheduler().async()));
     }
 
     private void loadFeatures() {
@@ -187,7 +219,7 @@ public abstract class AbstractSChatServerPlugin extends AbstractSChatPlugin {
     private void registerNativeCommands(Commands commands) {
         commands.register(new ChannelCommands());
         commands.register(new PrivateMessageCommands());
-        commands.register(new AdminCommands(this::reload));
+        commands.register(new AdminCommands(this::reload, eventBus(), bootstrap().configDirectory().resolve("metrics")));
     }
 
     @ApiStatus.OverrideOnly
@@ -23,19 +23,36 @@
  */
 package net.silthus.schat.platform.chatter;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.NonNull;
+import net.silthus.schat.channel.Channel;
+import net.silthus.schat.channel.ChannelRepository;
+import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.chatter.ChatterMock;
+import net.silthus.schat.chatter.ChatterPrototype;
 import net.silthus.schat.chatter.ChatterRepository;
+import net.silthus.schat.eventbus.EventBus;
 import net.silthus.schat.eventbus.EventBusMock;
 import net.silthus.schat.events.chatter.ChatterJoinedServerEvent;
+import net.silthus.schat.events.chatter.ChatterLeftServerEvent;
+import net.silthus.schat.message.Messages;
 import net.silthus.schat.platform.messaging.MessagingServiceMock;
 import net.silthus.schat.platform.sender.SenderMock;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import static net.silthus.schat.channel.Channel.createChannel;
+import static net.silthus.schat.channel.ChannelRepository.createInMemoryChannelRepository;
 import static net.silthus.schat.chatter.ChatterRepository.createInMemoryChatterRepository;
+import static net.silthus.schat.platform.chatter.ChatterStore.fileChatterStore;
 import static net.silthus.schat.platform.sender.SenderMock.randomSender;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -63,10 +80,8 @@ class ConnectionListenerTests {
     }
 
     private ConnectionListener.ChatterJoined createRandomPluginMessage() {
-        return new ConnectionListener.ChatterJoined(ChatterMock.randomChatter())
-            .repository(chatterRepository)
-            .factory(ChatterMock::randomChatter)
-            .eventBus(eventBus);
+        return new ConnectionListener.ChatterJoined(ChatterMock.randomChatter(), UUID.randomUUID())
+            .listener(listener);
     }
 
     private ConnectionListener.ChatterJoined consumeIncomingMessage() {
@@ -108,10 +123,207 @@ class ConnectionListenerTests {
             assertJoinEventFired(msg.chatter().uniqueId());
         }
 
+        @Test
+        void restores_chatter_after_it_was_added_to_the_repository() {
+            final AtomicBoolean restored = new AtomicBoolean();
+            listener = new ConnectionListener(chatterRepository, ChatterMock::randomChatter, messenger, eventBus, new ChatterStore() {
+                @Override
+                public void save(@NonNull Chatter chatter) {
+                }
+
+                @Override
+                public @NotNull Chatter restore(@NonNull Chatter chatter) {
+                    assertThat(chatterRepository.find(sender.uniqueId())).contains(chatter);
+                    restored.set(true);
+                    return chatter;
+                }
+            }) {
+            };
+            join();
+            assertThat(restored).isTrue();
+        }
+
         @Test
         void fires_join_event() {
             join();
             assertJoinEventFired(sender.uniqueId());
         }
     }
+
+    @Nested class onLeave {
+        private Channel channel;
+
+        @BeforeEach
+        void setUp() {
+            listener.onJoin(sender);
+            channel = createChannel("test");
+            chatterRepository.get(sender.uniqueId()).join(channel);
+        }
+
+        private Chatter leave() {
+            final Chatter chatter = chatterRepository.get(sender.uniqueId());
+            listener.onLeave(sender.uniqueId());
+            return chatter;
+        }
+
+        @Test
+        void removes_chatter_from_cache() {
+            leave();
+            assertThat(chatterRepository.contains(sender.uniqueId())).isFalse();
+        }
+
+        @Test
+        void detaches_chatter_from_channel_targets() {
+            final Chatter chatter = leave();
+            assertThat(channel.targets()).doesNotContain(chatter);
+            assertThat(chatter.channels()).contains(channel);
+        }
+
+        @Test
+        void fires_left_server_event() {
+            final Chatter chatter = leave();
+            eventBus.assertEventFired(new ChatterLeftServerEvent(chatter));
+        }
+
+        @Test
+        void given_unknown_player_does_nothing() {
+            listener.onLeave(UUID.randomUUID());
+            eventBus.assertNoEventFired(ChatterLeftServerEvent.class);
+        }
+
+        @Test
+        void sends_leave_ping_to_all_servers() {
+            leave();
+            messenger.assertSentMessage(ConnectionListener.ChatterLeft.class);
+        }
+
+        @Nested class given_chatter_mailbox {
+            private final List<Runnable> queued = new ArrayList<>();
+
+            @BeforeEach
+            void setUp() {
+                ChatterPrototype.configure(eventBus, Messages.Retention.capacity(100), queued::add);
+                sender = randomSender();
+                listener.onJoin(sender);
+            }
+
+            @AfterEach
+            void tearDown() {
+                ChatterPrototype.configure(EventBus.empty());
+            }
+
+            private void processQueued() {
+                while (!queued.isEmpty())
+                    queued.remove(0).run();
+            }
+
+            @Test
+            void pending_join_is_detached() {
+                final Channel pending = createChannel("pending");
+                chatterRepository.get(sender.uniqueId()).join(pending);
+
+                final Chatter chatter = leave();
+                processQueued();
+
+                assertThat(chatter.channels()).contains(pending);
+                assertThat(pending.targets()).doesNotContain(chatter);
+            }
+        }
+    }
+
+    @Nested class given_remote_chatter {
+        private ConnectionListener.ChatterJoined joined;
+
+        @BeforeEach
+        void setUp() {
+            joined = consumeIncomingMessage();
+        }
+
+        private UUID chatterId() {
+            return joined.chatter().uniqueId();
+        }
+
+        private void consumeLeft(UUID session) {
+            messenger.consumeIncomingMessage(new ConnectionListener.ChatterLeft(chatterId(), session).listener(listener));
+        }
+
+        @Test
+        void leave_ping_removes_chatter() {
+            consumeLeft(joined.session());
+            assertThat(chatterRepository.contains(chatterId())).isFalse();
+        }
+
+        @Test
+        void leave_ping_fires_left_server_event() {
+            consumeLeft(joined.session());
+            eventBus.assertEventFired(new ChatterLeftServerEvent(joined.chatter()));
+        }
+
+        @Test
+        void leave_ping_of_previous_session_is_ignored() {
+            final ConnectionListener.ChatterJoined switched = new ConnectionListener.ChatterJoined(joined.chatter(), UUID.randomUUID())
+                .listener(listener);
+            messenger.consumeIncomingMessage(switched);
+
+            consumeLeft(joined.session());
+            assertThat(chatterRepository.contains(chatterId())).isTrue();
+            eventBus.assertNoEventFired(ChatterLeftServerEvent.class);
+        }
+
+        @Test
+        void leave_ping_of_local_player_is_ignored() {
+            listener.onJoin(SenderMock.sender(joined.chatter().identity()));
+            consumeLeft(joined.session());
+            assertThat(chatterRepository.contains(chatterId())).isTrue();
+            eventBus.assertNoEventFired(ChatterLeftServerEvent.class);
+        }
+    }
+
+    @Nested class given_file_chatter_store {
+        @TempDir
+        private Path directory;
+        private ChannelRepository channelRepository;
+        private Channel channel;
+        private Channel active;
+
+        @BeforeEach
+        void setUp() {
+            channelRepository = createInMemoryChannelRepository(eventBus);
+            channel = createChannel("one");
+            active = createChannel("two");
+            channelRepository.add(channel);
+            channelRepository.add(active);
+            listener = new ConnectionListener(chatterRepository, ChatterMock::randomChatter, messenger, eventBus, fileChatterStore(directory, channelRepository)) {
+            };
+
+            listener.onJoin(sender);
+            final Chatter chatter = chatterRepository.get(sender.uniqueId());
+            chatter.join(channel);
+            chatter.activeChannel(active);
+            listener.onLeave(sender.uniqueId());
+        }
+
+        @Test
+        void rejoin_restores_channels() {
+            listener.onJoin(sender);
+            final Chatter chatter = chatterRepository.get(sender.uniqueId());
+            assertThat(chatter.channels()).containsExactlyInAnyOrder(channel, active);
+            assertThat(chatter.activeChannel()).contains(active);
+            assertThat(channel.targets()).contains(chatter);
+        }
+
+        @Test
+        void removed_channels_are_skipped() {
+            channelRepository.remove(channel);
+            listener.onJoin(sender);
+            assertThat(chatterRepository.get(sender.uniqueId()).channels()).containsExactly(active);
+        }
+
+        @Test
+        void other_chatters_are_not_restored() {
+            final SenderMock other = randomSender();
+            listener.onJoin(other);
+            assertThat(chatterRepository.get(other.uniqueId()).channels()).isEmpty();
+        }
+    }
 }
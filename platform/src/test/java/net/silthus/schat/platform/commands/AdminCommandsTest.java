@@ -23,26 +23,90 @@
  */
 package net.silthus.schat.platform.commands;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+import net.silthus.schat.eventbus.EventBus;
+import net.silthus.schat.eventbus.EventBusMetrics;
+import net.silthus.schat.events.config.ConfigReloadedEvent;
 import net.silthus.schat.platform.locale.Messages;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 class AdminCommandsTest extends CommandTest {
 
     private boolean reloadCalled = false;
+    private EventBus eventBus;
+    @TempDir
+    private Path dumpDirectory;
 
     @BeforeEach
     void setUp() {
-        commands.register(new AdminCommands(() -> reloadCalled = true));
+        eventBus = EventBus.eventBus();
+        commands.register(new AdminCommands(() -> reloadCalled = true, eventBus, dumpDirectory));
+        sender.mockOp();
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventBus.close();
     }
 
     @Test
     void reload_calls_reload_and_sends_message() {
-        sender.mockOp();
         cmd("/schat reload");
         assertThat(reloadCalled).isTrue();
         sender.assertLastMessageIs(Messages.RELOAD_SUCCESS.build());
     }
+
+    @Nested class metrics {
+
+        @Test
+        void given_metrics_are_disabled_then_sends_disabled_message() {
+            cmd("/schat metrics");
+            sender.assertLastMessageIs(Messages.METRICS_DISABLED.build());
+        }
+
+        @Nested class given_metrics_are_enabled {
+            private EventBusMetrics metrics;
+
+            @BeforeEach
+            void setUp() {
+                metrics = EventBusMetrics.eventBusMetrics(Duration.ofMillis(50));
+                eventBus.instrument(metrics);
+                eventBus.on(ConfigReloadedEvent.class, event -> {
+                });
+                eventBus.post(new ConfigReloadedEvent());
+            }
+
+            @Test
+            void sends_handler_metrics() {
+                cmd("/schat metrics");
+                sender.assertLastMessageIs(Messages.EVENT_METRICS.build(metrics));
+            }
+
+            @Test
+            void dump_writes_metrics_to_file() throws Exception {
+                cmd("/schat metrics dump");
+                try (Stream<Path> files = Files.list(dumpDirectory)) {
+                    final Path file = files.findFirst().orElseThrow();
+                    assertThat(Files.readString(file)).contains("ConfigReloadedEvent");
+                    sender.assertLastMessageIs(Messages.METRICS_DUMPED.build(file));
+                }
+            }
+
+            @Test
+            void reset_clears_metrics() {
+                cmd("/schat metrics reset");
+                assertThat(metrics.handlers()).isEmpty();
+                sender.assertLastMessageIs(Messages.METRICS_RESET.build());
+            }
+        }
+    }
 }
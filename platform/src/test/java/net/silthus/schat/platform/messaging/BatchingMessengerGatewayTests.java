@@ -0,0 +1,179 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.silthus.schat.messenger.MessengerGateway;
+import net.silthus.schat.platform.SchedulerMock;
+import net.silthus.schat.platform.plugin.scheduler.SchedulerTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.batching;
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.isBatch;
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.pack;
+import static net.silthus.schat.platform.messaging.BatchingMessengerGateway.unpack;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class BatchingMessengerGatewayTests {
+
+    private final List<byte[]> sent = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final SchedulerMock scheduler = new SchedulerMock() {
+        @Override
+        public SchedulerTask asyncLater(Runnable task, long delay, TimeUnit unit) {
+            scheduled.add(task);
+            return () -> scheduled.remove(task);
+        }
+    };
+    private MessengerGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        gateway = batching(sent::add, scheduler, new BatchingMessengerGateway.Config(true, 3, 64, Duration.ofMillis(50)));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void runScheduledTasks() {
+        final List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Test
+    void disabled_config_returns_gateway() {
+        final MessengerGateway delegate = sent::add;
+        assertThat(batching(delegate, scheduler, BatchingMessengerGateway.Config.DISABLED)).isSameAs(delegate);
+    }
+
+    @Test
+    void message_is_not_sent_immediately() {
+        gateway.sendOutgoingMessage(bytes("a"));
+        assertThat(sent).isEmpty();
+        assertThat(scheduled).hasSize(1);
+    }
+
+    @Test
+    void single_message_is_sent_unbatched_after_delay() {
+        gateway.sendOutgoingMessage(bytes("a"));
+        runScheduledTasks();
+        assertThat(sent).containsExactly(bytes("a"));
+    }
+
+    @Test
+    void messages_within_delay_are_sent_as_one_batch() {
+        gateway.sendOutgoingMessage(bytes("a"));
+        gateway.sendOutgoingMessage(bytes("b"));
+        runScheduledTasks();
+        assertThat(sent).hasSize(1);
+        assertThat(unpack(sent.get(0))).containsExactly(bytes("a"), bytes("b"));
+    }
+
+    @Test
+    void flush_is_only_scheduled_once_per_batch() {
+        gateway.sendOutgoingMessage(bytes("a"));
+        gateway.sendOutgoingMessage(bytes("b"));
+        assertThat(scheduled).hasSize(1);
+    }
+
+    @Test
+    void reaching_max_messages_sends_batch() {
+        gateway.sendOutgoingMessage(bytes("a"));
+        gateway.sendOutgoingMessage(bytes("b"));
+        gateway.sendOutgoingMessage(bytes("c"));
+        assertThat(sent).hasSize(1);
+        assertThat(unpack(sent.get(0))).containsExactly(bytes("a"), bytes("b"), bytes("c"));
+    }
+
+    @Test
+    void exceeding_max_bytes_sends_pending_batch_first() {
+        gateway.sendOutgoingMessage(bytes("a".repeat(30)));
+        gateway.sendOutgoingMessage(bytes("b".repeat(30)));
+        assertThat(sent).containsExactly(bytes("a".repeat(30)));
+    }
+
+    @Test
+    void message_larger_than_max_bytes_is_sent_unbatched_in_order() {
+        gateway.sendOutgoingMessage(bytes("a"));
+        gateway.sendOutgoingMessage(bytes("b".repeat(100)));
+        assertThat(sent).containsExactly(bytes("a"), bytes("b".repeat(100)));
+    }
+
+    @Test
+    void close_flushes_pending_messages() {
+        gateway.sendOutgoingMessage(bytes("a"));
+        gateway.close();
+        assertThat(sent).containsExactly(bytes("a"));
+    }
+
+    @Nested class frames {
+
+        @Test
+        void packed_messages_are_unpacked_in_order() {
+            final List<byte[]> messages = List.of(bytes("{}"), new byte[0], bytes("x".repeat(300)));
+            final byte[] batch = pack(messages);
+            assertThat(isBatch(batch)).isTrue();
+            assertThat(unpack(batch)).containsExactlyElementsOf(messages);
+        }
+
+        @Test
+        void json_and_binary_payloads_are_no_batch() {
+            assertThat(isBatch(bytes("{\"id\":1}"))).isFalse();
+            assertThat(isBatch(new byte[] {1, 0})).isFalse();
+            assertThat(isBatch(new byte[0])).isFalse();
+        }
+
+        @Test
+        void truncated_batch_throws() {
+            final byte[] batch = pack(List.of(bytes("abc"), bytes("def")));
+            final byte[] truncated = new byte[batch.length - 1];
+            System.arraycopy(batch, 0, truncated, 0, truncated.length);
+            assertThatIllegalArgumentException().isThrownBy(() -> unpack(truncated));
+        }
+    }
+
+    @Nested class config {
+
+        @Test
+        void batches_larger_than_a_plugin_message_are_allowed() {
+            final BatchingMessengerGateway.Config config = new BatchingMessengerGateway.Config(true, 32, 1024 * 1024, Duration.ofMillis(50));
+            config.requireFits(ChunkedFraming.Config.DEFAULT.maxMessageSize());
+        }
+
+        @Test
+        void batches_larger_than_the_max_message_size_are_rejected() {
+            final BatchingMessengerGateway.Config config = new BatchingMessengerGateway.Config(true, 32, 1024 * 1024, Duration.ofMillis(50));
+            assertThatIllegalArgumentException().isThrownBy(() -> config.requireFits(1024));
+        }
+    }
+}
\ No newline at end of file
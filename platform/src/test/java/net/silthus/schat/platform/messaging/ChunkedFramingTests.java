@@ -0,0 +1,179 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.silthus.schat.platform.messaging.ChunkedFraming.HEADER_SIZE;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.chunkedFraming;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.isFrame;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ChunkedFramingTests {
+
+    private static final int FRAME_SIZE = HEADER_SIZE + 10;
+    private static final ChunkedFraming.Config CONFIG = new ChunkedFraming.Config(FRAME_SIZE, 100, 150, Duration.ofSeconds(30));
+
+    private ChunkedFraming framing;
+    private long now;
+    private ChunkedFraming.Reassembler reassembler;
+
+    @BeforeEach
+    void setUp() {
+        framing = chunkedFraming(CONFIG);
+        now = 0;
+        reassembler = new ChunkedFraming.Reassembler(CONFIG, () -> now);
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private byte[] acceptAll(List<byte[]> frames) {
+        byte[] result = null;
+        for (final byte[] frame : frames)
+            result = reassembler.accept(frame);
+        return result;
+    }
+
+    @Test
+    void small_message_is_a_single_frame() {
+        final List<byte[]> frames = framing.frame(randomBytes(5));
+        assertThat(frames).hasSize(1);
+        assertThat(isFrame(frames.get(0))).isTrue();
+        assertThat(frames.get(0)).hasSize(HEADER_SIZE + 5);
+    }
+
+    @Test
+    void empty_message_round_trips() {
+        assertThat(reassembler.accept(framing.frame(new byte[0]).get(0))).isEmpty();
+    }
+
+    @Test
+    void large_message_is_split_into_frames_of_max_size() {
+        final List<byte[]> frames = framing.frame(randomBytes(25));
+        assertThat(frames).hasSize(3);
+        assertThat(frames).allSatisfy(frame -> assertThat(frame.length).isLessThanOrEqualTo(FRAME_SIZE));
+    }
+
+    @Test
+    void message_larger_than_max_message_size_is_rejected() {
+        assertThatIllegalArgumentException().isThrownBy(() -> framing.frame(new byte[101]));
+    }
+
+    @Test
+    void frames_are_reassembled_to_the_message() {
+        final byte[] message = randomBytes(95);
+        assertThat(acceptAll(framing.frame(message))).isEqualTo(message);
+        assertThat(reassembler.pendingMessages()).isZero();
+        assertThat(reassembler.pendingBytes()).isZero();
+    }
+
+    @Test
+    void frames_are_reassembled_in_any_order() {
+        final byte[] message = randomBytes(42);
+        final List<byte[]> frames = new ArrayList<>(framing.frame(message));
+        Collections.reverse(frames);
+        assertThat(acceptAll(frames)).isEqualTo(message);
+    }
+
+    @Test
+    void interleaved_messages_are_reassembled() {
+        final byte[] first = randomBytes(30);
+        final byte[] second = randomBytes(31);
+        final List<byte[]> firstFrames = framing.frame(first);
+        final List<byte[]> secondFrames = framing.frame(second);
+
+        assertThat(reassembler.accept(firstFrames.get(0))).isNull();
+        assertThat(reassembler.accept(secondFrames.get(0))).isNull();
+        assertThat(reassembler.accept(firstFrames.get(1))).isNull();
+        assertThat(reassembler.accept(secondFrames.get(1))).isNull();
+        assertThat(reassembler.accept(secondFrames.get(2))).isNull();
+        assertThat(reassembler.accept(firstFrames.get(2))).isEqualTo(first);
+        assertThat(reassembler.accept(secondFrames.get(3))).isEqualTo(second);
+    }
+
+    @Test
+    void duplicate_frames_are_ignored() {
+        final byte[] message = randomBytes(15);
+        final List<byte[]> frames = framing.frame(message);
+        assertThat(reassembler.accept(frames.get(0))).isNull();
+        assertThat(reassembler.accept(frames.get(0))).isNull();
+        assertThat(reassembler.accept(frames.get(1))).isEqualTo(message);
+    }
+
+    @Test
+    void frames_replayed_after_completion_are_dropped() {
+        final byte[] message = randomBytes(25);
+        final List<byte[]> frames = framing.frame(message);
+        assertThat(acceptAll(frames)).isEqualTo(message);
+
+        assertThat(reassembler.accept(frames.get(1))).isNull();
+        assertThat(reassembler.pendingMessages()).isZero();
+        assertThat(reassembler.pendingBytes()).isZero();
+    }
+
+    @Test
+    void payload_without_frame_header_is_rejected() {
+        assertThatIllegalArgumentException().isThrownBy(() -> reassembler.accept(randomBytes(3)));
+    }
+
+    @Nested class bounded_buffer {
+
+        @Test
+        void incomplete_messages_expire_after_timeout() {
+            final List<byte[]> frames = framing.frame(randomBytes(15));
+            reassembler.accept(frames.get(0));
+
+            now += Duration.ofSeconds(31).toNanos();
+            reassembler.accept(framing.frame(randomBytes(15)).get(0));
+
+            assertThat(reassembler.accept(frames.get(1))).isNull();
+            assertThat(reassembler.pendingMessages()).isEqualTo(2);
+        }
+
+        @Test
+        void oldest_incomplete_message_is_dropped_when_buffer_is_full() {
+            final List<byte[]> oldest = framing.frame(randomBytes(100));
+            final List<byte[]> newest = framing.frame(randomBytes(100));
+            acceptAll(oldest.subList(0, 9));
+            acceptAll(newest.subList(0, 9));
+
+            assertThat(reassembler.pendingMessages()).isEqualTo(1);
+            assertThat(reassembler.pendingBytes()).isLessThanOrEqualTo(CONFIG.maxPendingBytes());
+            assertThat(reassembler.accept(oldest.get(9))).isNull();
+            assertThat(reassembler.accept(newest.get(9))).hasSize(100);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import net.silthus.schat.features.GlobalChatFeature;
+import net.silthus.schat.messenger.GsonPluginMessageSerializer;
+import net.silthus.schat.messenger.MessengerGateway;
+import net.silthus.schat.platform.messaging.CompressingMessengerGateway.Dictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.silthus.schat.channel.ChannelHelper.channelWith;
+import static net.silthus.schat.channel.ChannelSettings.GLOBAL;
+import static net.silthus.schat.message.Message.message;
+import static net.silthus.schat.messenger.PluginMessageSerializer.gsonSerializer;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.COMPRESSED_MARKER;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.Dictionary.JSON;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.Dictionary.NONE;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.compressing;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.decompress;
+import static net.silthus.schat.platform.messaging.CompressingMessengerGateway.isCompressed;
+import static net.silthus.schat.util.gson.GsonProviderStub.gsonProviderStub;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class CompressingMessengerGatewayTests {
+
+    private static final int MAX_SIZE = 64 * 1024;
+    private static final String CHAT_MESSAGE = "{\"message\":{\"id\":\"b71c3e0a-92d4-4f6e-8a15-3c7e9d2f4b68\","
+        + "\"timestamp\":\"2022-06-12T18:24:51.937Z\",\"text\":{\"text\":\"Does anyone want to trade some iron?\"},"
+        + "\"type\":\"CHAT\",\"source\":\"chatter:e4a82f17-5c9b-4d03-b6e1-7f2a0c8d9e35\",\"targets\":[\"channel:global\"],"
+        + "\"settings\":{}},\"id\":\"2d9f6b41-0e7a-4c83-95d2-a1b8c4e7f036\","
+        + "\"type\":\"net.silthus.schat.features.GlobalChatFeature$SendGlobalMessage\"}";
+
+    private final List<byte[]> sent = new ArrayList<>();
+    private CompressionMetrics metrics;
+    private MessengerGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new CompressionMetrics();
+        gateway = compressing(sent::add, new CompressingMessengerGateway.Config(true, 64, 6, MAX_SIZE), JSON, metrics);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] lastSent() {
+        return sent.get(sent.size() - 1);
+    }
+
+    private static byte[] compress(byte[] message, Dictionary dictionary) {
+        final List<byte[]> compressed = new ArrayList<>();
+        compressing(compressed::add, new CompressingMessengerGateway.Config(true, 0, 6, MAX_SIZE), dictionary, new CompressionMetrics())
+            .sendOutgoingMessage(message);
+        return compressed.get(0);
+    }
+
+    @Test
+    void disabled_config_returns_gateway() {
+        final MessengerGateway delegate = sent::add;
+        assertThat(compressing(delegate, CompressingMessengerGateway.Config.DISABLED, JSON, metrics)).isSameAs(delegate);
+    }
+
+    @Test
+    void message_below_threshold_is_sent_as_is() {
+        final byte[] message = bytes("{\"type\":\"small\"}");
+        gateway.sendOutgoingMessage(message);
+        assertThat(lastSent()).isSameAs(message);
+        assertThat(metrics.uncompressedMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void chat_message_is_compressed() {
+        gateway.sendOutgoingMessage(bytes(CHAT_MESSAGE));
+        assertThat(isCompressed(lastSent())).isTrue();
+        assertThat(lastSent().length).isLessThan(CHAT_MESSAGE.length() / 2);
+    }
+
+    @Test
+    void compressed_message_is_restored() {
+        gateway.sendOutgoingMessage(bytes(CHAT_MESSAGE));
+        assertThat(decompress(lastSent(), MAX_SIZE)).isEqualTo(bytes(CHAT_MESSAGE));
+    }
+
+    @Test
+    void dictionary_improves_compression_of_chat_messages() {
+        final Deflater deflater = new Deflater(6);
+        deflater.setInput(bytes(CHAT_MESSAGE));
+        deflater.finish();
+        final int withoutDictionary = deflater.deflate(new byte[CHAT_MESSAGE.length()]);
+        deflater.end();
+
+        gateway.sendOutgoingMessage(bytes(CHAT_MESSAGE));
+        assertThat(lastSent().length).isLessThan(withoutDictionary);
+    }
+
+    @Test
+    void dictionary_improves_compression_of_serialized_messages() {
+        final GsonPluginMessageSerializer serializer = gsonSerializer(gsonProviderStub());
+        serializer.registerMessageType(GlobalChatFeature.SendGlobalMessage.class);
+        final byte[] message = serializer.encodeToBytes(new GlobalChatFeature.SendGlobalMessage(
+            message(text("Does anyone want to trade some iron?")).to(channelWith("global", GLOBAL, true)).create()
+        ));
+
+        final byte[] withoutDictionary = compress(message, NONE);
+        final byte[] withDictionary = compress(message, JSON);
+        assertThat(withDictionary.length).isLessThan(withoutDictionary.length * 3 / 4);
+        assertThat(decompress(withDictionary, MAX_SIZE)).isEqualTo(message);
+    }
+
+    @Test
+    void message_is_compressed_without_dictionary() {
+        final byte[] compressed = compress(bytes(CHAT_MESSAGE), NONE);
+        assertThat(compressed[1]).isZero();
+        assertThat(decompress(compressed, MAX_SIZE)).isEqualTo(bytes(CHAT_MESSAGE));
+    }
+
+    @Test
+    void dictionary_is_selected_by_plugin_message_format() {
+        assertThat(Dictionary.forFormat("json")).isEqualTo(JSON);
+        assertThat(Dictionary.forFormat("binary")).isEqualTo(NONE);
+    }
+
+    @Test
+    void incompressible_message_is_sent_as_is() {
+        final byte[] message = new byte[512];
+        new Random(512).nextBytes(message);
+        message[0] = '{';
+        gateway.sendOutgoingMessage(message);
+        assertThat(lastSent()).isSameAs(message);
+        assertThat(metrics.uncompressedMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void uncompressed_messages_are_not_detected_as_compressed() {
+        assertThat(isCompressed(bytes(CHAT_MESSAGE))).isFalse();
+        assertThat(isCompressed(new byte[0])).isFalse();
+        assertThat(isCompressed(new byte[] {1, 2, 3})).isFalse();
+    }
+
+    @Nested class when_messages_are_sent {
+
+        @Test
+        void records_compression_ratio() {
+            gateway.sendOutgoingMessage(bytes(CHAT_MESSAGE));
+            gateway.sendOutgoingMessage(bytes("{}"));
+
+            assertThat(metrics.compressedMessages()).isEqualTo(1);
+            assertThat(metrics.uncompressedMessages()).isEqualTo(1);
+            assertThat(metrics.bytesIn()).isEqualTo(CHAT_MESSAGE.length() + 2);
+            assertThat(metrics.bytesOut()).isEqualTo(sent.get(0).length + 2);
+            assertThat(metrics.ratio()).isBetween(0.0, 0.5);
+        }
+
+        @Test
+        void ratio_is_one_without_messages() {
+            assertThat(metrics.ratio()).isEqualTo(1.0);
+        }
+    }
+
+    @Nested class given_invalid_payload {
+
+        private byte[] compressed;
+
+        @BeforeEach
+        void setUp() {
+            gateway.sendOutgoingMessage(bytes(CHAT_MESSAGE));
+            compressed = lastSent();
+        }
+
+        @Test
+        void uncompressed_payload_throws() {
+            assertThatIllegalArgumentException().isThrownBy(() -> decompress(bytes(CHAT_MESSAGE), MAX_SIZE));
+        }
+
+        @Test
+        void truncated_payload_throws() {
+            assertThatIllegalArgumentException().isThrownBy(() -> decompress(Arrays.copyOf(compressed, compressed.length - 4), MAX_SIZE));
+            assertThatIllegalArgumentException().isThrownBy(() -> decompress(new byte[] {COMPRESSED_MARKER}, MAX_SIZE));
+        }
+
+        @Test
+        void corrupt_payload_throws() {
+            final byte[] corrupt = compressed.clone();
+            for (int i = 6; i < corrupt.length; i++)
+                corrupt[i] ^= 0x5A;
+            assertThatIllegalArgumentException().isThrownBy(() -> decompress(corrupt, MAX_SIZE));
+        }
+
+        @Test
+        void unknown_dictionary_throws() {
+            final byte[] unknown = compressed.clone();
+            unknown[1] = 42;
+            assertThatIllegalArgumentException().isThrownBy(() -> decompress(unknown, MAX_SIZE));
+        }
+
+        @Test
+        void payload_exceeding_max_size_throws() {
+            assertThatIllegalArgumentException().isThrownBy(() -> decompress(compressed, CHAT_MESSAGE.length() - 1));
+        }
+    }
+}
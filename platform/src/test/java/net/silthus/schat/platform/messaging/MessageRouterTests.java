@@ -0,0 +1,194 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.silthus.schat.messenger.PluginMessageSerializer.gsonSerializer;
+import static net.silthus.schat.platform.messaging.MessageRouter.CHATTER_JOINED;
+import static net.silthus.schat.platform.messaging.MessageRouter.CHATTER_JOINED_CHANNEL;
+import static net.silthus.schat.platform.messaging.MessageRouter.CHATTER_LEFT;
+import static net.silthus.schat.platform.messaging.MessageRouter.CHATTER_LEFT_CHANNEL;
+import static net.silthus.schat.platform.messaging.MessageRouter.SEND_GLOBAL_MESSAGE;
+import static net.silthus.schat.platform.messaging.MessageRouter.messageRouter;
+import static net.silthus.schat.util.gson.GsonProviderStub.gsonProviderStub;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageRouterTests {
+
+    private static final Set<String> SERVERS = Set.of("lobby", "survival", "creative");
+
+    private MessageRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = messageRouter(gsonSerializer(gsonProviderStub()), 1024 * 1024);
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] chatterJoined(UUID chatter, String... channels) {
+        final String channelList = String.join(",", List.of(channels).stream().map(channel -> "\"" + channel + "\"").toList());
+        return bytes("""
+            {"chatter": {"identity": {"id": "%s", "name": "Player"}, "channels": [%s]}, "id": "%s", "type": "%s"}"""
+            .formatted(chatter, channelList, UUID.randomUUID(), CHATTER_JOINED));
+    }
+
+    private static byte[] chatterJoinedChannel(UUID chatter, String channel) {
+        return bytes("""
+            {"chatter": {"identity": {"id": "%s"}}, "channel": {"key": "%s"}, "id": "%s", "type": "%s"}"""
+            .formatted(chatter, channel, UUID.randomUUID(), CHATTER_JOINED_CHANNEL));
+    }
+
+    private static byte[] chatterLeft(UUID chatter) {
+        return bytes("""
+            {"chatterId": "%s", "session": "%s", "id": "%s", "type": "%s"}"""
+            .formatted(chatter, UUID.randomUUID(), UUID.randomUUID(), CHATTER_LEFT));
+    }
+
+    private static byte[] chatterLeftChannel(UUID chatter, String channel) {
+        return bytes("""
+            {"chatter": "chatter:%s", "channel": "channel:%s", "id": "%s", "type": "%s"}"""
+            .formatted(chatter, channel, UUID.randomUUID(), CHATTER_LEFT_CHANNEL));
+    }
+
+    private static byte[] globalMessage(String... targets) {
+        final String targetList = String.join(",", List.of(targets).stream().map(target -> "\"" + target + "\"").toList());
+        return bytes("""
+            {"message": {"text": {"text": "Hi"}, "targets": [%s]}, "id": "%s", "type": "%s"}"""
+            .formatted(targetList, UUID.randomUUID(), SEND_GLOBAL_MESSAGE));
+    }
+
+    private Set<String> route(String origin, byte[] message) {
+        return router.route(origin, message, SERVERS);
+    }
+
+    @Test
+    void membership_updates_are_sent_to_all_other_servers() {
+        assertThat(route("lobby", chatterJoined(UUID.randomUUID(), "global")))
+            .containsExactlyInAnyOrder("survival", "creative");
+    }
+
+    @Test
+    void unknown_messages_are_sent_to_all_other_servers() {
+        assertThat(route("lobby", bytes("{\"type\": \"foo.Bar\"}"))).containsExactlyInAnyOrder("survival", "creative");
+        assertThat(route("lobby", bytes("not json"))).containsExactlyInAnyOrder("survival", "creative");
+        assertThat(router.broadcastMessages()).isEqualTo(2);
+    }
+
+    @Test
+    void global_message_to_unknown_channel_is_sent_to_all_other_servers() {
+        assertThat(route("lobby", globalMessage("channel:global"))).containsExactlyInAnyOrder("survival", "creative");
+    }
+
+    @Nested class given_channel_members {
+
+        private UUID survivalPlayer;
+
+        @BeforeEach
+        void setUp() {
+            survivalPlayer = UUID.randomUUID();
+            route("survival", chatterJoined(survivalPlayer, "global"));
+            route("lobby", chatterJoined(UUID.randomUUID(), "global", "trade"));
+        }
+
+        @Test
+        void global_message_is_sent_to_servers_with_members() {
+            assertThat(route("lobby", globalMessage("channel:global"))).containsExactly("survival");
+            assertThat(route("creative", globalMessage("channel:global"))).containsExactlyInAnyOrder("survival", "lobby");
+            assertThat(router.skippedDeliveries()).isEqualTo(1);
+        }
+
+        @Test
+        void global_message_is_not_sent_back_to_origin() {
+            assertThat(route("lobby", globalMessage("channel:trade"))).isEmpty();
+        }
+
+        @Test
+        void joined_channel_adds_server() {
+            route("survival", chatterJoinedChannel(survivalPlayer, "trade"));
+            assertThat(router.servers("trade")).containsExactlyInAnyOrder("lobby", "survival");
+        }
+
+        @Test
+        void chatter_target_is_sent_to_server_of_chatter() {
+            assertThat(route("lobby", globalMessage("chatter:" + survivalPlayer))).containsExactly("survival");
+        }
+
+        @Test
+        void unknown_chatter_target_is_sent_to_all_servers() {
+            assertThat(route("lobby", globalMessage("chatter:" + UUID.randomUUID()))).containsExactlyInAnyOrder("survival", "creative");
+        }
+
+        @Test
+        void switching_servers_moves_memberships() {
+            route("creative", chatterJoined(survivalPlayer, "global"));
+            assertThat(router.servers("global")).containsExactlyInAnyOrder("lobby", "creative");
+        }
+
+        @Test
+        void left_channel_removes_server() {
+            route("survival", chatterJoinedChannel(survivalPlayer, "trade"));
+            route("survival", chatterLeftChannel(survivalPlayer, "trade"));
+            assertThat(router.servers("trade")).containsExactly("lobby");
+        }
+
+        @Test
+        void left_chatter_is_no_longer_routed_to() {
+            route("survival", chatterLeft(survivalPlayer));
+            assertThat(router.servers("global")).containsExactly("lobby");
+        }
+
+        @Test
+        void leave_of_previous_server_keeps_memberships() {
+            route("creative", chatterJoined(survivalPlayer, "global"));
+            route("survival", chatterLeft(survivalPlayer));
+            assertThat(router.servers("global")).containsExactlyInAnyOrder("lobby", "creative");
+        }
+
+        @Test
+        void removed_chatter_is_no_longer_routed_to() {
+            router.remove(survivalPlayer);
+            assertThat(router.servers("global")).containsExactly("lobby");
+        }
+
+        @Test
+        void batched_and_compressed_messages_are_routed() {
+            final List<byte[]> sent = new ArrayList<>();
+            CompressingMessengerGateway.compressing(sent::add, new CompressingMessengerGateway.Config(true, 0, 6, 1024), CompressingMessengerGateway.Dictionary.JSON, new CompressionMetrics())
+                .sendOutgoingMessage(BatchingMessengerGateway.pack(List.of(globalMessage("channel:trade"), globalMessage("channel:global"))));
+
+            assertThat(route("creative", sent.get(0))).containsExactlyInAnyOrder("lobby", "survival");
+        }
+    }
+}
@@ -23,6 +23,8 @@
  */
 package net.silthus.schat.platform.messaging;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.NonNull;
 import net.silthus.schat.messenger.Messenger;
 import net.silthus.schat.messenger.PluginMessage;
@@ -30,6 +32,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
@@ -57,6 +60,31 @@ class MessagingServiceTest {
         service.assertProcessedMessageCountIs(1);
     }
 
+    @Test
+    void batched_messages_are_unpacked_and_processed() {
+        final byte[] batch = BatchingMessengerGateway.pack(List.of(
+            service.serializer().encodeToBytes(new MockPluginMessage()),
+            service.serializer().encodeToBytes(new MockPluginMessage())
+        ));
+        assertThat(service.consumeIncomingMessageAsBytes(batch)).isTrue();
+        service.assertProcessedMessageCountIs(2);
+    }
+
+    @Test
+    void compressed_batches_are_decompressed_and_processed() {
+        final List<byte[]> sent = new ArrayList<>();
+        CompressingMessengerGateway.compressing(sent::add, new CompressingMessengerGateway.Config(true, 0, 6, 1024), CompressingMessengerGateway.Dictionary.JSON, new CompressionMetrics())
+            .sendOutgoingMessage(BatchingMessengerGateway.pack(List.of(
+                service.serializer().encodeToBytes(new MockPluginMessage()),
+                service.serializer().encodeToBytes(new MockPluginMessage())
+            )));
+        assertThat(sent).singleElement().matches(CompressingMessengerGateway::isCompressed);
+
+        assertThat(service.consumeIncomingMessageAsBytes(sent.get(0))).isTrue();
+        service.assertProcessedMessageCountIs(2);
+        assertThat(service.compressionMetrics().decompressedMessages()).isEqualTo(1);
+    }
+
     @Test
     void received_message_is_processed() {
         final MockPluginMessage message = new MockPluginMessage();
@@ -0,0 +1,304 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static net.silthus.schat.platform.messaging.OfflineMessageQueue.Overflow.DROP_NEWEST;
+import static net.silthus.schat.platform.messaging.OfflineMessageQueue.Overflow.DROP_OLDEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class OfflineMessageQueueTests {
+
+    private static final OfflineMessageQueue.Config CONFIG = new OfflineMessageQueue.Config(3, 64, Duration.ofSeconds(10), DROP_OLDEST, true);
+
+    private long now;
+    private OfflineMessageQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        queue = queue(CONFIG);
+    }
+
+    private OfflineMessageQueue queue(OfflineMessageQueue.Config config) {
+        return new OfflineMessageQueue(config, () -> now);
+    }
+
+    private static List<byte[]> message(String... frames) {
+        return List.of(frames).stream().map(frame -> frame.getBytes(StandardCharsets.UTF_8)).toList();
+    }
+
+    private static List<String> texts(List<List<byte[]>> messages) {
+        return messages.stream()
+            .map(frames -> String.join("|", frames.stream().map(frame -> new String(frame, StandardCharsets.UTF_8)).toList()))
+            .toList();
+    }
+
+    private static List<List<byte[]>> drain(OfflineMessageQueue queue, String server) {
+        final List<List<byte[]>> messages = new ArrayList<>();
+        queue.flush(server, messages::add);
+        return messages;
+    }
+
+    @Test
+    void flushed_messages_are_delivered_in_order() {
+        queue.enqueue("lobby", message("one"));
+        queue.enqueue("lobby", message("two", "three"));
+        final List<List<byte[]>> delivered = new ArrayList<>();
+
+        assertThat(queue.flush("lobby", delivered::add)).isEqualTo(2);
+        assertThat(texts(delivered)).containsExactly("one", "two|three");
+        assertThat(queue.size("lobby")).isZero();
+        assertThat(queue.deliveredMessages()).isEqualTo(2);
+    }
+
+    @Test
+    void undelivered_messages_are_queued_again_in_front_with_their_time() {
+        queue.enqueue("lobby", message("one"));
+        now = Duration.ofSeconds(6).toMillis();
+        queue.enqueue("lobby", message("two"));
+
+        assertThat(queue.flush("lobby", frames -> {
+            queue.enqueue("lobby", message("three"));
+            return false;
+        })).isZero();
+        now = Duration.ofSeconds(11).toMillis();
+
+        assertThat(texts(drain(queue, "lobby"))).containsExactly("two", "three");
+        assertThat(queue.expiredMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void requeued_messages_respect_the_queue_limit() {
+        queue.enqueue("lobby", message("one"));
+        queue.enqueue("lobby", message("two"));
+
+        queue.flush("lobby", frames -> {
+            queue.enqueue("lobby", message("three"));
+            queue.enqueue("lobby", message("four"));
+            return false;
+        });
+
+        assertThat(texts(drain(queue, "lobby"))).containsExactly("two", "three", "four");
+        assertThat(queue.droppedMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void servers_have_separate_queues() {
+        queue.enqueue("lobby", message("one"));
+        queue.enqueue("survival", message("two"));
+
+        assertThat(texts(drain(queue, "survival"))).containsExactly("two");
+        assertThat(queue.size("lobby")).isEqualTo(1);
+        assertThat(drain(queue, "unknown")).isEmpty();
+    }
+
+    @Test
+    void expired_messages_are_dropped() {
+        queue.enqueue("lobby", message("old"));
+        now = Duration.ofSeconds(6).toMillis();
+        queue.enqueue("lobby", message("new"));
+        now = Duration.ofSeconds(11).toMillis();
+
+        assertThat(texts(drain(queue, "lobby"))).containsExactly("new");
+        assertThat(queue.expiredMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void message_larger_than_queue_is_dropped() {
+        assertThat(queue.enqueue("lobby", message("x".repeat(65)))).isFalse();
+        assertThat(queue.droppedMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void invalid_overflow_policy_throws() {
+        assertThat(OfflineMessageQueue.Overflow.overflow("drop_newest")).isEqualTo(DROP_NEWEST);
+        assertThatIllegalArgumentException().isThrownBy(() -> OfflineMessageQueue.Overflow.overflow("foobar"));
+    }
+
+    @Nested class given_full_queue {
+
+        private void fill(OfflineMessageQueue queue) {
+            queue.enqueue("lobby", message("one"));
+            queue.enqueue("lobby", message("two"));
+            queue.enqueue("lobby", message("three"));
+        }
+
+        @Test
+        void drop_oldest_drops_oldest_message() {
+            fill(queue);
+            assertThat(queue.enqueue("lobby", message("four"))).isTrue();
+
+            assertThat(texts(drain(queue, "lobby"))).containsExactly("two", "three", "four");
+            assertThat(queue.droppedMessages()).isEqualTo(1);
+        }
+
+        @Test
+        void drop_newest_drops_new_message() {
+            queue = queue(new OfflineMessageQueue.Config(3, 64, Duration.ofSeconds(10), DROP_NEWEST, false));
+            fill(queue);
+            assertThat(queue.enqueue("lobby", message("four"))).isFalse();
+
+            assertThat(texts(drain(queue, "lobby"))).containsExactly("one", "two", "three");
+        }
+
+        @Test
+        void byte_limit_drops_as_many_messages_as_needed() {
+            fill(queue);
+            queue.enqueue("lobby", message("x".repeat(60)));
+
+            assertThat(texts(drain(queue, "lobby"))).containsExactly("x".repeat(60));
+            assertThat(queue.droppedMessages()).isEqualTo(3);
+        }
+    }
+
+    @Nested class given_frames_of_a_message {
+
+        private List<byte[]> frames;
+        private List<byte[]> delivered;
+
+        @BeforeEach
+        void setUp() {
+            final ChunkedFraming framing = ChunkedFraming.chunkedFraming(new ChunkedFraming.Config(ChunkedFraming.HEADER_SIZE + 2, 16, 16, Duration.ofSeconds(1)));
+            frames = framing.frame("abcdef".getBytes(StandardCharsets.UTF_8));
+            delivered = new ArrayList<>();
+        }
+
+        private void offer(int frame, boolean online) {
+            queue.offerFrame("lobby", frames.get(frame), payload -> online && delivered.add(payload));
+        }
+
+        private List<List<byte[]>> queued() {
+            return drain(queue, "lobby");
+        }
+
+        @Test
+        void delivered_frames_are_not_queued() {
+            for (int i = 0; i < frames.size(); i++)
+                offer(i, true);
+
+            assertThat(delivered).containsExactlyElementsOf(frames);
+            assertThat(queue.size("lobby")).isZero();
+        }
+
+        @Test
+        void undelivered_frames_are_queued_as_one_message_after_the_last_frame() {
+            offer(0, false);
+            offer(1, false);
+            assertThat(queue.size("lobby")).isZero();
+
+            offer(2, false);
+            assertThat(queued()).singleElement().satisfies(message -> assertThat(message).containsExactlyElementsOf(frames));
+        }
+
+        @Test
+        void frames_following_a_queued_frame_are_queued() {
+            offer(0, false);
+            offer(1, true);
+            offer(2, true);
+
+            assertThat(delivered).isEmpty();
+            assertThat(queued()).singleElement().satisfies(message -> assertThat(message).containsExactlyElementsOf(frames));
+        }
+
+        @Test
+        void frames_after_a_failed_delivery_are_queued() {
+            offer(0, true);
+            offer(1, false);
+            offer(2, false);
+
+            assertThat(queued()).singleElement().satisfies(message -> assertThat(message).containsExactly(frames.get(1), frames.get(2)));
+        }
+
+        @Test
+        void incomplete_messages_expire() {
+            offer(0, false);
+            offer(1, false);
+            now = Duration.ofSeconds(11).toMillis();
+            queue.enqueue("lobby", message("one"));
+
+            assertThat(texts(queued())).containsExactly("one");
+            assertThat(queue.expiredMessages()).isEqualTo(1);
+        }
+    }
+
+    @Nested class given_persistence {
+
+        @TempDir
+        Path directory;
+        private Path file;
+
+        @BeforeEach
+        void setUp() {
+            file = directory.resolve("offline-queue.dat");
+        }
+
+        @Test
+        void saved_messages_are_loaded_and_file_is_deleted() throws IOException {
+            queue.enqueue("lobby", message("one", "two"));
+            queue.enqueue("survival", message("three"));
+            queue.save(file);
+
+            final OfflineMessageQueue loaded = queue(CONFIG);
+            loaded.load(file);
+
+            assertThat(texts(drain(loaded, "lobby"))).containsExactly("one|two");
+            assertThat(texts(drain(loaded, "survival"))).containsExactly("three");
+            assertThat(file).doesNotExist();
+        }
+
+        @Test
+        void messages_expired_while_stopped_are_dropped() throws IOException {
+            queue.enqueue("lobby", message("one"));
+            queue.save(file);
+
+            now = Duration.ofSeconds(20).toMillis();
+            final OfflineMessageQueue loaded = queue(CONFIG);
+            loaded.load(file);
+
+            assertThat(loaded.size("lobby")).isZero();
+            assertThat(loaded.expiredMessages()).isEqualTo(1);
+        }
+
+        @Test
+        void nothing_is_saved_if_persistence_is_disabled() throws IOException {
+            queue = queue(new OfflineMessageQueue.Config(3, 64, Duration.ofSeconds(10), DROP_OLDEST, false));
+            queue.enqueue("lobby", message("one"));
+            queue.save(file);
+
+            assertThat(file).doesNotExist();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static net.silthus.schat.platform.messaging.ProcessedMessages.limits;
+import static net.silthus.schat.platform.messaging.ProcessedMessages.processedMessages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ProcessedMessagesTests {
+
+    private final AtomicLong clock = new AtomicLong();
+    private ProcessedMessages messages;
+
+    @BeforeEach
+    void setUp() {
+        messages = processedMessages(limits(3, Duration.ofSeconds(10)), clock::get);
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void new_id_is_added() {
+        final UUID id = UUID.randomUUID();
+        assertThat(messages.add(id)).isTrue();
+        assertThat(messages.contains(id)).isTrue();
+    }
+
+    @Test
+    void same_id_is_only_added_once() {
+        final UUID id = UUID.randomUUID();
+        messages.add(id);
+        assertThat(messages.add(id)).isFalse();
+    }
+
+    @Test
+    void capacity_less_than_one_throws() {
+        assertThatIllegalArgumentException().isThrownBy(() -> limits(0, Duration.ZERO));
+    }
+
+    @Test
+    void stats_count_hits_and_misses() {
+        final UUID id = UUID.randomUUID();
+        messages.add(id);
+        messages.add(id);
+        messages.add(UUID.randomUUID());
+        assertThat(messages.stats()).isEqualTo(new ProcessedMessages.Stats(1, 2, 0, 2));
+    }
+
+    @Nested class given_full_capacity {
+        private final List<UUID> ids = new ArrayList<>();
+
+        @BeforeEach
+        void setUp() {
+            for (int i = 0; i < 3; i++) {
+                final UUID id = UUID.randomUUID();
+                ids.add(id);
+                messages.add(id);
+            }
+        }
+
+        @Test
+        void adding_id_evicts_oldest() {
+            messages.add(UUID.randomUUID());
+            assertThat(messages.contains(ids.get(0))).isFalse();
+            assertThat(messages.contains(ids.get(1))).isTrue();
+            assertThat(messages.size()).isEqualTo(3);
+            assertThat(messages.stats().evictions()).isEqualTo(1);
+        }
+    }
+
+    @Nested class given_expired_window {
+        private UUID id;
+
+        @BeforeEach
+        void setUp() {
+            id = UUID.randomUUID();
+            messages.add(id);
+            advance(Duration.ofSeconds(10));
+        }
+
+        @Test
+        void id_is_no_longer_contained() {
+            assertThat(messages.contains(id)).isFalse();
+        }
+
+        @Test
+        void id_is_accepted_again() {
+            assertThat(messages.add(id)).isTrue();
+            assertThat(messages.add(id)).isFalse();
+        }
+
+        @Test
+        void expired_ids_are_evicted_on_add() {
+            messages.add(UUID.randomUUID());
+            assertThat(messages.size()).isEqualTo(1);
+            assertThat(messages.stats().evictions()).isEqualTo(1);
+        }
+    }
+
+    @Nested class given_no_window {
+
+        @BeforeEach
+        void setUp() {
+            messages = processedMessages(limits(3, Duration.ZERO), clock::get);
+        }
+
+        @Test
+        void ids_never_expire() {
+            final UUID id = UUID.randomUUID();
+            messages.add(id);
+            advance(Duration.ofDays(365));
+            assertThat(messages.add(id)).isFalse();
+        }
+    }
+
+    @Nested class given_concurrent_access {
+
+        @Test
+        void every_id_is_accepted_exactly_once() {
+            messages = processedMessages(limits(100_000, Duration.ZERO));
+            final List<UUID> ids = new ArrayList<>();
+            for (int i = 0; i < 1000; i++)
+                ids.add(UUID.randomUUID());
+
+            final AtomicInteger accepted = new AtomicInteger();
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (UUID id : ids)
+                        if (messages.add(id))
+                            accepted.incrementAndGet();
+                }));
+            }
+            start.countDown();
+            futures.forEach(CompletableFuture::join);
+
+            assertThat(accepted).hasValue(1000);
+            assertThat(messages.stats().hits()).isEqualTo(7000);
+        }
+
+        @Test
+        void size_stays_bounded() {
+            final List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 1000; i++)
+                        messages.add(UUID.randomUUID());
+                }));
+            }
+            futures.forEach(CompletableFuture::join);
+            messages.add(UUID.randomUUID());
+
+            assertThat(messages.size()).isLessThanOrEqualTo(3);
+        }
+    }
+}
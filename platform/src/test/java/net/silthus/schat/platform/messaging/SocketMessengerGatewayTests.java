@@ -0,0 +1,291 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.platform.messaging;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import lombok.NonNull;
+import net.silthus.schat.messenger.IncomingMessageConsumer;
+import net.silthus.schat.messenger.PluginMessage;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static net.silthus.schat.platform.messaging.SocketMessengerGateway.Mode.CLIENT;
+import static net.silthus.schat.platform.messaging.SocketMessengerGateway.Mode.HUB;
+import static net.silthus.schat.platform.messaging.SocketMessengerGateway.socketMessengerGateway;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class SocketMessengerGatewayTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<SocketMessengerGateway> gateways = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        gateways.forEach(SocketMessengerGateway::close);
+    }
+
+    private static SocketMessengerGateway.Config config(SocketMessengerGateway.Mode mode, String address, String secret) {
+        return new SocketMessengerGateway.Config(mode, address, secret, 1024, 4096, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofMillis(500));
+    }
+
+    private SocketMessengerGateway gateway(@Nullable IncomingMessageConsumer consumer, SocketMessengerGateway.Config config) {
+        final SocketMessengerGateway gateway = socketMessengerGateway(consumer, Runnable::run, config);
+        gateways.add(gateway);
+        return gateway;
+    }
+
+    private SocketMessengerGateway hub(String address, String secret) {
+        return gateway(null, config(HUB, address, secret));
+    }
+
+    private SocketMessengerGateway client(Consumer consumer, String address, String secret) {
+        return gateway(consumer, config(CLIENT, address, secret));
+    }
+
+    private static String tcp(SocketMessengerGateway hub) {
+        return "127.0.0.1:" + ((InetSocketAddress) hub.localAddress()).getPort();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void parses_tcp_and_unix_addresses() {
+        assertThat(SocketMessengerGateway.address("localhost:24454")).isEqualTo(new InetSocketAddress("localhost", 24454));
+        assertThat(SocketMessengerGateway.address("unix:/tmp/schat.sock").toString()).isEqualTo("/tmp/schat.sock");
+        assertThatIllegalArgumentException().isThrownBy(() -> SocketMessengerGateway.address("localhost"));
+        assertThatIllegalArgumentException().isThrownBy(() -> SocketMessengerGateway.address("localhost:port"));
+    }
+
+    @Test
+    void messages_larger_than_the_max_size_are_rejected() {
+        final SocketMessengerGateway hub = hub("127.0.0.1:0", "");
+        assertThatIllegalArgumentException().isThrownBy(() -> hub.sendOutgoingMessage(new byte[1025]));
+    }
+
+    @Test
+    void hub_without_secret_is_refused_on_public_addresses() {
+        assertThatIllegalStateException().isThrownBy(() -> hub("0.0.0.0:0", ""));
+    }
+
+    @Test
+    void hub_with_secret_starts_on_public_addresses() {
+        assertThat(hub("0.0.0.0:0", "secret").localAddress()).isNotNull();
+    }
+
+    @Nested class given_a_tcp_hub_with_two_clients {
+
+        private SocketMessengerGateway hub;
+        private Consumer first;
+        private Consumer second;
+        private SocketMessengerGateway firstClient;
+        private SocketMessengerGateway secondClient;
+
+        private void connect(String address) throws InterruptedException {
+            first = new Consumer();
+            second = new Consumer();
+            firstClient = client(first, address, "secret");
+            secondClient = client(second, address, "secret");
+            await(() -> hub.connectedPeers() == 2);
+        }
+
+        @Test
+        void messages_are_relayed_to_the_other_clients() throws InterruptedException {
+            hub = hub("127.0.0.1:0", "secret");
+            connect(tcp(hub));
+
+            firstClient.sendOutgoingMessage(bytes("hello"));
+
+            assertThat(second.next()).isEqualTo("hello");
+            assertThat(first.nothingReceived()).isTrue();
+            assertThat(hub.receivedMessages()).isEqualTo(1);
+        }
+
+        @Test
+        void messages_of_the_hub_are_sent_to_all_clients() throws InterruptedException {
+            hub = hub("127.0.0.1:0", "secret");
+            connect(tcp(hub));
+
+            hub.sendOutgoingMessage(bytes("from hub"));
+
+            assertThat(first.next()).isEqualTo("from hub");
+            assertThat(second.next()).isEqualTo("from hub");
+        }
+
+        @Test
+        void keeps_the_order_of_messages() throws InterruptedException {
+            hub = hub("127.0.0.1:0", "secret");
+            connect(tcp(hub));
+
+            for (int i = 0; i < 100; i++)
+                firstClient.sendOutgoingMessage(bytes("message " + i));
+
+            for (int i = 0; i < 100; i++)
+                assertThat(second.next()).isEqualTo("message " + i);
+        }
+
+        @Test
+        void messages_are_exchanged_over_unix_domain_sockets(@TempDir Path directory) throws InterruptedException {
+            final String address = "unix:" + directory.resolve("schat.sock");
+            hub = hub(address, "secret");
+            connect(address);
+
+            secondClient.sendOutgoingMessage(bytes("unix"));
+
+            assertThat(first.next()).isEqualTo("unix");
+        }
+    }
+
+    @Test
+    void clients_with_a_wrong_secret_are_rejected() throws InterruptedException {
+        final SocketMessengerGateway hub = hub("127.0.0.1:0", "secret");
+        final Consumer valid = new Consumer();
+        final Consumer invalid = new Consumer();
+        client(valid, tcp(hub), "secret");
+        final SocketMessengerGateway intruder = client(invalid, tcp(hub), "wrong");
+        await(() -> hub.connectedPeers() == 1);
+
+        intruder.sendOutgoingMessage(bytes("intrusion"));
+        hub.sendOutgoingMessage(bytes("private"));
+
+        assertThat(valid.next()).isEqualTo("private");
+        assertThat(valid.nothingReceived()).isTrue();
+        assertThat(invalid.nothingReceived()).isTrue();
+        assertThat(intruder.connectedPeers()).isZero();
+        assertThat(intruder.sentMessages()).isZero();
+    }
+
+    @Test
+    void connections_without_handshake_are_closed_after_the_timeout() throws IOException {
+        final SocketMessengerGateway hub = hub("127.0.0.1:0", "secret");
+        try (SocketChannel idle = SocketChannel.open(hub.localAddress())) {
+            idle.socket().setSoTimeout((int) TIMEOUT.toMillis());
+            assertThat(idle.socket().getInputStream().read()).isEqualTo(-1);
+        }
+        assertThat(hub.connectedPeers()).isZero();
+    }
+
+    @Test
+    void queued_messages_are_sent_when_the_client_is_closed() throws InterruptedException {
+        final Consumer receiver = new Consumer();
+        final SocketMessengerGateway hub = gateway(receiver, config(HUB, "127.0.0.1:0", ""));
+        final SocketMessengerGateway client = client(new Consumer(), tcp(hub), "");
+        await(() -> client.connectedPeers() == 1);
+
+        for (int i = 0; i < 10; i++)
+            client.sendOutgoingMessage(bytes("message " + i));
+        client.close();
+
+        for (int i = 0; i < 10; i++)
+            assertThat(receiver.next()).isEqualTo("message " + i);
+    }
+
+    @Test
+    void queued_messages_are_sent_when_the_hub_is_closed() throws InterruptedException {
+        final SocketMessengerGateway hub = hub("127.0.0.1:0", "");
+        final Consumer receiver = new Consumer();
+        client(receiver, tcp(hub), "");
+        await(() -> hub.connectedPeers() == 1);
+
+        hub.sendOutgoingMessage(bytes("goodbye"));
+        hub.close();
+
+        assertThat(receiver.next()).isEqualTo("goodbye");
+    }
+
+    @Test
+    void clients_reconnect_and_send_pending_messages_after_the_hub_restarts() throws InterruptedException {
+        final SocketMessengerGateway hub = hub("127.0.0.1:0", "");
+        final String address = tcp(hub);
+        final SocketMessengerGateway client = client(new Consumer(), address, "");
+        await(() -> hub.connectedPeers() == 1);
+
+        hub.close();
+        await(() -> client.connectedPeers() == 0);
+        client.sendOutgoingMessage(bytes("while offline"));
+
+        final Consumer receiver = new Consumer();
+        final SocketMessengerGateway restarted = gateway(receiver, config(HUB, address, ""));
+
+        assertThat(receiver.next()).isEqualTo("while offline");
+        assertThat(restarted.connectedPeers()).isEqualTo(1);
+        assertThat(client.reconnects()).isEqualTo(1);
+    }
+
+    private static final class Consumer implements IncomingMessageConsumer {
+
+        private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+        private String next() throws InterruptedException {
+            final String message = received.poll(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            assertThat(message).as("no message received in time").isNotNull();
+            return message;
+        }
+
+        private boolean nothingReceived() throws InterruptedException {
+            return received.poll(100, TimeUnit.MILLISECONDS) == null;
+        }
+
+        @Override
+        public boolean consumeIncomingMessage(@NonNull PluginMessage message) {
+            return false;
+        }
+
+        @Override
+        public boolean consumeIncomingMessageAsString(@NonNull String encodedString) {
+            return false;
+        }
+
+        @Override
+        public boolean consumeIncomingMessageAsBytes(byte @NonNull [] encodedBytes) {
+            return received.add(new String(encodedBytes, StandardCharsets.UTF_8));
+        }
+    }
+}
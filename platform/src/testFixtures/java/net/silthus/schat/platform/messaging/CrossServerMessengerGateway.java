@@ -42,9 +42,9 @@ public class CrossServerMessengerGateway implements MessengerGateway {
     }
 
     @Override
-    public void sendOutgoingMessage(String encodedMessage) {
+    public void sendOutgoingMessage(byte[] encodedMessage) {
         for (TestServer server : servers) {
-            server.messenger().consumeIncomingMessageAsString(encodedMessage);
+            server.messenger().consumeIncomingMessageAsBytes(encodedMessage);
         }
     }
 }
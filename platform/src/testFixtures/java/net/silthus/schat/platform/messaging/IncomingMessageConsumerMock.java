@@ -37,4 +37,9 @@ public class IncomingMessageConsumerMock implements IncomingMessageConsumer {
     public boolean consumeIncomingMessageAsString(@NonNull String encodedString) {
         return false;
     }
+
+    @Override
+    public boolean consumeIncomingMessageAsBytes(byte @NonNull [] encodedBytes) {
+        return false;
+    }
 }
@@ -34,6 +34,6 @@ public class MockMessagingGatewayProvider implements MessengerGatewayProvider {
     @NotNull
     @Override
     public @NonNull MessengerGateway obtain(@NonNull IncomingMessageConsumer incomingMessageConsumer) {
-        return incomingMessageConsumer::consumeIncomingMessageAsString;
+        return incomingMessageConsumer::consumeIncomingMessageAsBytes;
     }
 }
@@ -107,7 +107,7 @@ public class TestServer extends AbstractSChatServerPlugin {
     }
 
     public void leaveServer(SenderMock sender) {
-        chatterRepository().remove(sender.uniqueId());
+        ((TestConnectionListener) connectionListener()).leaveServer(sender);
     }
 
     @Override
@@ -118,11 +118,15 @@ public class TestServer extends AbstractSChatServerPlugin {
     private final class TestConnectionListener extends ConnectionListener {
 
         private TestConnectionListener() {
-            super(chatterRepository(), chatterFactory(), messenger(), eventBus());
+            super(chatterRepository(), chatterFactory(), messenger(), eventBus(), chatterStore());
         }
 
         public void joinServer(Sender sender) {
             onJoin(sender);
         }
+
+        public void leaveServer(Sender sender) {
+            onLeave(sender.uniqueId());
+        }
     }
 }
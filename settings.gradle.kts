@@ -15,6 +15,7 @@ sChatProject("bukkit")
 sChatProject("velocity")
 sChatProject("bungeecord")
 sChatProject("acceptance")
+sChatProject("benchmarks")
 
 fun sChatProject(path: String, name: String = "schat-$path"): ProjectDescriptor {
     include(path)
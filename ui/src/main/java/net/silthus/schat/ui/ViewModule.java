@@ -32,18 +32,26 @@ import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import net.silthus.schat.channel.PrivateChannel;
+import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.eventbus.EventBus;
+import net.silthus.schat.eventbus.EventSubscription;
 import net.silthus.schat.eventbus.Subscribe;
 import net.silthus.schat.events.chatter.ChatterJoinedServerEvent;
+import net.silthus.schat.events.chatter.ChatterLeftServerEvent;
 import net.silthus.schat.ui.format.Format;
 import net.silthus.schat.ui.format.MiniMessageFormat;
 import net.silthus.schat.ui.placeholder.Replacements;
+import net.silthus.schat.ui.view.View;
 import net.silthus.schat.ui.view.ViewConfig;
 import net.silthus.schat.ui.view.ViewFactory;
 import net.silthus.schat.ui.view.ViewProvider;
+import net.silthus.schat.ui.view.ViewUpdater;
 import net.silthus.schat.ui.views.Views;
 import net.silthus.schat.ui.views.tabbed.TabbedChannelsView;
 import net.silthus.schat.util.gson.GsonProvider;
@@ -57,17 +65,20 @@ public class ViewModule {
 
     private final ViewConfig config;
     private final EventBus eventBus;
+    private final ViewUpdater viewUpdater;
     private final ViewFactory viewFactory;
     private final GsonProvider gsonProvider;
     private final ViewProvider viewProvider;
     private final Replacements replacements = new Replacements();
+    private final Map<Chatter, Set<EventSubscription<?>>> viewSubscriptions = new ConcurrentHashMap<>();
 
     public ViewModule(ViewConfig config, EventBus eventBus, GsonProvider gsonProvider) {
         this.config = config;
         this.eventBus = eventBus;
+        this.viewUpdater = createViewUpdater(config);
         this.viewFactory = chatter -> {
-            final TabbedChannelsView view = Views.tabbedChannels(chatter, config());
-            eventBus.register(view);
+            final TabbedChannelsView view = Views.tabbedChannels(chatter, config(), viewUpdater());
+            viewSubscriptions.put(chatter, eventBus.register(view, chatter));
             return view;
         };
         this.gsonProvider = gsonProvider;
@@ -85,7 +96,25 @@ public class ViewModule {
 
     @Subscribe
     private void onChatterJoin(ChatterJoinedServerEvent event) {
-        viewProvider.view(event.chatter()).update();
+        viewUpdater.requestUpdate(viewProvider.view(event.chatter()));
+    }
+
+    @Subscribe
+    private void onChatterLeave(ChatterLeftServerEvent event) {
+        // closed first, otherwise a running handler could mark the view dirty again after it was discarded
+        final Set<EventSubscription<?>> subscriptions = viewSubscriptions.remove(event.chatter());
+        if (subscriptions != null)
+            subscriptions.forEach(EventSubscription::close);
+        final View view = viewProvider.remove(event.chatter());
+        if (view != null)
+            viewUpdater.discard(view);
+    }
+
+    private static ViewUpdater createViewUpdater(ViewConfig config) {
+        if (config.updateInterval() > 0)
+            return ViewUpdater.coalescing(config.maxUpdatesPerSecond());
+        else
+            return ViewUpdater.immediate();
     }
 
     private void configurePrivateChats() {
@@ -107,7 +136,7 @@ public class ViewModule {
             if (json.isJsonNull())
                 return null;
             else
-                return new MiniMessageFormat(json.getAsString());
+                return MiniMessageFormat.miniMessageFormat(json.getAsString());
         }
     }
 }
@@ -24,6 +24,15 @@
 package net.silthus.schat.ui.format;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import net.kyori.adventure.text.Component;
@@ -34,39 +43,122 @@ import net.silthus.schat.pointer.Pointer;
 import net.silthus.schat.pointer.Pointered;
 import net.silthus.schat.ui.view.View;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
 
+/**
+ * A format that renders a MiniMessage template with the pointers of the formatted entity as placeholders.
+ *
+ * <p>The format string is compiled once into the list of placeholders it references.
+ * Only those placeholders are resolved when formatting and the parsed component is cached
+ * for the resolved placeholder values, so the same message is only parsed once for all viewers.</p>
+ *
+ * <p>Use {@link #miniMessageFormat(String)} to share compiled formats for the same format string.</p>
+ */
 @Getter
 @Accessors(fluent = true)
 public class MiniMessageFormat implements Format {
+
+    private static final int FORMAT_CACHE_SIZE = 1024;
+    private static final int RENDER_CACHE_SIZE = 256;
+    private static final Pattern TAG_PATTERN = Pattern.compile("(?<!\\\\)</?([a-z0-9_\\-]+)");
+    private static final TagResolver STANDARD_TAGS = TagResolver.standard();
+    private static final Map<String, MiniMessageFormat> FORMATS = lruCache(FORMAT_CACHE_SIZE);
+
+    /**
+     * Gets a compiled format for the given format string.
+     *
+     * <p>Formats are cached by their format string and shared between all callers.</p>
+     *
+     * @param format the MiniMessage format string
+     * @return the compiled format
+     */
+    public static @NotNull MiniMessageFormat miniMessageFormat(@NotNull String format) {
+        synchronized (FORMATS) {
+            return FORMATS.computeIfAbsent(format, MiniMessageFormat::new);
+        }
+    }
+
     private final MiniMessage formatter = MiniMessage.miniMessage();
     private final String format;
+    private final @Unmodifiable List<String> placeholders;
+    @Getter(AccessLevel.NONE)
+    private final Map<List<Object>, Component> rendered = lruCache(RENDER_CACHE_SIZE);
 
     public MiniMessageFormat(String format) {
         this.format = format;
+        this.placeholders = compile(format);
     }
 
     @Override
     public Component format(View view, Pointered type) {
-        return formatter.deserialize(format, TagResolver.standard(), resolvePlaceholders(type, ""));
+        final Object[] values = new Object[placeholders.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = resolve(type, placeholders.get(i));
+        }
+
+        final List<Object> key = Arrays.asList(values);
+        synchronized (rendered) {
+            final Component component = rendered.get(key);
+            if (component != null)
+                return component;
+        }
+
+        final Component component = formatter.deserialize(format, STANDARD_TAGS, resolvers(values));
+        synchronized (rendered) {
+            rendered.put(key, component);
+        }
+        return component;
     }
 
-    private TagResolver resolvePlaceholders(Pointered type, String path) {
-        ArrayList<TagResolver> resolvers = new ArrayList<>();
-        for (Pointer<?> pointer : type.pointers().pointers()) {
-            resolvers.add(type.get(pointer)
-                .map(value -> resolve(path + pointer.key(), value))
-                .orElse(TagResolver.empty()));
+    private TagResolver resolvers(Object[] values) {
+        final ArrayList<TagResolver> resolvers = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] instanceof String value)
+                resolvers.add(Placeholder.parsed(placeholders.get(i), value));
+            else if (values[i] instanceof Component value)
+                resolvers.add(Placeholder.component(placeholders.get(i), value));
         }
         return TagResolver.resolver(resolvers);
     }
 
-    private TagResolver resolve(@NotNull String key, Object value) {
-        if (value instanceof String)
-            return Placeholder.parsed(key, (String) value);
-        if (value instanceof Component)
-            return Placeholder.component(key, (Component) value);
-        if (value instanceof Pointered)
-            return resolvePlaceholders((Pointered) value, key + "_");
-        return TagResolver.empty();
+    private static @Nullable Object resolve(Pointered type, String placeholder) {
+        for (final Pointer<?> pointer : type.pointers().pointers()) {
+            final String key = pointer.key();
+            if (!placeholder.startsWith(key))
+                continue;
+            final Object value = type.getOrNull(pointer);
+            if (placeholder.length() == key.length()) {
+                if (value instanceof String || value instanceof Component)
+                    return value;
+            } else if (placeholder.charAt(key.length()) == '_' && value instanceof Pointered pointered) {
+                final Object nested = resolve(pointered, placeholder.substring(key.length() + 1));
+                if (nested != null)
+                    return nested;
+            }
+        }
+        return null;
+    }
+
+    private static @Unmodifiable List<String> compile(@Nullable String format) {
+        if (format == null)
+            return List.of();
+        final Set<String> placeholders = new LinkedHashSet<>();
+        final Matcher matcher = TAG_PATTERN.matcher(format);
+        while (matcher.find()) {
+            final String tag = matcher.group(1);
+            if (!STANDARD_TAGS.has(tag))
+                placeholders.add(tag);
+        }
+        return List.copyOf(placeholders);
+    }
+
+    private static <K, V> Map<K, V> lruCache(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
     }
 }
@@ -28,15 +28,17 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
 import net.silthus.schat.message.Message;
 import net.silthus.schat.ui.format.Format;
-import net.silthus.schat.ui.format.MiniMessageFormat;
 import net.silthus.schat.ui.placeholder.ReplacementProvider;
 import net.silthus.schat.ui.view.View;
 
 import static net.kyori.adventure.text.Component.newline;
 import static net.kyori.adventure.text.Component.text;
+import static net.silthus.schat.ui.format.MiniMessageFormat.miniMessageFormat;
 
 public final class ViewHelper {
 
+    private static final Component[] BLANK_LINES = new Component[256];
+
     private static final Map<Integer, Character> numberMap = Map.of(
         0, '₀',
         1, '₁',
@@ -60,6 +62,15 @@ public final class ViewHelper {
     }
 
     public static Component renderBlankLines(int amount) {
+        if (amount < 0 || amount >= BLANK_LINES.length)
+            return buildBlankLines(amount);
+        Component blankLines = BLANK_LINES[amount];
+        if (blankLines == null)
+            BLANK_LINES[amount] = blankLines = buildBlankLines(amount);
+        return blankLines;
+    }
+
+    private static Component buildBlankLines(int amount) {
         final TextComponent.Builder builder = text();
         for (int i = 0; i < amount; i++) {
             builder.append(newline());
@@ -70,7 +81,7 @@ public final class ViewHelper {
     public static Component formatMessage(View view, Message message, Format defaultFormat) {
         final String replacedFormat = message.get(ReplacementProvider.REPLACED_MESSAGE_FORMAT);
         if (replacedFormat != null)
-            return new MiniMessageFormat(replacedFormat).format(view, message);
+            return miniMessageFormat(replacedFormat).format(view, message);
         else
             return defaultFormat.format(view, message);
     }
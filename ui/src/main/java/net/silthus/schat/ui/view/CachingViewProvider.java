@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.WeakHashMap;
 import lombok.NonNull;
 import net.silthus.schat.chatter.Chatter;
+import org.jetbrains.annotations.Nullable;
 
 final class CachingViewProvider implements ViewProvider {
 
@@ -38,7 +39,12 @@ final class CachingViewProvider implements ViewProvider {
     }
 
     @Override
-    public View view(@NonNull Chatter chatter) {
+    public synchronized View view(@NonNull Chatter chatter) {
         return views.computeIfAbsent(chatter, factory::createView);
     }
+
+    @Override
+    public synchronized @Nullable View remove(@NonNull Chatter chatter) {
+        return views.remove(chatter);
+    }
 }
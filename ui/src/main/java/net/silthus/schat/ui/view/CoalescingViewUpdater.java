@@ -0,0 +1,98 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.ui.view;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import static java.util.logging.Level.WARNING;
+
+@Log(topic = "sChat:ViewUpdater")
+final class CoalescingViewUpdater implements ViewUpdater {
+
+    private final long minUpdateInterval;
+    private final LongSupplier clock;
+    private final Set<View> dirtyViews = ConcurrentHashMap.newKeySet();
+    private final Map<View, Long> lastUpdates = new WeakHashMap<>();
+
+    CoalescingViewUpdater(int maxUpdatesPerSecond, LongSupplier clock) {
+        this.minUpdateInterval = maxUpdatesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxUpdatesPerSecond : 0;
+        this.clock = clock;
+    }
+
+    @Override
+    public void requestUpdate(@NonNull View view) {
+        dirtyViews.add(view);
+    }
+
+    @Override
+    public synchronized void discard(@NonNull View view) {
+        dirtyViews.remove(view);
+        lastUpdates.remove(view);
+    }
+
+    @Override
+    public void flush() {
+        for (final View view : takeDueViews())
+            update(view);
+    }
+
+    // the views are rendered outside the lock, which keeps discards and other flushes from waiting on a render pass
+    private synchronized List<View> takeDueViews() {
+        final long now = clock.getAsLong();
+        final List<View> due = new ArrayList<>();
+        final Iterator<View> iterator = dirtyViews.iterator();
+        while (iterator.hasNext()) {
+            final View view = iterator.next();
+            if (isRateLimited(view, now))
+                continue;
+            iterator.remove();
+            lastUpdates.put(view, now);
+            due.add(view);
+        }
+        return due;
+    }
+
+    private boolean isRateLimited(View view, long now) {
+        final Long lastUpdate = lastUpdates.get(view);
+        return lastUpdate != null && now - lastUpdate < minUpdateInterval;
+    }
+
+    private void update(View view) {
+        try {
+            view.update();
+        } catch (Exception e) {
+            log.log(WARNING, "Failed to update the view of " + view.chatter().name(), e);
+        }
+    }
+}
@@ -50,6 +50,20 @@ public class ViewConfig {
 
     @Setting("height")
     private int height = 100;
+    /**
+     * The interval in milliseconds in which changed views are pushed to the chatter.
+     *
+     * <p>Zero updates the view immediately on every change.</p>
+     */
+    @Setting("update_interval")
+    private long updateInterval = 50;
+    /**
+     * The maximum number of view updates a single chatter receives per second.
+     *
+     * <p>Only applies if an {@link #updateInterval} is set. Zero removes the limit.</p>
+     */
+    @Setting("max_updates_per_second")
+    private int maxUpdatesPerSecond = 10;
     @Setting("system_message_format")
     private Format systemMessageFormat = (view, msg) ->
         msg.get(Message.SOURCE)
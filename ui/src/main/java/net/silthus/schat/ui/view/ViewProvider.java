@@ -25,6 +25,7 @@ package net.silthus.schat.ui.view;
 
 import lombok.NonNull;
 import net.silthus.schat.chatter.Chatter;
+import org.jetbrains.annotations.Nullable;
 
 public interface ViewProvider {
 
@@ -33,4 +34,15 @@ public interface ViewProvider {
     }
 
     View view(@NonNull Chatter chatter);
+
+    /**
+     * Removes the cached view of the chatter, e.g. after the chatter left the server.
+     *
+     * @param chatter the chatter
+     * @return the removed view or null if no view was cached
+     * @since 1.0.0
+     */
+    default @Nullable View remove(@NonNull Chatter chatter) {
+        return null;
+    }
 }
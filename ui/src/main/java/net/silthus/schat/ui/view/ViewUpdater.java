@@ -0,0 +1,82 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.ui.view;
+
+import lombok.NonNull;
+
+/**
+ * Decides when a view that changed is pushed to its chatter.
+ *
+ * <p>Views request an update after every change. The {@link #immediate()} updater pushes
+ * the view right away, while the {@link #coalescing(int)} updater only marks the view dirty
+ * and pushes all dirty views once per {@link #flush()}.</p>
+ */
+@FunctionalInterface
+public interface ViewUpdater {
+
+    /**
+     * Creates an updater that updates the view on every request.
+     *
+     * @return the immediate updater
+     */
+    static ViewUpdater immediate() {
+        return View::update;
+    }
+
+    /**
+     * Creates an updater that coalesces all requests for a view until the next {@link #flush()}.
+     *
+     * <p>Each view is updated at most the given amount of times per second.
+     * Views that hit the limit stay dirty and are updated in a later flush.</p>
+     *
+     * @param maxUpdatesPerSecond the maximum updates of a single view per second, zero or less for no limit
+     * @return the coalescing updater
+     */
+    static ViewUpdater coalescing(int maxUpdatesPerSecond) {
+        return new CoalescingViewUpdater(maxUpdatesPerSecond, System::nanoTime);
+    }
+
+    /**
+     * Requests an update of the given view.
+     *
+     * @param view the view that changed
+     */
+    void requestUpdate(@NonNull View view);
+
+    /**
+     * Forgets all pending updates of the given view, e.g. because the view was removed.
+     *
+     * @param view the view to forget
+     */
+    default void discard(@NonNull View view) {
+    }
+
+    /**
+     * Pushes all pending view updates.
+     *
+     * <p>Must be called periodically, e.g. once per server tick, for updaters that coalesce requests.</p>
+     */
+    default void flush() {
+    }
+}
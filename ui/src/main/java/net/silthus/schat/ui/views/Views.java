@@ -26,6 +26,7 @@ package net.silthus.schat.ui.views;
 import lombok.NonNull;
 import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.ui.view.ViewConfig;
+import net.silthus.schat.ui.view.ViewUpdater;
 import net.silthus.schat.ui.views.tabbed.TabbedChannelsView;
 
 public final class Views {
@@ -34,6 +35,10 @@ public final class Views {
         return new TabbedChannelsView(chatter, config);
     }
 
+    public static TabbedChannelsView tabbedChannels(@NonNull Chatter chatter, ViewConfig config, @NonNull ViewUpdater updater) {
+        return new TabbedChannelsView(chatter, config, updater);
+    }
+
     private Views() {
     }
 }
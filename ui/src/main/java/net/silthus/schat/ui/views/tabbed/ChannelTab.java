@@ -23,11 +23,15 @@
  */
 package net.silthus.schat.ui.views.tabbed;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.stream.Stream;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -44,10 +48,9 @@ import org.jetbrains.annotations.Nullable;
 
 import static java.util.stream.Collectors.toMap;
 import static net.kyori.adventure.text.Component.empty;
-import static net.kyori.adventure.text.Component.join;
+import static net.kyori.adventure.text.Component.newline;
 import static net.kyori.adventure.text.Component.text;
 import static net.kyori.adventure.text.Component.translatable;
-import static net.kyori.adventure.text.JoinConfiguration.newlines;
 import static net.kyori.adventure.text.event.ClickEvent.Action.RUN_COMMAND;
 import static net.kyori.adventure.text.event.ClickEvent.clickEvent;
 import static net.kyori.adventure.text.format.NamedTextColor.GRAY;
@@ -73,21 +76,28 @@ public class ChannelTab implements Tab {
     private final SortedMap<Message, Component> messages;
     private int unreadCount = 0;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private @Nullable Component renderedMessages;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private @Nullable RenderedName renderedName;
+
     protected ChannelTab(@NonNull TabbedChannelsView view,
                          @NonNull Channel channel) {
         this.view = view;
         this.channel = channel;
-        this.settings = Settings.settingsBuilder()
+        this.settings = channel.settings().toBuilder()
             .withForward(NAME, channel, Channel.DISPLAY_NAME)
             .withForward(KEY, channel, Channel.KEY)
             .withStatic(CHANNEL, channel)
             .withStatic(VIEWER, view.chatter())
-            .create()
-            .copyFrom(channel.settings());
+            .create();
         this.messages = new TreeMap<>(Stream.concat(channel.messages().stream(), view.chatter().messages().stream())
             .filter(this::isMessageDisplayed)
             .distinct()
             .collect(toMap(message -> message, this::renderMessage)));
+        trimMessages();
         if (!isActive())
             unreadCount(messages.size());
     }
@@ -98,15 +108,23 @@ public class ChannelTab implements Tab {
 
     @Override
     public Component renderName() {
-        final Component name;
-        if (isActive())
-            name = style(name(), config().activeColor(), config().activeDecoration());
+        final Component name = name();
+        final boolean active = isActive();
+        if (renderedName == null || !renderedName.isRenderOf(name, active, unreadCount()))
+            renderedName = new RenderedName(name, active, unreadCount(), renderName(name, active));
+        return renderedName.component();
+    }
+
+    private Component renderName(Component name, boolean active) {
+        final Component styledName;
+        if (active)
+            styledName = style(name, config().activeColor(), config().activeDecoration());
         else if (config().highlightUnread() && isUnread())
-            name = joinChannel(style(name(), config().unreadColor(), config().unreadDecoration()));
+            styledName = joinChannel(style(name, config().unreadColor(), config().unreadDecoration()));
         else
-            name = joinChannel(style(name(), config().inactiveColor(), config().inactiveDecoration()));
+            styledName = joinChannel(style(name, config().inactiveColor(), config().inactiveDecoration()));
 
-        final Component tabName = closeChannel().append(name);
+        final Component tabName = closeChannel().append(styledName);
         if (config().showUnreadCount() && isUnread())
             return tabName.append(style(text(subscriptOf(unreadCount())), config().unreadCountColor(), config().unreadCountDecoration()));
         else
@@ -121,13 +139,39 @@ public class ChannelTab implements Tab {
     public Component render() {
         if (isActive())
             resetUnreadCounter();
-        return join(newlines(), messages.values());
+        if (renderedMessages == null)
+            renderedMessages = joinLines(messages.values());
+        return renderedMessages;
+    }
+
+    private static Component joinLines(Collection<Component> lines) {
+        final List<Component> children = new ArrayList<>(lines.size() * 2);
+        for (final Component line : lines) {
+            if (!children.isEmpty())
+                children.add(newline());
+            children.add(line);
+        }
+        return empty().children(children);
+    }
+
+    // reuses the rendered lines and only drops the oldest line and its separator
+    private static Component appendLine(Component rendered, Component line, boolean dropOldest) {
+        final List<Component> lines = rendered.children();
+        final int from = dropOldest ? Math.min(2, lines.size()) : 0;
+        final List<Component> children = new ArrayList<>(lines.size() - from + 2);
+        children.addAll(lines.subList(from, lines.size()));
+        if (!children.isEmpty())
+            children.add(newline());
+        children.add(line);
+        return rendered.children(children);
     }
 
     protected void refresh() {
         for (Map.Entry<Message, Component> entry : messages().entrySet()) {
             entry.setValue(renderMessage(entry.getKey()));
         }
+        renderedMessages = null;
+        renderedName = null;
     }
 
     @Override
@@ -139,11 +183,32 @@ public class ChannelTab implements Tab {
     public void onReceivedMessage(Message message) {
         if (!isMessageDisplayed(message))
             return;
-        this.messages.put(message, renderMessage(message));
+        final Component line = renderMessage(message);
+        final Component replaced = this.messages.put(message, line);
+        final boolean dropped = trimMessages();
+        if (replaced == null && renderedMessages != null && message.equals(messages.lastKey()))
+            this.renderedMessages = appendLine(renderedMessages, line, dropped);
+        else if (messages.containsKey(message))
+            this.renderedMessages = null;
         if (!isActive())
             unreadCount++;
     }
 
+    /**
+     * Drops the oldest messages that no longer fit into the chat box of the view.
+     *
+     * @return true if a message was dropped
+     */
+    private boolean trimMessages() {
+        final int maxLength = Math.max(view.config().height(), 1);
+        boolean dropped = false;
+        while (messages.size() > maxLength) {
+            messages.remove(messages.firstKey());
+            dropped = true;
+        }
+        return dropped;
+    }
+
     public boolean isUnread() {
         return unreadCount() > 0;
     }
@@ -212,4 +277,16 @@ public class ChannelTab implements Tab {
     private void resetUnreadCounter() {
         unreadCount(0);
     }
+
+    /**
+     * The last rendered tab name together with the state it was rendered for.
+     */
+    private record RenderedName(Component name, boolean active, int unreadCount, Component component) {
+
+        boolean isRenderOf(Component name, boolean active, int unreadCount) {
+            return this.active == active
+                && this.unreadCount == unreadCount
+                && (this.name == name || this.name.equals(name));
+        }
+    }
 }
@@ -23,12 +23,13 @@
  */
 package net.silthus.schat.ui.views.tabbed;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import net.kyori.adventure.text.Component;
@@ -48,6 +49,7 @@ import net.silthus.schat.pointer.Setting;
 import net.silthus.schat.ui.util.ViewHelper;
 import net.silthus.schat.ui.view.View;
 import net.silthus.schat.ui.view.ViewConfig;
+import net.silthus.schat.ui.view.ViewUpdater;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -70,62 +72,74 @@ public class TabbedChannelsView implements View {
 
     private final Chatter chatter;
     private final ViewConfig config;
+    private final ViewUpdater updater;
 
+    // guarded by this, the event handlers change the tabs on any thread while render() runs on the flushing thread
     private final SortedMap<Channel, Tab> tabs = new TreeMap<>();
 
+    @Getter(AccessLevel.NONE)
+    private List<Component> renderedTabNames = List.of();
+    @Getter(AccessLevel.NONE)
+    private Component renderedTabBar = Component.empty();
+
     public TabbedChannelsView(Chatter chatter, ViewConfig config) {
+        this(chatter, config, ViewUpdater.immediate());
+    }
+
+    public TabbedChannelsView(Chatter chatter, ViewConfig config, ViewUpdater updater) {
         this.chatter = chatter;
         this.config = config;
+        this.updater = updater;
         chatter.channels().forEach(channel -> addTab(new ChannelTab(this, channel)));
-        update();
+        requestUpdate();
     }
 
     @Subscribe
-    protected void onSettingsChange(ChannelSettingsChanged event) {
+    protected synchronized void onSettingsChange(ChannelSettingsChanged event) {
         tab(event.channel()).ifPresent(ChannelTab::refresh);
-        update();
+        requestUpdate();
     }
 
     @Subscribe
-    protected void onSettingChange(ChannelSettingChangedEvent<?> event) {
+    protected synchronized void onSettingChange(ChannelSettingChangedEvent<?> event) {
         tab(event.channel()).ifPresent(ChannelTab::refresh);
-        update();
+        requestUpdate();
     }
 
     @Subscribe
-    protected void onJoinedChannel(ChatterJoinedChannelEvent event) {
+    protected synchronized void onJoinedChannel(ChatterJoinedChannelEvent event) {
         if (isNotApplicable(event.chatter()))
             return;
         addTab(event.channel());
-        update();
+        requestUpdate();
     }
 
     @Subscribe
-    protected void onLeftChannel(ChatterLeftChannelEvent event) {
+    protected synchronized void onLeftChannel(ChatterLeftChannelEvent event) {
         if (isNotApplicable(event.chatter()))
             return;
         removeTab(event.channel());
-        update();
+        requestUpdate();
     }
 
     @Subscribe
-    protected void onChangeChannel(ChatterChangedActiveChannelEvent event) {
+    protected synchronized void onChangeChannel(ChatterChangedActiveChannelEvent event) {
         if (isNotApplicable(event.chatter()))
             return;
         tab(event.newChannel()).ifPresent(ChannelTab::activate);
-        update();
+        requestUpdate();
     }
 
     @Subscribe
-    protected void onMessage(ChatterReceivedMessageEvent event) {
+    protected synchronized void onMessage(ChatterReceivedMessageEvent event) {
         if (isNotApplicable(event.chatter()))
             return;
         tabs().values().forEach(tab -> tab.onReceivedMessage(event.message()));
-        update();
+        requestUpdate();
     }
 
     @Override
-    public Component render() {
+    public synchronized Component render() {
         final TextComponent.Builder content = text()
             .append(ViewHelper.renderBlankLines(blankLineCount()));
 
@@ -144,10 +158,32 @@ public class TabbedChannelsView implements View {
 
         return content
             .append(newline())
-            .append(joinTabs(tabs.stream().map(Tab::renderName).toList()))
+            .append(renderTabBar(tabs))
             .build();
     }
 
+    private Component renderTabBar(Collection<Tab> tabs) {
+        final List<Component> names = new ArrayList<>(tabs.size());
+        for (final Tab tab : tabs) {
+            names.add(tab.renderName());
+        }
+        if (!isSameRender(names, renderedTabNames)) {
+            renderedTabNames = names;
+            renderedTabBar = joinTabs(names);
+        }
+        return renderedTabBar;
+    }
+
+    private static boolean isSameRender(List<Component> names, List<Component> renderedNames) {
+        if (names.size() != renderedNames.size())
+            return false;
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i) != renderedNames.get(i))
+                return false;
+        }
+        return true;
+    }
+
     private Component renderSystemMessages() {
         return join(newlines(), chatter().messages().stream()
             .filter(Message.IS_SYSTEM_MESSAGE)
@@ -185,14 +221,21 @@ public class TabbedChannelsView implements View {
         return Optional.ofNullable((ChannelTab) tabs.get(channel));
     }
 
+    private void requestUpdate() {
+        updater.requestUpdate(this);
+    }
+
     private boolean isNotApplicable(Chatter chatter) {
         return !chatter().equals(chatter);
     }
 
     private int blankLineCount() {
-        return config.height() - tabs.values().stream()
-            .map(Tab::length)
-            .min(Comparator.naturalOrder())
-            .orElse(0);
+        if (tabs.isEmpty())
+            return config.height();
+        int minLength = Integer.MAX_VALUE;
+        for (final Tab tab : tabs.values()) {
+            minLength = Math.min(minLength, tab.length());
+        }
+        return config.height() - minLength;
     }
 }
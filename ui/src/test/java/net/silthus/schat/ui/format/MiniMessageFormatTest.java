@@ -93,4 +93,35 @@ class MiniMessageFormatTest {
             "<aqua>(<green>Test</green>) <yellow><dark_red>Bobby</dark_red><gray>: Hey <bold><red>@Silthus"
         );
     }
+
+    @Test
+    void compiles_referenced_placeholders() {
+        assertThat(new MiniMessageFormat("<gray><source_display_name></gray>: <text>").placeholders())
+            .containsExactly("source_display_name", "text");
+    }
+
+    @Test
+    void miniMessageFormat_caches_formats_by_format_string() {
+        assertThat(MiniMessageFormat.miniMessageFormat("<gray><text>"))
+            .isSameAs(MiniMessageFormat.miniMessageFormat("<gray><text>"));
+    }
+
+    @Test
+    void same_message_is_only_parsed_once() {
+        final MiniMessageFormat format = new MiniMessageFormat("<gray><text>");
+        final Message message = message("Hi").create();
+        assertThat(format.format(View.empty(), message)).isSameAs(format.format(View.empty(), message));
+    }
+
+    @Test
+    void changed_placeholder_values_are_rendered() {
+        final MiniMessageFormat format = new MiniMessageFormat("<source_active_channel_name>: <text>");
+        final ChatterMock source = chatterMock(identity("Bob"));
+        source.activeChannel(channel("one").name(text("One")).create());
+        final Message message = message("Hi").source(source).create();
+        assertThat(SERIALIZER.serialize(format.format(View.empty(), message).compact())).isEqualTo("One: Hi");
+
+        source.activeChannel(channel("two").name(text("Two")).create());
+        assertThat(SERIALIZER.serialize(format.format(View.empty(), message).compact())).isEqualTo("Two: Hi");
+    }
 }
@@ -59,4 +59,10 @@ class ViewHelperTest {
         assertSubscript(25, "25");
         assertSubscript(10327032, "10327032");
     }
+
+    @Test
+    void blank_lines_are_reused() {
+        assertThat(ViewHelper.renderBlankLines(10)).isSameAs(ViewHelper.renderBlankLines(10));
+        assertThat(ViewHelper.renderBlankLines(3).children()).hasSize(3);
+    }
 }
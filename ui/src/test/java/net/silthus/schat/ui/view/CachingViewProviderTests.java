@@ -23,6 +23,8 @@
  */
 package net.silthus.schat.ui.view;
 
+import net.kyori.adventure.text.Component;
+import net.silthus.schat.chatter.Chatter;
 import net.silthus.schat.chatter.ChatterMock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -38,7 +40,17 @@ class CachingViewProviderTests {
 
     @BeforeEach
     void setUp() {
-        viewProvider = cachingViewProvider(chatter -> View.empty());
+        viewProvider = cachingViewProvider(chatter -> new View() {
+            @Override
+            public Chatter chatter() {
+                return chatter;
+            }
+
+            @Override
+            public Component render() {
+                return Component.empty();
+            }
+        });
     }
 
     @Nested class getView {
@@ -67,6 +79,13 @@ class CachingViewProviderTests {
                 final View view = viewProvider.view(chatter);
                 assertThat(view).isSameAs(viewProvider.view(chatter));
             }
+
+            @Test
+            void removed_view_is_recreated() {
+                final View view = viewProvider.view(chatter);
+                assertThat(viewProvider.remove(chatter)).isSameAs(view);
+                assertThat(viewProvider.view(chatter)).isNotSameAs(view);
+            }
         }
     }
 }
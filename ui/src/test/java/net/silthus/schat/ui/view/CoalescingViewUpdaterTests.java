@@ -0,0 +1,158 @@
+/*
+ * This file is part of sChat, licensed under the MIT License.
+ * Copyright (C) Silthus <https://www.github.com/silthus>
+ * Copyright (C) sChat team and contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.silthus.schat.ui.view;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.kyori.adventure.text.Component;
+import net.silthus.schat.chatter.Chatter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingViewUpdaterTests {
+
+    private long now = 0;
+    private CoalescingViewUpdater updater;
+    private CountingView view;
+
+    @BeforeEach
+    void setUp() {
+        updater = new CoalescingViewUpdater(2, () -> now);
+        view = new CountingView();
+    }
+
+    private void advance(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    void request_does_not_update_view() {
+        updater.requestUpdate(view);
+        assertThat(view.updates).isZero();
+    }
+
+    @Test
+    void flush_updates_dirty_view_once() {
+        updater.requestUpdate(view);
+        updater.requestUpdate(view);
+        updater.requestUpdate(view);
+        updater.flush();
+        assertThat(view.updates).isEqualTo(1);
+    }
+
+    @Test
+    void flush_without_requests_does_not_update() {
+        updater.flush();
+        assertThat(view.updates).isZero();
+    }
+
+    @Test
+    void flush_does_not_update_discarded_view() {
+        updater.requestUpdate(view);
+        updater.discard(view);
+        updater.flush();
+        assertThat(view.updates).isZero();
+    }
+
+    @Test
+    void discard_does_not_wait_for_running_flush() {
+        final AtomicBoolean discarded = new AtomicBoolean();
+        final View blocking = new CountingView() {
+            @Override
+            public void update() {
+                final Thread thread = new Thread(() -> {
+                    updater.discard(view);
+                    discarded.set(true);
+                });
+                thread.start();
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        updater.requestUpdate(blocking);
+        updater.flush();
+        assertThat(discarded).isTrue();
+    }
+
+    @Nested class given_view_was_updated {
+        @BeforeEach
+        void setUp() {
+            updater.requestUpdate(view);
+            updater.flush();
+        }
+
+        @Test
+        void then_updates_above_the_rate_limit_are_delayed() {
+            advance(100);
+            updater.requestUpdate(view);
+            updater.flush();
+            assertThat(view.updates).isEqualTo(1);
+
+            advance(400);
+            updater.flush();
+            assertThat(view.updates).isEqualTo(2);
+        }
+
+        @Test
+        void then_delayed_update_is_not_repeated() {
+            advance(500);
+            updater.requestUpdate(view);
+            updater.flush();
+            advance(500);
+            updater.flush();
+            assertThat(view.updates).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void immediate_updater_updates_on_request() {
+        ViewUpdater.immediate().requestUpdate(view);
+        assertThat(view.updates).isEqualTo(1);
+    }
+
+    private static class CountingView implements View {
+        private int updates = 0;
+
+        @Override
+        public Chatter chatter() {
+            return Chatter.empty();
+        }
+
+        @Override
+        public Component render() {
+            return Component.empty();
+        }
+
+        @Override
+        public void update() {
+            updates++;
+        }
+    }
+}
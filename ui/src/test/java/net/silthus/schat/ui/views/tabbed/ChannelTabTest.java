@@ -24,6 +24,7 @@
 package net.silthus.schat.ui.views.tabbed;
 
 import lombok.SneakyThrows;
+import net.kyori.adventure.text.Component;
 import net.silthus.schat.channel.Channel;
 import net.silthus.schat.channel.ChannelHelper;
 import net.silthus.schat.chatter.ChatterMock;
@@ -132,4 +133,72 @@ class ChannelTabTest {
             assertThat(tab.length()).isEqualTo(5);
         }
     }
+
+    @Nested class given_more_messages_than_fit_into_the_view {
+        @BeforeEach
+        void setUp() {
+            TabbedChannelsView view = new TabbedChannelsView(chatter, new ViewConfig().height(3));
+            eventBus.register(view);
+            tab = view.tab(channel).get();
+        }
+
+        @Test
+        void only_the_last_messages_are_kept() {
+            sendMessages(5);
+            assertThat(tab.length()).isEqualTo(3);
+            assertThat(tab.messages().lastKey()).isEqualTo(channel.messages().last());
+        }
+
+        @Test
+        void appended_messages_render_the_same_as_a_full_render() {
+            for (int i = 0; i < 5; i++) {
+                tab.render();
+                sendMessages(1);
+            }
+            final Component appended = tab.render();
+            tab.refresh();
+            assertThat(tab.render()).isEqualTo(appended);
+        }
+    }
+
+    @Nested
+    class rendering {
+
+        @Test
+        void unchanged_tab_reuses_rendered_messages() {
+            sendMessages(2);
+            assertThat(tab.render()).isSameAs(tab.render());
+        }
+
+        @Test
+        void new_message_renders_new_content() {
+            sendMessages(1);
+            final Component rendered = tab.render();
+            sendMessages(1);
+            assertThat(tab.render()).isNotSameAs(rendered);
+        }
+
+        @Test
+        void unchanged_tab_reuses_rendered_name() {
+            assertThat(tab.renderName()).isSameAs(tab.renderName());
+        }
+
+        @Test
+        void unread_messages_render_new_name() {
+            chatter.activeChannel(null);
+            final Component name = tab.renderName();
+            sendMessages(1);
+            assertThat(tab.renderName()).isNotSameAs(name);
+        }
+
+        @Test
+        void refresh_renders_new_content() {
+            sendMessages(1);
+            final Component rendered = tab.render();
+            final Component name = tab.renderName();
+            tab.refresh();
+            assertThat(tab.render()).isNotSameAs(rendered);
+            assertThat(tab.renderName()).isNotSameAs(name);
+        }
+    }
 }
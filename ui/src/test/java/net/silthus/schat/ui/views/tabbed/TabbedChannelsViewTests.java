@@ -23,6 +23,12 @@
  */
 package net.silthus.schat.ui.views.tabbed;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import lombok.SneakyThrows;
 import net.kyori.adventure.text.JoinConfiguration;
 import net.kyori.adventure.text.flattener.ComponentFlattener;
@@ -33,9 +39,15 @@ import net.silthus.schat.channel.Channel;
 import net.silthus.schat.chatter.ChatterMock;
 import net.silthus.schat.commands.CreatePrivateChannelCommand;
 import net.silthus.schat.eventbus.EventBusMock;
+import net.silthus.schat.events.channel.ChannelSettingsChanged;
+import net.silthus.schat.events.channel.ChatterJoinedChannelEvent;
+import net.silthus.schat.events.channel.ChatterLeftChannelEvent;
+import net.silthus.schat.events.chatter.ChatterReceivedMessageEvent;
 import net.silthus.schat.identity.Identity;
+import net.silthus.schat.message.FanOut;
 import net.silthus.schat.message.Message;
 import net.silthus.schat.message.MessageSource;
+import net.silthus.schat.message.TargetsPrototype;
 import net.silthus.schat.ui.view.ViewConfig;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterEach;
@@ -176,6 +188,110 @@ class TabbedChannelsViewTests {
         assertThat(view.tabs()).containsKeys(one, two);
     }
 
+    @Test
+    void render_is_not_interrupted_by_concurrent_changes() throws Exception {
+        final CompletableFuture<Void> changes = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 500; i++) {
+                final Channel channel = randomChannel();
+                view.onJoinedChannel(new ChatterJoinedChannelEvent(chatter, channel));
+                view.onMessage(new ChatterReceivedMessageEvent(chatter, randomMessage()));
+                view.onLeftChannel(new ChatterLeftChannelEvent(chatter, channel));
+            }
+        });
+        while (!changes.isDone())
+            view.render();
+        changes.get();
+    }
+
+    @Nested
+    class given_async_event_dispatch {
+
+        private ExecutorService executor;
+
+        @BeforeEach
+        void setUp() {
+            executor = Executors.newFixedThreadPool(4);
+            eventBus.dispatchAsync(executor);
+        }
+
+        @AfterEach
+        void tearDown() {
+            executor.shutdownNow();
+        }
+
+        @Test
+        void events_from_chatter_and_channel_lanes_are_applied() throws InterruptedException {
+            final List<Channel> channels = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                final Channel channel = randomChannel();
+                channels.add(channel);
+                eventBus.post(new ChatterJoinedChannelEvent(chatter, channel));
+                eventBus.post(new ChannelSettingsChanged(channel, channel.settings(), channel.settings()));
+                view.render();
+            }
+            final Message last = message("last").to(channels.get(49)).create();
+            eventBus.post(new ChatterReceivedMessageEvent(chatter, last));
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!hasUnreadMessages(channels.get(49))) {
+                assertThat(System.nanoTime()).isLessThan(deadline);
+                view.render();
+                Thread.sleep(5);
+            }
+            synchronized (view) {
+                assertThat(view.tabs()).containsKeys(channels.toArray(Channel[]::new));
+            }
+        }
+
+        private boolean hasUnreadMessages(Channel channel) {
+            synchronized (view) {
+                return view.tab(channel).map(ChannelTab::isUnread).orElse(false);
+            }
+        }
+    }
+
+    @Nested
+    class given_parallel_message_delivery {
+
+        private ExecutorService executor;
+        private Channel channel;
+        private final List<TabbedChannelsView> views = new ArrayList<>();
+
+        @BeforeEach
+        void setUp() {
+            executor = Executors.newFixedThreadPool(4);
+            TargetsPrototype.configure(FanOut.parallel(new FanOut.Config(true, 4, 8), executor));
+            channel = randomChannel();
+            for (int i = 0; i < 64; i++) {
+                final ChatterMock member = randomChatter();
+                member.activeChannel(channel);
+                final TabbedChannelsView memberView = new TabbedChannelsView(member, new ViewConfig());
+                eventBus.register(memberView);
+                views.add(memberView);
+            }
+        }
+
+        @AfterEach
+        void tearDown() {
+            TargetsPrototype.configure(FanOut.sequential());
+            executor.shutdownNow();
+        }
+
+        @Test
+        void views_render_while_messages_are_delivered_in_parallel() throws Exception {
+            final CompletableFuture<Void> delivery = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 100; i++)
+                    message("message " + i).to(channel).send();
+            });
+            while (!delivery.isDone())
+                views.forEach(TabbedChannelsView::render);
+            delivery.get();
+
+            for (final TabbedChannelsView memberView : views)
+                assertThat(PLAIN_TEXT_SERIALIZER.serialize(memberView.render())).contains("message 99");
+        }
+    }
+
     @Nested
     class given_single_message {
 
@@ -33,7 +33,7 @@ import static net.silthus.schat.channel.ChannelRepository.createInMemoryChannelR
 public final class ViewModuleMock extends ViewModule {
 
     public static ViewModuleMock viewModuleMock(EventBus eventBus) {
-        final ViewModuleMock module = new ViewModuleMock(new ViewConfig(), eventBus, GsonProvider.gsonProvider());
+        final ViewModuleMock module = new ViewModuleMock(new ViewConfig().updateInterval(0), eventBus, GsonProvider.gsonProvider());
         module.init();
         return module;
     }
@@ -24,6 +24,7 @@
 package net.silthus.schat.velocity.adapter;
 
 import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.connection.PluginMessageEvent;
 import com.velocitypowered.api.event.player.ServerPostConnectEvent;
 import com.velocitypowered.api.proxy.ProxyServer;
@@ -31,23 +32,39 @@ import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
 import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
-import java.util.ArrayDeque;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
 import lombok.extern.java.Log;
 import net.silthus.schat.messenger.MessengerGateway;
 import net.silthus.schat.platform.config.ConfigKeys;
+import net.silthus.schat.platform.config.SChatConfig;
+import net.silthus.schat.platform.messaging.ChunkedFraming;
+import net.silthus.schat.platform.messaging.MessageRouter;
+import net.silthus.schat.platform.messaging.OfflineMessageQueue;
 import net.silthus.schat.platform.plugin.scheduler.SchedulerAdapter;
 import net.silthus.schat.velocity.VelocityBootstrap;
+import org.jetbrains.annotations.Nullable;
 
 import static com.velocitypowered.api.event.connection.PluginMessageEvent.ForwardResult.forward;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_COMPRESSION;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_FRAMING;
+import static net.silthus.schat.platform.config.ConfigKeys.MESSAGE_ROUTING;
+import static net.silthus.schat.platform.config.ConfigKeys.OFFLINE_QUEUE;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.chunkedFraming;
+import static net.silthus.schat.platform.messaging.ChunkedFraming.isFrame;
+import static net.silthus.schat.platform.messaging.MessageRouter.messageRouter;
+import static net.silthus.schat.platform.messaging.OfflineMessageQueue.offlineMessageQueue;
 
+@Log(topic = "sChat:MessengerGateway")
 public class VelocityMessengerGateway implements MessengerGateway {
 
     public static final String GATEWAY_TYPE = "pluginmessage";
     public static final ChannelIdentifier CHANNEL = MinecraftChannelIdentifier.create("schat", "update");
+    public static final String OFFLINE_QUEUE_FILE = "offline-queue.dat";
 
     public static VelocityMessengerGateway createVelocityMessengerGateway(VelocityBootstrap bootstrap) {
         if (bootstrap.plugin().config().get(ConfigKeys.DEBUG))
@@ -59,44 +76,123 @@ public class VelocityMessengerGateway implements MessengerGateway {
     private final ProxyServer proxy;
     private final SchedulerAdapter scheduler;
     private final VelocityBootstrap bootstrap;
-    private final Map<String, Queue<byte[]>> queuedPackets = new ConcurrentHashMap<>();
+    private final ChunkedFraming framing;
+    private final ChunkedFraming.Reassembler reassembler;
+    private final @Nullable MessageRouter router;
+    private final OfflineMessageQueue offlineQueue;
+    private final Path offlineQueueFile;
 
     private VelocityMessengerGateway(VelocityBootstrap bootstrap) {
         this.proxy = bootstrap.proxy();
         this.scheduler = bootstrap.scheduler();
         this.bootstrap = bootstrap;
+        final SChatConfig config = bootstrap.plugin().config();
+        this.framing = chunkedFraming(config.get(MESSAGE_FRAMING));
+        this.reassembler = framing.reassembler();
+        this.router = config.get(MESSAGE_ROUTING)
+            ? messageRouter(bootstrap.plugin().serializer(), config.get(MESSAGE_COMPRESSION).maxMessageSize())
+            : null;
+        this.offlineQueue = offlineMessageQueue(config.get(OFFLINE_QUEUE));
+        this.offlineQueueFile = bootstrap.configDirectory().resolve(OFFLINE_QUEUE_FILE);
+        loadOfflineQueue();
         this.proxy.getChannelRegistrar().register(CHANNEL);
         this.proxy.getEventManager().register(bootstrap, this);
     }
 
+    private void loadOfflineQueue() {
+        try {
+            offlineQueue.load(offlineQueueFile);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to load the offline message queue from " + offlineQueueFile, e);
+        }
+    }
+
     @Override
-    public void sendOutgoingMessage(String encodedMessage) {
-        sendToAllServers(encodedMessage.getBytes(UTF_8));
+    public void sendOutgoingMessage(byte[] encodedMessage) {
+        sendToAllServers(framing.frame(encodedMessage));
     }
 
-    private void sendToAllServers(byte[] bytes) {
+    private void sendToAllServers(List<byte[]> frames) {
         for (RegisteredServer server : proxy.getAllServers()) {
-            scheduler.async().execute(() -> sendToServer(server, bytes));
+            scheduler.async().execute(() -> sendToServer(server, frames));
         }
     }
 
-    protected boolean sendToServer(RegisteredServer server, byte[] bytes) {
-        if (!server.sendPluginMessage(CHANNEL, bytes)) {
-            queuedPackets.computeIfAbsent(server.getServerInfo().getName(), s -> new ArrayDeque<>()).add(bytes);
+    private void sendToServers(Set<String> recipients, List<byte[]> frames) {
+        for (RegisteredServer server : proxy.getAllServers()) {
+            if (recipients.contains(server.getServerInfo().getName()))
+                scheduler.async().execute(() -> sendToServer(server, frames));
+        }
+    }
+
+    protected boolean sendToServer(RegisteredServer server, List<byte[]> frames) {
+        if (!deliver(server, frames)) {
+            offlineQueue.enqueue(server.getServerInfo().getName(), frames);
             return false;
         } else {
             return true;
         }
     }
 
+    private boolean deliver(RegisteredServer server, List<byte[]> frames) {
+        return !server.getPlayersConnected().isEmpty() && sendFrames(server, frames);
+    }
+
+    private boolean sendFrames(RegisteredServer server, List<byte[]> frames) {
+        for (final byte[] frame : frames) {
+            if (!server.sendPluginMessage(CHANNEL, frame))
+                return false;
+        }
+        return true;
+    }
+
     @Subscribe
     public void onIncomingMessage(PluginMessageEvent event) {
         if (!event.getIdentifier().equals(CHANNEL))
             return;
-        sendToAllServers(event.getData());
+        if (router != null && event.getSource() instanceof ServerConnection origin && isFrame(event.getData()))
+            route(origin.getServerInfo().getName(), event.getData());
+        else if (isFrame(event.getData()))
+            relay(event.getData());
+        else
+            sendToAllServers(List.of(event.getData()));
         event.setResult(forward());
     }
 
+    // frames are forwarded unchanged and only collected into a whole message if a server is offline
+    private void relay(byte[] frame) {
+        for (RegisteredServer server : proxy.getAllServers()) {
+            scheduler.async().execute(() -> relayToServer(server, frame));
+        }
+    }
+
+    protected boolean relayToServer(RegisteredServer server, byte[] frame) {
+        return offlineQueue.offerFrame(server.getServerInfo().getName(), frame, payload -> deliver(server, List.of(payload)));
+    }
+
+    private void route(String origin, byte[] frame) {
+        final byte[] message = reassemble(frame);
+        if (message == null)
+            return;
+        final List<String> servers = proxy.getAllServers().stream().map(server -> server.getServerInfo().getName()).toList();
+        sendToServers(router.route(origin, message, servers), framing.frame(message));
+    }
+
+    private byte @Nullable [] reassemble(byte[] frame) {
+        try {
+            return reassembler.accept(frame);
+        } catch (IllegalArgumentException e) {
+            sendToAllServers(List.of(frame));
+            return null;
+        }
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        if (router != null)
+            router.remove(event.getPlayer().getUniqueId());
+    }
+
     @Subscribe
     @SuppressWarnings("UnstableApiUsage")
     public void onConnect(ServerPostConnectEvent event) {
@@ -105,16 +201,27 @@ public class VelocityMessengerGateway implements MessengerGateway {
     }
 
     protected void flushMessageQueue(ServerConnection connection) {
-        final Queue<byte[]> queue = queuedPackets.remove(connection.getServerInfo().getName());
-        if (queue != null)
-            while (!queue.isEmpty())
-                sendToServer(connection.getServer(), queue.poll());
+        final RegisteredServer server = connection.getServer();
+        offlineQueue.flush(server.getServerInfo().getName(), frames -> deliver(server, frames));
     }
 
     @Override
     public void close() {
         this.proxy.getEventManager().unregisterListener(bootstrap, this);
         this.proxy.getChannelRegistrar().unregister(CHANNEL);
+        try {
+            offlineQueue.save(offlineQueueFile);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to save the offline message queue to " + offlineQueueFile, e);
+        }
+    }
+
+    protected @Nullable MessageRouter router() {
+        return router;
+    }
+
+    protected OfflineMessageQueue offlineQueue() {
+        return offlineQueue;
     }
 
     @Log(topic = "sChat:MessengerGateway")
@@ -131,18 +238,35 @@ public class VelocityMessengerGateway implements MessengerGateway {
         }
 
         @Override
-        protected boolean sendToServer(RegisteredServer server, byte[] bytes) {
+        protected boolean sendToServer(RegisteredServer server, List<byte[]> frames) {
             log.info("Forwarding Message to: " + server.getServerInfo().getName());
-            final boolean delivered = super.sendToServer(server, bytes);
+            final boolean delivered = super.sendToServer(server, frames);
             if (!delivered)
                 log.info("---- QUEUED MESSAGE ----");
             return delivered;
         }
 
+        @Override
+        protected boolean relayToServer(RegisteredServer server, byte[] frame) {
+            log.info("Relaying Frame to: " + server.getServerInfo().getName());
+            final boolean delivered = super.relayToServer(server, frame);
+            if (!delivered)
+                log.info("---- QUEUED FRAME ----");
+            return delivered;
+        }
+
         @Override
         protected void flushMessageQueue(ServerConnection connection) {
             log.info("Player Connected to " + connection.getServerInfo().getName() + " - FLUSHING MESSAGE QUEUE");
             super.flushMessageQueue(connection);
         }
+
+        @Override
+        public void close() {
+            if (router() != null)
+                log.info("Message Routing: " + router());
+            log.info("Offline Queue: " + offlineQueue());
+            super.close();
+        }
     }
 }